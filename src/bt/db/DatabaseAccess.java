@@ -1,9 +1,26 @@
 package bt.db;
 
+import bt.db.cache.CatalogCache;
+import bt.db.cache.EntityCache;
+import bt.db.cache.EntityCache.ReferenceType;
+import bt.db.cache.PropertyCache;
+import bt.db.cache.QueryCoalescer;
+import bt.db.cache.QueryResultCache;
+import bt.db.cache.SchemaCache;
+import bt.db.cache.TableMetadata;
 import bt.db.config.DatabaseConfiguration;
 import bt.db.constants.SqlType;
 import bt.db.constants.SqlValue;
+import bt.db.exc.DatabaseNotReadyException;
 import bt.db.func.Sql;
+import bt.db.listener.AsyncEventDispatcher;
+import bt.db.listener.AsyncEventDispatcher.OverflowPolicy;
+import bt.db.listener.ChangeBuffer;
+import bt.db.listener.ChangeJournal;
+import bt.db.listener.DebouncedListener;
+import bt.db.listener.ListenerRegistry;
+import bt.db.listener.RowPayload;
+import bt.db.listener.TriggerProvisioner;
 import bt.db.listener.evnt.DatabaseChangeEvent;
 import bt.db.listener.evnt.DeleteEvent;
 import bt.db.listener.evnt.InsertEvent;
@@ -12,13 +29,16 @@ import bt.db.listener.impl.IdentityListener;
 import bt.db.server.QueryServer;
 import bt.db.statement.Alter;
 import bt.db.statement.Create;
+import bt.db.statement.SqlModifyStatement;
 import bt.db.statement.clause.Column;
 import bt.db.statement.clause.ColumnEntry;
+import bt.db.statement.clause.TriggerCondition;
 import bt.db.statement.impl.*;
 import bt.db.statement.result.SqlResult;
 import bt.db.statement.result.SqlResultSet;
 import bt.db.statement.result.StreamableResultSet;
 import bt.db.store.SqlEntry;
+import bt.db.store.WriteBehindPersister;
 import bt.log.Log;
 import bt.runtime.InstanceKiller;
 import bt.runtime.evnt.Dispatcher;
@@ -26,9 +46,23 @@ import bt.types.Killable;
 import bt.utils.*;
 
 import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 /**
@@ -38,6 +72,24 @@ import java.util.function.Consumer;
  */
 public abstract class DatabaseAccess implements Killable
 {
+    /**
+     * Defines how the database is used by other threads while it is still booting.
+     *
+     * @author &#8904
+     */
+    public enum ReadinessPolicy
+    {
+        /**
+         * Threads that use the database block until the boot finished.
+         */
+        WAIT,
+
+        /**
+         * Using the database throws a {@link DatabaseNotReadyException} until the boot finished.
+         */
+        FAIL_FAST
+    }
+
     /**
      * The connection String for a default database located at a ./db folder.
      * <p>
@@ -70,10 +122,21 @@ public abstract class DatabaseAccess implements Killable
      */
     public static final String OBJECT_DATA_TABLE = "bt_object_data";
 
+    /**
+     * The version of the bootstrap schema of this library. This is part of every schema fingerprint and has to be
+     * increased whenever the bootstrap changes in a way that is not visible in its DDL (i.e. generated triggers).
+     */
+    public static final String SCHEMA_VERSION = "1";
+
+    /**
+     * The prefix of the property keys that the schema fingerprints are stored under in the {@link #PROPERTIES_TABLE}.
+     */
+    public static final String SCHEMA_FINGERPRINT_PREFIX = "schema_fingerprint_";
+
     /**
      * The map of all currently active DatabaseAccess instances, mapped by their runtime unique ID.
      */
-    protected static Map<String, DatabaseAccess> instances = new HashMap<>();
+    protected static Map<String, DatabaseAccess> instances = new ConcurrentHashMap<>();
 
     /**
      * The URL of the database.
@@ -97,6 +160,37 @@ public abstract class DatabaseAccess implements Killable
      */
     protected Dispatcher eventDispatcher;
 
+    /**
+     * The listeners for change events, indexed by event type and table.
+     */
+    protected ListenerRegistry listenerRegistry;
+
+    /**
+     * Collects the identities of rows changed by statements on tables with batched triggers.
+     */
+    protected ChangeBuffer changeBuffer;
+
+    /**
+     * Creates and drops the triggers of tables with lazy triggers depending on the registered listeners.
+     */
+    protected TriggerProvisioner triggerProvisioner;
+
+    /**
+     * Indicates whether tables are created with lazy triggers by default.
+     */
+    protected boolean lazyTriggers;
+
+    /**
+     * Delivers change events to the listeners on dedicated threads. Null if events are delivered on the thread that
+     * fired the trigger.
+     */
+    protected volatile AsyncEventDispatcher asyncEventDispatcher;
+
+    /**
+     * Records all change events in an append only journal. Null if journaling is disabled.
+     */
+    protected ChangeJournal changeJournal;
+
     /**
      * A map containing savepoint-names mapped to their savepoint objects.
      */
@@ -107,6 +201,131 @@ public abstract class DatabaseAccess implements Killable
      */
     protected QueryServer server;
 
+    /**
+     * The persister used by {@link #persistAsync(Object)}. Created lazily or by {@link #enableWriteBehind(int, int,
+     * long)}.
+     */
+    protected WriteBehindPersister writeBehindPersister;
+
+    /**
+     * Coalesces commits of concurrent statements if group commit is enabled.
+     */
+    protected volatile GroupCommitter groupCommitter;
+
+    /**
+     * The cache for results of selects that were marked as cached. Null if the cache is disabled.
+     */
+    protected volatile QueryResultCache queryCache;
+
+    /**
+     * The listener that removes cached query results on trigger events.
+     */
+    private Consumer<DatabaseChangeEvent> queryCacheInvalidator;
+
+    /**
+     * The transaction of a connection that statements of this instance are executed on.
+     */
+    private static class Transaction
+    {
+        /**
+         * The tables that were modified by statements of this instance since the last commit or rollback.
+         */
+        private Set<String> uncommittedTables = ConcurrentHashMap.newKeySet();
+
+        /**
+         * The change events that are appended to the change journal once the transaction is committed. Guarded by the
+         * transaction.
+         */
+        private List<DatabaseChangeEvent> journalEvents = new ArrayList<>();
+
+        /**
+         * The number of staged journal events at the time each savepoint was set. Guarded by the transaction.
+         */
+        private Map<Savepoint, Integer> journalMarks = new HashMap<>();
+
+        /**
+         * Indicates whether the catalog cache was updated for DDL of the transaction.
+         */
+        private volatile boolean catalogChanged;
+    }
+
+    /**
+     * The transaction of the shared connection.
+     */
+    private Transaction sharedTransaction = new Transaction();
+
+    /**
+     * The connections that were bound to single threads via {@link #bindConnection(Connection)}.
+     */
+    private ThreadLocal<Connection> boundConnections = new ThreadLocal<>();
+
+    /**
+     * The transactions of the bound connections.
+     */
+    private ThreadLocal<Transaction> boundTransactions = new ThreadLocal<>();
+
+    /**
+     * The transactions of all connections that were ever bound, so that a transaction keeps its state across bindings.
+     * Connections are weakly referenced by the map and not referenced by their transactions.
+     */
+    private Map<Connection, Transaction> connectionTransactions = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Shares the results of identical concurrent selects. Null if coalescing is disabled.
+     */
+    protected volatile QueryCoalescer queryCoalescer;
+
+    /**
+     * The cache for the values of the {@link #PROPERTIES_TABLE}.
+     */
+    protected PropertyCache propertyCache;
+
+    /**
+     * The snapshot of the system catalogs that is used by {@link CreateStatement#ifNotExists()}.
+     */
+    protected CatalogCache catalogCache;
+
+    /**
+     * The metadata of the tables of the current schema.
+     */
+    protected SchemaCache schemaCache;
+
+    /**
+     * Collects the statements that are recorded instead of executed by the current thread while a schema fingerprint is
+     * created.
+     */
+    private ThreadLocal<List<SqlModifyStatement<?, ?>>> recordedStatements = new ThreadLocal<>();
+
+    /**
+     * The thread that currently applies a bootstrap. Commits of this thread are deferred until the bootstrap finished.
+     */
+    private volatile Thread bootstrapThread;
+
+    /**
+     * The identity map for {@link SqlEntry} instances. Null if the cache is disabled.
+     */
+    protected volatile EntityCache entityCache;
+
+    private Consumer<UpdateEvent> entityUpdateInvalidator;
+    private Consumer<DeleteEvent> entityDeleteInvalidator;
+
+    /**
+     * Completed once the implementation finished booting.
+     */
+    private CompletableFuture<DatabaseAccess> readiness = new CompletableFuture<>();
+
+    /**
+     * The thread that currently boots this instance or null if no boot is running.
+     */
+    private volatile Thread bootThread;
+
+    /**
+     * The thread of an asynchronous boot that was not started yet.
+     */
+    private AtomicReference<Thread> pendingBoot = new AtomicReference<>();
+
+    private volatile ReadinessPolicy readinessPolicy = ReadinessPolicy.WAIT;
+
     /**
      * Gets the instance with the given ID.
      *
@@ -138,7 +357,15 @@ public abstract class DatabaseAccess implements Killable
 
         InstanceKiller.killOnShutdown(this, 1);
         this.eventDispatcher = new Dispatcher();
-        this.registerListener(DatabaseChangeEvent.class, IdentityListener::receive);
+        this.listenerRegistry = new ListenerRegistry();
+        this.changeBuffer = new ChangeBuffer();
+        this.triggerProvisioner = new TriggerProvisioner(this);
+        this.propertyCache = new PropertyCache(this);
+        this.catalogCache = new CatalogCache(this);
+        this.schemaCache = new SchemaCache(this);
+
+        // internal listeners are registered directly so that they do not cause lazy triggers to be created
+        this.listenerRegistry.register(DatabaseChangeEvent.class, IdentityListener::receive);
     }
 
     /**
@@ -169,1104 +396,2870 @@ public abstract class DatabaseAccess implements Killable
      * <li>{@link #createObjectDataTable()}</li>
      * <li>{@link #createColumnDataTable()}</li>
      * <li>{@link #createPropertiesTable()}</li>
+     * <li>{@link #createDualTable()}</li>
+     * <li>{@link #createDefaultProcedures()}</li>
+     * <li>{@link #createDefaultFunctions()}</li>
      * <li>{@link #checkID()}</li>
      * <li>The instance is added to {@link #instances} with the unique id as key</li>
-     * <li>{@link #createDefaultProcedures()}</li>
      * </ul>
      * </p>
+     *
+     * <p>
+     * The creation of the tables, procedures and functions is done as a single {@link #bootstrap(String, Runnable)
+     * bootstrap} and is skipped if the schema did not change since the last start.
+     * </p>
      */
     protected void setup()
     {
         createDatabase();
-        createObjectDataTable();
-        createColumnDataTable();
-        createPropertiesTable();
-        createDualTable();
+        bootstrap("base",
+                  () ->
+                  {
+                      createObjectDataTable();
+                      createColumnDataTable();
+                      createPropertiesTable();
+                      createDualTable();
+                      createDefaultProcedures();
+                      createDefaultFunctions();
+                  });
         checkID();
         synchronized (DatabaseAccess.class)
         {
             DatabaseAccess.instances.put(this.instanceID,
                                          this);
         }
-        createDefaultProcedures();
-        createDefaultFunctions();
         Log.debug(String.format("Setup database instance %s.", this.instanceID));
         Log.debug(String.format("Using connection string: %s.", this.dbConnectionString));
     }
 
     /**
-     * Gets the runtime unique ID of this instance.
+     * Executes the given boot of the implementation, either on the calling thread or on a background thread.
      *
-     * @return The String ID.
+     * <p>
+     * While an asynchronous boot is running, other threads that use the database either wait for it to finish or fail,
+     * depending on the {@link #setReadinessPolicy(ReadinessPolicy) readiness policy}. The boot thread itself is not
+     * blocked. The {@link #getReadiness() readiness} is completed once the boot finished.
+     * </p>
+     *
+     * <p>
+     * An asynchronous boot is not started before the constructors of all subclasses finished, since it calls their
+     * {@link #createTables()}. It starts once the instance is first used, the readiness is queried or
+     * {@link #startBoot()} is called.
+     * </p>
+     *
+     * <p>
+     * Exceptions of a synchronous boot are thrown to the caller. Exceptions of an asynchronous boot complete the
+     * readiness exceptionally, after which every use of the database throws a {@link DatabaseNotReadyException}.
+     * </p>
+     *
+     * @param async true to boot on a background thread.
+     * @param boot  The runnable that sets the database up, i. e. by calling {@link #setup()} and
+     *              {@link #createTables()}.
      */
-    public String getInstanceID()
+    protected void boot(boolean async, Runnable boot)
     {
-        return this.instanceID;
+        if (!async)
+        {
+            this.bootThread = Thread.currentThread();
+            runBoot(boot);
+            return;
+        }
+
+        Thread thread = new Thread(() ->
+                                   {
+                                       try
+                                       {
+                                           runBoot(boot);
+                                       }
+                                       catch (Throwable e)
+                                       {
+                                           Log.error("Failed to boot database", e);
+                                       }
+                                   },
+                                   "DATABASE_BOOT");
+
+        this.bootThread = thread;
+        this.pendingBoot.set(thread);
     }
 
     /**
-     * Checks whether this instance already has an ID assigned and requests a new one if it does not.
+     * Starts the asynchronous boot of this instance if it was not started yet.
      *
      * <p>
-     * The assigned id will be saved to the {@link #PROPERTIES_TABLE} with the key 'instanceID'.
+     * This is called implicitly once the instance is used. Subclasses must not call it before their constructor
+     * finished.
      * </p>
      */
-    protected void checkID()
+    public void startBoot()
     {
-        this.instanceID = getProperty("instanceID");
+        Thread thread = this.pendingBoot.getAndSet(null);
 
-        if (this.instanceID == null)
+        if (thread != null)
         {
-            this.instanceID = StringID.uniqueID();
-            setProperty("instanceID",
-                        this.instanceID);
+            thread.start();
+            Log.debug("Booting database in the background.");
+        }
+    }
+
+    private void runBoot(Runnable boot)
+    {
+        try
+        {
+            boot.run();
+            this.readiness.complete(this);
+        }
+        catch (Throwable e)
+        {
+            this.readiness.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            this.bootThread = null;
         }
     }
 
     /**
-     * Creates the database if it does not exist yet.
+     * Gets a future that is completed with this instance once the implementation finished booting.
      *
      * <p>
-     * This will simply attempt to create a connection to the database which will create it automatically, if it does
-     * not exist yet and the option was set in the configuration. This does only work with local databases.
+     * The future is completed exceptionally if the boot failed.
      * </p>
+     *
+     * @return The readiness future.
      */
-    protected void createDatabase()
+    public CompletableFuture<DatabaseAccess> getReadiness()
     {
-        try (Connection connection = DriverManager.getConnection(this.dbConnectionString))
+        startBoot();
+        return this.readiness;
+    }
+
+    /**
+     * Indicates whether this instance finished booting successfully.
+     *
+     * @return true if the database is ready.
+     */
+    public boolean isReady()
+    {
+        startBoot();
+        return this.readiness.isDone() && !this.readiness.isCompletedExceptionally();
+    }
+
+    /**
+     * Blocks until this instance finished booting.
+     *
+     * @throws DatabaseNotReadyException If the boot failed.
+     */
+    public void awaitReady()
+    {
+        startBoot();
+
+        try
         {
-            Log.debug("Loaded database.");
+            this.readiness.join();
         }
-        catch (SQLException e)
+        catch (CompletionException e)
         {
-            dispatchException(e);
+            throw new DatabaseNotReadyException("Database failed to boot.",
+                                                e.getCause());
         }
     }
 
-    public void setupQueryServer(String discoverName, int port) throws IOException
+    /**
+     * Sets how other threads are treated that use the database while it is still booting.
+     *
+     * @param readinessPolicy The policy. Default is {@link ReadinessPolicy#WAIT}.
+     */
+    public void setReadinessPolicy(ReadinessPolicy readinessPolicy)
     {
-        this.server = new QueryServer(this, port);
-        this.server.setName(discoverName);
-        this.server.setupMultiCastDiscovering();
-        this.server.start();
+        this.readinessPolicy = readinessPolicy;
     }
 
     /**
-     * Gets the dispatcher instance whichs subscribers are the listeners for insert, delete and update triggers.
+     * Gets the policy for threads that use the database while it is still booting.
      *
-     * @return
+     * @return The policy.
      */
-    protected Dispatcher getTriggerDispatcher()
+    public ReadinessPolicy getReadinessPolicy()
     {
-        return this.eventDispatcher;
+        return this.readinessPolicy;
     }
 
     /**
-     * Registers the given runnable as a listener for the given event type (only {@link InsertEvent},
-     * {@link DeleteEvent} and {@link UpdateEvent} are accepted.
-     *
-     * <p>
-     * If no tables are specified, the given listener will be called every time the given event type is dispatched. If
-     * tables are specified the listener is only called for triggers that involve one of the given tables.
-     * </p>
-     * <br>
-     * <p>
-     * Example:<br>
-     *
-     * <pre>
-     * // will be called for every dispatched InsertEvent
-     * registerListener(InsertEvent.class,
-     *                  myListener::onInsert);
-     * </pre>
-     *
-     * <pre>
-     * // will be called only for inserts in the tables with the names 'myTable' or 'myTable2'
-     * registerListener(InsertEvent.class,
-     *                  myListener::onInsert,
-     *                  "myTable",
-     *                  "myTable2");
-     * </pre>
-     * </p>
-     *
-     * @param listenFor The event type to listen for.
-     * @param listener  The runnable that should be called when the given event type is dispatched.
-     * @param tables    The tables for which the listener should be called.
+     * Waits for or rejects the calling thread according to the readiness policy if a boot is currently running on a
+     * different thread.
      *
-     * @return The consumer that the given listener was wrapped in. This consumer can be used to unregister the given
-     * listener.
+     * @throws DatabaseNotReadyException If the boot failed or is still running and the policy is
+     *                                   {@link ReadinessPolicy#FAIL_FAST}.
      */
-    public <T extends DatabaseChangeEvent> Consumer<T> registerListener(Class<T> listenFor, Runnable listener,
-                                                                        String... tables)
+    private void checkReady()
     {
-        var cons = new Consumer<T>()
+        startBoot();
+
+        if (this.readiness.isCompletedExceptionally())
         {
-            @Override
-            public void accept(T event)
-            {
-                listener.run();
-            }
-        };
+            // throws the boot failure
+            awaitReady();
+        }
 
-        return registerListener(listenFor,
-                                cons,
-                                tables);
+        Thread boot = this.bootThread;
+
+        if (boot == null || boot == Thread.currentThread())
+        {
+            return;
+        }
+
+        if (this.readinessPolicy == ReadinessPolicy.FAIL_FAST && !this.readiness.isDone())
+        {
+            throw new DatabaseNotReadyException("Database is still booting.");
+        }
+
+        awaitReady();
     }
 
     /**
-     * Registers the given consumer as a listener for the given event type (only {@link InsertEvent},
-     * {@link DeleteEvent} and {@link UpdateEvent} are accepted.
+     * Applies the DDL of the given bootstrap unless it did not change since it was last applied.
      *
      * <p>
-     * If no tables are specified, the given listener will be called every time the given event type is dispatched. If
-     * tables are specified the listener is only called for triggers that involve one of the given tables.
+     * The fingerprint of the bootstrap is a hash of the sql of all data modifying statements that the given runnable
+     * would execute, the {@link #SCHEMA_VERSION} and the library version. To create it, the runnable is executed once
+     * while the statements of the calling thread are only recorded. If the fingerprint matches the one stored in the
+     * {@link #PROPERTIES_TABLE}, the bootstrap is skipped. Otherwise the recorded statements are executed in a single
+     * transaction and the new fingerprint is stored.
      * </p>
-     * <br>
-     * <p>
-     * Example:<br>
      *
-     * <pre>
-     * // will be called for every dispatched InsertEvent
-     * registerListener(InsertEvent.class,
-     *                  myListener::onInsert);
-     * </pre>
-     *
-     * <pre>
-     * // will be called only for inserts in the tables with the names 'myTable' or 'myTable2'
-     * registerListener(InsertEvent.class,
-     *                  myListener::onInsert,
-     *                  "myTable",
-     *                  "myTable2");
-     * </pre>
+     * <p>
+     * The given runnable is executed only once. Anything but the statements of this library takes effect during the
+     * recording, regardless of the fingerprint.
      * </p>
      *
-     * @param listenFor The event type to listen for.
-     * @param listener  The consumer method that should be called when the given event type is dispatched.
-     * @param tables    The tables for which the listener should be called.
-     *
-     * @return The consumer that the given listener was wrapped in. This consumer can be used to unregister the given
-     * listener.
+     * @param name The unique name of the bootstrap.
+     * @param ddl  The runnable that creates the database objects.
      */
-    public <T extends DatabaseChangeEvent> Consumer<T> registerListener(Class<T> listenFor, Consumer<T> listener,
-                                                                        String... tables)
+    protected void bootstrap(String name, Runnable ddl)
     {
-        var cons = new Consumer<T>()
+        List<SqlModifyStatement<?, ?>> statements = recordStatements(ddl);
+        List<String> sql = new ArrayList<>();
+
+        for (SqlModifyStatement<?, ?> statement : statements)
         {
-            @Override
-            public void accept(T event)
-            {
-                boolean dispatch = tables == null || tables.length == 0; // no tables specified = always dispatch
+            sql.add(statement.toString());
+        }
 
-                if (!dispatch)
-                {
-                    for (String table : tables)
-                    {
-                        if (table.equalsIgnoreCase(event.getTable()))
-                        {
-                            dispatch = true;
-                            break;
-                        }
-                    }
-                }
+        bootstrap(name,
+                  String.join(";" + System.lineSeparator(), sql),
+                  () -> statements.forEach(SqlModifyStatement::execute));
+    }
 
-                if (dispatch)
-                {
-                    listener.accept(event);
-                }
+    /**
+     * Executes the given bootstrap in a single transaction unless the fingerprint of the given source matches the one
+     * stored in the {@link #PROPERTIES_TABLE}.
+     *
+     * @param name   The unique name of the bootstrap.
+     * @param source Describes everything that the bootstrap depends on. Changes to the source cause the bootstrap to
+     *               be executed again.
+     * @param ddl    The runnable that creates the database objects.
+     */
+    protected void bootstrap(String name, String source, Runnable ddl)
+    {
+        String key = DatabaseAccess.SCHEMA_FINGERPRINT_PREFIX + name;
+        String fingerprint = createFingerprint(source);
+
+        if (fingerprint.equals(readSchemaFingerprint(key)))
+        {
+            Log.debug(String.format("Schema '%s' is up to date. Skipping bootstrap.", name));
+            return;
+        }
+
+        Log.debug(String.format("Schema '%s' changed. Applying bootstrap.", name));
+
+        this.bootstrapThread = Thread.currentThread();
+
+        try
+        {
+            ddl.run();
+        }
+        catch (RuntimeException e)
+        {
+            this.bootstrapThread = null;
+            rollback();
+
+            // the bootstrap might have changed the catalog through raw sql
+            invalidateCatalog();
+            throw e;
+        }
+
+        this.bootstrapThread = null;
+
+        // commits the whole bootstrap
+        setProperty(key,
+                    fingerprint);
+    }
+
+    /**
+     * Executes the given runnable while all data modifying statements of the calling thread are recorded instead of
+     * executed.
+     *
+     * @param ddl The runnable to execute.
+     *
+     * @return All recorded statements in the order of their execution.
+     */
+    protected List<SqlModifyStatement<?, ?>> recordStatements(Runnable ddl)
+    {
+        List<SqlModifyStatement<?, ?>> statements = new ArrayList<>();
+        this.recordedStatements.set(statements);
+
+        try
+        {
+            ddl.run();
+        }
+        finally
+        {
+            this.recordedStatements.remove();
+        }
+
+        return statements;
+    }
+
+    /**
+     * Records the given statement if the calling thread is currently creating a schema fingerprint.
+     *
+     * <p>
+     * This is called by data modifying statements before they are executed.
+     * </p>
+     *
+     * @param statement The statement that is about to be executed.
+     *
+     * @return true if the statement was recorded and must not be executed.
+     */
+    public boolean recordStatement(SqlModifyStatement<?, ?> statement)
+    {
+        List<SqlModifyStatement<?, ?>> statements = this.recordedStatements.get();
+
+        if (statements == null)
+        {
+            return false;
+        }
+
+        statements.add(statement);
+        return true;
+    }
+
+    private String createFingerprint(String source)
+    {
+        String data = DatabaseAccess.SCHEMA_VERSION + System.lineSeparator()
+                + DatabaseAccess.class.getPackage().getImplementationVersion() + System.lineSeparator()
+                + getClass().getName() + System.lineSeparator()
+                + source;
+
+        try
+        {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, hash));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // every java implementation is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the stored fingerprint through the property cache, so that all fingerprints of a start are read with a
+     * single query. Returns null if the properties table does not exist yet.
+     */
+    private String readSchemaFingerprint(String key)
+    {
+        if (!this.propertyCache.isLoaded() && !this.propertyCache.load())
+        {
+            return null;
+        }
+
+        return getProperty(key);
+    }
+
+    /**
+     * Gets the runtime unique ID of this instance.
+     *
+     * @return The String ID.
+     */
+    public String getInstanceID()
+    {
+        return this.instanceID;
+    }
+
+    /**
+     * Checks whether this instance already has an ID assigned and requests a new one if it does not.
+     *
+     * <p>
+     * The assigned id will be saved to the {@link #PROPERTIES_TABLE} with the key 'instanceID'.
+     * </p>
+     */
+    protected void checkID()
+    {
+        this.instanceID = getProperty("instanceID");
+
+        if (this.instanceID == null)
+        {
+            this.instanceID = StringID.uniqueID();
+            setProperty("instanceID",
+                        this.instanceID);
+        }
+    }
+
+    /**
+     * Creates the database if it does not exist yet.
+     *
+     * <p>
+     * This will simply attempt to create a connection to the database which will create it automatically, if it does
+     * not exist yet and the option was set in the configuration. This does only work with local databases.
+     * </p>
+     */
+    protected void createDatabase()
+    {
+        try (Connection connection = DriverManager.getConnection(this.dbConnectionString))
+        {
+            Log.debug("Loaded database.");
+        }
+        catch (SQLException e)
+        {
+            dispatchException(e);
+        }
+    }
+
+    public void setupQueryServer(String discoverName, int port) throws IOException
+    {
+        this.server = new QueryServer(this, port);
+        this.server.setName(discoverName);
+        this.server.setupMultiCastDiscovering();
+        this.server.start();
+    }
+
+    /**
+     * Gets the dispatcher instance whichs subscribers are the exception handlers.
+     *
+     * <p>
+     * Change events are dispatched to the subscribers of this dispatcher as well, but listeners registered via
+     * {@link #registerListener(Class, Consumer, String...)} are kept in the {@link #getListenerRegistry() listener
+     * registry}.
+     * </p>
+     *
+     * @return
+     */
+    protected Dispatcher getTriggerDispatcher()
+    {
+        return this.eventDispatcher;
+    }
+
+    /**
+     * Registers the given runnable as a listener for the given event type (only {@link InsertEvent},
+     * {@link DeleteEvent} and {@link UpdateEvent} are accepted.
+     *
+     * <p>
+     * If no tables are specified, the given listener will be called every time the given event type is dispatched. If
+     * tables are specified the listener is only called for triggers that involve one of the given tables.
+     * </p>
+     * <br>
+     * <p>
+     * Example:<br>
+     *
+     * <pre>
+     * // will be called for every dispatched InsertEvent
+     * registerListener(InsertEvent.class,
+     *                  myListener::onInsert);
+     * </pre>
+     *
+     * <pre>
+     * // will be called only for inserts in the tables with the names 'myTable' or 'myTable2'
+     * registerListener(InsertEvent.class,
+     *                  myListener::onInsert,
+     *                  "myTable",
+     *                  "myTable2");
+     * </pre>
+     * </p>
+     *
+     * @param listenFor The event type to listen for.
+     * @param listener  The runnable that should be called when the given event type is dispatched.
+     * @param tables    The tables for which the listener should be called.
+     *
+     * @return The consumer that the given listener was wrapped in. This consumer can be used to unregister the given
+     * listener.
+     */
+    public <T extends DatabaseChangeEvent> Consumer<T> registerListener(Class<T> listenFor, Runnable listener,
+                                                                        String... tables)
+    {
+        var cons = new Consumer<T>()
+        {
+            @Override
+            public void accept(T event)
+            {
+                listener.run();
             }
         };
 
-        this.eventDispatcher.subscribeTo(listenFor,
-                                         cons);
+        return registerListener(listenFor,
+                                cons,
+                                tables);
+    }
+
+    /**
+     * Registers the given consumer as a listener for the given event type (only {@link InsertEvent},
+     * {@link DeleteEvent} and {@link UpdateEvent} are accepted.
+     *
+     * <p>
+     * If no tables are specified, the given listener will be called every time the given event type is dispatched. If
+     * tables are specified the listener is only called for triggers that involve one of the given tables.
+     * </p>
+     * <br>
+     * <p>
+     * Example:<br>
+     *
+     * <pre>
+     * // will be called for every dispatched InsertEvent
+     * registerListener(InsertEvent.class,
+     *                  myListener::onInsert);
+     * </pre>
+     *
+     * <pre>
+     * // will be called only for inserts in the tables with the names 'myTable' or 'myTable2'
+     * registerListener(InsertEvent.class,
+     *                  myListener::onInsert,
+     *                  "myTable",
+     *                  "myTable2");
+     * </pre>
+     * </p>
+     *
+     * @param listenFor The event type to listen for.
+     * @param listener  The consumer method that should be called when the given event type is dispatched.
+     * @param tables    The tables for which the listener should be called.
+     *
+     * @return The given listener. It can be used to unregister the listener.
+     */
+    public <T extends DatabaseChangeEvent> Consumer<T> registerListener(Class<T> listenFor, Consumer<T> listener,
+                                                                        String... tables)
+    {
+        this.listenerRegistry.register(listenFor,
+                                       listener,
+                                       tables);
+        this.triggerProvisioner.acquire(listenFor,
+                                        listener,
+                                        tables);
+
+        Log.debug(String.format("Registered database listener of type '%s' for '%s' to instance %s.",
+                                listener.getClass().getName(),
+                                listenFor.getName(),
+                                this.getInstanceID()));
+
+        return listener;
+    }
+
+    /**
+     * Registers the given consumer as a debounced listener for the given event type.
+     *
+     * <p>
+     * Events are collected for the given window and only the latest event of every changed row is passed to the
+     * listener, i. e.
+     *
+     * <pre>
+     * // called at most once per second and row, no matter how often a row is updated
+     * db.registerListener(UpdateEvent.class,
+     *                     cache::invalidate,
+     *                     1000,
+     *                     10000,
+     *                     "myTable");
+     * </pre>
+     *
+     * See {@link DebouncedListener} for the coalescing rules. The number of suppressed events can be read from the
+     * returned listener.
+     * </p>
+     *
+     * @param listenFor  The event type to listen for.
+     * @param listener   The consumer method that should be called with the coalesced events.
+     * @param window     The time in milliseconds that events are collected for.
+     * @param maxPending The maximum number of pending rows after which the collected events are passed on early.
+     * @param tables     The tables for which the listener should be called.
+     *
+     * @return The debounced listener that wraps the given one. It has to be used to unregister the listener.
+     */
+    public <T extends DatabaseChangeEvent> DebouncedListener<T> registerListener(Class<T> listenFor,
+                                                                               Consumer<T> listener, long window,
+                                                                               int maxPending, String... tables)
+    {
+        var debounced = new DebouncedListener<T>(listener,
+                                                 window,
+                                                 maxPending);
+
+        registerListener(listenFor,
+                         debounced,
+                         tables);
+
+        return debounced;
+    }
+
+    /**
+     * Registers a listener that is only called for changed rows of the given table that meet the given condition.
+     *
+     * <p>
+     * Dedicated triggers are created for the listener, so changes that do not meet the condition are filtered inside
+     * the database and cause neither a procedure call nor an event. Update events are only fired if one of the given
+     * columns was updated. The condition uses the usual where clause syntax, i. e.
+     *
+     * <pre>
+     * db.registerListener(UpdateEvent.class,
+     *                     myListener::onUpdate,
+     *                     "orders",
+     *                     new TriggerCondition("status").equal("SHIPPED"),
+     *                     "status");
+     * </pre>
+     *
+     * Unqualified columns of the condition refer to the new row of insert and update triggers and to the old row of
+     * delete triggers. The table needs an identity column. The same listener can be registered with multiple conditions.
+     * All of its dedicated triggers are dropped when the listener is {@link #unregisterListener(Class, Consumer)
+     * unregistered}.
+     * </p>
+     *
+     * @param listenFor The event type that should be listened for. Batched event types are not supported.
+     * @param listener  The consumer method that should be called when the given event type is dispatched.
+     * @param table     The table for which the listener should be called.
+     * @param condition The condition that changed rows have to meet. Null to accept all rows.
+     * @param columns   The columns of which at least one has to be updated for update events. Empty to accept updates
+     *                  of all columns.
+     *
+     * @return The given listener. It can be used to unregister the listener.
+     */
+    public <T extends DatabaseChangeEvent> Consumer<T> registerListener(Class<T> listenFor, Consumer<T> listener,
+                                                                        String table, TriggerCondition condition,
+                                                                        String... columns)
+    {
+        String id = StringID.randomID(10);
+
+        this.listenerRegistry.registerConditional(id,
+                                                  listener);
+
+        if (!this.triggerProvisioner.acquireConditional(id,
+                                                        listenFor,
+                                                        listener,
+                                                        table,
+                                                        condition,
+                                                        columns))
+        {
+            this.listenerRegistry.unregisterConditional(id);
+            Log.error(String.format("Failed to register conditional database listener for '%s' on table %s.",
+                                    listenFor.getName(),
+                                    table));
+            return listener;
+        }
+
+        Log.debug(String.format("Registered conditional database listener of type '%s' for '%s' on table %s to instance %s.",
+                                listener.getClass().getName(),
+                                listenFor.getName(),
+                                table,
+                                this.getInstanceID()));
+
+        return listener;
+    }
+
+    /**
+     * Unregisters the given listener from the given event type.
+     *
+     * <p>
+     * The listener will no longer be called on dispatched events of the given type.
+     * </p>
+     *
+     * <p>
+     * The listener is removed from all tables that it was registered for.
+     * </p>
+     *
+     * @param type
+     * @param listener
+     */
+    public <T extends DatabaseChangeEvent> void unregisterListener(Class<T> type, Consumer<T> listener)
+    {
+        List<String> conditionalIDs = this.triggerProvisioner.releaseConditional(type,
+                                                                                 listener);
+        boolean removed = false;
+
+        if (!conditionalIDs.isEmpty())
+        {
+            for (String conditionalID : conditionalIDs)
+            {
+                removed |= this.listenerRegistry.unregisterConditional(conditionalID);
+            }
+        }
+        else
+        {
+            removed = this.listenerRegistry.unregister(type,
+                                                       listener);
+
+            if (removed)
+            {
+                this.triggerProvisioner.release(type,
+                                                listener);
+            }
+        }
+
+        if (listener instanceof DebouncedListener)
+        {
+            ((DebouncedListener<T>)listener).close();
+        }
+
+        if (removed)
+        {
+            Log.debug(String.format("Unregistered database listener of type '%s' for '%s' to instance %s.",
+                                    listener.getClass().getName(),
+                                    type.getName(),
+                                    this.getInstanceID()));
+        }
+    }
+
+    /**
+     * Registers a consumer which will receive any uncaught SQLException during database actions such as statement
+     * executions.
+     *
+     * @param handler
+     */
+    public void registerExceptionHandler(Consumer<SQLException> handler)
+    {
+        this.eventDispatcher.subscribeTo(SQLException.class, handler);
+
+        Log.debug(String.format("Registered database exception handler of type '%s' for '%s' to instance %s.",
+                                handler.getClass().getName(),
+                                SQLException.class.getName(),
+                                this.getInstanceID()));
+    }
+
+    /**
+     * Gets a connection to the database.
+     *
+     * <p>
+     * If the database is booting in the background, this waits for the boot to finish or throws a
+     * {@link DatabaseNotReadyException} depending on the {@link #setReadinessPolicy(ReadinessPolicy) readiness policy}.
+     * </p>
+     *
+     * @param autocommit Indicates whether the returned connection should use autocommit or not.
+     *
+     * @return The connection.
+     */
+    public Connection getConnection(boolean autocommit)
+    {
+        Connection bound = this.boundConnections.get();
+
+        if (bound != null)
+        {
+            return bound;
+        }
+
+        checkReady();
+
+        try
+        {
+            if (this.connection == null || (this.connection != null && this.connection.isClosed()))
+            {
+                try
+                {
+                    this.connection = DriverManager.getConnection(this.dbConnectionString);
+                    this.connection.setAutoCommit(autocommit);
+                }
+                catch (SQLException e)
+                {
+                    dispatchException(e);
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            dispatchException(e);
+        }
+
+        return this.connection;
+    }
+
+    /**
+     * Opens a new connection to the database that is independent from the shared connection of this instance.
+     *
+     * <p>
+     * The connection has its own transaction and auto commit turned off. Statements of this library always use the
+     * shared connection, so the returned connection can only be used with plain JDBC. The caller has to close it.
+     * </p>
+     *
+     * @return The new connection.
+     *
+     * @throws SQLException If the connection can not be opened.
+     */
+    public Connection openConnection() throws SQLException
+    {
+        checkReady();
+
+        Connection connection = DriverManager.getConnection(this.dbConnectionString);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    /**
+     * Makes the calling thread execute statements of this library on the given connection instead of the shared one,
+     * until {@link #unbindConnection()} is called.
+     *
+     * <p>
+     * While the connection is bound, {@link #getConnection()} returns it and {@link #commit()}, {@link #rollback()} and
+     * savepoints of the calling thread apply to its transaction, so that work of a background thread can be committed
+     * without committing the work of other threads on the shared connection.
+     * </p>
+     *
+     * <p>
+     * The state of the transaction, i. e. the change events that are staged for the change journal, is kept until the
+     * transaction ends, also if the connection is unbound in between. A connection that is already bound to the calling
+     * thread is replaced.
+     * </p>
+     *
+     * @param connection The connection, i. e. one from {@link #openConnection()}.
+     */
+    public void bindConnection(Connection connection)
+    {
+        Transaction transaction = this.connectionTransactions.computeIfAbsent(connection, c -> new Transaction());
+        this.boundConnections.set(connection);
+        this.boundTransactions.set(transaction);
+    }
+
+    /**
+     * Makes the calling thread use the shared connection again. The bound connection is neither committed nor closed.
+     */
+    public void unbindConnection()
+    {
+        this.boundConnections.remove();
+        this.boundTransactions.remove();
+    }
+
+    /**
+     * Gets the transaction of the calling thread, which is the transaction of the shared connection unless a connection
+     * was bound to the thread.
+     */
+    private Transaction currentTransaction()
+    {
+        Transaction bound = this.boundTransactions.get();
+        return bound != null ? bound : this.sharedTransaction;
+    }
+
+    /**
+     * Gets the connection of the transaction of the calling thread without opening the shared connection.
+     */
+    private Connection currentConnection()
+    {
+        Connection bound = this.boundConnections.get();
+        return bound != null ? bound : this.connection;
+    }
+
+    /**
+     * Gets the tables that statements of the calling thread modified in the current transaction.
+     *
+     * @return The upper and lower case names as passed by the statements.
+     */
+    protected Set<String> getUncommittedTables()
+    {
+        return Set.copyOf(currentTransaction().uncommittedTables);
+    }
+
+    public void dispatchException(SQLException e)
+    {
+        int count = this.eventDispatcher.dispatch(e);
+
+        if (count == 0)
+        {
+            handleException(e);
+        }
+    }
+
+    /**
+     * Default handling of exceptions. This will simply log the stacktrace.
+     *
+     * @param e
+     */
+    protected void handleException(SQLException e)
+    {
+        throw new RuntimeException(e);
+    }
+
+    /**
+     * Gets a connection to the database.
+     *
+     * <p>
+     * The returned connection has auto commit turned off.
+     * </p>
+     *
+     * @return The connection.
+     */
+    public Connection getConnection()
+    {
+        return getConnection(false);
+    }
+
+    /**
+     * Closes the connection to the database if it exists.
+     *
+     * <p>
+     * This will commit the current transaction if the connection is not in auto commit mode.
+     * </p>
+     */
+    @Override
+    public void kill()
+    {
+        synchronized (this)
+        {
+            if (this.writeBehindPersister != null)
+            {
+                this.writeBehindPersister.close();
+            }
+        }
+
+        disableAsyncEventDispatch();
+        disableChangeJournal();
+
+        try
+        {
+            if (this.connection != null && !this.connection.isClosed())
+            {
+                commit();
+                this.connection.close();
+                synchronized (DatabaseAccess.class)
+                {
+                    DatabaseAccess.instances.remove(this.instanceID);
+                }
+                Log.debug(String.format("Closed database %s.",
+                                        this.getInstanceID()));
+            }
+        }
+        catch (SQLException e)
+        {
+            dispatchException(e);
+        }
+    }
+
+    /**
+     * Adds or updates the given property key with the given value.
+     *
+     * <p>
+     * The value is written through to the property cache once it was committed.
+     * </p>
+     *
+     * @param key   The unique key of the property.
+     * @param value The value of the property.
+     */
+    public void setProperty(String key, String value)
+    {
+        int result = insert().into(DatabaseAccess.PROPERTIES_TABLE)
+                             .set("property_key", key)
+                             .set("property_value", value)
+                             .onDuplicateKey(update(DatabaseAccess.PROPERTIES_TABLE).set("property_value", value)
+                                                                                    .where("property_key")
+                                                                                    .equal(key)
+                                                                                    .commit())
+                             .commit()
+                             .execute();
+
+        if (result > 0)
+        {
+            this.propertyCache.put(key, value);
+        }
+        else
+        {
+            this.propertyCache.invalidate(key);
+        }
+    }
+
+    /**
+     * Adds or updates all given properties in a single transaction.
+     *
+     * <p>
+     * If one of the properties can not be written, the transaction is rolled back and none of the properties are
+     * changed.
+     * </p>
+     *
+     * @param properties The values of the properties mapped by their unique keys.
+     *
+     * @return true if all properties were written and committed.
+     */
+    public boolean setProperties(Map<String, String> properties)
+    {
+        for (Map.Entry<String, String> property : properties.entrySet())
+        {
+            int result = insert().into(DatabaseAccess.PROPERTIES_TABLE)
+                                 .set("property_key", property.getKey())
+                                 .set("property_value", property.getValue())
+                                 .onDuplicateKey(update(DatabaseAccess.PROPERTIES_TABLE).set("property_value", property.getValue())
+                                                                                        .where("property_key")
+                                                                                        .equal(property.getKey()))
+                                 .execute();
+
+            if (result <= 0)
+            {
+                rollback();
+                properties.keySet().forEach(this.propertyCache::invalidate);
+                return false;
+            }
+        }
+
+        commit();
+
+        properties.forEach(this.propertyCache::put);
+
+        return true;
+    }
+
+    /**
+     * Gets the property value for the given key from the {@link #PROPERTIES_TABLE}.
+     *
+     * <p>
+     * Values are served from the property cache, the properties table is only accessed if the cache was invalidated.
+     * </p>
+     *
+     * @param key The key of the property to return.
+     *
+     * @return The value bound to the given key or null if the key was not found or null.
+     */
+    public String getProperty(String key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+
+        return this.propertyCache.get(key);
+    }
+
+    /**
+     * Gets the cache that is used by {@link #getProperty(String)}.
+     *
+     * @return The property cache.
+     */
+    public PropertyCache getPropertyCache()
+    {
+        return this.propertyCache;
+    }
+
+    /**
+     * Gets the snapshot of the system catalogs that is used to skip the creation of already existing objects.
+     *
+     * @return The catalog cache.
+     */
+    public CatalogCache getCatalogCache()
+    {
+        return this.catalogCache;
+    }
+
+    /**
+     * Gets the cached metadata of the tables, columns, indices and triggers of the current schema.
+     *
+     * @return The schema cache.
+     */
+    public SchemaCache getSchemaCache()
+    {
+        return this.schemaCache;
+    }
+
+    protected void createDualTable()
+    {
+        int success = create().table("dual")
+                              .column(new Column("dummy", SqlType.VARCHAR).size(1).comment("Dummy value as a single entry."))
+                              .createDefaultTriggers(false)
+                              .ifNotExists()
+                              .onAlreadyExists((s, e) ->
+                                               {
+                                                   return 0;
+                                               })
+                              .onSuccess((s, i) ->
+                                         {
+                                             Log.debug("Created dual table in " + s.getExecutionTime() + "ms.");
+                                         })
+                              .execute();
+
+        if (success == 1)
+        {
+            insert().into("dual")
+                    .set("dummy", "X")
+                    .unprepared()
+                    .commit()
+                    .execute();
+        }
+    }
+
+    /**
+     * Creates the {@link #PROPERTIES_TABLE} if it does not exist yet.
+     */
+    protected void createPropertiesTable()
+    {
+        int success = create().table(DatabaseAccess.PROPERTIES_TABLE)
+                              .column(new Column("property_key", SqlType.VARCHAR).size(200).primaryKey()
+                                                                                 .comment("The unique key of the key-value mapping."))
+
+                              .column(new Column("property_value", SqlType.VARCHAR).size(500)
+                                                                                   .comment("The value of the key-value mapping."))
+
+                              .createDefaultTriggers(false)
+                              .ifNotExists()
+                              .onAlreadyExists((s, e) ->
+                                               {
+                                                   return 0;
+                                               })
+                              .onSuccess((s, i) ->
+                                         {
+                                             Log.debug("Created properties table in " + s.getExecutionTime() + "ms.");
+                                         })
+                              .execute();
+
+        if (success == 1)
+        {
+            Log.debug("Created properties table.");
+            commit();
+        }
+    }
+
+    /**
+     * Creates the {@link #COLUMN_DATA} if it does not exist yet.
+     */
+    protected void createColumnDataTable()
+    {
+        create().table(DatabaseAccess.COLUMN_DATA)
+                .column(new Column("instanceID", SqlType.VARCHAR).size(100)
+                                                                 .comment("The instance ID of the creating database."))
+                .column(new Column("table_name", SqlType.VARCHAR).size(100).primaryKey()
+                                                                 .comment("The name of the table that this column belongs to."))
+                .column(new Column("column_name", SqlType.VARCHAR).size(100).primaryKey()
+                                                                  .comment("The name of this column."))
+                .column(new Column("data_type", SqlType.VARCHAR).size(100)
+                                                                .comment("The data type of this columns values."))
+                .column(new Column("primary_key", SqlType.BOOLEAN).defaultValue(false)
+                                                                  .comment("Indicates whether this column is (part of) the primary key."))
+                .column(new Column("is_identity", SqlType.BOOLEAN).defaultValue(false)
+                                                                  .comment("Indicates whether this column is marked as an identity."))
+                .column(new Column("generation", SqlType.VARCHAR).size(200)
+                                                                 .comment("Contains further generation information of this column."))
+                .column(new Column("not_null", SqlType.BOOLEAN).defaultValue(false)
+                                                               .comment("Indicates whether this columns can contain null values."))
+                .column(new Column("is_unique", SqlType.BOOLEAN).defaultValue(false)
+                                                                .comment("Indicates whether this column contains only unique values."))
+                .column(new Column("default_value", SqlType.VARCHAR).size(100)
+                                                                    .comment("Contains the defined default value."))
+                .column(new Column("foreign_keys", SqlType.VARCHAR).size(500)
+                                                                   .comment("Contains the names of the column level foreign keys for this column."))
+                .column(new Column("checks", SqlType.VARCHAR).size(500)
+                                                             .comment("Contains the names of the column level check constraints for this column."))
+                .column(new Column("comment", SqlType.VARCHAR).size(9999)
+                                                              .comment("Contains a descriptive comment for this column."))
+                .column(new Column("created", SqlType.TIMESTAMP).defaultValue(SqlValue.SYSTIMESTAMP)
+                                                                .comment("Indicates when this entry was created."))
+                .column(new Column("updated", SqlType.TIMESTAMP).defaultValue(SqlValue.SYSTIMESTAMP)
+                                                                .comment("Indicates when this entry was last updated."))
+                .createDefaultTriggers(false)
+                .ifNotExists()
+                .onAlreadyExists((s, e) ->
+                                 {
+                                     return 0;
+                                 })
+                .onSuccess((s, i) ->
+                           {
+                               Log.debug("Created column data table in " + s.getExecutionTime() + "ms.");
+                           })
+                .commit()
+                .execute();
+    }
+
+    /**
+     * Creates the {@link #OBJECT_DATA_TABLE} if it does not exist yet.
+     */
+    protected void createObjectDataTable()
+    {
+        create().table(DatabaseAccess.OBJECT_DATA_TABLE)
+                .column(new Column("instanceID", SqlType.VARCHAR).size(500))
+                .column(new Column("object_Name", SqlType.VARCHAR).size(50).primaryKey())
+                .column(new Column("object_ddl", SqlType.VARCHAR).size(9999))
+                .column(new Column("created", SqlType.TIMESTAMP).defaultValue(SqlValue.SYSTIMESTAMP))
+                .column(new Column("updated", SqlType.TIMESTAMP).defaultValue(SqlValue.SYSTIMESTAMP))
+                .createDefaultTriggers(false)
+                .saveObjectData(false)
+                .ifNotExists()
+                .onAlreadyExists((s, e) ->
+                                 {
+                                     return 0;
+                                 })
+                .onSuccess((s, i) ->
+                           {
+                               Log.debug("Created object data table in " + s.getExecutionTime() + "ms.");
+                           })
+                .commit()
+                .execute();
+    }
+
+    /**
+     * Executes the given raw SQL String of a modify (update, insert, delete, alter, drop, ...) statement.
+     *
+     * @param sql The raw SQL String to execute.
+     *
+     * @return The return value of the statement execution. See {@link Statement#executeUpdate(String)}.
+     *
+     * @throws SQLException
+     */
+    public int executeUpdate(String sql) throws SQLException
+    {
+        beginChangeCapture();
+
+        try (Statement statement = getConnection().createStatement())
+        {
+            return statement.executeUpdate(sql);
+        }
+        finally
+        {
+            endChangeCapture();
+        }
+    }
+
+    /**
+     * Executes the given raw SQL String of a select statement.
+     *
+     * @param sql The raw SQL String to execute.
+     *
+     * @return The {@link SqlResultSet} resulting from the query or null if an error occured.
+     *
+     * @throws SQLException
+     */
+    public SqlResultSet executeQuery(String sql) throws SQLException
+    {
+        try (Statement statement = getConnection().createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                                                   ResultSet.CONCUR_READ_ONLY))
+        {
+            return new SqlResultSet(statement.executeQuery(sql));
+        }
+    }
+
+    /**
+     * Executes the given raw SQL String of a select statement and returns a streamable result set.
+     *
+     * @param sql The raw SQL String to execute.
+     *
+     * @return The {@link StreamableResultSet} resulting from the query.
+     *
+     * @throws SQLException
+     */
+    public StreamableResultSet executeQueryAsStream(String sql) throws SQLException
+    {
+        Statement statement = getConnection().createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                                              ResultSet.CONCUR_READ_ONLY);
+        return new StreamableResultSet(statement.executeQuery(sql), statement);
+    }
+
+    /**
+     * Rolls back the current transaction.
+     *
+     * <p>
+     * This method has no effect on a connection that is in auto commit mode.
+     * </p>
+     */
+    public void rollback()
+    {
+        try
+        {
+            rollbackTransaction();
+        }
+        catch (SQLException e)
+        {
+            dispatchException(e);
+        }
+    }
+
+    /**
+     * Rolls back the current transaction and passes failures to the caller.
+     *
+     * <p>
+     * This method has no effect on a connection that is in auto commit mode.
+     * </p>
+     *
+     * @throws SQLException
+     */
+    public void rollbackTransaction() throws SQLException
+    {
+        Connection connection = currentConnection();
+
+        if (connection != null && !connection.getAutoCommit())
+        {
+            connection.rollback();
+            Log.debug("Rolled transaction back.");
+            onTransactionEnd(false);
+        }
+    }
+
+    /**
+     * Rolls back the current transaction to the savepoint with the given name.
+     *
+     * <p>
+     * This method has no effect on a connection that is in auto commit mode or if no savepoint with the given name has
+     * been set via {@link #savepoint(String)}.
+     * </p>
+     *
+     * @param savepoint The case-insensitive name of the savepoint to roll back to.
+     */
+    public void rollback(String savepoint)
+    {
+        try
+        {
+            if (this.savepoints != null)
+            {
+                Savepoint sp = this.savepoints.get(savepoint.toUpperCase());
+
+                if (sp != null)
+                {
+                    rollbackTransaction(sp);
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            dispatchException(e);
+        }
+    }
+
+    /**
+     * Rolls back the current transaction to the given savepoint and passes failures to the caller.
+     *
+     * <p>
+     * Change events that were staged for the change journal after the savepoint was set via
+     * {@link #createSavepoint(String)} are discarded. This method has no effect on a connection that is in auto commit
+     * mode.
+     * </p>
+     *
+     * @param savepoint The savepoint of the current transaction.
+     *
+     * @throws SQLException
+     */
+    public void rollbackTransaction(Savepoint savepoint) throws SQLException
+    {
+        Connection connection = currentConnection();
+
+        if (connection != null && !connection.getAutoCommit())
+        {
+            connection.rollback(savepoint);
+            Log.debug("Rolled transaction back to savepoint.");
+
+            Transaction transaction = currentTransaction();
+
+            synchronized (transaction)
+            {
+                Integer mark = transaction.journalMarks.get(savepoint);
+
+                if (mark != null && mark < transaction.journalEvents.size())
+                {
+                    transaction.journalEvents.subList(mark, transaction.journalEvents.size()).clear();
+                }
+            }
+
+            // the tables stay uncommitted, but results selected from the rolled back changes are discarded
+            invalidateQueryCache(transaction.uncommittedTables.toArray(new String[0]));
+            notifyQueryCoalescer();
+
+            if (transaction.catalogChanged)
+            {
+                // DDL after the savepoint might have been rolled back, the flag stays set for the rest of the transaction
+                invalidateCatalog();
+            }
+        }
+    }
+
+    /**
+     * Commits the current transaction.
+     *
+     * <p>
+     * This method has no effect on a connection that is in auto commit mode.
+     * </p>
+     */
+    public void commit()
+    {
+        try
+        {
+            commitTransaction();
+        }
+        catch (SQLException e)
+        {
+            dispatchException(e);
+        }
+    }
+
+    /**
+     * Commits the current transaction and passes failures to the caller.
+     *
+     * <p>
+     * This method has no effect on a connection that is in auto commit mode.
+     * </p>
+     *
+     * @throws SQLException
+     */
+    public void commitTransaction() throws SQLException
+    {
+        if (Thread.currentThread() == this.bootstrapThread)
+        {
+            // the bootstrap is committed as a whole once it finished
+            return;
+        }
+
+        Connection connection = currentConnection();
+
+        if (connection != null && !connection.getAutoCommit())
+        {
+            connection.commit();
+            Log.debug("Committed transaction.");
+            onTransactionEnd(true);
+        }
+    }
+
+    private void notifyQueryCoalescer()
+    {
+        QueryCoalescer coalescer = this.queryCoalescer;
+
+        if (coalescer != null)
+        {
+            coalescer.onWrite();
+        }
+    }
+
+    /**
+     * Called after the transaction of the shared connection or of a {@link #bindConnection(Connection) bound}
+     * connection was committed or rolled back, on the thread that ended it.
+     *
+     * <p>
+     * Invalidates the cached query results of all tables that were modified during the transaction, since results that
+     * were selected in between might contain uncommitted changes. The change events that were staged during the
+     * transaction are appended to the change journal if it was committed and discarded otherwise.
+     * </p>
+     *
+     * @param committed true if the transaction was committed, false if it was rolled back.
+     */
+    protected void onTransactionEnd(boolean committed)
+    {
+        notifyQueryCoalescer();
+        endJournalTransaction(currentTransaction(),
+                              committed);
+        endCatalogTransaction(currentTransaction(),
+                              committed);
+
+        Set<String> uncommittedTables = currentTransaction().uncommittedTables;
+
+        if (uncommittedTables.isEmpty())
+        {
+            return;
+        }
+
+        String[] tables = uncommittedTables.toArray(new String[0]);
+        uncommittedTables.removeAll(List.of(tables));
+        invalidateQueryCache(tables);
+    }
+
+    /**
+     * Requests a commit on behalf of a statement that was executed with {@link bt.db.statement.SqlModifyStatement#commit()
+     * commit()}.
+     *
+     * <p>
+     * If group commit is enabled via {@link #enableGroupCommit(long, int)}, the calling thread blocks until the commit
+     * of its group was performed and a failed commit is thrown to every thread of the group. Otherwise this behaves like
+     * {@link #commit()}.
+     * </p>
+     *
+     * @throws SQLException If the group commit failed.
+     */
+    public void requestCommit() throws SQLException
+    {
+        GroupCommitter committer = this.groupCommitter;
+
+        // the group committer only commits the shared connection
+        if (committer != null && this.boundConnections.get() == null)
+        {
+            committer.commit();
+        }
+        else
+        {
+            commit();
+        }
+    }
+
+    /**
+     * Enables group commit for statements that were executed with {@link bt.db.statement.SqlModifyStatement#commit()
+     * commit()}.
+     *
+     * <p>
+     * Commit requests of concurrent threads are coalesced into a single commit. A commit is delayed by at most the given
+     * window or until the given number of requests is pending. Since all statements of this instance share the same
+     * connection, the group commit commits all of their changes at once.
+     * </p>
+     *
+     * @param window     The maximum delay of a commit in milliseconds.
+     * @param maxPending The number of pending requests that triggers the commit before the window elapsed.
+     */
+    public void enableGroupCommit(long window, int maxPending)
+    {
+        this.groupCommitter = new GroupCommitter(this,
+                                                 window,
+                                                 maxPending);
+    }
+
+    /**
+     * Disables group commit. Following commit requests are committed immediately.
+     */
+    public void disableGroupCommit()
+    {
+        this.groupCommitter = null;
+    }
+
+    /**
+     * Gets the group committer of this instance.
+     *
+     * @return The committer or null if group commit is disabled.
+     */
+    public GroupCommitter getGroupCommitter()
+    {
+        return this.groupCommitter;
+    }
+
+    /**
+     * Creates a new savepoint with the given name.
+     *
+     * <p>
+     * Use {@link #rollback(String)} to roll back to a savepoint set via this method.
+     * </p>
+     *
+     * @param name The name of the new savepoint.
+     */
+    public void savepoint(String name)
+    {
+        if (this.savepoints == null)
+        {
+            this.savepoints = new HashMap<>();
+        }
+
+        try
+        {
+            this.savepoints.put(name.toUpperCase(), createSavepoint(name.toUpperCase()));
+        }
+        catch (SQLException e)
+        {
+            dispatchException(e);
+        }
+    }
+
+    /**
+     * Sets a savepoint with the given name in the current transaction and passes failures to the caller.
+     *
+     * <p>
+     * Unlike {@link #savepoint(String)}, the savepoint is not stored by its name. Use
+     * {@link #rollbackTransaction(Savepoint)} to roll back to it, so that the change events that are staged for the
+     * change journal are rolled back as well.
+     * </p>
+     *
+     * @param name The name of the new savepoint.
+     *
+     * @return The savepoint.
+     *
+     * @throws SQLException
+     */
+    public Savepoint createSavepoint(String name) throws SQLException
+    {
+        Savepoint savepoint = getConnection().setSavepoint(name);
+        Transaction transaction = currentTransaction();
+
+        synchronized (transaction)
+        {
+            transaction.journalMarks.put(savepoint,
+                                         transaction.journalEvents.size());
+        }
+
+        Log.debug("Created savepoint " + name + ".");
+        return savepoint;
+    }
+
+    /**
+     * Imports all data formatted as insert statements inside the given file.
+     *
+     * <p>
+     * There can only be one statement in each line and a statement can not exceed over multiple lines.
+     * </p>
+     *
+     * <p>
+     * All lines in the file will be read and are expected to be DML statements. Invalid SQL and inserts that violate
+     * unique constraints will be skipped.
+     * </p>
+     *
+     * @param importFile The file from where to import.
+     *
+     * @throws IOException
+     * @throws FileNotFoundException
+     */
+    public void importData(File importFile) throws FileNotFoundException, IOException
+    {
+        String[] lines = FileUtils.readLines(importFile);
+        int count = 0;
+
+        for (String statement : lines)
+        {
+            try
+            {
+                count += executeUpdate(statement);
+            }
+            catch (SQLException e)
+            {
+                dispatchException(e);
+            }
+        }
+
+        Log.debug(String.format("Imported %d rows from %s.",
+                                count,
+                                importFile.getAbsolutePath()));
+    }
+
+    /**
+     * Exports all entries in the given table.
+     *
+     * <p>
+     * The entries are exported as insert statements and saved to the given file. The insert statements will include all
+     * columns of the given table except the ones that are passed in excludeColumns (case insensitive).
+     * </p>
+     *
+     * @param table          The name of the table whichs data should be exported.
+     * @param exportFile     The file to save the insert statements to. If the file does not exist it will be created.
+     * @param excludeColumns An array of column names which should not be included in the exported insert statements. Keep in mind
+     *                       that all tables created by this library will have an id column 'DEFAULT_ID' unless a fitting id column
+     *                       was explicitly added. These columns will be 'generated always as identity' meaning that values can't
+     *                       be manually added or changed, which means they can't be used in insert statements.
+     */
+    public void exportData(String table, File exportFile, String... excludeColumns)
+    {
+        SqlResultSet set = select().from(table)
+                                   .onLessThan(1, (num, res) ->
+                                   {
+                                       return res;
+                                   })
+                                   .execute();
+
+        if (!exportFile.exists())
+        {
+            try
+            {
+                exportFile.getParentFile().mkdirs();
+                exportFile.createNewFile();
+            }
+            catch (Exception e)
+            {
+                Log.error(String.format("Failed to create export folder '%s'", exportFile.getAbsolutePath()), e);
+                return;
+            }
+        }
+
+        try (PrintWriter writer = new PrintWriter(new FileWriter(exportFile)))
+        {
+            for (SqlResult row : set)
+            {
+                writer.println(row.export(table,
+                                          excludeColumns));
+            }
+
+            Log.debug(String.format("Exported %d rows to %s.",
+                                    set.size(),
+                                    exportFile.getAbsolutePath()));
+        }
+        catch (IOException e)
+        {
+            Log.error(String.format("Failed to write to export file '%s'", exportFile.getAbsolutePath()), e);
+        }
+    }
+
+    /**
+     * Exports all entries from all user tables of the current schema.
+     *
+     * <p>
+     * The entries are exported as insert statements and saved to separate files in <i>./EXPORT_DATA</i> (Will be
+     * created if it does not exist). The files will have the name '<i>NAME_OF_TABLE.sql</i>' The insert statements will
+     * include all columns of the respective table except the ones that are passed in excludeColumns (case insensitive).
+     * </p>
+     *
+     * @param excludeColumns An array of column names which should not be included in the exported insert statements. Keep in mind
+     *                       that all tables created by this library will have an id column 'DEFAULT_ID' unless a fitting id column
+     *                       was explicitly added. These columns will be 'generated always as identity' meaning that values can't
+     *                       be manually added or changed, which means they can't be used in insert statements.
+     */
+    public void exportData(String... excludeColumns)
+    {
+        String tableName;
+
+        for (TableMetadata table : this.schemaCache.getTables())
+        {
+            if (table.isView())
+            {
+                continue;
+            }
+
+            tableName = table.getName();
+            exportData(tableName,
+                       new File("./DATA_EXPORT/" + tableName + ".sql"),
+                       excludeColumns);
+        }
+    }
+
+    public void backup(File backUpDirectory)
+    {
+        try (CallableStatement call = getConnection().prepareCall("CALL SYSCS_UTIL.SYSCS_BACKUP_DATABASE(?)"))
+        {
+            call.setString(1, backUpDirectory.getAbsolutePath());
+            call.execute();
+        }
+        catch (SQLException e)
+        {
+            dispatchException(e);
+        }
+    }
+
+    /**
+     * Creates a new {@link DropStatement}.
+     *
+     * @return The statement.
+     */
+    public DropStatement drop()
+    {
+        return new DropStatement(this);
+    }
+
+    /**
+     * Creates a new {@link Create}statement.
+     *
+     * @return The statement.
+     */
+    public Create create()
+    {
+        return new Create(this);
+    }
+
+    /**
+     * Creates a new {@link Alter}statement.
+     *
+     * @return The statement.
+     */
+    public Alter alter()
+    {
+        return new Alter(this);
+    }
+
+    /**
+     * Creates a select statement which selects all columns (*).
+     *
+     * @return The statement.
+     */
+    public SelectStatement select()
+    {
+        return new SelectStatement(this);
+    }
+
+    /**
+     * Creates a select statement which selects the toString() values of the given objects.
+     *
+     * <p>
+     * This method is meant to be used with {@link ColumnEntry} parameters to represent table.column pairs in selects
+     * from multiple tables. Call {@link Sql#column(String, String)} to create a new columnentry.
+     * </p>
+     *
+     * @return The statement.
+     */
+    public SelectStatement select(Object... values)
+    {
+        String[] columns = new String[values.length];
+
+        for (int i = 0; i < values.length; i++)
+        {
+            columns[i] = values[i].toString();
+        }
+
+        return new SelectStatement(this,
+                                   columns);
+    }
+
+    /**
+     * Creates a select statement which selects the given columns.
+     *
+     * @return The statement.
+     */
+    public SelectStatement select(String... columns)
+    {
+        return new SelectStatement(this,
+                                   columns);
+    }
+
+    /**
+     * Creates a delete statement.
+     *
+     * @return The statement.
+     */
+    public DeleteStatement delete()
+    {
+        return new DeleteStatement(this);
+    }
+
+    /**
+     * Creates an insert statement.
+     *
+     * @return The statement.
+     */
+    public InsertStatement insert()
+    {
+        return new InsertStatement(this);
+    }
+
+    /**
+     * Creates an update statement for the given table.
+     *
+     * @param table The table to update.
+     *
+     * @return The statement.
+     */
+    public UpdateStatement update(String table)
+    {
+        return new UpdateStatement(this,
+                                   table);
+    }
+
+    /**
+     * Creates a truncate table statement for the given table.
+     *
+     * @param table The table to truncate.
+     *
+     * @return The statement.
+     */
+    public TruncateTableStatement truncate(String table)
+    {
+        return new TruncateTableStatement(this,
+                                          table);
+    }
+
+    /**
+     * Persists the given object into the database by using the provided static methods of {@link SqlEntry} or by
+     * calling the persist method of SqlEntry implementations.
+     *
+     * @param entry
+     */
+    public void persist(Object entry)
+    {
+        if (entry instanceof SqlEntry)
+        {
+            ((SqlEntry)entry).persist(this);
+        }
+        else
+        {
+            SqlEntry.persist(this,
+                             entry);
+        }
+    }
+
+    /**
+     * Enables asynchronous persisting via {@link #persistAsync(Object)} with the given settings.
+     *
+     * <p>
+     * If write behind was already enabled, the previous persister is flushed and closed first.
+     * </p>
+     *
+     * @param capacity      The maximum number of queued objects. {@link #persistAsync(Object)} blocks while the queue
+     *                      is full.
+     * @param batchSize     The maximum number of objects that are written in a single transaction.
+     * @param flushInterval The maximum time in milliseconds that an object stays queued.
+     */
+    public synchronized void enableWriteBehind(int capacity, int batchSize, long flushInterval)
+    {
+        if (this.writeBehindPersister != null)
+        {
+            this.writeBehindPersister.close();
+        }
 
-        Log.debug(String.format("Registered database listener of type '%s' for '%s' to instance %s.",
-                                listener.getClass().getName(),
-                                listenFor.getName(),
-                                this.getInstanceID()));
+        this.writeBehindPersister = new WriteBehindPersister(this,
+                                                             capacity,
+                                                             batchSize,
+                                                             flushInterval);
+    }
 
-        return cons;
+    /**
+     * Gets the persister used by {@link #persistAsync(Object)}.
+     *
+     * @return The persister or null if write behind was not used yet.
+     */
+    public synchronized WriteBehindPersister getWriteBehindPersister()
+    {
+        return this.writeBehindPersister;
     }
 
     /**
-     * Unregisters the given listener from the given event type.
+     * Queues the given object to be persisted asynchronously in batches.
      *
      * <p>
-     * The listener will no longer be called on dispatched events of the given type.
+     * Repeated calls for an object with the same identity are coalesced while it is still queued. If write behind was
+     * not enabled via {@link #enableWriteBehind(int, int, long)}, a persister with a capacity of 10000 objects, a
+     * batch size of 500 and a flush interval of 200 milliseconds is created.
      * </p>
      *
-     * @param type
-     * @param listener
+     * <p>
+     * Call {@link #flushAsyncWrites()} to make sure that all queued objects are written.
+     * </p>
+     *
+     * @param entry
      */
-    public <T extends DatabaseChangeEvent> void unregisterListener(Class<T> type, Consumer<T> listener)
+    public void persistAsync(Object entry)
     {
-        if (this.eventDispatcher.unsubscribeFrom(type,
-                                                 listener))
+        WriteBehindPersister persister;
+
+        synchronized (this)
         {
-            Log.debug(String.format("Unregistered database listener of type '%s' for '%s' to instance %s.",
-                                    listener.getClass().getName(),
-                                    type.getName(),
-                                    this.getInstanceID()));
+            if (this.writeBehindPersister == null)
+            {
+                this.writeBehindPersister = new WriteBehindPersister(this,
+                                                                     10000,
+                                                                     500,
+                                                                     200);
+            }
+
+            persister = this.writeBehindPersister;
         }
+
+        persister.persist(entry);
     }
 
     /**
-     * Registers a consumer which will receive any uncaught SQLException during database actions such as statement
-     * executions.
-     *
-     * @param handler
+     * Writes and commits all objects that were queued via {@link #persistAsync(Object)} on the calling thread.
      */
-    public void registerExceptionHandler(Consumer<SQLException> handler)
+    public void flushAsyncWrites()
     {
-        this.eventDispatcher.subscribeTo(SQLException.class, handler);
+        WriteBehindPersister persister = getWriteBehindPersister();
 
-        Log.debug(String.format("Registered database exception handler of type '%s' for '%s' to instance %s.",
-                                handler.getClass().getName(),
-                                SQLException.class.getName(),
-                                this.getInstanceID()));
+        if (persister != null)
+        {
+            persister.flush();
+        }
     }
 
     /**
-     * Gets a connection to the database.
+     * Enables the cache for results of selects that were marked as {@link SelectStatement#cached() cached}.
      *
-     * @param autocommit Indicates whether the returned connection should use autocommit or not.
+     * <p>
+     * Cached results are removed when an insert, update or delete trigger event is received for one of the tables
+     * that they read from or when a data modifying statement of this instance is executed on one of those tables.
+     * Changes to tables without default triggers that are not done through this instance can therefore only be noticed
+     * once the time to live of the result has passed. With {@link #setLazyTriggers(boolean) lazy triggers}, the cache
+     * demands the triggers of all tables like any other listener, so they are created while the cache is enabled.
+     * </p>
      *
-     * @return The connection.
+     * <p>
+     * If the cache was already enabled, it is replaced by an empty one.
+     * </p>
+     *
+     * @param maxSize    The maximum number of cached results. The least recently used result is evicted if the cache
+     *                   is full.
+     * @param timeToLive The time in milliseconds after which a cached result expires. A value of 0 or less disables
+     *                   expiration.
      */
-    public Connection getConnection(boolean autocommit)
+    public synchronized void enableQueryCache(int maxSize, long timeToLive)
     {
-        try
+        QueryResultCache cache = new QueryResultCache(maxSize,
+                                                      timeToLive);
+
+        if (this.queryCacheInvalidator == null)
         {
-            if (this.connection == null || (this.connection != null && this.connection.isClosed()))
-            {
-                try
-                {
-                    this.connection = DriverManager.getConnection(this.dbConnectionString);
-                    this.connection.setAutoCommit(autocommit);
-                }
-                catch (SQLException e)
-                {
-                    dispatchException(e);
-                }
-            }
+            this.queryCacheInvalidator = e -> invalidateQueryCache(e.getTable());
+            this.listenerRegistry.register(DatabaseChangeEvent.class,
+                                           this.queryCacheInvalidator);
+            this.triggerProvisioner.acquire(DatabaseChangeEvent.class,
+                                            this.queryCacheInvalidator);
         }
-        catch (SQLException e)
+
+        this.queryCache = cache;
+    }
+
+    /**
+     * Disables the query cache and removes all cached results.
+     */
+    public synchronized void disableQueryCache()
+    {
+        if (this.queryCacheInvalidator != null)
         {
-            dispatchException(e);
+            this.listenerRegistry.unregister(DatabaseChangeEvent.class,
+                                             this.queryCacheInvalidator);
+            this.triggerProvisioner.release(DatabaseChangeEvent.class,
+                                            this.queryCacheInvalidator);
+            this.queryCacheInvalidator = null;
         }
 
-        return this.connection;
+        this.queryCache = null;
     }
 
-    public void dispatchException(SQLException e)
+    /**
+     * Gets the query cache of this instance.
+     *
+     * @return The cache or null if it is disabled.
+     */
+    public QueryResultCache getQueryCache()
     {
-        int count = this.eventDispatcher.dispatch(e);
+        return this.queryCache;
+    }
 
-        if (count == 0)
+    /**
+     * Enables the coalescing of identical concurrent selects.
+     *
+     * <p>
+     * If a select with the same sql and bound values as an already running select is executed, it waits for the
+     * running one and returns the same result set instead of querying the database again. This works with and without
+     * the query cache. Since the returned result sets may be shared between callers, they must not be modified.
+     * </p>
+     *
+     * <p>
+     * Selects only join a running select that started after the last modification, commit or rollback of this instance,
+     * so a caller always sees its own writes.
+     * </p>
+     */
+    public synchronized void enableQueryCoalescing()
+    {
+        if (this.queryCoalescer == null)
         {
-            handleException(e);
+            this.queryCoalescer = new QueryCoalescer();
         }
     }
 
     /**
-     * Default handling of exceptions. This will simply log the stacktrace.
+     * Disables the coalescing of identical concurrent selects.
+     */
+    public synchronized void disableQueryCoalescing()
+    {
+        this.queryCoalescer = null;
+    }
+
+    /**
+     * Gets the query coalescer of this instance.
      *
-     * @param e
+     * @return The coalescer or null if coalescing is disabled.
      */
-    protected void handleException(SQLException e)
+    public QueryCoalescer getQueryCoalescer()
     {
-        throw new RuntimeException(e);
+        return this.queryCoalescer;
     }
 
     /**
-     * Gets a connection to the database.
+     * Removes all cached query results that read from one of the given tables.
      *
      * <p>
-     * The returned connection has auto commit turned off.
+     * This has no effect if the query cache is disabled.
      * </p>
      *
-     * @return The connection.
+     * @param tables The changed tables.
      */
-    public Connection getConnection()
+    public void invalidateQueryCache(String... tables)
     {
-        return getConnection(false);
+        QueryResultCache cache = this.queryCache;
+
+        if (cache != null && tables != null && tables.length > 0)
+        {
+            cache.invalidate(tables);
+        }
     }
 
     /**
-     * Closes the connection to the database if it exists.
+     * Called by {@link bt.db.statement.SqlModifyStatement}s after they were executed through this instance.
      *
      * <p>
-     * This will commit the current transaction if the connection is not in auto commit mode.
+     * Invalidates the cached query results of the modified tables, calls {@link #onLocalModification(int, String...)}
+     * and remembers the tables until the transaction ends. The transaction ends right away if the statement committed
+     * it or the connection is in auto commit mode.
      * </p>
+     *
+     * @param result    The result of the statement.
+     * @param committed true if the statement committed the transaction after its execution.
+     * @param tables    The tables that were modified by the statement.
      */
-    @Override
-    public void kill()
+    public void onStatementExecuted(int result, boolean committed, String... tables)
     {
-        try
+        notifyQueryCoalescer();
+        invalidateQueryCache(tables);
+        onLocalModification(result,
+                            tables);
+
+        if (tables != null && tables.length > 0)
         {
-            if (this.connection != null && !this.connection.isClosed())
+            currentTransaction().uncommittedTables.addAll(List.of(tables));
+
+            try
             {
-                commit();
-                this.connection.close();
-                synchronized (DatabaseAccess.class)
+                Connection connection = currentConnection();
+
+                if (committed || connection != null && connection.getAutoCommit())
                 {
-                    DatabaseAccess.instances.remove(this.instanceID);
+                    onTransactionEnd(true);
                 }
-                Log.debug(String.format("Closed database %s.",
-                                        this.getInstanceID()));
             }
-        }
-        catch (SQLException e)
-        {
-            dispatchException(e);
+            catch (SQLException e)
+            {
+                Log.error("Failed to check auto commit", e);
+            }
         }
     }
 
     /**
-     * Adds or updates the given property key with the given value.
+     * Called by {@link bt.db.statement.SqlModifyStatement}s after they were executed through this instance.
      *
-     * @param key   The unique key of the property.
-     * @param value The value of the property.
+     * <p>
+     * Does nothing by default. Implementations that learn about changes by other means than direct triggers can use
+     * this to react to local writes sooner. The changes are not committed yet unless the connection is in auto commit
+     * mode, {@link #onTransactionEnd(boolean)} is called once they are.
+     * </p>
+     *
+     * @param result The result of the statement.
+     * @param tables The tables that were modified by the statement.
      */
-    public void setProperty(String key, String value)
+    public void onLocalModification(int result, String... tables)
     {
-        insert().into(DatabaseAccess.PROPERTIES_TABLE)
-                .set("property_key", key)
-                .set("property_value", value)
-                .onDuplicateKey(update(DatabaseAccess.PROPERTIES_TABLE).set("property_value", value)
-                                                                       .where("property_key")
-                                                                       .equal(key)
-                                                                       .commit())
-                .commit()
-                .execute();
     }
 
     /**
-     * Gets the property value for the given key from the {@link #PROPERTIES_TABLE}.
+     * Enables the identity map for instances that are initialized and persisted via the static methods of
+     * {@link SqlEntry}.
      *
-     * @param key The key of the property to return.
+     * <p>
+     * Caching has to be enabled for each class separately via {@link EntityCache#enable(Class)} on the returned cache.
+     * Cached instances are removed by the update and delete trigger events of their tables and replaced when they are
+     * persisted. With {@link #setLazyTriggers(boolean) lazy triggers}, the cache demands the update and delete triggers
+     * of all tables while it is enabled. If the cache was already enabled, it is replaced by an empty one.
+     * </p>
      *
-     * @return The value bound to the given key or null if the key was not found or null.
+     * @param maxSize       The maximum number of cached instances.
+     * @param referenceType Defines whether cached instances are referenced strongly, softly or weakly.
+     *
+     * @return The created cache.
      */
-    public String getProperty(String key)
+    public synchronized EntityCache enableEntityCache(int maxSize, ReferenceType referenceType)
     {
-        if (key == null)
-        {
-            return null;
-        }
+        EntityCache cache = new EntityCache(maxSize,
+                                            referenceType);
 
-        SqlResultSet result = select(Sql.column("property_value").as("value")).from(DatabaseAccess.PROPERTIES_TABLE)
-                                                                              .where("property_key")
-                                                                              .equal(key)
-                                                                              .onLessThan(1,
-                                                                                          (i, set) ->
-                                                                                          {
-                                                                                              return null;
-                                                                                          })
-                                                                              .execute();
-
-        if (result != null && result.size() > 0)
+        if (this.entityUpdateInvalidator == null)
         {
-            return result.get(0).getString("value");
+            this.entityUpdateInvalidator = this::invalidateEntity;
+            this.entityDeleteInvalidator = this::invalidateEntity;
+            this.listenerRegistry.register(UpdateEvent.class,
+                                           this.entityUpdateInvalidator);
+            this.listenerRegistry.register(DeleteEvent.class,
+                                           this.entityDeleteInvalidator);
+            this.triggerProvisioner.acquire(UpdateEvent.class,
+                                            this.entityUpdateInvalidator);
+            this.triggerProvisioner.acquire(DeleteEvent.class,
+                                            this.entityDeleteInvalidator);
         }
 
-        return null;
+        this.entityCache = cache;
+        return cache;
     }
 
-    protected void createDualTable()
+    /**
+     * Disables the identity map and removes all cached instances.
+     */
+    public synchronized void disableEntityCache()
     {
-        int success = create().table("dual")
-                              .column(new Column("dummy", SqlType.VARCHAR).size(1).comment("Dummy value as a single entry."))
-                              .createDefaultTriggers(false)
-                              .onAlreadyExists((s, e) ->
-                                               {
-                                                   return 0;
-                                               })
-                              .onSuccess((s, i) ->
-                                         {
-                                             Log.debug("Created dual table in " + s.getExecutionTime() + "ms.");
-                                         })
-                              .execute();
-
-        if (success == 1)
+        if (this.entityUpdateInvalidator != null)
         {
-            insert().into("dual")
-                    .set("dummy", "X")
-                    .unprepared()
-                    .commit()
-                    .execute();
+            this.listenerRegistry.unregister(UpdateEvent.class,
+                                             this.entityUpdateInvalidator);
+            this.listenerRegistry.unregister(DeleteEvent.class,
+                                             this.entityDeleteInvalidator);
+            this.triggerProvisioner.release(UpdateEvent.class,
+                                            this.entityUpdateInvalidator);
+            this.triggerProvisioner.release(DeleteEvent.class,
+                                            this.entityDeleteInvalidator);
+            this.entityUpdateInvalidator = null;
+            this.entityDeleteInvalidator = null;
         }
+
+        this.entityCache = null;
     }
 
     /**
-     * Creates the {@link #PROPERTIES_TABLE} if it does not exist yet.
+     * Gets the identity map of this instance.
+     *
+     * @return The cache or null if it is disabled.
      */
-    protected void createPropertiesTable()
+    public EntityCache getEntityCache()
     {
-        int success = create().table(DatabaseAccess.PROPERTIES_TABLE)
-                              .column(new Column("property_key", SqlType.VARCHAR).size(200).primaryKey()
-                                                                                 .comment("The unique key of the key-value mapping."))
-
-                              .column(new Column("property_value", SqlType.VARCHAR).size(500)
-                                                                                   .comment("The value of the key-value mapping."))
+        return this.entityCache;
+    }
 
-                              .createDefaultTriggers(false)
-                              .onAlreadyExists((s, e) ->
-                                               {
-                                                   return 0;
-                                               })
-                              .onSuccess((s, i) ->
-                                         {
-                                             Log.debug("Created properties table in " + s.getExecutionTime() + "ms.");
-                                         })
-                              .execute();
+    private void invalidateEntity(DatabaseChangeEvent e)
+    {
+        EntityCache cache = this.entityCache;
 
-        if (success == 1)
+        if (cache != null)
         {
-            Log.debug("Created properties table.");
-            commit();
+            for (long id : e.getIDs())
+            {
+                cache.invalidate(e.getTable(),
+                                 id);
+            }
         }
     }
 
     /**
-     * Creates the {@link #COLUMN_DATA} if it does not exist yet.
+     * Initializes the given object into the database by using the provided static methods of {@link SqlEntry} or by
+     * calling the init method of SqlEntry implementations.
+     *
+     * @param entry
      */
-    protected void createColumnDataTable()
+    public void init(Object entry)
     {
-        create().table(DatabaseAccess.COLUMN_DATA)
-                .column(new Column("instanceID", SqlType.VARCHAR).size(100)
-                                                                 .comment("The instance ID of the creating database."))
-                .column(new Column("table_name", SqlType.VARCHAR).size(100).primaryKey()
-                                                                 .comment("The name of the table that this column belongs to."))
-                .column(new Column("column_name", SqlType.VARCHAR).size(100).primaryKey()
-                                                                  .comment("The name of this column."))
-                .column(new Column("data_type", SqlType.VARCHAR).size(100)
-                                                                .comment("The data type of this columns values."))
-                .column(new Column("primary_key", SqlType.BOOLEAN).defaultValue(false)
-                                                                  .comment("Indicates whether this column is (part of) the primary key."))
-                .column(new Column("is_identity", SqlType.BOOLEAN).defaultValue(false)
-                                                                  .comment("Indicates whether this column is marked as an identity."))
-                .column(new Column("generation", SqlType.VARCHAR).size(200)
-                                                                 .comment("Contains further generation information of this column."))
-                .column(new Column("not_null", SqlType.BOOLEAN).defaultValue(false)
-                                                               .comment("Indicates whether this columns can contain null values."))
-                .column(new Column("is_unique", SqlType.BOOLEAN).defaultValue(false)
-                                                                .comment("Indicates whether this column contains only unique values."))
-                .column(new Column("default_value", SqlType.VARCHAR).size(100)
-                                                                    .comment("Contains the defined default value."))
-                .column(new Column("foreign_keys", SqlType.VARCHAR).size(500)
-                                                                   .comment("Contains the names of the column level foreign keys for this column."))
-                .column(new Column("checks", SqlType.VARCHAR).size(500)
-                                                             .comment("Contains the names of the column level check constraints for this column."))
-                .column(new Column("comment", SqlType.VARCHAR).size(9999)
-                                                              .comment("Contains a descriptive comment for this column."))
-                .column(new Column("created", SqlType.TIMESTAMP).defaultValue(SqlValue.SYSTIMESTAMP)
-                                                                .comment("Indicates when this entry was created."))
-                .column(new Column("updated", SqlType.TIMESTAMP).defaultValue(SqlValue.SYSTIMESTAMP)
-                                                                .comment("Indicates when this entry was last updated."))
-                .createDefaultTriggers(false)
-                .onAlreadyExists((s, e) ->
-                                 {
-                                     return 0;
-                                 })
-                .onSuccess((s, i) ->
-                           {
-                               Log.debug("Created column data table in " + s.getExecutionTime() + "ms.");
-                           })
-                .commit()
-                .execute();
+        if (entry instanceof SqlEntry)
+        {
+            ((SqlEntry)entry).init(this);
+        }
+        else
+        {
+            SqlEntry.init(this,
+                          entry);
+        }
     }
 
     /**
-     * Creates the {@link #OBJECT_DATA_TABLE} if it does not exist yet.
+     * Calls {@link #onInsert(InsertEvent)} of the database with the given instanceID.
+     *
+     * @param instanceID  The instanceID of the database that is concerned.
+     * @param table       The table that has been inserted into.
+     * @param idFieldName The name of the identity field inside the table.
+     * @param id          The id (identity value of the new row).
      */
-    protected void createObjectDataTable()
+    public static void onInsert(String instanceID, String table, String idFieldName, long id)
     {
-        create().table(DatabaseAccess.OBJECT_DATA_TABLE)
-                .column(new Column("instanceID", SqlType.VARCHAR).size(500))
-                .column(new Column("object_Name", SqlType.VARCHAR).size(50).primaryKey())
-                .column(new Column("object_ddl", SqlType.VARCHAR).size(9999))
-                .column(new Column("created", SqlType.TIMESTAMP).defaultValue(SqlValue.SYSTIMESTAMP))
-                .column(new Column("updated", SqlType.TIMESTAMP).defaultValue(SqlValue.SYSTIMESTAMP))
-                .createDefaultTriggers(false)
-                .saveObjectData(false)
-                .onAlreadyExists((s, e) ->
-                                 {
-                                     return 0;
-                                 })
-                .onSuccess((s, i) ->
-                           {
-                               Log.debug("Created object data table in " + s.getExecutionTime() + "ms.");
-                           })
-                .commit()
-                .execute();
+        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
+
+        if (instance != null)
+        {
+            instance.onInsert(new InsertEvent(instance,
+                                              table,
+                                              idFieldName,
+                                              id));
+        }
     }
 
     /**
-     * Executes the given raw SQL String of a modify (update, insert, delete, alter, drop, ...) statement.
+     * Dispatches the given {@link InsertEvent} to all concerned listeners.
      *
-     * @param sql The raw SQL String to execute.
+     * <p>
+     * This method exists alongside the static {@link #onInsert(String, String, String, long) onInsert} to allow
+     * overriding of this logic.
+     * </p>
      *
-     * @return The return value of the statement execution. See {@link Statement#executeUpdate(String)}.
+     * @param event The event to dispatch.
+     */
+    protected void onInsert(InsertEvent event)
+    {
+        dispatchChangeEvent(event);
+    }
+
+    /**
+     * Calls {@link #onUpdate(UpdateEvent)} of the database with the given instanceID.
      *
-     * @throws SQLException
+     * @param instanceID  The instanceID of the database that is concerned.
+     * @param table       The table that has been updated.
+     * @param idFieldName The name of the identity field inside the table.
+     * @param id          The id (identity value of the updated row).
      */
-    public int executeUpdate(String sql) throws SQLException
+    public static void onUpdate(String instanceID, String table, String idFieldName, long id)
     {
-        try (Statement statement = getConnection().createStatement())
+        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
+
+        if (instance != null)
         {
-            return statement.executeUpdate(sql);
+            instance.onUpdate(new UpdateEvent(instance,
+                                              table,
+                                              idFieldName,
+                                              id));
         }
     }
 
     /**
-     * Executes the given raw SQL String of a select statement.
+     * Dispatches the given {@link UpdateEvent} to all concerned listeners.
      *
-     * @param sql The raw SQL String to execute.
+     * <p>
+     * This method exists alongside the static {@link #onUpdate(String, String, String, long) onUpdate} to allow
+     * overriding of this logic.
+     * </p>
      *
-     * @return The {@link SqlResultSet} resulting from the query or null if an error occured.
+     * @param event The event to dispatch.
+     */
+    protected void onUpdate(UpdateEvent event)
+    {
+        dispatchChangeEvent(event);
+    }
+
+    /**
+     * Calls {@link #onDelete(DeleteEvent)} of the database with the given instanceID.
      *
-     * @throws SQLException
+     * @param instanceID  The instanceID of the database that is concerned.
+     * @param table       The table that has been deleted from.
+     * @param idFieldName The name of the identity field inside the table.
+     * @param id          The id (identity value of the deleted row).
      */
-    public SqlResultSet executeQuery(String sql) throws SQLException
+    public static void onDelete(String instanceID, String table, String idFieldName, long id)
     {
-        try (Statement statement = getConnection().createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
-                                                                   ResultSet.CONCUR_READ_ONLY))
+        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
+
+        if (instance != null)
         {
-            return new SqlResultSet(statement.executeQuery(sql));
+            instance.onDelete(new DeleteEvent(instance,
+                                              table,
+                                              idFieldName,
+                                              id));
         }
     }
 
     /**
-     * Executes the given raw SQL String of a select statement and returns a streamable result set.
-     *
-     * @param sql The raw SQL String to execute.
+     * Dispatches the given {@link DeleteEvent} to all concerned listeners.
      *
-     * @return The {@link StreamableResultSet} resulting from the query.
+     * <p>
+     * This method exists alongside the static {@link #onDelete(String, String, String, long) onDelete} to allow
+     * overriding of this logic.
+     * </p>
      *
-     * @throws SQLException
+     * @param event The event to dispatch.
      */
-    public StreamableResultSet executeQueryAsStream(String sql) throws SQLException
+    protected void onDelete(DeleteEvent event)
     {
-        Statement statement = getConnection().createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
-                                                              ResultSet.CONCUR_READ_ONLY);
-        return new StreamableResultSet(statement.executeQuery(sql), statement);
+        dispatchChangeEvent(event);
     }
 
     /**
-     * Rolls back the current transaction.
-     *
-     * <p>
-     * This method has no effect on a connection that is in auto commit mode.
-     * </p>
+     * Called by statements of this library before they are executed, so that identities which a failed statement left
+     * in the {@link ChangeBuffer} are not dispatched with the next one.
      */
-    public void rollback()
+    public void beginChangeCapture()
     {
-        try
-        {
-            if (this.connection != null && !this.connection.getAutoCommit())
-            {
-                this.connection.rollback();
-                Log.debug("Rolled transaction back.");
-            }
-        }
-        catch (SQLException e)
-        {
-            dispatchException(e);
-        }
+        this.changeBuffer.begin();
     }
 
     /**
-     * Rolls back the current transaction to the savepoint with the given name.
+     * Called by statements of this library after they were executed, whether they succeeded or not.
+     */
+    public void endChangeCapture()
+    {
+        this.changeBuffer.end();
+    }
+
+    /**
+     * Buffers the identity of a row that was changed by a statement on a table with batched triggers.
      *
      * <p>
-     * This method has no effect on a connection that is in auto commit mode or if no savepoint with the given name has
-     * been set via {@link #savepoint(String)}.
+     * Called by the row triggers of such tables. The buffered identities are dispatched as one batched event by
+     * {@link #flushChanges(String, String, String)}.
      * </p>
      *
-     * @param savepoint The case-insensitive name of the savepoint to roll back to.
+     * @param instanceID  The instanceID of the database that is concerned.
+     * @param triggerType The type of the trigger, either 'insert', 'update' or 'delete'.
+     * @param table       The changed table.
+     * @param idFieldName The name of the identity field inside the table.
+     * @param id          The id (identity value of the changed row).
      */
-    public void rollback(String savepoint)
+    public static void bufferChange(String instanceID, String triggerType, String table, String idFieldName, long id)
     {
-        try
-        {
-            if (this.connection != null && !this.connection.getAutoCommit())
-            {
-                if (this.savepoints != null)
-                {
-                    Savepoint sp = this.savepoints.get(savepoint.toUpperCase());
+        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
 
-                    if (sp != null)
-                    {
-                        this.connection.rollback(sp);
-                        Log.debug("Rolled transaction back to savepoint " + savepoint.toUpperCase() + ".");
-                    }
-                }
-            }
-        }
-        catch (SQLException e)
+        if (instance != null)
         {
-            dispatchException(e);
+            instance.changeBuffer.add(triggerType,
+                                      table,
+                                      idFieldName,
+                                      id);
         }
     }
 
     /**
-     * Commits the current transaction.
+     * Dispatches the identities that were buffered by {@link #bufferChange(String, String, String, String, long)
+     * bufferChange} during the current statement as one {@link bt.db.listener.evnt.BatchInsertEvent BatchInsertEvent},
+     * {@link bt.db.listener.evnt.BatchUpdateEvent BatchUpdateEvent} or {@link bt.db.listener.evnt.BatchDeleteEvent
+     * BatchDeleteEvent}.
      *
      * <p>
-     * This method has no effect on a connection that is in auto commit mode.
+     * Called by the statement triggers of tables with batched triggers. Nothing is dispatched if the statement did not
+     * change any rows.
      * </p>
+     *
+     * @param instanceID  The instanceID of the database that is concerned.
+     * @param triggerType The type of the trigger, either 'insert', 'update' or 'delete'.
+     * @param table       The changed table.
      */
-    public void commit()
+    public static void flushChanges(String instanceID, String triggerType, String table)
     {
-        try
+        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
+
+        if (instance != null)
         {
-            if (this.connection != null && !this.connection.getAutoCommit())
+            DatabaseChangeEvent event = instance.changeBuffer.flush(instance,
+                                                                    triggerType,
+                                                                    table);
+
+            if (event != null)
             {
-                this.connection.commit();
-                Log.debug("Committed transaction.");
+                instance.dispatchChangeEvent(event);
             }
         }
-        catch (SQLException e)
-        {
-            dispatchException(e);
-        }
     }
 
     /**
-     * Creates a new savepoint with the given name.
+     * Dispatches a change event that carries the captured column values of the changed row.
      *
      * <p>
-     * Use {@link #rollback(String)} to roll back to a savepoint set via this method.
+     * Called by the default row triggers of tables that capture
+     * {@link bt.db.statement.impl.CreateTableStatement#payload(String...) payload columns}. The event is passed to
+     * {@link #onInsert(InsertEvent)}, {@link #onUpdate(UpdateEvent)} or {@link #onDelete(DeleteEvent)}.
      * </p>
      *
-     * @param name The name of the new savepoint.
+     * @param instanceID  The instanceID of the database that is concerned.
+     * @param triggerType The type of the trigger, either 'insert', 'update' or 'delete'.
+     * @param table       The changed table.
+     * @param idFieldName The name of the identity field inside the table.
+     * @param id          The id (identity value of the changed row).
+     * @param payload     The column values encoded by {@link RowPayload}. The new values are encoded before the old
+     *                    values for updates. May be null.
      */
-    public void savepoint(String name)
+    public static void onChange(String instanceID, String triggerType, String table, String idFieldName, long id,
+                                String payload)
     {
-        if (this.savepoints == null)
+        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
+
+        if (instance == null)
         {
-            this.savepoints = new HashMap<>();
+            return;
         }
 
-        try
+        DatabaseChangeEvent event = createChangeEvent(instance,
+                                                      triggerType,
+                                                      table,
+                                                      idFieldName,
+                                                      id);
+
+        if (event instanceof InsertEvent)
         {
-            this.savepoints.put(name.toUpperCase(), this.getConnection().setSavepoint(name.toUpperCase()));
-            Log.debug("Created savepoint " + name.toUpperCase() + ".");
+            SqlResult[] rows = RowPayload.parse(payload, 1);
+            event.setRows(rows == null ? null : rows[0],
+                          null);
+            instance.onInsert((InsertEvent)event);
         }
-        catch (SQLException e)
+        else if (event instanceof UpdateEvent)
         {
-            dispatchException(e);
+            SqlResult[] rows = RowPayload.parse(payload, 2);
+            event.setRows(rows == null ? null : rows[0],
+                          rows == null ? null : rows[1]);
+            instance.onUpdate((UpdateEvent)event);
+        }
+        else if (event instanceof DeleteEvent)
+        {
+            SqlResult[] rows = RowPayload.parse(payload, 1);
+            event.setRows(null,
+                          rows == null ? null : rows[0]);
+            instance.onDelete((DeleteEvent)event);
+        }
+    }
+
+    private static DatabaseChangeEvent createChangeEvent(DatabaseAccess instance, String triggerType, String table,
+                                                         String idFieldName, long id)
+    {
+        switch (triggerType.toUpperCase())
+        {
+            case "INSERT":
+                return new InsertEvent(instance,
+                                       table,
+                                       idFieldName,
+                                       id);
+            case "UPDATE":
+                return new UpdateEvent(instance,
+                                       table,
+                                       idFieldName,
+                                       id);
+            case "DELETE":
+                return new DeleteEvent(instance,
+                                       table,
+                                       idFieldName,
+                                       id);
+            default:
+                return null;
         }
     }
 
     /**
-     * Imports all data formatted as insert statements inside the given file.
-     *
-     * <p>
-     * There can only be one statement in each line and a statement can not exceed over multiple lines.
-     * </p>
+     * Dispatches a change event to the conditional listener with the given id.
      *
      * <p>
-     * All lines in the file will be read and are expected to be DML statements. Invalid SQL and inserts that violate
-     * unique constraints will be skipped.
+     * Called by the dedicated triggers of conditional listeners.
      * </p>
      *
-     * @param importFile The file from where to import.
+     * @param instanceID  The instanceID of the database that is concerned.
+     * @param triggerType The type of the trigger, either 'insert', 'update' or 'delete'.
+     * @param table       The changed table.
+     * @param idFieldName The name of the identity field inside the table.
+     * @param id          The id (identity value of the changed row).
+     * @param listenerID  The id of the conditional listener.
      *
-     * @throws IOException
-     * @throws FileNotFoundException
+     * @see #registerListener(Class, Consumer, String, TriggerCondition, String...)
      */
-    public void importData(File importFile) throws FileNotFoundException, IOException
+    public static void onConditionalChange(String instanceID, String triggerType, String table, String idFieldName,
+                                           long id, String listenerID)
     {
-        String[] lines = FileUtils.readLines(importFile);
-        int count = 0;
+        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
 
-        for (String statement : lines)
+        if (instance == null)
         {
-            try
-            {
-                count += executeUpdate(statement);
-            }
-            catch (SQLException e)
-            {
-                dispatchException(e);
-            }
+            return;
         }
 
-        Log.debug(String.format("Imported %d rows from %s.",
-                                count,
-                                importFile.getAbsolutePath()));
+        DatabaseChangeEvent event = createChangeEvent(instance,
+                                                      triggerType,
+                                                      table,
+                                                      idFieldName,
+                                                      id);
+
+        if (event == null)
+        {
+            return;
+        }
+
+        event.setListenerID(listenerID);
+        instance.dispatchChangeEvent(event);
     }
 
     /**
-     * Exports all entries in the given table.
-     *
-     * <p>
-     * The entries are exported as insert statements and saved to the given file. The insert statements will include all
-     * columns of the given table except the ones that are passed in excludeColumns (case insensitive).
-     * </p>
-     *
-     * @param table          The name of the table whichs data should be exported.
-     * @param exportFile     The file to save the insert statements to. If the file does not exist it will be created.
-     * @param excludeColumns An array of column names which should not be included in the exported insert statements. Keep in mind
-     *                       that all tables created by this library will have an id column 'DEFAULT_ID' unless a fitting id column
-     *                       was explicitly added. These columns will be 'generated always as identity' meaning that values can't
-     *                       be manually added or changed, which means they can't be used in insert statements.
-     */
-    public void exportData(String table, File exportFile, String... excludeColumns)
-    {
-        SqlResultSet set = select().from(table)
-                                   .onLessThan(1, (num, res) ->
-                                   {
-                                       return res;
-                                   })
-                                   .execute();
-
-        if (!exportFile.exists())
-        {
-            try
-            {
-                exportFile.getParentFile().mkdirs();
-                exportFile.createNewFile();
-            }
-            catch (Exception e)
-            {
-                Log.error(String.format("Failed to create export folder '%s'", exportFile.getAbsolutePath()), e);
-                return;
-            }
+     * Delivers the given change event to the registered listeners, either directly or through the
+     * {@link #enableAsyncEventDispatch(int, int, OverflowPolicy) asynchronous dispatcher}.
+     *
+     * @param event The event to deliver.
+     */
+    protected void dispatchChangeEvent(DatabaseChangeEvent event)
+    {
+        if (DatabaseAccess.PROPERTIES_TABLE.equalsIgnoreCase(event.getTable()))
+        {
+            // on the firing thread, so that the write through of a local write is never undone by its own event
+            invalidateProperties(event);
         }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(exportFile)))
+        if (this.changeJournal != null && event.getListenerID() == null)
         {
-            for (SqlResult row : set)
-            {
-                writer.println(row.export(table,
-                                          excludeColumns));
-            }
+            // on the firing thread, whichs transaction the change belongs to
+            journalChangeEvent(event);
+        }
 
-            Log.debug(String.format("Exported %d rows to %s.",
-                                    set.size(),
-                                    exportFile.getAbsolutePath()));
+        AsyncEventDispatcher dispatcher = this.asyncEventDispatcher;
+
+        if (dispatcher != null)
+        {
+            dispatcher.dispatch(event);
         }
-        catch (IOException e)
+        else
         {
-            Log.error(String.format("Failed to write to export file '%s'", exportFile.getAbsolutePath()), e);
+            deliverChangeEvent(event);
         }
     }
 
     /**
-     * Exports all entries from all user table.
+     * Records the given change event in the change journal.
      *
      * <p>
-     * The entries are exported as insert statements and saved to separate files in <i>./EXPORT_DATA</i> (Will be
-     * created if it does not exist). The files will have the name '<i>NAME_OF_TABLE.sql</i>' The insert statements will
-     * include all columns of the respective table except the ones that are passed in excludeColumns (case insensitive).
+     * Called on the thread that fired the trigger of the change. By default, the event is staged in the transaction of
+     * the calling thread, which is the transaction of the shared connection unless a connection is
+     * {@link #bindConnection(Connection) bound} to the thread, and only appended once that transaction is committed.
+     * Implementations that only receive events of committed transactions append them directly.
      * </p>
      *
-     * @param excludeColumns An array of column names which should not be included in the exported insert statements. Keep in mind
-     *                       that all tables created by this library will have an id column 'DEFAULT_ID' unless a fitting id column
-     *                       was explicitly added. These columns will be 'generated always as identity' meaning that values can't
-     *                       be manually added or changed, which means they can't be used in insert statements.
+     * @param event The event of a change.
      */
-    public void exportData(String... excludeColumns)
+    protected void journalChangeEvent(DatabaseChangeEvent event)
     {
-        SqlResultSet set = select("tablename").from(SqlValue.SYSTABLE)
-                                              .where("tabletype")
-                                              .equal("T")
-                                              .onLessThan(1,
-                                                          (num, res) ->
-                                                          {
-                                                              return res;
-                                                          })
-                                              .execute();
-
-        String tableName;
+        Transaction transaction = currentTransaction();
 
-        for (SqlResult table : set)
+        synchronized (transaction)
         {
-            tableName = table.getString("tableName");
-            exportData(tableName,
-                       new File("./DATA_EXPORT/" + tableName + ".sql"),
-                       excludeColumns);
+            transaction.journalEvents.add(event);
         }
     }
 
-    public void backup(File backUpDirectory)
+    /**
+     * Appends the journal events that were staged in the given transaction if it was committed and discards them
+     * otherwise.
+     */
+    private void endJournalTransaction(Transaction transaction, boolean committed)
     {
-        try (CallableStatement call = getConnection().prepareCall("CALL SYSCS_UTIL.SYSCS_BACKUP_DATABASE(?)"))
+        List<DatabaseChangeEvent> events;
+
+        synchronized (transaction)
         {
-            call.setString(1, backUpDirectory.getAbsolutePath());
-            call.execute();
+            transaction.journalMarks.clear();
+
+            if (transaction.journalEvents.isEmpty())
+            {
+                return;
+            }
+
+            events = transaction.journalEvents;
+            transaction.journalEvents = new ArrayList<>();
         }
-        catch (SQLException e)
+
+        ChangeJournal journal = this.changeJournal;
+
+        if (committed && journal != null)
         {
-            dispatchException(e);
+            events.forEach(journal);
+        }
+        else if (!committed)
+        {
+            Log.debug(String.format("Discarded %d journal events of a rolled back transaction.", events.size()));
         }
     }
 
     /**
-     * Creates a new {@link DropStatement}.
+     * Reports that the {@link CatalogCache} was updated for a database object that was created or dropped by a statement
+     * of the calling thread.
      *
-     * @return The statement.
+     * <p>
+     * DDL is transactional in derby. If the transaction of the calling thread is rolled back, the catalog and schema
+     * caches are discarded, so that they do not keep objects whichs creation or drop was undone.
+     * </p>
      */
-    public DropStatement drop()
+    public void onCatalogChange()
     {
-        return new DropStatement(this);
+        currentTransaction().catalogChanged = true;
     }
 
     /**
-     * Creates a new {@link Create}statement.
-     *
-     * @return The statement.
+     * Discards the catalog and schema caches if the given transaction changed the catalog and was rolled back.
      */
-    public Create create()
+    private void endCatalogTransaction(Transaction transaction, boolean committed)
     {
-        return new Create(this);
-    }
+        if (!transaction.catalogChanged)
+        {
+            return;
+        }
 
-    /**
-     * Creates a new {@link Alter}statement.
-     *
-     * @return The statement.
-     */
-    public Alter alter()
-    {
-        return new Alter(this);
+        transaction.catalogChanged = false;
+
+        if (!committed)
+        {
+            invalidateCatalog();
+        }
     }
 
-    /**
-     * Creates a select statement which selects all columns (*).
-     *
-     * @return The statement.
-     */
-    public SelectStatement select()
+    private void invalidateCatalog()
     {
-        return new SelectStatement(this);
+        this.catalogCache.invalidate();
+        this.schemaCache.invalidate();
+        Log.debug("Discarded catalog and schema caches after a rollback of DDL.");
     }
 
     /**
-     * Creates a select statement which selects the toString() values of the given objects.
-     *
-     * <p>
-     * This method is meant to be used with {@link ColumnEntry} parameters to represent table.column pairs in selects
-     * from multiple tables. Call {@link Sql#column(String, String)} to create a new columnentry.
-     * </p>
-     *
-     * @return The statement.
+     * Invalidates the cached properties whichs keys were captured by the properties trigger that fired the given event.
+     * The whole property cache is invalidated if the event does not carry the keys, i. e. if it was fired by a
+     * statement trigger of an older version.
      */
-    public SelectStatement select(Object... values)
+    private void invalidateProperties(DatabaseChangeEvent event)
     {
-        String[] columns = new String[values.length];
-
-        for (int i = 0; i < values.length; i++)
+        if (!event.hasPayload())
         {
-            columns[i] = values[i].toString();
+            this.propertyCache.invalidate();
+            return;
         }
 
-        return new SelectStatement(this,
-                                   columns);
+        for (SqlResult row : new SqlResult[] { event.getNewRow(), event.getOldRow() })
+        {
+            if (row != null)
+            {
+                this.propertyCache.invalidate(row.getString("property_key"));
+            }
+        }
     }
 
     /**
-     * Creates a select statement which selects the given columns.
+     * Calls the listeners of the given event on the current thread.
      *
-     * @return The statement.
+     * @param event The event to deliver.
      */
-    public SelectStatement select(String... columns)
+    private void deliverChangeEvent(DatabaseChangeEvent event)
     {
-        return new SelectStatement(this,
-                                   columns);
+        this.listenerRegistry.dispatch(event);
+
+        if (event.getListenerID() == null)
+        {
+            this.eventDispatcher.dispatch(event);
+        }
     }
 
     /**
-     * Creates a delete statement.
+     * Gets the provisioner that creates and drops the triggers of tables with lazy triggers.
      *
-     * @return The statement.
+     * @return The trigger provisioner.
      */
-    public DeleteStatement delete()
+    public TriggerProvisioner getTriggerProvisioner()
     {
-        return new DeleteStatement(this);
+        return this.triggerProvisioner;
     }
 
     /**
-     * Creates an insert statement.
+     * Sets whether tables are created with lazy triggers by default.
      *
-     * @return The statement.
+     * <p>
+     * The default triggers of such tables are only created while listeners are registered for them. See
+     * {@link TriggerProvisioner}. This can be overridden per table via
+     * {@link bt.db.statement.impl.CreateTableStatement#lazyTriggers(boolean)}.
+     * </p>
+     *
+     * @param lazyTriggers
      */
-    public InsertStatement insert()
+    public void setLazyTriggers(boolean lazyTriggers)
     {
-        return new InsertStatement(this);
+        this.lazyTriggers = lazyTriggers;
     }
 
     /**
-     * Creates an update statement for the given table.
-     *
-     * @param table The table to update.
+     * Indicates whether tables are created with lazy triggers by default.
      *
-     * @return The statement.
+     * @return
      */
-    public UpdateStatement update(String table)
+    public boolean isLazyTriggers()
     {
-        return new UpdateStatement(this,
-                                   table);
+        return this.lazyTriggers;
     }
 
     /**
-     * Creates a truncate table statement for the given table.
-     *
-     * @param table The table to truncate.
+     * Gets the registry that holds the listeners for change events.
      *
-     * @return The statement.
+     * @return The listener registry.
      */
-    public TruncateTableStatement truncate(String table)
+    public ListenerRegistry getListenerRegistry()
     {
-        return new TruncateTableStatement(this,
-                                          table);
+        return this.listenerRegistry;
     }
 
     /**
-     * Persists the given object into the database by using the provided static methods of {@link SqlEntry} or by
-     * calling the persist method of SqlEntry implementations.
+     * Enables the asynchronous delivery of change events.
      *
-     * @param entry
+     * <p>
+     * Triggers then only enqueue their events, which are delivered to the listeners on dedicated threads outside of the
+     * writers transaction. Events of the same table are delivered in order. Listeners are no longer called before the
+     * statement that fired the trigger returns, which also applies to the internal listeners such as the
+     * {@link IdentityListener} and the cache invalidations.
+     * </p>
+     *
+     * @param lanes    The number of delivery threads. Events are distributed over them by their table.
+     * @param capacity The number of events that can be queued per delivery thread.
+     * @param policy   Defines what happens to events that are fired while their queue is full.
      */
-    public void persist(Object entry)
+    public synchronized void enableAsyncEventDispatch(int lanes, int capacity, OverflowPolicy policy)
     {
-        if (entry instanceof SqlEntry)
-        {
-            ((SqlEntry)entry).persist(this);
-        }
-        else
-        {
-            SqlEntry.persist(this,
-                             entry);
-        }
+        disableAsyncEventDispatch();
+        this.asyncEventDispatcher = new AsyncEventDispatcher(this::deliverChangeEvent,
+                                                             lanes,
+                                                             capacity,
+                                                             policy);
+        Log.debug(String.format("Enabled asynchronous event dispatch with %d lanes of capacity %d.", lanes, capacity));
     }
 
     /**
-     * Initializes the given object into the database by using the provided static methods of {@link SqlEntry} or by
-     * calling the init method of SqlEntry implementations.
+     * Enables the asynchronous delivery of change events with 4 delivery threads, a capacity of 8192 events each and
+     * the {@link OverflowPolicy#COALESCE COALESCE} policy.
      *
-     * @param entry
+     * @see #enableAsyncEventDispatch(int, int, OverflowPolicy)
      */
-    public void init(Object entry)
+    public void enableAsyncEventDispatch()
     {
-        if (entry instanceof SqlEntry)
-        {
-            ((SqlEntry)entry).init(this);
-        }
-        else
-        {
-            SqlEntry.init(this,
-                          entry);
-        }
+        enableAsyncEventDispatch(4,
+                                 8192,
+                                 OverflowPolicy.COALESCE);
     }
 
     /**
-     * Calls {@link #onInsert(InsertEvent)} of the database with the given instanceID.
-     *
-     * @param instanceID  The instanceID of the database that is concerned.
-     * @param table       The table that has been inserted into.
-     * @param idFieldName The name of the identity field inside the table.
-     * @param id          The id (identity value of the new row).
+     * Disables the asynchronous delivery of change events after all queued events were delivered.
      */
-    public synchronized static void onInsert(String instanceID, String table, String idFieldName, long id)
+    public synchronized void disableAsyncEventDispatch()
     {
-        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
+        AsyncEventDispatcher dispatcher = this.asyncEventDispatcher;
+        this.asyncEventDispatcher = null;
 
-        if (instance != null)
+        if (dispatcher != null)
         {
-            instance.onInsert(new InsertEvent(instance,
-                                              table,
-                                              idFieldName,
-                                              id));
+            dispatcher.close();
         }
     }
 
     /**
-     * Dispatches the given {@link InsertEvent} to all concerned listeners.
+     * Starts recording all insert, update and delete events of this database in a {@link ChangeJournal} in the given
+     * directory.
      *
      * <p>
-     * This method exists alongside the static {@link #onInsert(String, String, String, long) onInsert} to allow
-     * overriding of this logic.
+     * Records of an existing journal in the directory are kept and new records continue its sequence numbers. The
+     * journal demands the triggers of all tables, so {@link #setLazyTriggers(boolean) lazy triggers} are created for all
+     * tables while it is enabled. If a journal was already enabled, it is closed first.
      * </p>
      *
-     * @param event The event to dispatch.
-     */
-    protected void onInsert(InsertEvent event)
-    {
-        this.eventDispatcher.dispatch(event);
-    }
-
-    /**
-     * Calls {@link #onUpdate(UpdateEvent)} of the database with the given instanceID.
+     * <p>
+     * Events are staged in the transaction that caused them and only journaled once it is committed, see
+     * {@link #journalChangeEvent(DatabaseChangeEvent)}. Changes that are rolled back, also to a savepoint, are never
+     * journaled.
+     * </p>
      *
-     * @param instanceID  The instanceID of the database that is concerned.
-     * @param table       The table that has been updated.
-     * @param idFieldName The name of the identity field inside the table.
-     * @param id          The id (identity value of the updated row).
+     * @param directory   The directory of the segment files.
+     * @param segmentSize The size of a segment file in bytes.
+     * @param maxSize     The maximum size of all segments in bytes. 0 or less for no limit.
+     * @param maxAge      The time in milliseconds after which a full segment is deleted. 0 or less for no limit.
+     *
+     * @return The journal that consumers read from.
+     *
+     * @throws IOException If the journal can not be opened.
      */
-    public synchronized static void onUpdate(String instanceID, String table, String idFieldName, long id)
+    public synchronized ChangeJournal enableChangeJournal(Path directory, int segmentSize, long maxSize, long maxAge)
+            throws IOException
     {
-        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
+        disableChangeJournal();
 
-        if (instance != null)
-        {
-            instance.onUpdate(new UpdateEvent(instance,
-                                              table,
-                                              idFieldName,
-                                              id));
-        }
+        this.changeJournal = new ChangeJournal(this,
+                                               directory,
+                                               segmentSize,
+                                               maxSize,
+                                               maxAge);
+
+        // the journal receives the events through journalChangeEvent, the registration only demands the triggers
+        this.triggerProvisioner.acquire(DatabaseChangeEvent.class,
+                                        this.changeJournal);
+
+        Log.debug(String.format("Enabled change journal in %s at sequence %d.",
+                                directory,
+                                this.changeJournal.getLastSequence()));
+
+        return this.changeJournal;
     }
 
     /**
-     * Dispatches the given {@link UpdateEvent} to all concerned listeners.
-     *
-     * <p>
-     * This method exists alongside the static {@link #onUpdate(String, String, String, long) onUpdate} to allow
-     * overriding of this logic.
-     * </p>
-     *
-     * @param event The event to dispatch.
+     * Stops recording change events. The journal files are kept.
      */
-    protected void onUpdate(UpdateEvent event)
+    public synchronized void disableChangeJournal()
     {
-        this.eventDispatcher.dispatch(event);
+        if (this.changeJournal != null)
+        {
+            this.triggerProvisioner.release(DatabaseChangeEvent.class,
+                                            this.changeJournal);
+            this.changeJournal.close();
+            this.changeJournal = null;
+        }
     }
 
     /**
-     * Calls {@link #onDelete(DeleteEvent)} of the database with the given instanceID.
+     * Gets the change journal.
      *
-     * @param instanceID  The instanceID of the database that is concerned.
-     * @param table       The table that has been deleted from.
-     * @param idFieldName The name of the identity field inside the table.
-     * @param id          The id (identity value of the deleted row).
+     * @return The journal or null if journaling is disabled.
      */
-    public synchronized static void onDelete(String instanceID, String table, String idFieldName, long id)
+    public synchronized ChangeJournal getChangeJournal()
     {
-        DatabaseAccess instance = DatabaseAccess.getInstance(instanceID);
-
-        if (instance != null)
-        {
-            instance.onDelete(new DeleteEvent(instance,
-                                              table,
-                                              idFieldName,
-                                              id));
-        }
+        return this.changeJournal;
     }
 
     /**
-     * Dispatches the given {@link DeleteEvent} to all concerned listeners.
+     * Gets the asynchronous event dispatcher, i. e. to read its queue depth.
      *
-     * <p>
-     * This method exists alongside the static {@link #onDelete(String, String, String, long) onDelete} to allow
-     * overriding of this logic.
-     * </p>
-     *
-     * @param event The event to dispatch.
+     * @return The dispatcher or null if events are delivered synchronously.
      */
-    protected void onDelete(DeleteEvent event)
+    public AsyncEventDispatcher getAsyncEventDispatcher()
     {
-        this.eventDispatcher.dispatch(event);
+        return this.asyncEventDispatcher;
     }
 
     protected void createDefaultFunctions()
@@ -1274,6 +3267,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("decimalToHex")
                 .call(NumberUtils.class, "decimalToHex", long.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1288,6 +3282,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("decimalToOctal")
                 .call(NumberUtils.class, "decimalToOctal", long.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1302,6 +3297,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("decimalToBinary")
                 .call(NumberUtils.class, "decimalToBinary", long.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1316,6 +3312,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("hexToDecimal")
                 .call(NumberUtils.class, "hexToDecimal", String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1330,6 +3327,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("hexToOctal")
                 .call(NumberUtils.class, "hexToOctal", String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1344,6 +3342,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("hexToBinary")
                 .call(NumberUtils.class, "hexToBinary", String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1358,6 +3357,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("binaryToDecimal")
                 .call(NumberUtils.class, "binaryToDecimal", String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1372,6 +3372,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("binaryToOctal")
                 .call(NumberUtils.class, "binaryToOctal", String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1386,6 +3387,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("binaryToHex")
                 .call(NumberUtils.class, "binaryToHex", String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1400,6 +3402,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("octalToDecimal")
                 .call(NumberUtils.class, "octalToDecimal", String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1414,6 +3417,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("octalToBinary")
                 .call(NumberUtils.class, "octalToBinary", String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1428,6 +3432,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("octalToHex")
                 .call(NumberUtils.class, "octalToHex", String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1442,6 +3447,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("lpad")
                 .call(StringUtils.class, "leftPad", String.class, int.class, String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1456,6 +3462,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("rpad")
                 .call(StringUtils.class, "rightPad", String.class, int.class, String.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1470,6 +3477,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("addDays")
                 .call(DateUtils.class, "addDays", Timestamp.class, int.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1484,6 +3492,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("addHours")
                 .call(DateUtils.class, "addHours", Timestamp.class, int.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1498,6 +3507,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("addMinutes")
                 .call(DateUtils.class, "addMinutes", Timestamp.class, int.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1512,6 +3522,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("addSeconds")
                 .call(DateUtils.class, "addSeconds", Timestamp.class, int.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1526,6 +3537,7 @@ public abstract class DatabaseAccess implements Killable
         create().function("toDate")
                 .call(DateUtils.class, "toDate", long.class)
                 .returnNullOnNull()
+                .ifNotExists()
                 .onAlreadyExists((s, e) ->
                                  {
                                      return 0;
@@ -1542,11 +3554,50 @@ public abstract class DatabaseAccess implements Killable
      * Defines the tables that should be created.
      *
      * <p>
-     * This is called by the {@link #setup()} of the implementation.
+     * This is called by the constructor of the implementation as a {@link #bootstrap(String, Runnable) bootstrap}. It
+     * is skipped if the sql of its statements did not change since the last start and may otherwise be executed twice,
+     * once to record its statements and once to actually execute them. Code other than statements of this library is
+     * executed in both cases.
      * </p>
      */
     protected abstract void createTables();
 
+    /**
+     * Creates the triggers on the {@link #PROPERTIES_TABLE} which invalidate the property cache when the properties are
+     * changed by another connection.
+     *
+     * <p>
+     * This is called by the constructor of the implementation once its trigger infrastructure is available. The
+     * triggers should be row triggers that pass the key of the changed property as
+     * {@link bt.db.listener.RowPayload payload} of the transition rows returned by
+     * {@link #propertiesTriggerAliases(String)}, so that only that key is invalidated. Does nothing by default, in which
+     * case properties changed by other connections are only noticed after a restart.
+     * </p>
+     */
+    protected void createPropertiesTriggers()
+    {
+    }
+
+    /**
+     * Gets the aliases of the transition rows whichs keys the properties trigger of the given action should pass.
+     *
+     * @param action The trigger action, either 'insert', 'update' or 'delete'.
+     *
+     * @return 'newRow' for inserts, 'newRow' and 'oldRow' for updates and 'oldRow' for deletes.
+     */
+    protected static String[] propertiesTriggerAliases(String action)
+    {
+        switch (action.toLowerCase())
+        {
+            case "insert":
+                return new String[] { "newRow" };
+            case "update":
+                return new String[] { "newRow", "oldRow" };
+            default:
+                return new String[] { "oldRow" };
+        }
+    }
+
     /**
      * Defines the default procedures used by this implementation.
      *
@@ -2,6 +2,8 @@ package bt.db;
 
 import bt.db.config.DatabaseConfiguration;
 import bt.db.constants.SqlType;
+import bt.db.listener.RowPayload;
+import bt.db.statement.clause.ColumnEntry;
 import bt.log.Log;
 
 import java.io.File;
@@ -9,6 +11,8 @@ import java.net.URLDecoder;
 import java.security.CodeSource;
 import java.sql.CallableStatement;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * A class which creates and keeps a connection to an embedded database.
@@ -30,20 +34,59 @@ public abstract class EmbeddedDatabase extends DatabaseAccess
         this(DatabaseAccess.DEFAULT_LOCAL_DB);
     }
 
+    /**
+     * Creates a new instance which uses the default local db connection string.
+     *
+     * @param async true to boot the database on a background thread, which is started once the instance is first used
+     *              or {@link #startBoot()} is called. {@link #getReadiness()} is completed once the database is ready.
+     */
+    public EmbeddedDatabase(boolean async)
+    {
+        this(DatabaseAccess.DEFAULT_LOCAL_DB,
+             async);
+    }
+
     /**
      * Creates a new instance which uses the given connection string.
      *
      * @param dbURL The DB connection string.
      */
     public EmbeddedDatabase(String dbURL)
+    {
+        this(dbURL,
+             false);
+    }
+
+    /**
+     * Creates a new instance which uses the given connection string.
+     *
+     * @param dbURL The DB connection string.
+     * @param async true to boot the database on a background thread, which is started once the instance is first used
+     *              or {@link #startBoot()} is called. {@link #getReadiness()} is completed once the database is ready.
+     */
+    public EmbeddedDatabase(String dbURL, boolean async)
     {
         super(dbURL);
         setDerbyHome();
-        addJarToDerby();
-        setup();
-        setProperty("derby_home",
-                    EmbeddedDatabase.derbyHome);
-        createTables();
+        boot(async,
+             () ->
+             {
+                 setup();
+                 bootstrap("jar",
+                           getJarSource(),
+                           this::addJarToDerby);
+                 bootstrap("properties_triggers",
+                           this::createPropertiesTriggers);
+
+                 if (!Objects.equals(EmbeddedDatabase.derbyHome, getProperty("derby_home")))
+                 {
+                     setProperty("derby_home",
+                                 EmbeddedDatabase.derbyHome);
+                 }
+
+                 bootstrap("tables",
+                           this::createTables);
+             });
     }
 
     /**
@@ -56,6 +99,65 @@ public abstract class EmbeddedDatabase extends DatabaseAccess
         this(configuration.toString());
     }
 
+    /**
+     * Creates a new instance which uses the given configuration.
+     *
+     * @param configuration
+     * @param async         true to boot the database on a background thread.
+     */
+    protected EmbeddedDatabase(DatabaseConfiguration configuration, boolean async)
+    {
+        this(configuration.toString(),
+             async);
+    }
+
+    /**
+     * Creates row triggers on the properties table which call the onChange procedure with the key of the changed
+     * property as payload.
+     *
+     * @see bt.db.DatabaseAccess#createPropertiesTriggers()
+     */
+    @Override
+    protected void createPropertiesTriggers()
+    {
+        for (String action : new String[] { "insert", "update", "delete" })
+        {
+            String[] aliases = propertiesTriggerAliases(action);
+            var trigger = create().trigger(DatabaseAccess.PROPERTIES_TABLE + "_t_" + action)
+                                  .after(action)
+                                  .on(DatabaseAccess.PROPERTIES_TABLE);
+
+            for (String alias : aliases)
+            {
+                if (alias.equals("oldRow"))
+                {
+                    trigger.oldAs(alias);
+                }
+                else
+                {
+                    trigger.newAs(alias);
+                }
+            }
+
+            trigger.forEachRow()
+                   .call("onChange")
+                   .with(getInstanceID(),
+                         action,
+                         DatabaseAccess.PROPERTIES_TABLE.toUpperCase(),
+                         "property_key",
+                         -1L,
+                         new ColumnEntry(RowPayload.expression(Map.of("property_key", SqlType.VARCHAR),
+                                                               aliases)))
+                   .replace()
+                   .onFail((s, e) ->
+                           {
+                               Log.error("Failed to create properties trigger", e);
+                               return 0;
+                           })
+                   .execute();
+        }
+    }
+
     /**
      * @see bt.db.DatabaseAccess#createDefaultProcedures()
      */
@@ -134,6 +236,123 @@ public abstract class EmbeddedDatabase extends DatabaseAccess
             created = true;
         }
 
+        success = create().procedure("bufferChange")
+                          .parameter("instanceID",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("triggerType",
+                                     SqlType.VARCHAR)
+                          .size(10)
+                          .parameter("tableName",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("rowIdFieldName",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("rowID",
+                                     SqlType.LONG)
+                          .call(this.getClass().getName() + ".bufferChange")
+                          .replace()
+                          .onFail((s, e) ->
+                                  {
+                                      return 0;
+                                  })
+                          .execute();
+
+        if (success == 1)
+        {
+            Log.debug("Created bufferChange procedure.");
+            created = true;
+        }
+
+        success = create().procedure("flushChanges")
+                          .parameter("instanceID",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("triggerType",
+                                     SqlType.VARCHAR)
+                          .size(10)
+                          .parameter("tableName",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .call(this.getClass().getName() + ".flushChanges")
+                          .replace()
+                          .onFail((s, e) ->
+                                  {
+                                      return 0;
+                                  })
+                          .execute();
+
+        if (success == 1)
+        {
+            Log.debug("Created flushChanges procedure.");
+            created = true;
+        }
+
+        success = create().procedure("onConditionalChange")
+                          .parameter("instanceID",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("triggerType",
+                                     SqlType.VARCHAR)
+                          .size(10)
+                          .parameter("tableName",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("rowIdFieldName",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("rowID",
+                                     SqlType.LONG)
+                          .parameter("listenerID",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .call(this.getClass().getName() + ".onConditionalChange")
+                          .replace()
+                          .onFail((s, e) ->
+                                  {
+                                      return 0;
+                                  })
+                          .execute();
+
+        if (success == 1)
+        {
+            Log.debug("Created onConditionalChange procedure.");
+            created = true;
+        }
+
+        success = create().procedure("onChange")
+                          .parameter("instanceID",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("triggerType",
+                                     SqlType.VARCHAR)
+                          .size(10)
+                          .parameter("tableName",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("rowIdFieldName",
+                                     SqlType.VARCHAR)
+                          .size(40)
+                          .parameter("rowID",
+                                     SqlType.LONG)
+                          .parameter("payload",
+                                     SqlType.VARCHAR)
+                          .size(RowPayload.MAX_LENGTH)
+                          .call(this.getClass().getName() + ".onChange")
+                          .replace()
+                          .onFail((s, e) ->
+                                  {
+                                      return 0;
+                                  })
+                          .execute();
+
+        if (success == 1)
+        {
+            Log.debug("Created onChange procedure.");
+            created = true;
+        }
+
         if (created)
         {
             commit();
@@ -205,6 +424,22 @@ public abstract class EmbeddedDatabase extends DatabaseAccess
         return null;
     }
 
+    /**
+     * Describes the jar that is added to the database, so that it is only replaced if it changed.
+     */
+    private String getJarSource()
+    {
+        String path = getJarPath();
+
+        if (path == null)
+        {
+            return "";
+        }
+
+        File jarFile = new File(path);
+        return path + ";" + jarFile.length() + ";" + jarFile.lastModified();
+    }
+
     private void addJarToDerby()
     {
         try
@@ -0,0 +1,216 @@
+package bt.db;
+
+import bt.log.Log;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces commit requests of concurrent writers into a single commit.
+ *
+ * <p>
+ * The first thread that requests a commit becomes the leader of a new group. It waits until either the commit window
+ * elapsed or the maximum number of pending requests is reached and then performs one commit for the whole group. All
+ * threads of the group are released together and receive the same outcome. This reduces the number of log syncs when
+ * many threads commit small transactions at the same time.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class GroupCommitter
+{
+    /**
+     * A group of commit requests that share a single commit.
+     */
+    private static class Group
+    {
+        private int size;
+        private boolean done;
+        private SQLException error;
+    }
+
+    private DatabaseAccess db;
+    private long window;
+    private int maxPending;
+
+    private ReentrantLock lock;
+    private Condition changed;
+
+    /**
+     * Serializes the actual commits of consecutive groups.
+     */
+    private ReentrantLock commitLock;
+
+    /**
+     * The group that new requests join or null if there is currently no open group.
+     */
+    private Group current;
+
+    private AtomicLong requests;
+    private AtomicLong commits;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param db         The database whichs transactions should be committed.
+     * @param window     The maximum time in milliseconds that a commit is delayed to wait for other requests.
+     * @param maxPending The number of requests after which a group is committed without waiting for the window to
+     *                   elapse.
+     */
+    public GroupCommitter(DatabaseAccess db, long window, int maxPending)
+    {
+        if (window < 0 || maxPending <= 0)
+        {
+            throw new IllegalArgumentException("Window must not be negative and max pending must be greater than 0.");
+        }
+
+        this.db = db;
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+        this.maxPending = maxPending;
+        this.lock = new ReentrantLock();
+        this.changed = this.lock.newCondition();
+        this.commitLock = new ReentrantLock();
+        this.requests = new AtomicLong();
+        this.commits = new AtomicLong();
+    }
+
+    /**
+     * Requests a commit and blocks until the group that the calling thread joined was committed.
+     *
+     * @throws SQLException If the commit of the group failed.
+     */
+    public void commit() throws SQLException
+    {
+        this.requests.incrementAndGet();
+        Group group;
+        boolean leader = false;
+
+        this.lock.lock();
+
+        try
+        {
+            group = this.current;
+
+            if (group == null)
+            {
+                group = new Group();
+                this.current = group;
+                leader = true;
+            }
+
+            group.size ++;
+
+            if (group.size >= this.maxPending)
+            {
+                // close the group so that following requests start a new one
+                this.current = null;
+                this.changed.signalAll();
+            }
+
+            if (leader)
+            {
+                long waitNanos = this.window;
+
+                while (this.current == group && waitNanos > 0)
+                {
+                    waitNanos = this.changed.awaitNanos(waitNanos);
+                }
+
+                if (this.current == group)
+                {
+                    this.current = null;
+                }
+            }
+            else
+            {
+                while (!group.done)
+                {
+                    this.changed.awaitUninterruptibly();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            if (this.current == group)
+            {
+                this.current = null;
+            }
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+
+        if (leader)
+        {
+            commitGroup(group);
+        }
+
+        if (group.error != null)
+        {
+            throw group.error;
+        }
+    }
+
+    private void commitGroup(Group group)
+    {
+        SQLException error = null;
+
+        this.commitLock.lock();
+
+        try
+        {
+            this.db.commitTransaction();
+        }
+        catch (SQLException e)
+        {
+            error = e;
+        }
+        finally
+        {
+            this.commitLock.unlock();
+        }
+
+        this.commits.incrementAndGet();
+
+        this.lock.lock();
+
+        try
+        {
+            group.error = error;
+            group.done = true;
+            this.changed.signalAll();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+
+        Log.debug(String.format("Group committed %d requests.", group.size));
+    }
+
+    /**
+     * Gets the number of commits that were requested.
+     *
+     * @return The count.
+     */
+    public long getRequestCount()
+    {
+        return this.requests.get();
+    }
+
+    /**
+     * Gets the number of commits that were actually performed.
+     *
+     * @return The count.
+     */
+    public long getCommitCount()
+    {
+        return this.commits.get();
+    }
+}
@@ -4,6 +4,11 @@ import bt.db.config.DatabaseConfiguration;
 import bt.db.constants.Generated;
 import bt.db.constants.SqlType;
 import bt.db.constants.SqlValue;
+import bt.db.func.Sql;
+import bt.db.listener.ChangeBuffer;
+import bt.db.listener.ChangeJournal;
+import bt.db.listener.RowPayload;
+import bt.db.listener.evnt.DatabaseChangeEvent;
 import bt.db.statement.clause.Column;
 import bt.db.statement.result.SqlResult;
 import bt.db.statement.result.SqlResultSet;
@@ -11,8 +16,19 @@ import bt.log.Log;
 import bt.scheduler.Threads;
 import bt.utils.Null;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A class which creates and keeps a connection to a remote database.
@@ -23,13 +39,125 @@ import java.util.concurrent.TimeUnit;
  * seconds.
  * </p>
  *
+ * <p>
+ * The check interval adapts to the load. Checks are repeated immediately while they read full batches, the interval is
+ * doubled after every check that found no entries up to the {@link #setMaxTriggerCheckInterval(long) maximum} and it
+ * is reset once entries are found again. Transactions that modified data through this instance request an immediate
+ * check once they are committed.
+ * </p>
+ *
+ * <p>
+ * Every instance keeps a watermark in the TRIGGER_WATERMARKS table and only reads the entries above it. The watermark
+ * is the highest ID up to which all entries were processed. Identity values are assigned when an entry is inserted, so
+ * an entry of a transaction that is committed later can appear below entries that were already processed. Such gaps
+ * hold the watermark back until they are filled or the {@link #setTriggerGapTimeout(long) gap timeout} passed, i. e.
+ * because the transaction was rolled back. Entries above a gap are still processed right away and only once, but they
+ * are processed again if the instance is restarted before the gap closed. Entries that are below the watermarks of all
+ * live instances are deleted periodically. Instances that did not write their watermark within the
+ * {@link #setInstanceTimeout(long) instance timeout} are not considered live and don't prevent the deletion.
+ * </p>
+ *
+ * <p>
+ * Checks and the deletion use their own connections from {@link #openConnection()}, so they neither read nor commit
+ * the transaction of the shared connection.
+ * </p>
+ *
  * @author &#8904
  */
 public abstract class RemoteDatabase extends DatabaseAccess
 {
-    protected ScheduledFuture triggerCheck;
+    /**
+     * The prefix of the trigger type of entries that were written by batched triggers.
+     */
+    private static final String BATCH_PREFIX = "BATCH_";
+
+    protected Thread triggerCheck;
+    protected volatile boolean checkingTriggers;
+
+    /**
+     * The interval in milliseconds between checks that found entries.
+     */
     protected long triggerCheckInterval;
 
+    /**
+     * The maximum interval in milliseconds that idle checks back off to.
+     */
+    protected long maxTriggerCheckInterval;
+
+    /**
+     * The interval in milliseconds until the next regular check.
+     */
+    protected volatile long currentTriggerCheckInterval;
+
+    private ReentrantLock checkLock;
+    private Condition checkSignal;
+    private boolean checkRequested;
+
+    private AtomicLong checks;
+    private AtomicLong emptyChecks;
+    private AtomicLong triggerEntries;
+    private AtomicLong requestedChecks;
+    private AtomicLong latencySum;
+    private volatile long lastLatency;
+    private volatile long maxLatency;
+
+    /**
+     * Periodically deletes the trigger entries that were processed by all live instances.
+     */
+    protected ScheduledFuture triggerRetention;
+
+    /**
+     * The ID up to which all trigger entries were processed by this instance.
+     */
+    protected long watermark;
+
+    /**
+     * The IDs of the entries above the watermark that were already processed while an entry below them was not seen
+     * yet.
+     */
+    private TreeSet<Long> processedAboveWatermark;
+
+    /**
+     * The time at which the gap directly above the watermark was first seen, 0 if there is none.
+     */
+    private long gapSince;
+
+    /**
+     * The time in milliseconds that a gap in the IDs of the trigger entries holds the watermark back.
+     */
+    protected long triggerGapTimeout = 60000;
+
+    /**
+     * The connection that the trigger check thread reads the entries and writes the watermark with.
+     */
+    private Connection triggerConnection;
+
+    /**
+     * Whether the current transaction of the shared connection modified tables other than the trigger tables.
+     */
+    private volatile boolean localChanges;
+
+    /**
+     * The maximum number of trigger entries that are read with a single query.
+     */
+    protected int triggerBatchSize = 1000;
+
+    /**
+     * The interval in milliseconds in which processed trigger entries are deleted.
+     */
+    protected long triggerRetentionInterval = 60000;
+
+    /**
+     * The time in milliseconds after which an instance that has not advanced or refreshed its watermark is no longer
+     * considered live. Entries that only such instances have not processed yet are deleted anyway.
+     */
+    protected long instanceTimeout = 600000;
+
+    /**
+     * The time at which the watermark row of this instance was last written.
+     */
+    private long lastHeartbeat;
+
     /**
      * Creates a new instance which uses the default local db connection string and a trigger check interval of 3
      * seconds.
@@ -58,13 +186,50 @@ public abstract class RemoteDatabase extends DatabaseAccess
      * @param triggerCheckInterval The trigger check interval in milliseconds.
      */
     protected RemoteDatabase(String dbURL, long triggerCheckInterval)
+    {
+        this(dbURL,
+             triggerCheckInterval,
+             false);
+    }
+
+    /**
+     * Creates a new instance which uses the given connection string and a given trigger check interval.
+     *
+     * @param dbURL                The DB connection string.
+     * @param triggerCheckInterval The trigger check interval in milliseconds.
+     * @param async                true to boot the database on a background thread, which is started once the
+     *                             instance is first used or {@link #startBoot()} is called. {@link #getReadiness()} is
+     *                             completed once the database is ready.
+     */
+    protected RemoteDatabase(String dbURL, long triggerCheckInterval, boolean async)
     {
         super(dbURL);
         this.triggerCheckInterval = triggerCheckInterval;
-        setup();
-        createTriggerTable();
-        createTables();
-        startTriggerCheck();
+        this.maxTriggerCheckInterval = triggerCheckInterval * 10;
+        this.currentTriggerCheckInterval = triggerCheckInterval;
+        this.checkLock = new ReentrantLock();
+        this.checkSignal = this.checkLock.newCondition();
+        this.checks = new AtomicLong();
+        this.emptyChecks = new AtomicLong();
+        this.triggerEntries = new AtomicLong();
+        this.requestedChecks = new AtomicLong();
+        this.latencySum = new AtomicLong();
+        this.processedAboveWatermark = new TreeSet<>();
+        boot(async,
+             () ->
+             {
+                 setup();
+                 bootstrap("trigger_tables",
+                           () ->
+                           {
+                               createTriggerTable();
+                               createPropertiesTriggers();
+                           });
+                 bootstrap("tables",
+                           this::createTables);
+                 initWatermark();
+                 startTriggerCheck();
+             });
     }
 
     /**
@@ -90,6 +255,20 @@ public abstract class RemoteDatabase extends DatabaseAccess
              triggerCheckInterval);
     }
 
+    /**
+     * Creates a new instance which uses the given configuration and trigger check interval.
+     *
+     * @param configuration
+     * @param triggerCheckInterval
+     * @param async                true to boot the database on a background thread.
+     */
+    protected RemoteDatabase(DatabaseConfiguration configuration, long triggerCheckInterval, boolean async)
+    {
+        this(configuration.toString(),
+             triggerCheckInterval,
+             async);
+    }
+
     private void createTriggerTable()
     {
         int success = create().table("recent_triggers")
@@ -104,21 +283,133 @@ public abstract class RemoteDatabase extends DatabaseAccess
                               .commit()
                               .execute();
 
-        int success2 = create().table("handled_triggers")
-                               .column(new Column("ID", SqlType.LONG).generated(Generated.ALWAYS).asIdentity().autoIncrement(1))
-                               .column(new Column("trigger_id", SqlType.LONG))
-                               .column(new Column("db_id", SqlType.VARCHAR).size(50))
-                               .column(new Column("handleTime", SqlType.TIMESTAMP).defaultValue(SqlValue.CURRENT_TIMESTAMP))
+        // added separately, so that existing trigger tables receive the column as well
+        alter().table("recent_triggers")
+               .column(new Column("payload", SqlType.VARCHAR).size(RowPayload.MAX_LENGTH))
+               .onFail((s, e) ->
+                       {
+                           return 0;
+                       })
+               .commit()
+               .execute();
+
+        int success2 = create().table("trigger_watermarks")
+                               .column(new Column("db_id", SqlType.VARCHAR).size(50).primaryKey())
+                               .column(new Column("last_trigger_id", SqlType.LONG))
+                               .column(new Column("updateTime", SqlType.TIMESTAMP).defaultValue(SqlValue.CURRENT_TIMESTAMP))
                                .createDefaultTriggers(false)
                                .commit()
                                .execute();
 
+        // the identity column is not indexed by itself and every poll reads the entries above the watermark
+        create().index("recent_triggers_id_idx")
+                .on("recent_triggers")
+                .column("ID").asc()
+                .ifNotExists()
+                .onFail((s, e) ->
+                        {
+                            Log.error("Failed to create recent triggers index", e);
+                            return 0;
+                        })
+                .commit()
+                .execute();
+
         if (success * success2 == 1)
         {
             Log.debug("Created trigger tables.");
         }
     }
 
+    /**
+     * Reads the watermark of this instance, the ID of the last trigger entry that it has processed.
+     *
+     * <p>
+     * An instance that has no watermark yet starts at the newest existing entry, so it only receives the changes that
+     * happen after its first start.
+     * </p>
+     */
+    private void initWatermark()
+    {
+        SqlResultSet set = select("last_trigger_id")
+                .from("trigger_watermarks")
+                .where("db_id")
+                .equal(getInstanceID())
+                .onLessThan(1,
+                            (num, res) ->
+                            {
+                                return res;
+                            })
+                .execute();
+
+        if (set != null && set.size() > 0)
+        {
+            this.watermark = set.get(0).getLong("last_trigger_id");
+            return;
+        }
+
+        SqlResultSet max = select(Sql.max("ID").as("max_id"))
+                .from("recent_triggers")
+                .onLessThan(1,
+                            (num, res) ->
+                            {
+                                return res;
+                            })
+                .execute();
+
+        this.watermark = max != null && max.size() > 0 && max.get(0).get("max_id") != null ? max.get(0).getLong("max_id") : 0;
+
+        insert().into("trigger_watermarks")
+                .set("db_id", getInstanceID())
+                .set("last_trigger_id", this.watermark)
+                .set("updateTime", new Timestamp(System.currentTimeMillis()), SqlType.TIMESTAMP)
+                .commit()
+                .execute();
+
+        this.lastHeartbeat = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates row triggers on the properties table which insert into the RECENT_TRIGGERS table with the key of the
+     * changed property as payload.
+     *
+     * @see bt.db.DatabaseAccess#createPropertiesTriggers()
+     */
+    @Override
+    protected void createPropertiesTriggers()
+    {
+        for (String action : new String[] { "insert", "update", "delete" })
+        {
+            String[] aliases = propertiesTriggerAliases(action);
+            var trigger = create().trigger(DatabaseAccess.PROPERTIES_TABLE + "_t_" + action)
+                                  .after(action)
+                                  .on(DatabaseAccess.PROPERTIES_TABLE);
+
+            for (String alias : aliases)
+            {
+                if (alias.equals("oldRow"))
+                {
+                    trigger.oldAs(alias);
+                }
+                else
+                {
+                    trigger.newAs(alias);
+                }
+            }
+
+            trigger.forEachRow()
+                   .execute("INSERT INTO recent_triggers (triggerType, tableName, rowIdFieldName, idRow, payload) values ('"
+                                    + action + "', '" + DatabaseAccess.PROPERTIES_TABLE.toUpperCase() + "', 'property_key', -1, "
+                                    + RowPayload.expression(Map.of("property_key", SqlType.VARCHAR), aliases) + ")")
+                   .replace()
+                   .onFail((s, e) ->
+                           {
+                               Log.error("Failed to create properties trigger", e);
+                               return 0;
+                           })
+                   .execute();
+        }
+    }
+
     /**
      * @see bowt.db.DatabaseAccess#createDefaultProcedures()
      */
@@ -128,99 +419,707 @@ public abstract class RemoteDatabase extends DatabaseAccess
     }
 
     /**
-     * Cancels the trigger check thread and calls {@link DatabaseAccess#kill()}.
+     * Cancels the trigger check and retention threads and calls {@link DatabaseAccess#kill()}.
      *
      * @see bt.db.DatabaseAccess#kill()
      */
     @Override
     public void kill()
     {
-        Null.checkRun(this.triggerCheck, () -> this.triggerCheck.cancel(true));
+        this.checkingTriggers = false;
+        Null.checkRun(this.triggerCheck, () -> this.triggerCheck.interrupt());
+        Null.checkRun(this.triggerRetention, () -> this.triggerRetention.cancel(true));
         super.kill();
     }
 
+    /**
+     * Gets the interval in milliseconds between checks that found entries.
+     *
+     * @return
+     */
+    public long getTriggerCheckInterval()
+    {
+        return this.triggerCheckInterval;
+    }
+
+    /**
+     * Sets the maximum interval in milliseconds that the checks back off to while no new entries are found. Defaults to
+     * ten times the trigger check interval.
+     *
+     * @param maxTriggerCheckInterval
+     */
+    public void setMaxTriggerCheckInterval(long maxTriggerCheckInterval)
+    {
+        this.maxTriggerCheckInterval = maxTriggerCheckInterval;
+    }
+
+    /**
+     * Gets the maximum interval in milliseconds that the checks back off to while no new entries are found.
+     *
+     * @return
+     */
+    public long getMaxTriggerCheckInterval()
+    {
+        return this.maxTriggerCheckInterval;
+    }
+
+    /**
+     * Gets the interval in milliseconds that the trigger check thread currently waits between regular checks.
+     *
+     * @return
+     */
+    public long getCurrentTriggerCheckInterval()
+    {
+        return this.currentTriggerCheckInterval;
+    }
+
+    /**
+     * Gets the number of queries that were executed to check for new trigger entries.
+     *
+     * @return The count.
+     */
+    public long getTriggerCheckCount()
+    {
+        return this.checks.get();
+    }
+
+    /**
+     * Gets the number of checks that found no new trigger entries.
+     *
+     * @return The count.
+     */
+    public long getEmptyTriggerCheckCount()
+    {
+        return this.emptyChecks.get();
+    }
+
+    /**
+     * Gets the number of trigger entries that were processed.
+     *
+     * @return The count.
+     */
+    public long getTriggerEntryCount()
+    {
+        return this.triggerEntries.get();
+    }
+
+    /**
+     * Gets the number of immediate checks that were requested, i. e. by local writes.
+     *
+     * @return The count.
+     */
+    public long getRequestedTriggerCheckCount()
+    {
+        return this.requestedChecks.get();
+    }
+
+    /**
+     * Gets the time in milliseconds between the insertion and the processing of the last processed trigger entry.
+     *
+     * <p>
+     * The insertion time is taken from the database server, so the latencies include the clock difference between
+     * the server and this instance.
+     * </p>
+     *
+     * @return The latency.
+     */
+    public long getLastTriggerLatency()
+    {
+        return this.lastLatency;
+    }
+
+    /**
+     * Gets the average time in milliseconds between the insertion and the processing of trigger entries.
+     *
+     * @return The average latency or 0 if no entries were processed yet.
+     */
+    public long getAverageTriggerLatency()
+    {
+        long count = this.triggerEntries.get();
+        return count == 0 ? 0 : this.latencySum.get() / count;
+    }
+
+    /**
+     * Gets the highest time in milliseconds between the insertion and the processing of a trigger entry.
+     *
+     * @return The latency.
+     */
+    public long getMaxTriggerLatency()
+    {
+        return this.maxLatency;
+    }
+
+    /**
+     * Sets the maximum number of trigger entries that are read with a single query. Checks read further batches
+     * until a batch is not full.
+     *
+     * @param triggerBatchSize
+     */
+    public void setTriggerBatchSize(int triggerBatchSize)
+    {
+        if (triggerBatchSize <= 0)
+        {
+            throw new IllegalArgumentException("Batch size must be greater than 0.");
+        }
+
+        this.triggerBatchSize = triggerBatchSize;
+    }
+
+    /**
+     * Gets the maximum number of trigger entries that are read with a single query.
+     *
+     * @return
+     */
+    public int getTriggerBatchSize()
+    {
+        return this.triggerBatchSize;
+    }
+
+    /**
+     * Sets the interval in milliseconds in which processed trigger entries are deleted. Only takes effect for trigger
+     * checks that are started afterwards.
+     *
+     * @param triggerRetentionInterval
+     */
+    public void setTriggerRetentionInterval(long triggerRetentionInterval)
+    {
+        this.triggerRetentionInterval = triggerRetentionInterval;
+    }
+
+    /**
+     * Gets the interval in milliseconds in which processed trigger entries are deleted.
+     *
+     * @return
+     */
+    public long getTriggerRetentionInterval()
+    {
+        return this.triggerRetentionInterval;
+    }
+
+    /**
+     * Sets the time in milliseconds that a gap in the IDs of the trigger entries holds the watermark back. Entries that
+     * are committed with an ID below the watermark after this time are not processed.
+     *
+     * @param triggerGapTimeout
+     */
+    public void setTriggerGapTimeout(long triggerGapTimeout)
+    {
+        this.triggerGapTimeout = triggerGapTimeout;
+    }
+
+    /**
+     * Gets the time in milliseconds that a gap in the IDs of the trigger entries holds the watermark back.
+     *
+     * @return
+     */
+    public long getTriggerGapTimeout()
+    {
+        return this.triggerGapTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds after which an instance that has not written its watermark is no longer considered
+     * live. Trigger entries that such an instance has not processed yet may be deleted.
+     *
+     * @param instanceTimeout
+     */
+    public void setInstanceTimeout(long instanceTimeout)
+    {
+        this.instanceTimeout = instanceTimeout;
+    }
+
+    /**
+     * Gets the time in milliseconds after which an instance that has not written its watermark is no longer considered
+     * live.
+     *
+     * @return
+     */
+    public long getInstanceTimeout()
+    {
+        return this.instanceTimeout;
+    }
+
     private void startTriggerCheck()
     {
-        Null.checkRun(this.triggerCheck, () -> this.triggerCheck.cancel(false));
+        // a previous check thread stops once it sees that it was replaced
+        Null.checkRun(this.triggerCheck, () -> this.triggerCheck.interrupt());
+
+        this.checkingTriggers = true;
+        this.triggerCheck = new Thread(this::runTriggerCheck, "DATABASE_TRIGGER_CHECK");
+        this.triggerCheck.setDaemon(true);
+        this.triggerCheck.start();
+
+        Null.checkRun(this.triggerRetention, () -> this.triggerRetention.cancel(false));
+
+        this.triggerRetention = Threads.get()
+                                       .scheduleAtFixedRateDaemon(
+                                               () ->
+                                               {
+                                                   deleteHandledTriggers();
+                                               },
+                                               this.triggerRetentionInterval,
+                                               this.triggerRetentionInterval,
+                                               TimeUnit.MILLISECONDS,
+                                               "DATABASE_TRIGGER_RETENTION");
+    }
+
+    /**
+     * Deletes all trigger entries that were processed by every instance whichs watermark is not older than the instance
+     * timeout.
+     */
+    private void deleteHandledTriggers()
+    {
+        String sql = "DELETE FROM recent_triggers WHERE ID <= "
+                + "(SELECT MIN(last_trigger_id) FROM trigger_watermarks WHERE updateTime > ?)";
+
+        try (Connection connection = openConnection())
+        {
+            try (PreparedStatement statement = connection.prepareStatement(sql))
+            {
+                statement.setTimestamp(1, new Timestamp(System.currentTimeMillis() - this.instanceTimeout));
+                int deleted = statement.executeUpdate();
+                connection.commit();
 
-        this.triggerCheck = Threads.get()
-                                   .scheduleAtFixedRateDaemon(
-                                           () ->
-                                           {
-                                               checkTriggers();
-                                           },
-                                           this.triggerCheckInterval,
-                                           this.triggerCheckInterval,
-                                           TimeUnit.MILLISECONDS,
-                                           "DATABASE_TRIGGER_CHECK");
+                if (deleted > 0)
+                {
+                    Log.debug("Deleted " + deleted + " handled trigger entries.");
+                }
+            }
+            catch (SQLException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+        }
+        catch (Exception e)
+        {
+            Log.error("Failed to delete handled triggers", e);
+        }
     }
 
-    private void checkTriggers()
+    private void runTriggerCheck()
     {
         try
         {
-            SqlResultSet set = select()
-                    .from("recent_triggers")
-                    .where("ID")
-                    .notIn(select("trigger_id")
-                                   .from("handled_triggers")
-                                   .where("db_id")
-                                   .equal(getInstanceID())
-                                   .unprepared())
-                    .onLessThan(1,
-                                (num, res) ->
-                                {
-                                    return res;
-                                })
-                    .execute();
-
-            long[] ids = new long[set.size()];
-
-            for (int i = 0; i < set.size(); i++)
-            {
-                SqlResult result = set.get(i);
-                ids[i] = result.getLong("ID");
-                String table = result.getString("tableName");
-                String idFieldName = result.getString("rowIdFieldName");
-                long rowId = result.getLong("idRow");
-                String triggerType = result.getString("triggerType");
-
-                switch (triggerType.toUpperCase())
+            checkTriggersPeriodically();
+        }
+        finally
+        {
+            closeTriggerConnection();
+        }
+    }
+
+    private void checkTriggersPeriodically()
+    {
+        long interval = this.triggerCheckInterval;
+
+        while (this.checkingTriggers)
+        {
+            this.checkLock.lock();
+
+            try
+            {
+                long waitNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+
+                while (this.checkingTriggers && !this.checkRequested && waitNanos > 0)
                 {
-                    case "INSERT":
-                        DatabaseAccess.onInsert(getInstanceID(),
-                                                table,
-                                                idFieldName,
-                                                rowId);
-                        break;
-                    case "UPDATE":
-                        DatabaseAccess.onUpdate(getInstanceID(),
-                                                table,
-                                                idFieldName,
-                                                rowId);
-                        break;
-                    case "DELETE":
-                        DatabaseAccess.onDelete(getInstanceID(),
-                                                table,
-                                                idFieldName,
-                                                rowId);
-                        break;
+                    waitNanos = this.checkSignal.awaitNanos(waitNanos);
                 }
+
+                this.checkRequested = false;
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+            finally
+            {
+                this.checkLock.unlock();
+            }
+
+            if (!this.checkingTriggers || Thread.currentThread() != this.triggerCheck)
+            {
+                return;
             }
 
-            for (long id : ids)
+            if (checkTriggers() > 0)
             {
-                insert().into("handled_triggers")
-                        .set("db_id",
-                             getInstanceID())
-                        .set("trigger_id",
-                             id)
-                        .execute();
+                interval = this.triggerCheckInterval;
+            }
+            else
+            {
+                interval = Math.min(interval * 2, Math.max(this.maxTriggerCheckInterval, this.triggerCheckInterval));
+            }
+
+            this.currentTriggerCheckInterval = interval;
+        }
+    }
+
+    /**
+     * Wakes the trigger check thread up so that it checks for new trigger entries immediately instead of waiting for
+     * its current interval to pass.
+     */
+    public void requestTriggerCheck()
+    {
+        this.requestedChecks.incrementAndGet();
+        this.checkLock.lock();
+
+        try
+        {
+            this.checkRequested = true;
+            this.checkSignal.signal();
+        }
+        finally
+        {
+            this.checkLock.unlock();
+        }
+    }
+
+    /**
+     * Remembers whether the statement changed rows of a table other than the trigger tables, so that an immediate
+     * trigger check is requested once the transaction is committed. Entries of uncommitted transactions can not be
+     * read by the check anyway.
+     *
+     * @see bt.db.DatabaseAccess#onLocalModification(int, java.lang.String[])
+     */
+    @Override
+    public void onLocalModification(int result, String... tables)
+    {
+        if (result <= 0 || tables == null)
+        {
+            return;
+        }
+
+        for (String table : tables)
+        {
+            // writes to the trigger tables themselves must not cause further checks
+            if (!table.equalsIgnoreCase("recent_triggers") && !table.equalsIgnoreCase("trigger_watermarks"))
+            {
+                this.localChanges = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Requests an immediate trigger check if the committed transaction modified tables other than the trigger tables.
+     *
+     * @see bt.db.DatabaseAccess#onTransactionEnd(boolean)
+     */
+    @Override
+    protected void onTransactionEnd(boolean committed)
+    {
+        super.onTransactionEnd(committed);
+
+        if (this.localChanges)
+        {
+            this.localChanges = false;
+
+            if (committed)
+            {
+                requestTriggerCheck();
+            }
+        }
+    }
+
+    /**
+     * Appends the given event to the change journal right away, since the trigger entries of a transaction are only
+     * visible once it was committed.
+     *
+     * @see bt.db.DatabaseAccess#journalChangeEvent(bt.db.listener.evnt.DatabaseChangeEvent)
+     */
+    @Override
+    protected void journalChangeEvent(DatabaseChangeEvent event)
+    {
+        ChangeJournal journal = this.changeJournal;
+
+        if (journal != null)
+        {
+            journal.accept(event);
+        }
+    }
+
+    /**
+     * Dispatches all trigger entries above the watermark.
+     *
+     * @return The number of processed entries.
+     */
+    private int checkTriggers()
+    {
+        int total = 0;
+
+        try
+        {
+            int processed;
+
+            do
+            {
+                processed = processTriggers();
+                total += processed;
+            }
+            // a full batch means that there might be more entries above the new watermark
+            while (processed >= this.triggerBatchSize);
+
+            if (System.currentTimeMillis() - this.lastHeartbeat > this.instanceTimeout / 2)
+            {
+                // keeps the watermark of an idle instance from being treated as abandoned
+                writeWatermark();
             }
         }
         catch (Exception e)
         {
             Log.error("Failed to check triggers", e);
+
+            // the next check starts with a new connection
+            closeTriggerConnection();
+        }
+
+        return total;
+    }
+
+    /**
+     * Dispatches the next batch of unprocessed trigger entries above the watermark and advances the watermark as far as
+     * the IDs of the processed entries are contiguous.
+     *
+     * @return The number of processed entries.
+     */
+    private int processTriggers() throws SQLException
+    {
+        Connection connection = getTriggerConnection();
+        SqlResultSet read;
+
+        // entries above a gap are read again until the gap is closed, so they are fetched in addition to the batch
+        String sql = "SELECT * FROM recent_triggers WHERE ID > ? ORDER BY ID ASC FETCH FIRST "
+                + (this.triggerBatchSize + this.processedAboveWatermark.size()) + " ROWS ONLY";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            statement.setLong(1, this.watermark);
+            read = new SqlResultSet(new ArrayList<>()).parse(statement.executeQuery());
+        }
+
+        // ends the read transaction, so that the next check sees newly committed entries
+        connection.commit();
+
+        this.checks.incrementAndGet();
+
+        List<SqlResult> entries = new ArrayList<>();
+
+        for (SqlResult entry : read)
+        {
+            if (!this.processedAboveWatermark.contains(entry.getLong("ID")))
+            {
+                entries.add(entry);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (entries.isEmpty())
+        {
+            this.emptyChecks.incrementAndGet();
+            advanceWatermark(now);
+            return 0;
+        }
+
+        this.triggerEntries.addAndGet(entries.size());
+
+        for (int i = 0; i < entries.size(); i++)
+        {
+            Timestamp inserted = entries.get(i).getTimestamp("insertTime");
+
+            if (inserted != null)
+            {
+                recordLatency(now - inserted.getTime());
+            }
+        }
+
+        int batchStart = -1;
+
+        for (int i = 0; i < entries.size(); i++)
+        {
+            SqlResult result = entries.get(i);
+            String table = result.getString("tableName");
+            String idFieldName = result.getString("rowIdFieldName");
+            long rowId = result.getLong("idRow");
+            String triggerType = result.getString("triggerType");
+
+            if (triggerType.toUpperCase().startsWith(BATCH_PREFIX))
+            {
+                if (batchStart < 0)
+                {
+                    batchStart = i;
+                }
+
+                // consecutive entries of the same batched trigger and table are dispatched as one event
+                if (i + 1 == entries.size() || !triggerType.equalsIgnoreCase(entries.get(i + 1).getString("triggerType"))
+                        || !table.equalsIgnoreCase(entries.get(i + 1).getString("tableName")))
+                {
+                    long[] rowIds = new long[i - batchStart + 1];
+
+                    for (int j = batchStart; j <= i; j++)
+                    {
+                        rowIds[j - batchStart] = entries.get(j).getLong("idRow");
+                    }
+
+                    DatabaseChangeEvent event = ChangeBuffer.create(this,
+                                                                    triggerType.substring(BATCH_PREFIX.length()),
+                                                                    table,
+                                                                    idFieldName,
+                                                                    rowIds);
+
+                    if (event != null)
+                    {
+                        dispatchChangeEvent(event);
+                    }
+
+                    batchStart = -1;
+                }
+
+                continue;
+            }
+
+            if (triggerType.contains(":"))
+            {
+                // written by the dedicated trigger of a conditional listener, 'action:listenerID'
+                String[] parts = triggerType.split(":", 2);
+
+                DatabaseAccess.onConditionalChange(getInstanceID(),
+                                                   parts[0],
+                                                   table,
+                                                   idFieldName,
+                                                   rowId,
+                                                   parts[1]);
+                continue;
+            }
+
+            // carries the captured column values if the table was created with payload columns
+            DatabaseAccess.onChange(getInstanceID(),
+                                    triggerType,
+                                    table,
+                                    idFieldName,
+                                    rowId,
+                                    result.getString("payload"));
+        }
+
+        for (SqlResult entry : entries)
+        {
+            this.processedAboveWatermark.add(entry.getLong("ID"));
+        }
+
+        advanceWatermark(now);
+
+        return entries.size();
+    }
+
+    /**
+     * Advances the watermark over the contiguous processed IDs directly above it. A gap is skipped once it is older
+     * than the {@link #triggerGapTimeout}. The watermark is written if it changed.
+     */
+    private void advanceWatermark(long now) throws SQLException
+    {
+        long previous = this.watermark;
+
+        while (!this.processedAboveWatermark.isEmpty())
+        {
+            if (this.processedAboveWatermark.first() == this.watermark + 1)
+            {
+                this.watermark = this.processedAboveWatermark.pollFirst();
+                this.gapSince = 0;
+            }
+            else if (this.gapSince == 0)
+            {
+                this.gapSince = now;
+                break;
+            }
+            else if (now - this.gapSince >= this.triggerGapTimeout)
+            {
+                Log.debug(String.format("Skipping trigger entries %d to %d which were not committed within %d ms.",
+                                        this.watermark + 1,
+                                        this.processedAboveWatermark.first() - 1,
+                                        this.triggerGapTimeout));
+
+                this.watermark = this.processedAboveWatermark.pollFirst();
+                this.gapSince = 0;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        if (this.watermark != previous)
+        {
+            writeWatermark();
+        }
+    }
+
+    private void recordLatency(long latency)
+    {
+        latency = Math.max(0, latency);
+        this.lastLatency = latency;
+        this.latencySum.addAndGet(latency);
+
+        if (latency > this.maxLatency)
+        {
+            this.maxLatency = latency;
+        }
+    }
+
+    /**
+     * Writes the current watermark of this instance to the TRIGGER_WATERMARKS table.
+     */
+    private void writeWatermark() throws SQLException
+    {
+        Connection connection = getTriggerConnection();
+        String sql = "UPDATE trigger_watermarks SET last_trigger_id = ?, updateTime = ? WHERE db_id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            statement.setLong(1, this.watermark);
+            statement.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            statement.setString(3, getInstanceID());
+            statement.executeUpdate();
+            connection.commit();
+        }
+        catch (SQLException e)
+        {
+            connection.rollback();
+            throw e;
+        }
+
+        this.lastHeartbeat = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the connection of the trigger check thread and opens it if necessary.
+     */
+    private Connection getTriggerConnection() throws SQLException
+    {
+        if (this.triggerConnection == null)
+        {
+            this.triggerConnection = openConnection();
+        }
+
+        return this.triggerConnection;
+    }
+
+    private void closeTriggerConnection()
+    {
+        Connection connection = this.triggerConnection;
+        this.triggerConnection = null;
+
+        if (connection != null)
+        {
+            try
+            {
+                connection.rollback();
+                connection.close();
+            }
+            catch (SQLException e)
+            {
+                Log.error("Failed to close trigger check connection", e);
+            }
         }
     }
 }
\ No newline at end of file
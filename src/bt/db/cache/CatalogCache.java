@@ -0,0 +1,287 @@
+package bt.db.cache;
+
+import bt.db.DatabaseAccess;
+import bt.log.Log;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches a snapshot of the names of the tables, views, indices, triggers, procedures and functions of the current
+ * schema.
+ *
+ * <p>
+ * The snapshot is read from the derby system catalogs with a single query on the first lookup. Objects that are created
+ * or dropped through the statements of this library are added to or removed from the snapshot right away and the
+ * change is reported to the database via {@link DatabaseAccess#onCatalogChange()}, which discards the snapshot if the
+ * transaction that made the change is rolled back. Changes that are made through other connections or raw sql are not
+ * noticed until {@link #invalidate()} is called.
+ * </p>
+ *
+ * <p>
+ * Unquoted names are compared in upper case, quoted names keep their case, as in derby.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class CatalogCache
+{
+    /**
+     * The types of database objects whichs names are cached.
+     *
+     * @author &#8904
+     */
+    public enum ObjectType
+    {
+        /**
+         * Tables and views, which share the same namespace.
+         */
+        TABLE,
+        INDEX,
+        TRIGGER,
+        PROCEDURE,
+        FUNCTION;
+
+        /**
+         * Gets the type for the given DDL keyword.
+         *
+         * @param keyword The keyword, i. e. 'TABLE' or 'VIEW'.
+         *
+         * @return The type or null if objects of the given kind are not cached.
+         */
+        public static ObjectType forKeyword(String keyword)
+        {
+            if ("VIEW".equalsIgnoreCase(keyword))
+            {
+                return TABLE;
+            }
+
+            for (ObjectType type : values())
+            {
+                if (type.name().equalsIgnoreCase(keyword))
+                {
+                    return type;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private static final String CATALOG_SQL = "SELECT CAST('TABLE' AS VARCHAR(10)) AS object_type, t.tablename AS object_name "
+            + "FROM sys.systables t JOIN sys.sysschemas s ON t.schemaid = s.schemaid "
+            + "WHERE s.schemaname = CURRENT SCHEMA "
+            + "UNION ALL "
+            + "SELECT CAST('INDEX' AS VARCHAR(10)), c.conglomeratename "
+            + "FROM sys.sysconglomerates c JOIN sys.sysschemas s ON c.schemaid = s.schemaid "
+            + "WHERE s.schemaname = CURRENT SCHEMA AND c.isindex "
+            + "UNION ALL "
+            + "SELECT CAST('TRIGGER' AS VARCHAR(10)), tr.triggername "
+            + "FROM sys.systriggers tr JOIN sys.sysschemas s ON tr.schemaid = s.schemaid "
+            + "WHERE s.schemaname = CURRENT SCHEMA "
+            + "UNION ALL "
+            + "SELECT CAST(CASE a.aliastype WHEN 'P' THEN 'PROCEDURE' ELSE 'FUNCTION' END AS VARCHAR(10)), a.alias "
+            + "FROM sys.sysaliases a JOIN sys.sysschemas s ON a.schemaid = s.schemaid "
+            + "WHERE s.schemaname = CURRENT SCHEMA AND a.aliastype IN ('P', 'F')";
+
+    private DatabaseAccess db;
+
+    /**
+     * The names of the existing objects mapped by their type. Null if the snapshot has not been loaded.
+     */
+    private volatile Map<ObjectType, Set<String>> objects;
+
+    private AtomicLong loads;
+    private AtomicLong hits;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param db The database whichs catalog should be cached.
+     */
+    public CatalogCache(DatabaseAccess db)
+    {
+        this.db = db;
+        this.loads = new AtomicLong();
+        this.hits = new AtomicLong();
+    }
+
+    /**
+     * Checks whether an object of the given type and name exists.
+     *
+     * <p>
+     * Names that contain a schema are not cached and always reported as missing.
+     * </p>
+     *
+     * @param type The type of the object.
+     * @param name The name of the object.
+     *
+     * @return true if the object exists according to the snapshot, false if it does not exist or the snapshot could
+     *         not be loaded.
+     */
+    public boolean exists(ObjectType type, String name)
+    {
+        if (type == null || name == null || name.contains("."))
+        {
+            return false;
+        }
+
+        Map<ObjectType, Set<String>> objects = getObjects();
+
+        if (objects == null)
+        {
+            return false;
+        }
+
+        boolean exists = objects.get(type).contains(normalize(name));
+
+        if (exists)
+        {
+            this.hits.incrementAndGet();
+        }
+
+        return exists;
+    }
+
+    /**
+     * Adds the given object to the snapshot after it was created.
+     *
+     * @param type The type of the object.
+     * @param name The name of the object.
+     */
+    public void created(ObjectType type, String name)
+    {
+        Map<ObjectType, Set<String>> objects = this.objects;
+
+        if (objects != null && type != null && name != null)
+        {
+            objects.get(type).add(normalize(name));
+            this.db.onCatalogChange();
+        }
+    }
+
+    /**
+     * Removes the given object from the snapshot after it was dropped.
+     *
+     * <p>
+     * Dropping a table also drops its indices and triggers, so the whole snapshot is discarded in that case.
+     * </p>
+     *
+     * @param type The type of the object.
+     * @param name The name of the object.
+     */
+    public void dropped(ObjectType type, String name)
+    {
+        Map<ObjectType, Set<String>> objects = this.objects;
+
+        if (type == ObjectType.TABLE)
+        {
+            invalidate();
+            this.db.onCatalogChange();
+        }
+        else if (objects != null && type != null && name != null)
+        {
+            objects.get(type).remove(normalize(name));
+            this.db.onCatalogChange();
+        }
+    }
+
+    /**
+     * Discards the snapshot. It is loaded again on the next lookup.
+     */
+    public void invalidate()
+    {
+        this.objects = null;
+    }
+
+    private Map<ObjectType, Set<String>> getObjects()
+    {
+        Map<ObjectType, Set<String>> objects = this.objects;
+
+        if (objects == null)
+        {
+            synchronized (this)
+            {
+                objects = this.objects;
+
+                if (objects == null)
+                {
+                    objects = load();
+                    this.objects = objects;
+                }
+            }
+        }
+
+        return objects;
+    }
+
+    private Map<ObjectType, Set<String>> load()
+    {
+        Map<ObjectType, Set<String>> objects = new EnumMap<>(ObjectType.class);
+
+        for (ObjectType type : ObjectType.values())
+        {
+            objects.put(type, ConcurrentHashMap.newKeySet());
+        }
+
+        try (Statement statement = this.db.getConnection().createStatement();
+             ResultSet result = statement.executeQuery(CATALOG_SQL))
+        {
+            int count = 0;
+
+            while (result.next())
+            {
+                objects.get(ObjectType.valueOf(result.getString(1).trim())).add(result.getString(2));
+                count ++;
+            }
+
+            this.loads.incrementAndGet();
+            Log.debug(String.format("Loaded catalog snapshot with %d objects.", count));
+            return objects;
+        }
+        catch (SQLException e)
+        {
+            Log.error("Failed to load catalog snapshot", e);
+            return null;
+        }
+    }
+
+    private static String normalize(String name)
+    {
+        String trimmed = name.trim();
+
+        // derby stores quoted identifiers with their case and without the quotes
+        if (trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\""))
+        {
+            return trimmed.substring(1, trimmed.length() - 1).replace("\"\"", "\"");
+        }
+
+        return trimmed.toUpperCase();
+    }
+
+    /**
+     * Gets the number of times that the snapshot was loaded from the system catalogs.
+     *
+     * @return The count.
+     */
+    public long getLoadCount()
+    {
+        return this.loads.get();
+    }
+
+    /**
+     * Gets the number of lookups that found an existing object and therefore saved the execution of a DDL statement.
+     *
+     * @return The count.
+     */
+    public long getHitCount()
+    {
+        return this.hits.get();
+    }
+}
@@ -0,0 +1,147 @@
+package bt.db.cache;
+
+/**
+ * Describes a column of a table in the {@link SchemaCache}.
+ *
+ * @author &#8904
+ */
+public class ColumnMetadata
+{
+    private String name;
+    private int position;
+    private String type;
+    private boolean nullable;
+    private boolean identity;
+    private String defaultValue;
+    private boolean primaryKey;
+    private boolean unique;
+    private String comment;
+
+    ColumnMetadata(String name, int position, String type, boolean nullable, boolean identity, String defaultValue)
+    {
+        this.name = name;
+        this.position = position;
+        this.type = type;
+        this.nullable = nullable;
+        this.identity = identity;
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Sets the information that the library saved in the {@link bt.db.DatabaseAccess#COLUMN_DATA column data table}
+     * when the column was created.
+     */
+    void setColumnData(boolean primaryKey, boolean unique, String comment)
+    {
+        this.primaryKey = primaryKey;
+        this.unique = unique;
+        this.comment = comment;
+    }
+
+    /**
+     * Gets the upper case name of the column.
+     *
+     * @return The name.
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Gets the 1 based position of the column in its table.
+     *
+     * @return The position.
+     */
+    public int getPosition()
+    {
+        return this.position;
+    }
+
+    /**
+     * Gets the sql type of the column including its size, i. e. 'VARCHAR(40)'.
+     *
+     * @return The type.
+     */
+    public String getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * Indicates whether the column can contain null values.
+     *
+     * @return true if the column is nullable.
+     */
+    public boolean isNullable()
+    {
+        return this.nullable;
+    }
+
+    /**
+     * Indicates whether the column is an identity column.
+     *
+     * @return true if the column values are generated as identity.
+     */
+    public boolean isIdentity()
+    {
+        return this.identity;
+    }
+
+    /**
+     * Gets the default value of the column as it is defined in the DDL.
+     *
+     * @return The default value or null if none is defined.
+     */
+    public String getDefaultValue()
+    {
+        return this.defaultValue;
+    }
+
+    /**
+     * Indicates whether the column is (part of) the primary key.
+     *
+     * <p>
+     * This is only known for columns that were created through this library.
+     * </p>
+     *
+     * @return true if the column was created as primary key.
+     */
+    public boolean isPrimaryKey()
+    {
+        return this.primaryKey;
+    }
+
+    /**
+     * Indicates whether the column was created as unique.
+     *
+     * <p>
+     * This is only known for columns that were created through this library.
+     * </p>
+     *
+     * @return true if the column was created as unique.
+     */
+    public boolean isUnique()
+    {
+        return this.unique;
+    }
+
+    /**
+     * Gets the comment that was defined when the column was created through this library.
+     *
+     * @return The comment or null.
+     */
+    public String getComment()
+    {
+        return this.comment;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return this.name + " " + this.type + (this.nullable ? "" : " NOT NULL");
+    }
+}
@@ -0,0 +1,471 @@
+package bt.db.cache;
+
+import bt.db.store.anot.Identity;
+import bt.db.store.anot.Table;
+import bt.log.Log;
+import bt.reflect.field.Fields;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An identity map for instances that are initialized and persisted via the static methods of
+ * {@link bt.db.store.SqlEntry SqlEntry}.
+ *
+ * <p>
+ * Instances are mapped by their class and {@link Identity} value. Only instances of classes that were enabled via
+ * {@link #enable(Class)} are cached. Cached instances are removed when an update or delete trigger event is received for
+ * one of the tables of their class and are replaced when they are persisted. The cache holds at most the configured
+ * number of instances and evicts the least recently used one when it is full.
+ * </p>
+ *
+ * <p>
+ * Cached instances are shared between all callers, changes to an instance are visible to everyone who received it from
+ * the cache. Tables that were created without default update and delete triggers can not be kept up to date.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class EntityCache
+{
+    /**
+     * Defines how cached instances are referenced.
+     *
+     * @author &#8904
+     */
+    public enum ReferenceType
+    {
+        /**
+         * Instances are kept until they are evicted or invalidated.
+         */
+        STRONG,
+
+        /**
+         * Instances may be removed by the garbage collector if memory is needed.
+         */
+        SOFT,
+
+        /**
+         * Instances are removed by the garbage collector once they are no longer used outside of the cache.
+         */
+        WEAK
+    }
+
+    private int maxSize;
+    private ReferenceType referenceType;
+
+    /**
+     * The cached instances (or references to them) mapped by class and identity.
+     */
+    private LinkedHashMap<List<Object>, Object> entries;
+
+    /**
+     * The identity fields of all enabled classes.
+     */
+    private Map<Class<?>, Field> identityFields;
+
+    /**
+     * The enabled classes mapped by the upper case names of their tables.
+     */
+    private Map<String, Set<Class<?>>> tableClasses;
+
+    /**
+     * Increased every time an instance is removed or invalidated.
+     */
+    private long version;
+
+    /**
+     * The version at which each recently removed instance was removed, mapped by class and identity. Holds at most
+     * {@link #maxSize} keys.
+     */
+    private LinkedHashMap<List<Object>, Long> removedVersions;
+
+    /**
+     * The highest version that was dropped from {@link #removedVersions}. Instances that were read before it are not
+     * cached, since their removal can no longer be checked.
+     */
+    private long forgottenVersion;
+
+    private AtomicLong hits;
+    private AtomicLong misses;
+    private AtomicLong invalidations;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxSize       The maximum number of cached instances.
+     * @param referenceType Defines how cached instances are referenced.
+     */
+    public EntityCache(int maxSize, ReferenceType referenceType)
+    {
+        if (maxSize <= 0)
+        {
+            throw new IllegalArgumentException("Max size must be greater than 0.");
+        }
+
+        this.maxSize = maxSize;
+        this.referenceType = referenceType;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.removedVersions = new LinkedHashMap<>();
+        this.identityFields = new ConcurrentHashMap<>();
+        this.tableClasses = new ConcurrentHashMap<>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.invalidations = new AtomicLong();
+    }
+
+    /**
+     * Enables caching for instances of the given class.
+     *
+     * <p>
+     * The class must have an {@link Identity} field of type long and either a global {@link Table} annotation or one on
+     * each of its fields.
+     * </p>
+     *
+     * @param cls The class.
+     */
+    public void enable(Class<?> cls)
+    {
+        Field identity = null;
+        Set<String> tables = new HashSet<>();
+        Table globalTable = cls.getAnnotation(Table.class);
+
+        if (globalTable != null)
+        {
+            tables.add(globalTable.value().toUpperCase());
+        }
+
+        for (Field field : Fields.getAllFields(cls))
+        {
+            Table table = field.getAnnotation(Table.class);
+
+            if (table != null)
+            {
+                tables.add(table.value().toUpperCase());
+            }
+
+            if (identity == null && field.getAnnotation(Identity.class) != null && field.getType() == Long.TYPE)
+            {
+                identity = field;
+                identity.setAccessible(true);
+            }
+        }
+
+        if (identity == null)
+        {
+            throw new IllegalArgumentException("Class requires a valid identity field of type long.");
+        }
+
+        this.identityFields.put(cls, identity);
+
+        for (String table : tables)
+        {
+            this.tableClasses.computeIfAbsent(table, t -> ConcurrentHashMap.newKeySet()).add(cls);
+        }
+
+        Log.debug(String.format("Enabled entity cache for %s.", cls.getName()));
+    }
+
+    /**
+     * Disables caching for instances of the given class and removes all of its cached instances.
+     *
+     * @param cls The class.
+     */
+    public void disable(Class<?> cls)
+    {
+        this.identityFields.remove(cls);
+        this.tableClasses.values().forEach(classes -> classes.remove(cls));
+
+        synchronized (this)
+        {
+            this.entries.keySet().removeIf(key -> key.get(0) == cls);
+        }
+    }
+
+    /**
+     * Indicates whether instances of the given class are cached.
+     *
+     * @param cls The class.
+     *
+     * @return true if caching was enabled for the class.
+     */
+    public boolean isEnabled(Class<?> cls)
+    {
+        return this.identityFields.containsKey(cls);
+    }
+
+    /**
+     * Gets the cached instance of the given class with the given identity.
+     *
+     * @param cls The class of the instance.
+     * @param id  The identity of the instance.
+     *
+     * @return The instance or null if it is not cached.
+     */
+    public synchronized <T> T get(Class<T> cls, long id)
+    {
+        List<Object> key = List.of(cls, id);
+        Object value = this.entries.get(key);
+
+        if (value instanceof Reference)
+        {
+            value = ((Reference<?>)value).get();
+
+            if (value == null)
+            {
+                this.entries.remove(key);
+            }
+        }
+
+        if (value == null)
+        {
+            this.misses.incrementAndGet();
+            return null;
+        }
+
+        this.hits.incrementAndGet();
+        return cls.cast(value);
+    }
+
+    /**
+     * Gets the current version of this cache.
+     *
+     * <p>
+     * The version has to be obtained before an instance is read from the database and passed to
+     * {@link #put(Object, long)}, so that an instance whichs row was changed during the read is not cached.
+     * </p>
+     *
+     * @return The version.
+     */
+    public synchronized long getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Caches the given instance that was read from the database, unless the cached instance with the same class and
+     * identity was removed or invalidated since the given version was obtained.
+     *
+     * <p>
+     * This has no effect if caching was not enabled for the class of the instance.
+     * </p>
+     *
+     * @param entry   The instance.
+     * @param version The version that was obtained via {@link #getVersion()} before the instance was read.
+     */
+    public void put(Object entry, long version)
+    {
+        cache(entry,
+              version);
+    }
+
+    /**
+     * Caches the given instance or replaces the already cached instance with the same class and identity.
+     *
+     * <p>
+     * Only used for instances whichs state was just written, use {@link #put(Object, long)} for instances that were read
+     * from the database. This has no effect if caching was not enabled for the class of the instance.
+     * </p>
+     *
+     * @param entry The instance.
+     */
+    public void put(Object entry)
+    {
+        cache(entry,
+              null);
+    }
+
+    private void cache(Object entry, Long version)
+    {
+        Field identity = this.identityFields.get(entry.getClass());
+
+        if (identity == null)
+        {
+            return;
+        }
+
+        long id;
+
+        try
+        {
+            id = identity.getLong(entry);
+        }
+        catch (IllegalAccessException e)
+        {
+            Log.error("Failed to get identity value", e);
+            return;
+        }
+
+        Object value;
+
+        switch (this.referenceType)
+        {
+            case SOFT:
+                value = new SoftReference<>(entry);
+                break;
+            case WEAK:
+                value = new WeakReference<>(entry);
+                break;
+            default:
+                value = entry;
+        }
+
+        synchronized (this)
+        {
+            List<Object> key = List.of(entry.getClass(), id);
+
+            if (version != null && (version < this.forgottenVersion || this.removedVersions.getOrDefault(key, 0L) > version))
+            {
+                Log.debug(String.format("Not caching stale instance of %s with id %d.", entry.getClass().getName(), id));
+                return;
+            }
+
+            this.entries.put(key, value);
+
+            Iterator<List<Object>> iterator = this.entries.keySet().iterator();
+
+            while (this.entries.size() > this.maxSize && iterator.hasNext())
+            {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes the cached instance with the same class and identity as the given one.
+     *
+     * @param entry The instance.
+     */
+    public void remove(Object entry)
+    {
+        Field identity = this.identityFields.get(entry.getClass());
+
+        if (identity == null)
+        {
+            return;
+        }
+
+        try
+        {
+            long id = identity.getLong(entry);
+
+            synchronized (this)
+            {
+                List<Object> key = List.of(entry.getClass(), id);
+                this.entries.remove(key);
+                markRemoved(key);
+            }
+        }
+        catch (IllegalAccessException e)
+        {
+            Log.error("Failed to get identity value", e);
+        }
+    }
+
+    /**
+     * Removes the cached instances with the given identity of all classes that use the given table.
+     *
+     * @param table The table that was changed.
+     * @param id    The identity of the changed row.
+     */
+    public void invalidate(String table, long id)
+    {
+        Set<Class<?>> classes = this.tableClasses.get(table.toUpperCase());
+
+        if (classes == null)
+        {
+            return;
+        }
+
+        synchronized (this)
+        {
+            for (Class<?> cls : classes)
+            {
+                List<Object> key = List.of(cls, id);
+                markRemoved(key);
+
+                if (this.entries.remove(key) != null)
+                {
+                    this.invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void markRemoved(List<Object> key)
+    {
+        this.version ++;
+        this.removedVersions.remove(key);
+        this.removedVersions.put(key, this.version);
+
+        Iterator<Long> iterator = this.removedVersions.values().iterator();
+
+        while (this.removedVersions.size() > this.maxSize && iterator.hasNext())
+        {
+            this.forgottenVersion = Math.max(this.forgottenVersion, iterator.next());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes all cached instances.
+     */
+    public synchronized void clear()
+    {
+        this.version ++;
+        this.forgottenVersion = this.version;
+        this.removedVersions.clear();
+        this.entries.clear();
+    }
+
+    /**
+     * Gets the number of currently cached instances.
+     *
+     * @return The size.
+     */
+    public synchronized int size()
+    {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets the number of lookups that returned a cached instance.
+     *
+     * @return The count.
+     */
+    public long getHitCount()
+    {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that did not find a cached instance.
+     *
+     * @return The count.
+     */
+    public long getMissCount()
+    {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the number of instances that were removed because their row was changed.
+     *
+     * @return The count.
+     */
+    public long getInvalidationCount()
+    {
+        return this.invalidations.get();
+    }
+}
@@ -0,0 +1,61 @@
+package bt.db.cache;
+
+import java.util.List;
+
+/**
+ * Describes an index of a table in the {@link SchemaCache}.
+ *
+ * @author &#8904
+ */
+public class IndexMetadata
+{
+    private String name;
+    private boolean unique;
+    private List<String> columns;
+
+    IndexMetadata(String name, boolean unique, List<String> columns)
+    {
+        this.name = name;
+        this.unique = unique;
+        this.columns = List.copyOf(columns);
+    }
+
+    /**
+     * Gets the name of the index. Indices that back constraints have system generated names.
+     *
+     * @return The name.
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Indicates whether the index enforces unique values.
+     *
+     * @return true if the index is unique.
+     */
+    public boolean isUnique()
+    {
+        return this.unique;
+    }
+
+    /**
+     * Gets the names of the indexed columns in index order.
+     *
+     * @return An unmodifiable list of column names.
+     */
+    public List<String> getColumns()
+    {
+        return this.columns;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return this.name + (this.unique ? " UNIQUE " : " ") + this.columns;
+    }
+}
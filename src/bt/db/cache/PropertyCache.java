@@ -0,0 +1,267 @@
+package bt.db.cache;
+
+import bt.db.DatabaseAccess;
+import bt.db.statement.result.SqlResult;
+import bt.db.statement.result.SqlResultSet;
+import bt.log.Log;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the content of the {@link DatabaseAccess#PROPERTIES_TABLE}.
+ *
+ * <p>
+ * The whole table is loaded on the first lookup. Once it is loaded, keys that are not contained in the cache are known
+ * to be missing, so lookups of missing keys do not access the database either. Writes done through
+ * {@link DatabaseAccess#setProperty(String, String)} are written through to the cache. Changes from other connections are
+ * noticed through the triggers of the properties table which call {@link #invalidate(String)} for every changed key,
+ * only that key is then selected again on its next lookup. The events of local writes invalidate their keys before the
+ * written value is put into the cache, unless they are received later through a trigger table, in which case the key
+ * is selected again once.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class PropertyCache
+{
+    private DatabaseAccess db;
+
+    /**
+     * The cached values mapped by their keys. An empty optional marks a key that is known to be missing or whichs value
+     * is null.
+     */
+    private Map<String, Optional<String>> values;
+
+    /**
+     * The keys that were invalidated while the whole table is cached. They have to be selected again instead of being
+     * considered missing.
+     */
+    private Set<String> staleKeys;
+
+    /**
+     * Indicates whether the whole table is contained in {@link #values}.
+     */
+    private volatile boolean complete;
+
+    /**
+     * Increased on every change, used to discard loaded data that might be outdated.
+     */
+    private long version;
+
+    private AtomicLong hits;
+    private AtomicLong misses;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param db The database whichs properties should be cached.
+     */
+    public PropertyCache(DatabaseAccess db)
+    {
+        this.db = db;
+        this.values = new ConcurrentHashMap<>();
+        this.staleKeys = ConcurrentHashMap.newKeySet();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Gets the value of the property with the given key.
+     *
+     * @param key The unique key of the property.
+     *
+     * @return The value or null if there is no such property.
+     */
+    public String get(String key)
+    {
+        Optional<String> value = this.values.get(key);
+
+        if (value == null && this.complete && !this.staleKeys.contains(key))
+        {
+            value = Optional.empty();
+        }
+
+        if (value != null)
+        {
+            this.hits.incrementAndGet();
+            return value.orElse(null);
+        }
+
+        this.misses.incrementAndGet();
+
+        if (!this.complete && load())
+        {
+            return this.values.getOrDefault(key, Optional.empty()).orElse(null);
+        }
+
+        // the key was invalidated or the table could not be loaded as a whole, only this key is selected and cached
+        long loadVersion = getVersion();
+        SqlResultSet result = this.db.select("property_value")
+                                     .from(DatabaseAccess.PROPERTIES_TABLE)
+                                     .where("property_key")
+                                     .equal(key)
+                                     .onLessThan(1,
+                                                 (i, set) ->
+                                                 {
+                                                     return set;
+                                                 })
+                                     .execute();
+
+        if (result == null)
+        {
+            return null;
+        }
+
+        value = Optional.ofNullable(result.size() > 0 ? result.get(0).getString("property_value") : null);
+
+        synchronized (this)
+        {
+            if (loadVersion == this.version)
+            {
+                this.values.put(key, value);
+                this.staleKeys.remove(key);
+            }
+        }
+
+        return value.orElse(null);
+    }
+
+    /**
+     * Loads the whole properties table into this cache.
+     *
+     * @return true if the table was loaded successfully.
+     */
+    public boolean load()
+    {
+        long loadVersion = getVersion();
+
+        SqlResultSet result = this.db.select("property_key", "property_value")
+                                     .from(DatabaseAccess.PROPERTIES_TABLE)
+                                     .onLessThan(1,
+                                                 (i, set) ->
+                                                 {
+                                                     return set;
+                                                 })
+                                     .onFail((s, e) ->
+                                             {
+                                                 // i. e. the table does not exist yet during the first start
+                                                 Log.debug("Failed to load properties: " + e.getMessage());
+                                                 return null;
+                                             })
+                                     .execute();
+
+        if (result == null)
+        {
+            return false;
+        }
+
+        synchronized (this)
+        {
+            if (loadVersion != this.version)
+            {
+                // changed while loading, the values might already be outdated
+                return false;
+            }
+
+            this.values.clear();
+            this.staleKeys.clear();
+
+            for (SqlResult row : result)
+            {
+                this.values.put(row.getString("property_key"),
+                                Optional.ofNullable(row.getString("property_value")));
+            }
+
+            this.complete = true;
+        }
+
+        Log.debug(String.format("Loaded %d properties.", result.size()));
+        return true;
+    }
+
+    /**
+     * Indicates whether the whole properties table is currently cached.
+     *
+     * @return true if the table is loaded.
+     */
+    public boolean isLoaded()
+    {
+        return this.complete;
+    }
+
+    /**
+     * Caches the given value after it has been written to the database.
+     *
+     * @param key   The unique key of the property.
+     * @param value The written value.
+     */
+    public synchronized void put(String key, String value)
+    {
+        this.version ++;
+        this.values.put(key, Optional.ofNullable(value));
+        this.staleKeys.remove(key);
+    }
+
+    /**
+     * Removes all cached values. The table is loaded again on the next lookup.
+     */
+    public synchronized void invalidate()
+    {
+        this.version ++;
+        this.complete = false;
+        this.values.clear();
+        this.staleKeys.clear();
+    }
+
+    /**
+     * Removes the cached value of the given key. Only this key is selected again on its next lookup.
+     *
+     * @param key The unique key of the changed property.
+     */
+    public synchronized void invalidate(String key)
+    {
+        if (key == null)
+        {
+            return;
+        }
+
+        this.version ++;
+
+        // marked before the value is removed, so that concurrent lookups never consider the key missing
+        if (this.complete)
+        {
+            this.staleKeys.add(key);
+        }
+
+        this.values.remove(key);
+    }
+
+    private synchronized long getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Gets the number of lookups that were answered from the cache.
+     *
+     * @return The count.
+     */
+    public long getHitCount()
+    {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to access the database.
+     *
+     * @return The count.
+     */
+    public long getMissCount()
+    {
+        return this.misses.get();
+    }
+}
@@ -0,0 +1,161 @@
+package bt.db.cache;
+
+import bt.db.statement.result.SqlResultSet;
+import bt.log.Log;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent executions of identical selects.
+ *
+ * <p>
+ * The first thread that executes a select with a given sql and set of bound values performs the actual query. Threads
+ * that execute the same select while the query is still running wait for it to finish and receive a
+ * {@link SqlResultSet#copy() copy} of the same result set or the same exception instead of querying the database
+ * themselves. Every caller can therefore modify its result set without affecting the others.
+ * </p>
+ *
+ * <p>
+ * A thread only joins a running query that started after the last write of the database instance, which is reported
+ * via {@link #onWrite()}. A caller that just executed or committed a modification therefore never receives a result
+ * that was selected before its modification.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class QueryCoalescer
+{
+    /**
+     * A query that is executed by the first caller.
+     *
+     * @author &#8904
+     */
+    @FunctionalInterface
+    public interface Query
+    {
+        public SqlResultSet execute() throws SQLException;
+    }
+
+    private static class Running
+    {
+        private CompletableFuture<SqlResultSet> future = new CompletableFuture<>();
+        private long epoch;
+    }
+
+    /**
+     * The currently running queries mapped by their keys.
+     */
+    private Map<List<Object>, Running> running;
+
+    /**
+     * Increased on every write, commit and rollback.
+     */
+    private AtomicLong epoch;
+
+    private AtomicLong executions;
+    private AtomicLong coalesced;
+
+    /**
+     * Creates a new instance.
+     */
+    public QueryCoalescer()
+    {
+        this.running = new ConcurrentHashMap<>();
+        this.epoch = new AtomicLong();
+        this.executions = new AtomicLong();
+        this.coalesced = new AtomicLong();
+    }
+
+    /**
+     * Executes the given query or waits for an already running query with the same key.
+     *
+     * @param key   The key created by {@link QueryResultCache#createKey(String, List)}.
+     * @param query The query to execute if no identical query is running.
+     *
+     * @return The result of the query.
+     *
+     * @throws SQLException If the query failed.
+     */
+    public SqlResultSet execute(List<Object> key, Query query) throws SQLException
+    {
+        Running current = new Running();
+        current.epoch = this.epoch.get();
+
+        Running existing = this.running.compute(key, (k, r) -> r != null && r.epoch == current.epoch ? r : current);
+
+        if (existing != current)
+        {
+            this.coalesced.incrementAndGet();
+            Log.debug("Waiting for identical running select: " + key.get(0));
+
+            try
+            {
+                return existing.future.join().copy();
+            }
+            catch (CompletionException e)
+            {
+                if (e.getCause() instanceof SQLException)
+                {
+                    throw (SQLException)e.getCause();
+                }
+
+                throw e;
+            }
+        }
+
+        this.executions.incrementAndGet();
+
+        try
+        {
+            SqlResultSet result = query.execute();
+
+            // the waiting callers copy the shared snapshot, while the executing caller keeps the original
+            current.future.complete(result.copy());
+            return result;
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            current.future.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            this.running.remove(key, current);
+        }
+    }
+
+    /**
+     * Reports a write, commit or rollback of the database instance. Queries that are running at that time are not
+     * joined anymore.
+     */
+    public void onWrite()
+    {
+        this.epoch.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of queries that were actually executed.
+     *
+     * @return The count.
+     */
+    public long getExecutionCount()
+    {
+        return this.executions.get();
+    }
+
+    /**
+     * Gets the number of calls that received the result of an identical running query instead of executing their own.
+     *
+     * @return The count.
+     */
+    public long getCoalescedCount()
+    {
+        return this.coalesced.get();
+    }
+}
@@ -0,0 +1,371 @@
+package bt.db.cache;
+
+import bt.db.statement.result.SqlResultSet;
+import bt.db.statement.value.Value;
+import bt.log.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of selects that were marked as {@link bt.db.statement.impl.SelectStatement#cached() cached}.
+ *
+ * <p>
+ * Results are keyed by the rendered sql and the bound values of the select. Every result is tagged with the tables that
+ * the select reads from and is removed as soon as one of those tables changes, either through a trigger event or
+ * through a data modifying statement of the same database instance. Tables that were modified by statements of the
+ * database instance are invalidated again once the transaction is committed or rolled back, so results that were
+ * selected from uncommitted data in between are discarded as well. The cache holds at most the configured number of
+ * results and evicts the least recently used one when it is full. Results also expire after the configured time to
+ * live.
+ * </p>
+ *
+ * <p>
+ * The cache keeps its own copy of every result and hands out {@link SqlResultSet#copy() copies} of it, so callers can
+ * modify their result sets. Results with CLOB or BLOB columns are never cached, since their values are only valid
+ * within the transaction that selected them.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class QueryResultCache
+{
+    private static class Entry
+    {
+        private SqlResultSet result;
+        private Set<String> tables;
+        private long expiresAt;
+    }
+
+    private int maxSize;
+    private long timeToLive;
+
+    private LinkedHashMap<List<Object>, Entry> entries;
+
+    /**
+     * The keys of all cached results mapped by the tables that they read from.
+     */
+    private Map<String, Set<List<Object>>> tableKeys;
+
+    /**
+     * Increased on every invalidation.
+     */
+    private long version;
+
+    /**
+     * The version of the last invalidation of each table. Used to discard results that were selected while one of their
+     * tables changed.
+     */
+    private Map<String, Long> tableVersions;
+
+    /**
+     * The version of the last {@link #clear()}.
+     */
+    private long clearVersion;
+
+    private AtomicLong hits;
+    private AtomicLong misses;
+    private AtomicLong evictions;
+    private AtomicLong invalidations;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxSize    The maximum number of cached results.
+     * @param timeToLive The time in milliseconds after which a cached result expires. A value of 0 or less disables
+     *                   expiration.
+     */
+    public QueryResultCache(int maxSize, long timeToLive)
+    {
+        if (maxSize <= 0)
+        {
+            throw new IllegalArgumentException("Max size must be greater than 0.");
+        }
+
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive > 0 ? TimeUnit.MILLISECONDS.toNanos(timeToLive) : 0;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.tableKeys = new HashMap<>();
+        this.tableVersions = new HashMap<>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.invalidations = new AtomicLong();
+    }
+
+    /**
+     * Creates the cache key for the given sql and values.
+     *
+     * @param sql    The rendered sql of the select.
+     * @param values The values that are bound to the select.
+     *
+     * @return The key.
+     */
+    public static List<Object> createKey(String sql, List<Value> values)
+    {
+        List<Object> key = new ArrayList<>(values.size() * 2 + 1);
+        key.add(sql);
+
+        for (Value value : values)
+        {
+            key.add(value.getType());
+            key.add(value.getValue());
+        }
+
+        return key;
+    }
+
+    /**
+     * Gets the cached result for the given key.
+     *
+     * @param key The key created by {@link #createKey(String, List)}.
+     *
+     * @return The result or null if no valid result is cached.
+     */
+    public synchronized SqlResultSet get(List<Object> key)
+    {
+        Entry entry = this.entries.get(key);
+
+        if (entry != null && this.timeToLive > 0 && System.nanoTime() - entry.expiresAt > 0)
+        {
+            remove(key, entry);
+            entry = null;
+        }
+
+        if (entry == null)
+        {
+            this.misses.incrementAndGet();
+            return null;
+        }
+
+        this.hits.incrementAndGet();
+        return entry.result.copy();
+    }
+
+    /**
+     * Gets the current version of this cache.
+     *
+     * <p>
+     * The version has to be obtained before the select is executed and passed to
+     * {@link #put(List, SqlResultSet, Collection, long)}, so that results whichs tables were invalidated during the
+     * execution are not cached. Invalidations of other tables do not affect the result.
+     * </p>
+     *
+     * @return The version.
+     */
+    public synchronized long getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Caches a copy of the given result, unless it contains {@link SqlResultSet#hasLargeObjects() large objects}.
+     *
+     * @param key     The key created by {@link #createKey(String, List)}.
+     * @param result  The result to cache.
+     * @param tables  The tables that the select reads from.
+     * @param version The version that was obtained via {@link #getVersion()} before the select was executed.
+     */
+    public synchronized void put(List<Object> key, SqlResultSet result, Collection<String> tables, long version)
+    {
+        if (this.clearVersion > version || result.hasLargeObjects())
+        {
+            return;
+        }
+
+        for (String table : tables)
+        {
+            if (this.tableVersions.getOrDefault(normalize(table), 0L) > version)
+            {
+                return;
+            }
+        }
+
+        Entry old = this.entries.remove(key);
+
+        if (old != null)
+        {
+            removeTableKeys(key, old);
+        }
+
+        Entry entry = new Entry();
+        entry.result = result.copy();
+        entry.tables = new HashSet<>();
+        entry.expiresAt = System.nanoTime() + this.timeToLive;
+
+        for (String table : tables)
+        {
+            String name = normalize(table);
+            entry.tables.add(name);
+            this.tableKeys.computeIfAbsent(name, t -> new HashSet<>()).add(key);
+        }
+
+        this.entries.put(key, entry);
+
+        Iterator<Map.Entry<List<Object>, Entry>> iterator = this.entries.entrySet().iterator();
+
+        while (this.entries.size() > this.maxSize && iterator.hasNext())
+        {
+            Map.Entry<List<Object>, Entry> eldest = iterator.next();
+            iterator.remove();
+            removeTableKeys(eldest.getKey(), eldest.getValue());
+            this.evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes all results that read from one of the given tables.
+     *
+     * @param tables The changed tables.
+     */
+    public synchronized void invalidate(String... tables)
+    {
+        this.version ++;
+
+        for (String table : tables)
+        {
+            this.tableVersions.put(normalize(table), this.version);
+            Set<List<Object>> keys = this.tableKeys.remove(normalize(table));
+
+            if (keys != null)
+            {
+                for (List<Object> key : keys)
+                {
+                    Entry entry = this.entries.remove(key);
+
+                    if (entry != null)
+                    {
+                        removeTableKeys(key, entry);
+                        this.invalidations.incrementAndGet();
+                    }
+                }
+
+                Log.debug(String.format("Invalidated %d cached results of table %s.", keys.size(), table));
+            }
+        }
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public synchronized void clear()
+    {
+        this.version ++;
+        this.clearVersion = this.version;
+        this.tableVersions.clear();
+        this.entries.clear();
+        this.tableKeys.clear();
+    }
+
+    private void remove(List<Object> key, Entry entry)
+    {
+        this.entries.remove(key);
+        removeTableKeys(key, entry);
+    }
+
+    private void removeTableKeys(List<Object> key, Entry entry)
+    {
+        for (String table : entry.tables)
+        {
+            Set<List<Object>> keys = this.tableKeys.get(table);
+
+            if (keys != null)
+            {
+                keys.remove(key);
+
+                if (keys.isEmpty())
+                {
+                    this.tableKeys.remove(table);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes quotes and schema prefixes and converts the name to upper case, so that it matches the table names of
+     * trigger events.
+     */
+    private static String normalize(String table)
+    {
+        String name = table.replace("\"", "").trim();
+        int dot = name.lastIndexOf('.');
+
+        if (dot >= 0)
+        {
+            name = name.substring(dot + 1);
+        }
+
+        return name.toUpperCase();
+    }
+
+    /**
+     * Gets the number of currently cached results.
+     *
+     * @return The size.
+     */
+    public synchronized int size()
+    {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets the number of lookups that returned a cached result.
+     *
+     * @return The count.
+     */
+    public long getHitCount()
+    {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that did not find a valid cached result.
+     *
+     * @return The count.
+     */
+    public long getMissCount()
+    {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the ratio of hits to all lookups.
+     *
+     * @return The hit rate between 0 and 1.
+     */
+    public double getHitRate()
+    {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double)hits / total;
+    }
+
+    /**
+     * Gets the number of results that were evicted because the cache was full.
+     *
+     * @return The count.
+     */
+    public long getEvictionCount()
+    {
+        return this.evictions.get();
+    }
+
+    /**
+     * Gets the number of results that were removed because one of their tables changed.
+     *
+     * @return The count.
+     */
+    public long getInvalidationCount()
+    {
+        return this.invalidations.get();
+    }
+}
@@ -0,0 +1,465 @@
+package bt.db.cache;
+
+import bt.db.DatabaseAccess;
+import bt.db.cache.CatalogCache.ObjectType;
+import bt.log.Log;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the metadata of the tables and views of the current schema, including their columns, indices and triggers.
+ *
+ * <p>
+ * The metadata of all tables is read from the derby system catalogs and the {@link DatabaseAccess#COLUMN_DATA column
+ * data table} on the first lookup. Tables that are created, altered or dropped through the statements of this library,
+ * or whichs indices or triggers are changed, are marked as stale and only their metadata is read again on their next
+ * lookup. Changes that are made through other connections or raw sql are not noticed until {@link #invalidate()} is
+ * called.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class SchemaCache
+{
+    @FunctionalInterface
+    private interface RowHandler
+    {
+        public void handle(ResultSet row) throws SQLException;
+    }
+
+    private static final String SCHEMA_FILTER = "s.schemaname = CURRENT SCHEMA";
+
+    private static final String TABLES_SQL = "SELECT t.tablename, t.tabletype FROM sys.systables t "
+            + "JOIN sys.sysschemas s ON t.schemaid = s.schemaid "
+            + "WHERE " + SCHEMA_FILTER + " AND t.tabletype IN ('T', 'V')";
+
+    private static final String COLUMNS_SQL = "SELECT t.tablename, c.columnname, c.columnnumber, c.columndatatype, "
+            + "c.columndefault, c.autoincrementvalue FROM sys.syscolumns c "
+            + "JOIN sys.systables t ON c.referenceid = t.tableid "
+            + "JOIN sys.sysschemas s ON t.schemaid = s.schemaid "
+            + "WHERE " + SCHEMA_FILTER;
+
+    private static final String INDICES_SQL = "SELECT t.tablename, c.conglomeratename, c.descriptor FROM sys.sysconglomerates c "
+            + "JOIN sys.systables t ON c.tableid = t.tableid "
+            + "JOIN sys.sysschemas s ON t.schemaid = s.schemaid "
+            + "WHERE " + SCHEMA_FILTER + " AND c.isindex";
+
+    private static final String TRIGGERS_SQL = "SELECT t.tablename, tr.triggername, tr.event, tr.firingtime, tr.type "
+            + "FROM sys.systriggers tr "
+            + "JOIN sys.systables t ON tr.tableid = t.tableid "
+            + "JOIN sys.sysschemas s ON t.schemaid = s.schemaid "
+            + "WHERE " + SCHEMA_FILTER;
+
+    private static final String COLUMN_DATA_SQL = "SELECT table_name AS tablename, column_name, primary_key, is_unique, comment "
+            + "FROM " + DatabaseAccess.COLUMN_DATA + " WHERE 1 = 1";
+
+    private DatabaseAccess db;
+
+    /**
+     * The metadata mapped by the upper case table names. Null if the cache has not been loaded.
+     */
+    private volatile Map<String, TableMetadata> tables;
+
+    /**
+     * The names of the tables whichs metadata has to be read again before it is returned.
+     */
+    private Set<String> stale;
+
+    private AtomicLong hits;
+    private AtomicLong loads;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param db The database whichs schema should be cached.
+     */
+    public SchemaCache(DatabaseAccess db)
+    {
+        this.db = db;
+        this.stale = ConcurrentHashMap.newKeySet();
+        this.hits = new AtomicLong();
+        this.loads = new AtomicLong();
+    }
+
+    /**
+     * Gets the metadata of the table or view with the given name.
+     *
+     * @param name The case insensitive name of the table.
+     *
+     * @return The metadata or null if there is no such table in the current schema.
+     */
+    public TableMetadata getTable(String name)
+    {
+        String key = normalize(name);
+        Map<String, TableMetadata> tables = getTables(key);
+        return tables == null ? null : tables.get(key);
+    }
+
+    /**
+     * Gets the metadata of all tables and views of the current schema.
+     *
+     * @return An unmodifiable collection of the metadata.
+     */
+    public Collection<TableMetadata> getTables()
+    {
+        Map<String, TableMetadata> tables = getTables(null);
+        return tables == null ? Collections.emptyList() : Collections.unmodifiableCollection(tables.values());
+    }
+
+    /**
+     * Checks whether a table or view with the given name exists in the current schema.
+     *
+     * @param name The case insensitive name of the table.
+     *
+     * @return true if the table exists.
+     */
+    public boolean containsTable(String name)
+    {
+        return getTable(name) != null;
+    }
+
+    /**
+     * Marks the given table as stale after it or one of its columns, indices or triggers was changed.
+     *
+     * @param name The name of the table.
+     */
+    public void invalidate(String name)
+    {
+        if (name != null && this.tables != null)
+        {
+            this.stale.add(normalize(name));
+        }
+    }
+
+    /**
+     * Updates the cache after a database object was dropped.
+     *
+     * @param type The type of the dropped object.
+     * @param name The name of the dropped object.
+     */
+    public void dropped(ObjectType type, String name)
+    {
+        Map<String, TableMetadata> tables = this.tables;
+
+        if (tables == null || type == null || name == null)
+        {
+            return;
+        }
+
+        String key = normalize(name);
+
+        if (type == ObjectType.TABLE)
+        {
+            tables.remove(key);
+            this.stale.remove(key);
+            return;
+        }
+
+        for (TableMetadata table : tables.values())
+        {
+            boolean owner = table.getIndices().stream().anyMatch(i -> i.getName().equals(key))
+                    || table.getTriggers().stream().anyMatch(t -> t.getName().equals(key));
+
+            if (owner)
+            {
+                invalidate(table.getName());
+            }
+        }
+    }
+
+    /**
+     * Discards all cached metadata. It is loaded again on the next lookup.
+     */
+    public synchronized void invalidate()
+    {
+        this.tables = null;
+        this.stale.clear();
+    }
+
+    /**
+     * Gets the loaded tables after the stale entries for the given table (or all stale entries if the given name is
+     * null) were read again.
+     */
+    private Map<String, TableMetadata> getTables(String key)
+    {
+        Map<String, TableMetadata> tables = this.tables;
+
+        if (tables == null)
+        {
+            synchronized (this)
+            {
+                tables = this.tables;
+
+                if (tables == null)
+                {
+                    tables = load(null);
+
+                    if (tables == null)
+                    {
+                        return null;
+                    }
+
+                    this.tables = new ConcurrentHashMap<>(tables);
+                    return this.tables;
+                }
+            }
+        }
+
+        List<String> reload = new ArrayList<>();
+
+        for (String name : this.stale)
+        {
+            if (key == null || key.equals(name))
+            {
+                reload.add(name);
+            }
+        }
+
+        if (reload.isEmpty())
+        {
+            this.hits.incrementAndGet();
+            return tables;
+        }
+
+        for (String name : reload)
+        {
+            this.stale.remove(name);
+            Map<String, TableMetadata> loaded = load(name);
+
+            if (loaded == null)
+            {
+                this.stale.add(name);
+            }
+            else if (loaded.containsKey(name))
+            {
+                tables.put(name, loaded.get(name));
+            }
+            else
+            {
+                tables.remove(name);
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * Reads the metadata of the given table or of all tables if the given name is null.
+     *
+     * @return The read metadata or null if the system catalogs could not be read.
+     */
+    private Map<String, TableMetadata> load(String table)
+    {
+        Map<String, TableMetadata> tables = new HashMap<>();
+
+        try
+        {
+            query(TABLES_SQL,
+                  table,
+                  row ->
+                  {
+                      String name = row.getString("tablename");
+                      tables.put(name, new TableMetadata(name, "V".equals(row.getString("tabletype"))));
+                  });
+
+            query(COLUMNS_SQL,
+                  table,
+                  row ->
+                  {
+                      TableMetadata meta = tables.get(row.getString("tablename"));
+
+                      if (meta != null)
+                      {
+                          String type = String.valueOf(row.getObject("columndatatype"));
+                          boolean nullable = !type.endsWith(" NOT NULL");
+                          Object defaultValue = row.getObject("columndefault");
+
+                          meta.addColumn(new ColumnMetadata(row.getString("columnname"),
+                                                            row.getInt("columnnumber"),
+                                                            nullable ? type : type.substring(0, type.length() - " NOT NULL".length()),
+                                                            nullable,
+                                                            row.getObject("autoincrementvalue") != null,
+                                                            defaultValue == null ? null : defaultValue.toString()));
+                      }
+                  });
+
+            for (TableMetadata meta : tables.values())
+            {
+                meta.sortColumns();
+            }
+
+            query(INDICES_SQL,
+                  table,
+                  row ->
+                  {
+                      TableMetadata meta = tables.get(row.getString("tablename"));
+
+                      if (meta != null)
+                      {
+                          meta.addIndex(createIndex(meta,
+                                                    row.getString("conglomeratename"),
+                                                    String.valueOf(row.getObject("descriptor"))));
+                      }
+                  });
+
+            query(TRIGGERS_SQL,
+                  table,
+                  row ->
+                  {
+                      TableMetadata meta = tables.get(row.getString("tablename"));
+
+                      if (meta != null)
+                      {
+                          String event = row.getString("event");
+
+                          meta.addTrigger(new TriggerMetadata(row.getString("triggername"),
+                                                              "I".equals(event) ? "INSERT" : "U".equals(event) ? "UPDATE" : "DELETE",
+                                                              "B".equals(row.getString("firingtime")),
+                                                              "R".equals(row.getString("type"))));
+                      }
+                  });
+        }
+        catch (SQLException e)
+        {
+            Log.error("Failed to load schema metadata", e);
+            return null;
+        }
+
+        try
+        {
+            query(COLUMN_DATA_SQL,
+                  "table_name",
+                  table,
+                  row ->
+                  {
+                      TableMetadata meta = tables.get(row.getString("tablename"));
+                      ColumnMetadata column = meta == null ? null : meta.getColumn(row.getString("column_name"));
+
+                      if (column != null)
+                      {
+                          column.setColumnData(row.getBoolean("primary_key"),
+                                               row.getBoolean("is_unique"),
+                                               row.getString("comment"));
+                      }
+                  });
+        }
+        catch (SQLException e)
+        {
+            // the column data table does not exist yet, the additional information is simply not available
+            Log.debug("Failed to load column data: " + e.getMessage());
+        }
+
+        this.loads.incrementAndGet();
+        Log.debug(String.format("Loaded schema metadata of %d tables.", tables.size()));
+        return tables;
+    }
+
+    private void query(String sql, String table, RowHandler handler) throws SQLException
+    {
+        query(sql,
+              "t.tablename",
+              table,
+              handler);
+    }
+
+    /**
+     * Executes the given query and restricts it to the given table (unless it is null) via the given column.
+     */
+    private void query(String sql, String tableColumn, String table, RowHandler handler) throws SQLException
+    {
+        if (table != null)
+        {
+            sql += " AND " + tableColumn + " = ?";
+        }
+
+        try (PreparedStatement statement = this.db.getConnection().prepareStatement(sql))
+        {
+            if (table != null)
+            {
+                statement.setString(1, table);
+            }
+
+            try (ResultSet result = statement.executeQuery())
+            {
+                while (result.next())
+                {
+                    handler.handle(result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the index metadata from the string representation of the derby index descriptor, i. e. 'UNIQUE BTREE (1,
+     * 3)', whichs numbers are the positions of the indexed columns.
+     */
+    private static IndexMetadata createIndex(TableMetadata table, String name, String descriptor)
+    {
+        List<String> columns = new ArrayList<>();
+        int start = descriptor.indexOf('(');
+        int end = descriptor.indexOf(')', start + 1);
+
+        if (start >= 0 && end > start)
+        {
+            for (String position : descriptor.substring(start + 1, end).split(","))
+            {
+                try
+                {
+                    int pos = Integer.parseInt(position.trim());
+
+                    for (ColumnMetadata column : table.getColumns())
+                    {
+                        if (column.getPosition() == pos)
+                        {
+                            columns.add(column.getName());
+                        }
+                    }
+                }
+                catch (NumberFormatException e)
+                {
+                    // not a column position
+                }
+            }
+        }
+
+        return new IndexMetadata(name,
+                                 descriptor.trim().toUpperCase().startsWith("UNIQUE"),
+                                 columns);
+    }
+
+    private static String normalize(String name)
+    {
+        return name.replace("\"", "").trim().toUpperCase();
+    }
+
+    /**
+     * Gets the number of lookups that were answered without reading the system catalogs.
+     *
+     * @return The count.
+     */
+    public long getHitCount()
+    {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the number of times that metadata was read from the system catalogs.
+     *
+     * @return The count.
+     */
+    public long getLoadCount()
+    {
+        return this.loads.get();
+    }
+}
@@ -0,0 +1,148 @@
+package bt.db.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a table or view in the {@link SchemaCache}.
+ *
+ * @author &#8904
+ */
+public class TableMetadata
+{
+    private String name;
+    private boolean view;
+    private List<ColumnMetadata> columns;
+    private List<IndexMetadata> indices;
+    private List<TriggerMetadata> triggers;
+
+    TableMetadata(String name, boolean view)
+    {
+        this.name = name;
+        this.view = view;
+        this.columns = new ArrayList<>();
+        this.indices = new ArrayList<>();
+        this.triggers = new ArrayList<>();
+    }
+
+    void addColumn(ColumnMetadata column)
+    {
+        this.columns.add(column);
+    }
+
+    void addIndex(IndexMetadata index)
+    {
+        this.indices.add(index);
+    }
+
+    void addTrigger(TriggerMetadata trigger)
+    {
+        this.triggers.add(trigger);
+    }
+
+    /**
+     * Sorts the columns by their position once all of them were added.
+     */
+    void sortColumns()
+    {
+        this.columns.sort((c1, c2) -> Integer.compare(c1.getPosition(), c2.getPosition()));
+    }
+
+    /**
+     * Gets the upper case name of the table.
+     *
+     * @return The name.
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Indicates whether this is a view.
+     *
+     * @return true for views, false for tables.
+     */
+    public boolean isView()
+    {
+        return this.view;
+    }
+
+    /**
+     * Gets the columns of the table ordered by their position.
+     *
+     * @return An unmodifiable list of the columns.
+     */
+    public List<ColumnMetadata> getColumns()
+    {
+        return Collections.unmodifiableList(this.columns);
+    }
+
+    /**
+     * Gets the column with the given name.
+     *
+     * @param name The case insensitive name of the column.
+     *
+     * @return The column or null if the table has no such column.
+     */
+    public ColumnMetadata getColumn(String name)
+    {
+        for (ColumnMetadata column : this.columns)
+        {
+            if (column.getName().equalsIgnoreCase(name))
+            {
+                return column;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the identity column of the table.
+     *
+     * @return The first identity column or null if the table has none.
+     */
+    public ColumnMetadata getIdentityColumn()
+    {
+        for (ColumnMetadata column : this.columns)
+        {
+            if (column.isIdentity())
+            {
+                return column;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the indices of the table, including the ones that back constraints.
+     *
+     * @return An unmodifiable list of the indices.
+     */
+    public List<IndexMetadata> getIndices()
+    {
+        return Collections.unmodifiableList(this.indices);
+    }
+
+    /**
+     * Gets the triggers of the table.
+     *
+     * @return An unmodifiable list of the triggers.
+     */
+    public List<TriggerMetadata> getTriggers()
+    {
+        return Collections.unmodifiableList(this.triggers);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return (this.view ? "VIEW " : "TABLE ") + this.name + " " + this.columns;
+    }
+}
@@ -0,0 +1,72 @@
+package bt.db.cache;
+
+/**
+ * Describes a trigger of a table in the {@link SchemaCache}.
+ *
+ * @author &#8904
+ */
+public class TriggerMetadata
+{
+    private String name;
+    private String event;
+    private boolean before;
+    private boolean forEachRow;
+
+    TriggerMetadata(String name, String event, boolean before, boolean forEachRow)
+    {
+        this.name = name;
+        this.event = event;
+        this.before = before;
+        this.forEachRow = forEachRow;
+    }
+
+    /**
+     * Gets the name of the trigger.
+     *
+     * @return The name.
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Gets the event that fires the trigger.
+     *
+     * @return 'INSERT', 'UPDATE' or 'DELETE'.
+     */
+    public String getEvent()
+    {
+        return this.event;
+    }
+
+    /**
+     * Indicates whether the trigger fires before the event.
+     *
+     * @return true for before triggers, false for after triggers.
+     */
+    public boolean isBefore()
+    {
+        return this.before;
+    }
+
+    /**
+     * Indicates whether the trigger fires for each row or once per statement.
+     *
+     * @return true for row level triggers.
+     */
+    public boolean isForEachRow()
+    {
+        return this.forEachRow;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return this.name + (this.before ? " BEFORE " : " AFTER ") + this.event
+                + (this.forEachRow ? " FOR EACH ROW" : " FOR EACH STATEMENT");
+    }
+}
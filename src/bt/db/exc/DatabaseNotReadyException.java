@@ -0,0 +1,35 @@
+package bt.db.exc;
+
+/**
+ * Thrown when a database is used before its asynchronous boot finished and it is configured to fail fast, or when the
+ * boot failed.
+ *
+ * @author &#8904
+ */
+public class DatabaseNotReadyException extends RuntimeException
+{
+    /**
+     * Creates a new instance with the given message.
+     *
+     * @param message
+     *            The message to use.
+     */
+    public DatabaseNotReadyException(String message)
+    {
+        super(message);
+    }
+
+    /**
+     * Creates a new instance with the given message and cause.
+     *
+     * @param message
+     *            The message to use.
+     * @param cause
+     *            The error that caused this exception.
+     */
+    public DatabaseNotReadyException(String message, Throwable cause)
+    {
+        super(message,
+              cause);
+    }
+}
@@ -0,0 +1,525 @@
+package bt.db.listener;
+
+import bt.db.listener.evnt.DatabaseChangeEvent;
+import bt.log.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Delivers {@link DatabaseChangeEvent}s to listeners on dedicated threads instead of the thread that fired the trigger.
+ *
+ * <p>
+ * Events are distributed over a fixed number of lanes by the name of their table. Every lane owns a bounded lock free
+ * ring buffer that any number of trigger threads can write to and a single daemon thread that delivers its events in
+ * the order in which they were enqueued. Events of the same table are therefore always delivered in order, while events
+ * of different tables can be delivered in parallel. A slow listener only delays the events of its lane and never the
+ * writer that fired the trigger, unless the lane is full and the {@link OverflowPolicy#BLOCK BLOCK} policy is used.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class AsyncEventDispatcher
+{
+    /**
+     * Defines what happens to an event that is fired while its lane is full.
+     *
+     * @author &#8904
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * The firing thread waits until the lane has space again. Listeners that cause further events on the same
+         * lane must not be used with this policy, since their lane could never be drained.
+         */
+        BLOCK,
+
+        /**
+         * The event is discarded.
+         */
+        DROP,
+
+        /**
+         * The event is kept in an overflow buffer of the lane in which it replaces a pending event of the same type,
+         * table, id and listener. Batched events, which concern several rows, are never replaced. Events are delivered in order once the ring buffer was drained. To keep that order, firing
+         * threads enqueue their events while holding the lock of the lane with this policy.
+         */
+        COALESCE
+    }
+
+    /**
+     * A bounded multi producer ring buffer. Every slot has a sequence number which tells producers and the consumer
+     * whether the slot is currently free or filled for the lap that they are working on.
+     */
+    private static class Ring
+    {
+        private int mask;
+        private AtomicReferenceArray<DatabaseChangeEvent> slots;
+        private AtomicLongArray sequences;
+        private AtomicLong tail;
+        private volatile long head;
+
+        private Ring(int capacity)
+        {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.mask = size - 1;
+            this.slots = new AtomicReferenceArray<>(size);
+            this.sequences = new AtomicLongArray(size);
+            this.tail = new AtomicLong();
+
+            for (int i = 0; i < size; i++)
+            {
+                this.sequences.set(i, i);
+            }
+        }
+
+        private boolean offer(DatabaseChangeEvent event)
+        {
+            long pos = this.tail.get();
+
+            while (true)
+            {
+                int index = (int)(pos & this.mask);
+                long diff = this.sequences.get(index) - pos;
+
+                if (diff == 0)
+                {
+                    if (this.tail.compareAndSet(pos, pos + 1))
+                    {
+                        this.slots.set(index, event);
+                        this.sequences.set(index, pos + 1);
+                        return true;
+                    }
+
+                    pos = this.tail.get();
+                }
+                else if (diff < 0)
+                {
+                    // the slot of the previous lap has not been consumed yet
+                    return false;
+                }
+                else
+                {
+                    pos = this.tail.get();
+                }
+            }
+        }
+
+        /**
+         * Only called by the single consumer thread of the lane.
+         */
+        private DatabaseChangeEvent poll()
+        {
+            int index = (int)(this.head & this.mask);
+
+            if (this.sequences.get(index) != this.head + 1)
+            {
+                return null;
+            }
+
+            DatabaseChangeEvent event = this.slots.get(index);
+            this.slots.set(index, null);
+            this.sequences.set(index, this.head + this.mask + 1);
+            this.head ++;
+            return event;
+        }
+
+        private int size()
+        {
+            return (int)Math.max(0, this.tail.get() - this.head);
+        }
+    }
+
+    private class Lane implements Runnable
+    {
+        private Ring ring;
+        private Thread thread;
+        private volatile boolean waiting;
+
+        /**
+         * Events that did not fit into the ring with the {@link OverflowPolicy#COALESCE COALESCE} policy. Only accessed
+         * while holding the lock of the lane.
+         */
+        private Map<Object, DatabaseChangeEvent> overflow;
+        private volatile boolean overflowing;
+
+        private Lane(int capacity, String name)
+        {
+            this.ring = new Ring(capacity);
+            this.overflow = new LinkedHashMap<>();
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        private void enqueue(DatabaseChangeEvent event)
+        {
+            if (AsyncEventDispatcher.this.policy == OverflowPolicy.COALESCE)
+            {
+                enqueueOrCoalesce(event);
+                signal();
+                return;
+            }
+
+            if (this.ring.offer(event))
+            {
+                signal();
+                return;
+            }
+
+            switch (AsyncEventDispatcher.this.policy)
+            {
+                case DROP:
+                    AsyncEventDispatcher.this.dropped.incrementAndGet();
+                    break;
+                default:
+                    AsyncEventDispatcher.this.blocked.incrementAndGet();
+
+                    while (!this.ring.offer(event))
+                    {
+                        if (!AsyncEventDispatcher.this.running)
+                        {
+                            // closed while waiting, the lane might not be drained anymore
+                            deliver(event);
+                            return;
+                        }
+
+                        signal();
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                    }
+            }
+
+            signal();
+        }
+
+        /**
+         * Adds the event to the ring unless the lane is overflowing or the ring is full. The check and the offer happen
+         * under the lock of the lane, so that no event can pass events that are already waiting in the overflow buffer.
+         */
+        private synchronized void enqueueOrCoalesce(DatabaseChangeEvent event)
+        {
+            if (!this.overflowing && this.ring.offer(event))
+            {
+                return;
+            }
+
+            // events are only coalesced for the same listener, batched events are keyed by identity
+            Object key = event.getIDs().length > 1 ? event : List.of(event.getClass(),
+                                                                      String.valueOf(event.getTable()).toUpperCase(),
+                                                                      event.getID(),
+                                                                      String.valueOf(event.getListenerID()));
+
+            if (this.overflow.put(key, event) != null)
+            {
+                AsyncEventDispatcher.this.coalesced.incrementAndGet();
+            }
+
+            this.overflowing = true;
+        }
+
+        private synchronized List<DatabaseChangeEvent> drainOverflow()
+        {
+            List<DatabaseChangeEvent> events = new ArrayList<>(this.overflow.values());
+            this.overflow.clear();
+            this.overflowing = false;
+            return events;
+        }
+
+        private void signal()
+        {
+            if (this.waiting)
+            {
+                LockSupport.unpark(this.thread);
+            }
+        }
+
+        private int size()
+        {
+            int size = this.ring.size();
+
+            if (this.overflowing)
+            {
+                synchronized (this)
+                {
+                    size += this.overflow.size();
+                }
+            }
+
+            return size;
+        }
+
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                DatabaseChangeEvent event = this.ring.poll();
+
+                if (event != null)
+                {
+                    deliver(event);
+                    continue;
+                }
+
+                if (this.overflowing)
+                {
+                    // the ring is empty and no new events are added to it while overflowing, so the order is kept
+                    for (DatabaseChangeEvent overflowEvent : drainOverflow())
+                    {
+                        deliver(overflowEvent);
+                    }
+
+                    continue;
+                }
+
+                if (!AsyncEventDispatcher.this.running)
+                {
+                    break;
+                }
+
+                this.waiting = true;
+
+                if (this.ring.size() == 0 && !this.overflowing && AsyncEventDispatcher.this.running)
+                {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                }
+
+                this.waiting = false;
+            }
+        }
+    }
+
+    private Consumer<DatabaseChangeEvent> sink;
+    private OverflowPolicy policy;
+    private Lane[] lanes;
+    private volatile boolean running;
+
+    private AtomicLong enqueued;
+    private AtomicLong delivered;
+    private AtomicLong dropped;
+    private AtomicLong coalesced;
+    private AtomicLong blocked;
+    private AtomicLong failed;
+
+    /**
+     * Creates a new instance and starts its delivery threads.
+     *
+     * @param sink     The consumer that delivers an event to the registered listeners. It is called on the delivery
+     *                 thread of the events lane.
+     * @param lanes    The number of lanes and delivery threads.
+     * @param capacity The capacity of the ring buffer of each lane. Rounded up to the next power of two.
+     * @param policy   Defines what happens to events that are fired while their lane is full.
+     */
+    public AsyncEventDispatcher(Consumer<DatabaseChangeEvent> sink, int lanes, int capacity, OverflowPolicy policy)
+    {
+        if (lanes <= 0 || capacity <= 0)
+        {
+            throw new IllegalArgumentException("Lanes and capacity must be greater than 0.");
+        }
+
+        this.sink = sink;
+        this.policy = policy;
+        this.enqueued = new AtomicLong();
+        this.delivered = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.coalesced = new AtomicLong();
+        this.blocked = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.running = true;
+        this.lanes = new Lane[lanes];
+
+        for (int i = 0; i < lanes; i++)
+        {
+            this.lanes[i] = new Lane(capacity, "DATABASE_EVENTS_" + i);
+            this.lanes[i].thread.start();
+        }
+    }
+
+    /**
+     * Enqueues the given event for delivery on the lane of its table.
+     *
+     * <p>
+     * This does not block unless the lane is full and the {@link OverflowPolicy#BLOCK BLOCK} policy is used.
+     * </p>
+     *
+     * @param event The event to deliver.
+     */
+    public void dispatch(DatabaseChangeEvent event)
+    {
+        if (!this.running)
+        {
+            // already closed, deliver on the calling thread so that no event is lost
+            deliver(event);
+            return;
+        }
+
+        this.enqueued.incrementAndGet();
+        String table = event.getTable() == null ? "" : event.getTable().toUpperCase();
+        this.lanes[(table.hashCode() & Integer.MAX_VALUE) % this.lanes.length].enqueue(event);
+    }
+
+    private void deliver(DatabaseChangeEvent event)
+    {
+        try
+        {
+            this.sink.accept(event);
+            this.delivered.incrementAndGet();
+        }
+        catch (Exception e)
+        {
+            this.failed.incrementAndGet();
+            Log.error("Failed to deliver database event", e);
+        }
+    }
+
+    /**
+     * Stops accepting events and waits until all queued events were delivered.
+     *
+     * <p>
+     * Events that are dispatched after this call are delivered on the calling thread.
+     * </p>
+     */
+    public void close()
+    {
+        this.running = false;
+
+        for (Lane lane : this.lanes)
+        {
+            LockSupport.unpark(lane.thread);
+
+            if (lane.thread != Thread.currentThread())
+            {
+                try
+                {
+                    lane.thread.join();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                // events of producers that raced with the shutdown
+                for (DatabaseChangeEvent event = lane.ring.poll(); event != null; event = lane.ring.poll())
+                {
+                    deliver(event);
+                }
+
+                lane.drainOverflow().forEach(this::deliver);
+            }
+        }
+
+        Log.debug(String.format("Closed event dispatcher after delivering %d events.", getDeliveredCount()));
+    }
+
+    /**
+     * Gets the number of events that are currently waiting for delivery on all lanes.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth()
+    {
+        int depth = 0;
+
+        for (Lane lane : this.lanes)
+        {
+            depth += lane.size();
+        }
+
+        return depth;
+    }
+
+    /**
+     * Gets the number of events that are currently waiting for delivery on each lane.
+     *
+     * @return The queue depths by lane.
+     */
+    public int[] getLaneDepths()
+    {
+        int[] depths = new int[this.lanes.length];
+
+        for (int i = 0; i < depths.length; i++)
+        {
+            depths[i] = this.lanes[i].size();
+        }
+
+        return depths;
+    }
+
+    /**
+     * Gets the overflow policy of this dispatcher.
+     *
+     * @return The policy.
+     */
+    public OverflowPolicy getOverflowPolicy()
+    {
+        return this.policy;
+    }
+
+    /**
+     * Gets the number of events that were enqueued.
+     *
+     * @return The count.
+     */
+    public long getEnqueuedCount()
+    {
+        return this.enqueued.get();
+    }
+
+    /**
+     * Gets the number of events that were delivered to the listeners.
+     *
+     * @return The count.
+     */
+    public long getDeliveredCount()
+    {
+        return this.delivered.get();
+    }
+
+    /**
+     * Gets the number of events that were discarded because their lane was full.
+     *
+     * @return The count.
+     */
+    public long getDroppedCount()
+    {
+        return this.dropped.get();
+    }
+
+    /**
+     * Gets the number of events that replaced a pending event of the same type, table and id.
+     *
+     * @return The count.
+     */
+    public long getCoalescedCount()
+    {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Gets the number of times that a firing thread had to wait for space in its lane.
+     *
+     * @return The count.
+     */
+    public long getBlockedCount()
+    {
+        return this.blocked.get();
+    }
+
+    /**
+     * Gets the number of events whichs delivery threw an exception.
+     *
+     * @return The count.
+     */
+    public long getFailedCount()
+    {
+        return this.failed.get();
+    }
+}
@@ -0,0 +1,190 @@
+package bt.db.listener;
+
+import bt.db.DatabaseAccess;
+import bt.db.listener.evnt.BatchDeleteEvent;
+import bt.db.listener.evnt.BatchInsertEvent;
+import bt.db.listener.evnt.BatchUpdateEvent;
+import bt.db.listener.evnt.DatabaseChangeEvent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects the identities of the rows that are changed by a statement on tables whichs default triggers were created
+ * in batch mode.
+ *
+ * <p>
+ * The row triggers of such a table add the identity of every changed row to this buffer. A statement trigger that fires
+ * after all row triggers of the same statement then turns the collected identities into a single batched event. Since
+ * derby executes triggers on the thread that executes the statement, the identities are buffered per thread, so
+ * concurrent statements on the same table do not mix.
+ * </p>
+ *
+ * <p>
+ * A statement that fails after some of its row triggers fired never reaches its statement trigger. To keep these
+ * identities from being dispatched with the next statement of the thread, statements of this library are wrapped in
+ * {@link #begin()} and {@link #end()}, which discard whatever the outermost statement of the thread left behind.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class ChangeBuffer
+{
+    /**
+     * The identities of one trigger type and table.
+     */
+    private static class Ids
+    {
+        private String idFieldName;
+        private long[] values = new long[16];
+        private int size;
+
+        private void add(long id)
+        {
+            if (this.size == this.values.length)
+            {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+
+            this.values[this.size ++] = id;
+        }
+    }
+
+    /**
+     * The buffer of one thread.
+     */
+    private static class State
+    {
+        /**
+         * The buffered identities mapped by the upper case trigger type and table.
+         */
+        private Map<String, Ids> ids = new HashMap<>();
+
+        /**
+         * The number of nested statements that are currently executed by the thread.
+         */
+        private int depth;
+    }
+
+    /**
+     * The buffer of the current thread.
+     */
+    private ThreadLocal<State> buffers = ThreadLocal.withInitial(State::new);
+
+    /**
+     * Called before a statement is executed by the current thread. Identities that are left over from a failed statement
+     * are discarded unless the statement is nested in another one, i. e. executed by a listener.
+     */
+    public void begin()
+    {
+        State state = this.buffers.get();
+
+        if (state.depth ++ == 0)
+        {
+            state.ids.clear();
+        }
+    }
+
+    /**
+     * Called after a statement was executed by the current thread, whether it succeeded or not. Once the outermost
+     * statement ended, all identities that were not flushed are discarded and the buffer of the thread is removed.
+     */
+    public void end()
+    {
+        State state = this.buffers.get();
+
+        if (-- state.depth <= 0)
+        {
+            this.buffers.remove();
+        }
+    }
+
+    /**
+     * Adds the identity of a changed row.
+     *
+     * @param triggerType The type of the trigger, either 'insert', 'update' or 'delete'.
+     * @param table       The changed table.
+     * @param idFieldName The name of the identity field inside the table.
+     * @param id          The identity of the changed row.
+     */
+    public void add(String triggerType, String table, String idFieldName, long id)
+    {
+        Ids ids = this.buffers.get().ids.computeIfAbsent(key(triggerType, table), k -> new Ids());
+        ids.idFieldName = idFieldName;
+        ids.add(id);
+    }
+
+    /**
+     * Removes the identities that were buffered by the current thread for the given trigger type and table and creates
+     * a batched event for them.
+     *
+     * @param db          The database that fires the event.
+     * @param triggerType The type of the trigger, either 'insert', 'update' or 'delete'.
+     * @param table       The changed table.
+     *
+     * @return The event or null if no rows were changed.
+     */
+    public DatabaseChangeEvent flush(DatabaseAccess db, String triggerType, String table)
+    {
+        State state = this.buffers.get();
+        Ids ids = state.ids.remove(key(triggerType, table));
+
+        if (state.ids.isEmpty() && state.depth <= 0)
+        {
+            this.buffers.remove();
+        }
+
+        if (ids == null || ids.size == 0)
+        {
+            return null;
+        }
+
+        return create(db,
+                      triggerType,
+                      table,
+                      ids.idFieldName,
+                      Arrays.copyOf(ids.values, ids.size));
+    }
+
+    /**
+     * Creates the batched event of the given trigger type.
+     *
+     * @param db          The database that fires the event.
+     * @param triggerType The type of the trigger, either 'insert', 'update' or 'delete'.
+     * @param table       The changed table.
+     * @param idFieldName The name of the identity field inside the table.
+     * @param ids         The identities of the changed rows.
+     *
+     * @return The event or null if the trigger type is unknown.
+     */
+    public static DatabaseChangeEvent create(DatabaseAccess db, String triggerType, String table, String idFieldName,
+                                             long[] ids)
+    {
+        switch (triggerType.toUpperCase())
+        {
+            case "INSERT":
+                return new BatchInsertEvent(db,
+                                            table,
+                                            idFieldName,
+                                            ids);
+            case "UPDATE":
+                return new BatchUpdateEvent(db,
+                                            table,
+                                            idFieldName,
+                                            ids);
+            case "DELETE":
+                return new BatchDeleteEvent(db,
+                                            table,
+                                            idFieldName,
+                                            ids);
+            default:
+                return null;
+        }
+    }
+
+    private static String key(String triggerType, String table)
+    {
+        return triggerType.toUpperCase() + "." + table.toUpperCase();
+    }
+}
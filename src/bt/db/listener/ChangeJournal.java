@@ -0,0 +1,715 @@
+package bt.db.listener;
+
+import bt.db.DatabaseAccess;
+import bt.db.listener.evnt.BatchDeleteEvent;
+import bt.db.listener.evnt.BatchInsertEvent;
+import bt.db.listener.evnt.BatchUpdateEvent;
+import bt.db.listener.evnt.DatabaseChangeEvent;
+import bt.db.listener.evnt.DeleteEvent;
+import bt.db.listener.evnt.InsertEvent;
+import bt.db.listener.evnt.UpdateEvent;
+import bt.log.Log;
+import bt.scheduler.Threads;
+import bt.utils.Null;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An append only journal of the {@link DatabaseChangeEvent}s of a database, stored in memory mapped segment files.
+ *
+ * <p>
+ * Every insert, update and delete event that this journal receives from its database is written with a monotonically
+ * increasing sequence number. Consumers read the journal in batches from any sequence number via
+ * {@link #read(long, int)} or {@link #replay(long, int, Consumer)} and can store the sequence number that they have to
+ * continue at via {@link #commitOffset(String, long)}, so they can process changes incrementally across restarts instead
+ * of scanning whole tables.
+ * </p>
+ *
+ * <p>
+ * The journal only records committed changes. An {@link bt.db.EmbeddedDatabase} receives the event of a change as soon
+ * as its trigger fires, so it stages the event in the transaction that made the change and passes it to this journal
+ * once that transaction is committed through the database, see
+ * {@link DatabaseAccess#journalChangeEvent(DatabaseChangeEvent)}. Events of transactions that are rolled back, also to a
+ * savepoint, are discarded. A {@link bt.db.RemoteDatabase} only receives the trigger entries of committed transactions
+ * and passes them on directly. Changes that are committed by plain JDBC calls on connections that were not
+ * {@link DatabaseAccess#bindConnection(java.sql.Connection) bound} to the database are staged in the transaction of its
+ * shared connection instead.
+ * </p>
+ *
+ * <p>
+ * Records are written to the mapped memory of the current segment, so they survive a crash of the process once
+ * {@link #accept(DatabaseChangeEvent)} returned. They are only guaranteed to survive a crash of the operating system
+ * if {@link #setForceOnAppend(boolean) forceOnAppend} is enabled. A record consists of its length, which is written
+ * last, followed by the sequence number, the time, the event type, the table, the id field and the ids, so an
+ * incomplete record is never read. Captured row values and listener ids are not journaled.
+ * </p>
+ *
+ * <p>
+ * Full segments are deleted, oldest first, while the journal exceeds its maximum size or once their newest record is
+ * older than the maximum age. Reads of sequence numbers that were already deleted start at the oldest remaining
+ * record.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class ChangeJournal implements Consumer<DatabaseChangeEvent>
+{
+    /**
+     * The file extension of segment files. Segments are named by the sequence number of their first record.
+     */
+    public static final String SEGMENT_EXTENSION = ".journal";
+
+    private static final String OFFSETS_FILE = "offsets.properties";
+
+    private static final byte INSERT = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+
+    /**
+     * A single record read from the journal.
+     *
+     * @author &#8904
+     */
+    public static class Entry
+    {
+        private long sequence;
+        private long time;
+        private DatabaseChangeEvent event;
+
+        private Entry(long sequence, long time, DatabaseChangeEvent event)
+        {
+            this.sequence = sequence;
+            this.time = time;
+            this.event = event;
+        }
+
+        /**
+         * Gets the sequence number of this record.
+         *
+         * @return The sequence number.
+         */
+        public long getSequence()
+        {
+            return this.sequence;
+        }
+
+        /**
+         * Gets the time in milliseconds at which this record was written.
+         *
+         * @return The time.
+         */
+        public long getTime()
+        {
+            return this.time;
+        }
+
+        /**
+         * Gets the journaled event. Its source database is the database of the journal.
+         *
+         * @return The event.
+         */
+        public DatabaseChangeEvent getEvent()
+        {
+            return this.event;
+        }
+    }
+
+    private static class Segment
+    {
+        private Path file;
+        private long firstSequence;
+        private long lastSequence;
+        private long lastWriteTime;
+        private MappedByteBuffer buffer;
+        private int position;
+
+        private int size()
+        {
+            return this.buffer.capacity();
+        }
+    }
+
+    private DatabaseAccess db;
+    private Path directory;
+    private int segmentSize;
+    private long maxSize;
+    private long maxAge;
+    private boolean forceOnAppend;
+
+    /**
+     * The segments mapped by the sequence number of their first record.
+     */
+    private TreeMap<Long, Segment> segments;
+    private Segment current;
+    private long nextSequence;
+
+    private ScheduledFuture retentionTask;
+
+    /**
+     * Opens the journal in the given directory and recovers the records of existing segments.
+     *
+     * @param db          The database whichs events are journaled. Replayed events use it as their source.
+     * @param directory   The directory of the segment files. It is created if it does not exist.
+     * @param segmentSize The size of a segment file in bytes.
+     * @param maxSize     The maximum size of all segments in bytes. 0 or less for no limit.
+     * @param maxAge      The time in milliseconds after which a full segment is deleted. 0 or less for no limit.
+     *
+     * @throws IOException If the directory or a segment can not be accessed.
+     */
+    public ChangeJournal(DatabaseAccess db, Path directory, int segmentSize, long maxSize, long maxAge) throws IOException
+    {
+        if (segmentSize <= 4)
+        {
+            throw new IllegalArgumentException("Segment size must be greater than 4.");
+        }
+
+        this.db = db;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        this.segments = new TreeMap<>();
+        this.nextSequence = 1;
+
+        Files.createDirectories(directory);
+        recover();
+
+        this.retentionTask = Threads.get()
+                                    .scheduleAtFixedRateDaemon(
+                                            () ->
+                                            {
+                                                enforceRetention();
+                                            },
+                                            60000,
+                                            60000,
+                                            TimeUnit.MILLISECONDS,
+                                            "DATABASE_JOURNAL_RETENTION");
+    }
+
+    private void recover() throws IOException
+    {
+        List<Path> files;
+
+        try (Stream<Path> stream = Files.list(this.directory))
+        {
+            files = stream.filter(f -> f.getFileName().toString().endsWith(SEGMENT_EXTENSION))
+                          .collect(Collectors.toList());
+        }
+
+        for (Path file : files)
+        {
+            String name = file.getFileName().toString();
+            Segment segment = map(file,
+                                  Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length())),
+                                  (int)Files.size(file));
+            segment.lastWriteTime = Files.getLastModifiedTime(file).toMillis();
+
+            // finds the end of the written records
+            ByteBuffer buffer = segment.buffer.duplicate();
+
+            while (segment.position + 4 <= buffer.capacity())
+            {
+                int length = buffer.getInt(segment.position);
+
+                if (length <= 0 || segment.position + 4 + length > buffer.capacity())
+                {
+                    break;
+                }
+
+                segment.lastSequence = buffer.getLong(segment.position + 4);
+                segment.position += 4 + length;
+            }
+
+            this.segments.put(segment.firstSequence,
+                              segment);
+        }
+
+        if (!this.segments.isEmpty())
+        {
+            this.current = this.segments.lastEntry().getValue();
+            this.nextSequence = Math.max(this.current.lastSequence, this.current.firstSequence - 1) + 1;
+
+            Log.debug(String.format("Recovered change journal with %d segments up to sequence %d.",
+                                    this.segments.size(),
+                                    this.nextSequence - 1));
+        }
+    }
+
+    private Segment map(Path file, long firstSequence, int size) throws IOException
+    {
+        Segment segment = new Segment();
+        segment.file = file;
+        segment.firstSequence = firstSequence;
+        segment.lastSequence = firstSequence - 1;
+
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE))
+        {
+            // the mapping stays valid after the channel was closed
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        return segment;
+    }
+
+    /**
+     * Appends the given event to the journal.
+     *
+     * <p>
+     * Events of conditional listeners and events of unknown types are ignored.
+     * </p>
+     *
+     * @see java.util.function.Consumer#accept(java.lang.Object)
+     */
+    @Override
+    public void accept(DatabaseChangeEvent event)
+    {
+        byte type = typeOf(event);
+
+        if (type == 0 || event.getListenerID() != null)
+        {
+            return;
+        }
+
+        try
+        {
+            append(type,
+                   event);
+        }
+        catch (IOException e)
+        {
+            // the writer that fired the trigger should not fail because of the journal
+            Log.error("Failed to append to change journal", e);
+        }
+    }
+
+    private synchronized void append(byte type, DatabaseChangeEvent event) throws IOException
+    {
+        long sequence = this.nextSequence;
+        long time = System.currentTimeMillis();
+        byte[] record = encode(sequence,
+                               time,
+                               type,
+                               event);
+
+        if (this.current == null || this.current.position + 4 + record.length > this.current.size())
+        {
+            roll(sequence,
+                 record.length);
+        }
+
+        int position = this.current.position;
+        ByteBuffer buffer = this.current.buffer.duplicate();
+        buffer.position(position + 4);
+        buffer.put(record);
+        // the length is written last, so readers and the recovery never see an incomplete record
+        buffer.putInt(position, record.length);
+
+        if (this.forceOnAppend)
+        {
+            this.current.buffer.force();
+        }
+
+        this.current.position += 4 + record.length;
+        this.current.lastSequence = sequence;
+        this.current.lastWriteTime = time;
+        this.nextSequence ++;
+    }
+
+    private void roll(long firstSequence, int recordLength) throws IOException
+    {
+        if (this.current != null)
+        {
+            this.current.buffer.force();
+        }
+
+        Path file = this.directory.resolve(String.format("%020d", firstSequence) + SEGMENT_EXTENSION);
+
+        this.current = map(file,
+                           firstSequence,
+                           Math.max(this.segmentSize, recordLength + 8));
+        this.segments.put(firstSequence,
+                          this.current);
+
+        enforceRetention();
+    }
+
+    private byte[] encode(long sequence, long time, byte type, DatabaseChangeEvent event) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            long[] ids = event.getIDs();
+
+            out.writeLong(sequence);
+            out.writeLong(time);
+            out.writeByte(type);
+            out.writeBoolean(isBatch(event));
+            out.writeUTF(String.valueOf(event.getTable()));
+            out.writeUTF(String.valueOf(event.getIDFieldName()));
+            out.writeInt(ids.length);
+
+            for (long id : ids)
+            {
+                out.writeLong(id);
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private Entry decode(ByteBuffer buffer, int position)
+    {
+        buffer.position(position + 4);
+
+        long sequence = buffer.getLong();
+        long time = buffer.getLong();
+        byte type = buffer.get();
+        boolean batch = buffer.get() != 0;
+        String table = readUTF(buffer);
+        String idFieldName = readUTF(buffer);
+        long[] ids = new long[buffer.getInt()];
+
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = buffer.getLong();
+        }
+
+        String action = type == INSERT ? "insert" : type == UPDATE ? "update" : "delete";
+        DatabaseChangeEvent event;
+
+        if (batch)
+        {
+            event = ChangeBuffer.create(this.db,
+                                        action,
+                                        table,
+                                        idFieldName,
+                                        ids);
+        }
+        else if (type == INSERT)
+        {
+            event = new InsertEvent(this.db,
+                                    table,
+                                    idFieldName,
+                                    ids[0]);
+        }
+        else if (type == UPDATE)
+        {
+            event = new UpdateEvent(this.db,
+                                    table,
+                                    idFieldName,
+                                    ids[0]);
+        }
+        else
+        {
+            event = new DeleteEvent(this.db,
+                                    table,
+                                    idFieldName,
+                                    ids[0]);
+        }
+
+        return new Entry(sequence,
+                         time,
+                         event);
+    }
+
+    private String readUTF(ByteBuffer buffer)
+    {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        // writeUTF uses modified UTF-8, which only differs from UTF-8 for null characters and supplementary characters
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads up to the given number of records, starting at the given sequence number.
+     *
+     * @param fromSequence The sequence number of the first record to read. Reading starts at the oldest remaining
+     *                     record if it was already deleted.
+     * @param max          The maximum number of records to read.
+     *
+     * @return The records in the order of their sequence numbers. Empty if there are no records at or after the given
+     *         sequence number.
+     */
+    public synchronized List<Entry> read(long fromSequence, int max)
+    {
+        List<Entry> entries = new ArrayList<>();
+        Long start = this.segments.floorKey(fromSequence);
+
+        if (start == null)
+        {
+            start = fromSequence;
+        }
+
+        for (Segment segment : this.segments.tailMap(start, true).values())
+        {
+            if (segment.lastSequence < fromSequence)
+            {
+                continue;
+            }
+
+            ByteBuffer buffer = segment.buffer.duplicate();
+            int position = 0;
+
+            while (position < segment.position && entries.size() < max)
+            {
+                int length = buffer.getInt(position);
+
+                if (buffer.getLong(position + 4) >= fromSequence)
+                {
+                    entries.add(decode(buffer,
+                                       position));
+                }
+
+                position += 4 + length;
+            }
+
+            if (entries.size() >= max)
+            {
+                break;
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Passes all records from the given sequence number on to the given consumer, reading them in batches of the given
+     * size.
+     *
+     * @param fromSequence The sequence number of the first record to replay.
+     * @param batchSize    The number of records that are read at once.
+     * @param consumer     The consumer of the records.
+     *
+     * @return The sequence number after the last replayed record, which is the offset to continue at.
+     */
+    public long replay(long fromSequence, int batchSize, Consumer<Entry> consumer)
+    {
+        long offset = fromSequence;
+        List<Entry> entries;
+
+        while (!(entries = read(offset, batchSize)).isEmpty())
+        {
+            for (Entry entry : entries)
+            {
+                consumer.accept(entry);
+                offset = entry.getSequence() + 1;
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Stores the sequence number that the given consumer has to continue reading at.
+     *
+     * @param consumer The unique name of the consumer.
+     * @param offset   The sequence number of the next record that the consumer has not processed yet.
+     */
+    public synchronized void commitOffset(String consumer, long offset)
+    {
+        Properties offsets = readOffsets();
+        offsets.setProperty(consumer,
+                            String.valueOf(offset));
+
+        Path file = this.directory.resolve(OFFSETS_FILE);
+        Path temp = this.directory.resolve(OFFSETS_FILE + ".tmp");
+
+        try
+        {
+            try (OutputStream out = Files.newOutputStream(temp))
+            {
+                offsets.store(out,
+                              null);
+            }
+
+            Files.move(temp,
+                       file,
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to store journal offset of " + consumer, e);
+        }
+    }
+
+    /**
+     * Gets the stored offset of the given consumer.
+     *
+     * @param consumer The unique name of the consumer.
+     *
+     * @return The sequence number that the consumer has to continue reading at or the sequence number of the oldest
+     *         remaining record if no offset was stored.
+     */
+    public synchronized long getOffset(String consumer)
+    {
+        String offset = readOffsets().getProperty(consumer);
+        return offset == null ? getFirstSequence() : Long.parseLong(offset);
+    }
+
+    private Properties readOffsets()
+    {
+        Properties offsets = new Properties();
+        Path file = this.directory.resolve(OFFSETS_FILE);
+
+        if (Files.exists(file))
+        {
+            try (InputStream in = Files.newInputStream(file))
+            {
+                offsets.load(in);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Failed to read journal offsets.", e);
+            }
+        }
+
+        return offsets;
+    }
+
+    /**
+     * Deletes the oldest full segments while the journal exceeds its maximum size and all full segments whichs newest
+     * record is older than the maximum age.
+     */
+    public synchronized void enforceRetention()
+    {
+        long size = this.segments.values().stream().mapToLong(Segment::size).sum();
+        long now = System.currentTimeMillis();
+
+        for (var it = this.segments.entrySet().iterator(); it.hasNext();)
+        {
+            Segment segment = it.next().getValue();
+
+            if (segment == this.current)
+            {
+                break;
+            }
+
+            boolean tooLarge = this.maxSize > 0 && size > this.maxSize;
+            boolean tooOld = this.maxAge > 0 && now - segment.lastWriteTime > this.maxAge;
+
+            if (!tooLarge && !tooOld)
+            {
+                break;
+            }
+
+            try
+            {
+                // the mapping itself is released once the buffer is garbage collected
+                Files.deleteIfExists(segment.file);
+            }
+            catch (IOException e)
+            {
+                Log.error("Failed to delete journal segment " + segment.file, e);
+                break;
+            }
+
+            size -= segment.size();
+            it.remove();
+
+            Log.debug(String.format("Deleted journal segment with sequence numbers %d to %d.",
+                                    segment.firstSequence,
+                                    segment.lastSequence));
+        }
+    }
+
+    /**
+     * Gets the sequence number of the oldest remaining record.
+     *
+     * @return The sequence number or the next sequence number if the journal is empty.
+     */
+    public synchronized long getFirstSequence()
+    {
+        for (Map.Entry<Long, Segment> segment : this.segments.entrySet())
+        {
+            if (segment.getValue().lastSequence >= segment.getKey())
+            {
+                return segment.getKey();
+            }
+        }
+
+        return this.nextSequence;
+    }
+
+    /**
+     * Gets the sequence number of the newest record.
+     *
+     * @return The sequence number or 0 if nothing was journaled yet.
+     */
+    public synchronized long getLastSequence()
+    {
+        return this.nextSequence - 1;
+    }
+
+    /**
+     * Sets whether every appended record is forced to the storage device before the triggering statement continues.
+     * This makes records survive crashes of the operating system at the cost of write throughput.
+     *
+     * @param forceOnAppend
+     */
+    public void setForceOnAppend(boolean forceOnAppend)
+    {
+        this.forceOnAppend = forceOnAppend;
+    }
+
+    /**
+     * Stops the retention task and forces the current segment to the storage device.
+     */
+    public synchronized void close()
+    {
+        Null.checkRun(this.retentionTask, () -> this.retentionTask.cancel(false));
+        Null.checkRun(this.current, () -> this.current.buffer.force());
+    }
+
+    private static byte typeOf(DatabaseChangeEvent event)
+    {
+        if (event instanceof InsertEvent)
+        {
+            return INSERT;
+        }
+        else if (event instanceof UpdateEvent)
+        {
+            return UPDATE;
+        }
+        else if (event instanceof DeleteEvent)
+        {
+            return DELETE;
+        }
+
+        return 0;
+    }
+
+    private static boolean isBatch(DatabaseChangeEvent event)
+    {
+        return event instanceof BatchInsertEvent || event instanceof BatchUpdateEvent || event instanceof BatchDeleteEvent;
+    }
+}
@@ -0,0 +1,289 @@
+package bt.db.listener;
+
+import bt.db.listener.evnt.DatabaseChangeEvent;
+import bt.db.listener.evnt.DeleteEvent;
+import bt.db.listener.evnt.InsertEvent;
+import bt.db.listener.evnt.UpdateEvent;
+import bt.log.Log;
+import bt.scheduler.Threads;
+import bt.utils.Null;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A listener that collects the events of a debounce window and passes a single event of every changed row to the
+ * wrapped listener.
+ *
+ * <p>
+ * Events of the same table and id that arrive while an earlier one is still pending replace it, so a row that is
+ * updated many times within the window causes a single call. A row that was inserted within the window stays an
+ * insert, updates that follow only replace its data, and a delete that follows cancels out so that no call is made at
+ * all. The wrapped listener therefore never receives an update or delete for a row whose insert it did not receive.
+ * Batched events, which concern several rows, are never coalesced.
+ * </p>
+ *
+ * <p>
+ * Pending events are passed on in the order in which their rows were first changed, once the oldest of them has been
+ * pending for the length of the window or as soon as the maximum number of pending rows is reached. Window flushes
+ * happen on a scheduler thread, size flushes on the thread that dispatched the event.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class DebouncedListener<T extends DatabaseChangeEvent> implements Consumer<T>
+{
+    private Consumer<T> listener;
+    private long window;
+    private int maxPending;
+
+    /**
+     * The pending events mapped by their upper case table and id, or by the event itself for batched events.
+     */
+    private Map<Object, T> pending;
+    private long firstPendingTime;
+
+    /**
+     * Held while events are passed on, so that window and size flushes do not interleave.
+     */
+    private ReentrantLock deliveryLock;
+    private ScheduledFuture flushTask;
+
+    private AtomicLong received;
+    private AtomicLong delivered;
+    private AtomicLong suppressed;
+
+    /**
+     * Creates a new instance and starts its window flushes.
+     *
+     * @param listener   The listener that receives the coalesced events.
+     * @param window     The time in milliseconds that events are collected for.
+     * @param maxPending The maximum number of pending rows. Reaching it flushes all pending events immediately.
+     */
+    public DebouncedListener(Consumer<T> listener, long window, int maxPending)
+    {
+        if (window <= 0 || maxPending <= 0)
+        {
+            throw new IllegalArgumentException("Window and maximum pending events must be greater than 0.");
+        }
+
+        this.listener = listener;
+        this.window = window;
+        this.maxPending = maxPending;
+        this.pending = new LinkedHashMap<>();
+        this.deliveryLock = new ReentrantLock();
+        this.received = new AtomicLong();
+        this.delivered = new AtomicLong();
+        this.suppressed = new AtomicLong();
+
+        long period = Math.max(1, window / 2);
+
+        this.flushTask = Threads.get()
+                                .scheduleAtFixedRateDaemon(
+                                        () ->
+                                        {
+                                            flushExpired();
+                                        },
+                                        period,
+                                        period,
+                                        TimeUnit.MILLISECONDS,
+                                        "DATABASE_DEBOUNCE");
+    }
+
+    /**
+     * Adds the given event to the pending events of the current window.
+     *
+     * @see java.util.function.Consumer#accept(java.lang.Object)
+     */
+    @Override
+    public void accept(T event)
+    {
+        this.received.incrementAndGet();
+        boolean full;
+
+        synchronized (this)
+        {
+            if (this.pending.isEmpty())
+            {
+                this.firstPendingTime = System.currentTimeMillis();
+            }
+
+            Object key = event.getIDs().length > 1 ? event : List.of(String.valueOf(event.getTable()).toUpperCase(), event.getID());
+            T previous = this.pending.get(key);
+
+            if (previous instanceof InsertEvent && event instanceof DeleteEvent)
+            {
+                // the row did not exist before the window and does not exist after it
+                this.pending.remove(key);
+                this.suppressed.addAndGet(2);
+            }
+            else if (previous instanceof InsertEvent && event instanceof UpdateEvent)
+            {
+                // the listener has not seen the row yet, so it is still new to it
+                this.pending.put(key, asInsert(event));
+                this.suppressed.incrementAndGet();
+            }
+            else if (previous != null)
+            {
+                this.pending.put(key, event);
+                this.suppressed.incrementAndGet();
+            }
+            else
+            {
+                this.pending.put(key, event);
+            }
+
+            full = this.pending.size() >= this.maxPending;
+        }
+
+        if (full)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Creates an insert event that carries the data and new row of the given update event.
+     */
+    private T asInsert(T update)
+    {
+        var insert = new InsertEvent(update.getSourceDatabase(),
+                                     update.getTable(),
+                                     update.getIDFieldName(),
+                                     update.getID(),
+                                     update.getData());
+
+        insert.setListenerID(update.getListenerID());
+        insert.setRows(update.getNewRow(),
+                       null);
+
+        return (T)insert;
+    }
+
+    private void flushExpired()
+    {
+        boolean expired;
+
+        synchronized (this)
+        {
+            expired = !this.pending.isEmpty() && System.currentTimeMillis() - this.firstPendingTime >= this.window;
+        }
+
+        if (expired)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Passes all pending events on to the wrapped listener on the calling thread.
+     */
+    public void flush()
+    {
+        this.deliveryLock.lock();
+
+        try
+        {
+            List<T> events;
+
+            synchronized (this)
+            {
+                events = new ArrayList<>(this.pending.values());
+                this.pending.clear();
+            }
+
+            for (T event : events)
+            {
+                try
+                {
+                    this.listener.accept(event);
+                    this.delivered.incrementAndGet();
+                }
+                catch (Exception e)
+                {
+                    Log.error("Failed to deliver debounced database event", e);
+                }
+            }
+        }
+        finally
+        {
+            this.deliveryLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the window flushes and discards all pending events.
+     *
+     * <p>
+     * Called when this listener is unregistered.
+     * </p>
+     */
+    public void close()
+    {
+        Null.checkRun(this.flushTask, () -> this.flushTask.cancel(false));
+
+        synchronized (this)
+        {
+            this.suppressed.addAndGet(this.pending.size());
+            this.pending.clear();
+        }
+    }
+
+    /**
+     * Gets the listener that receives the coalesced events.
+     *
+     * @return The listener.
+     */
+    public Consumer<T> getListener()
+    {
+        return this.listener;
+    }
+
+    /**
+     * Gets the number of rows whichs events are currently pending.
+     *
+     * @return The count.
+     */
+    public synchronized int getPendingCount()
+    {
+        return this.pending.size();
+    }
+
+    /**
+     * Gets the number of events that were received by this listener.
+     *
+     * @return The count.
+     */
+    public long getReceivedCount()
+    {
+        return this.received.get();
+    }
+
+    /**
+     * Gets the number of events that were passed on to the wrapped listener.
+     *
+     * @return The count.
+     */
+    public long getDeliveredCount()
+    {
+        return this.delivered.get();
+    }
+
+    /**
+     * Gets the number of events that were not passed on, because they were replaced by a later event of the same row,
+     * cancelled out or discarded on {@link #close()}.
+     *
+     * @return The count.
+     */
+    public long getSuppressedCount()
+    {
+        return this.suppressed.get();
+    }
+}
@@ -0,0 +1,257 @@
+package bt.db.listener;
+
+import bt.db.listener.evnt.DatabaseChangeEvent;
+import bt.log.Log;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Holds the listeners for {@link DatabaseChangeEvent}s indexed by their event type and table.
+ *
+ * <p>
+ * Listeners that were registered for specific tables are kept in one list per event type and upper case table name,
+ * listeners without tables are kept in a separate wildcard list per event type. Dispatching an event therefore only
+ * visits the listeners of its table and the wildcard listeners of its type and of each of its super types up to
+ * {@link DatabaseChangeEvent}, instead of every registered listener.
+ * </p>
+ *
+ * <p>
+ * Registration and dispatching are thread safe. Listeners that are registered or unregistered while an event is
+ * dispatched may or may not receive that event.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class ListenerRegistry
+{
+    /**
+     * The table specific listeners mapped by event type and upper case table name.
+     */
+    private Map<Class<?>, Map<String, List<Consumer<DatabaseChangeEvent>>>> tableListeners;
+
+    /**
+     * The listeners without tables mapped by event type.
+     */
+    private Map<Class<?>, List<Consumer<DatabaseChangeEvent>>> wildcardListeners;
+
+    /**
+     * The conditional listeners mapped by their id. They only receive the events of their dedicated triggers.
+     */
+    private Map<String, Consumer<DatabaseChangeEvent>> conditionalListeners;
+
+    /**
+     * Creates a new instance.
+     */
+    public ListenerRegistry()
+    {
+        this.tableListeners = new ConcurrentHashMap<>();
+        this.wildcardListeners = new ConcurrentHashMap<>();
+        this.conditionalListeners = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers the given listener for events of the given type.
+     *
+     * @param type     The event type. The listener also receives events of its sub types.
+     * @param listener The listener.
+     * @param tables   The tables for which the listener should be called. The listener is called for events of all
+     *                 tables if none are given.
+     */
+    public <T extends DatabaseChangeEvent> void register(Class<T> type, Consumer<T> listener, String... tables)
+    {
+        Consumer<DatabaseChangeEvent> consumer = (Consumer<DatabaseChangeEvent>)(Consumer<?>)listener;
+
+        if (tables == null || tables.length == 0)
+        {
+            this.wildcardListeners.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>()).add(consumer);
+            return;
+        }
+
+        var byTable = this.tableListeners.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+
+        for (String table : tables)
+        {
+            byTable.computeIfAbsent(table.toUpperCase(), t -> new CopyOnWriteArrayList<>()).add(consumer);
+        }
+    }
+
+    /**
+     * Registers the given listener under the given id. It only receives events whichs
+     * {@link DatabaseChangeEvent#getListenerID() listener id} is equal to the given one.
+     *
+     * @param id       The unique id of the listener.
+     * @param listener The listener.
+     */
+    public <T extends DatabaseChangeEvent> void registerConditional(String id, Consumer<T> listener)
+    {
+        this.conditionalListeners.put(id, (Consumer<DatabaseChangeEvent>)(Consumer<?>)listener);
+    }
+
+    /**
+     * Removes the conditional listener with the given id.
+     *
+     * @param id The id of the listener.
+     *
+     * @return true if the listener was registered.
+     */
+    public boolean unregisterConditional(String id)
+    {
+        return this.conditionalListeners.remove(id) != null;
+    }
+
+    /**
+     * Removes the given listener from all tables of the given event type.
+     *
+     * @param type     The event type that the listener was registered for.
+     * @param listener The listener.
+     *
+     * @return true if the listener was registered.
+     */
+    public <T extends DatabaseChangeEvent> boolean unregister(Class<T> type, Consumer<T> listener)
+    {
+        boolean removed = false;
+        List<Consumer<DatabaseChangeEvent>> wildcards = this.wildcardListeners.get(type);
+
+        if (wildcards != null)
+        {
+            removed = wildcards.removeIf(l -> l == listener);
+        }
+
+        Map<String, List<Consumer<DatabaseChangeEvent>>> byTable = this.tableListeners.get(type);
+
+        if (byTable != null)
+        {
+            for (List<Consumer<DatabaseChangeEvent>> listeners : byTable.values())
+            {
+                if (listeners.removeIf(l -> l == listener))
+                {
+                    removed = true;
+                }
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Gets the number of listeners of the given type, including wildcard listeners, that would receive an event of the
+     * given table.
+     *
+     * @param type  The event type.
+     * @param table The table.
+     *
+     * @return The number of listeners.
+     */
+    public int getListenerCount(Class<? extends DatabaseChangeEvent> type, String table)
+    {
+        int count = 0;
+        String key = table.toUpperCase();
+
+        for (Class<?> cls = type; cls != null && DatabaseChangeEvent.class.isAssignableFrom(cls); cls = cls.getSuperclass())
+        {
+            List<Consumer<DatabaseChangeEvent>> wildcards = this.wildcardListeners.get(cls);
+            count += wildcards == null ? 0 : wildcards.size();
+
+            Map<String, List<Consumer<DatabaseChangeEvent>>> byTable = this.tableListeners.get(cls);
+            List<Consumer<DatabaseChangeEvent>> listeners = byTable == null ? null : byTable.get(key);
+            count += listeners == null ? 0 : listeners.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * Calls all listeners that are registered for the type of the given event, or one of its super types, and either
+     * for its table or for all tables.
+     *
+     * <p>
+     * Events that were fired for a conditional listener are only delivered to that listener.
+     * </p>
+     *
+     * @param event The event to dispatch.
+     *
+     * <p>
+     * A listener that throws does not prevent the remaining listeners from being called.
+     * </p>
+     *
+     * @return The number of listeners that were called without throwing.
+     */
+    public int dispatch(DatabaseChangeEvent event)
+    {
+        if (event.getListenerID() != null)
+        {
+            Consumer<DatabaseChangeEvent> listener = this.conditionalListeners.get(event.getListenerID());
+
+            if (listener == null)
+            {
+                return 0;
+            }
+
+            return accept(listener, event) ? 1 : 0;
+        }
+
+        int count = 0;
+        String table = event.getTable() == null ? null : event.getTable().toUpperCase();
+
+        for (Class<?> cls = event.getClass(); cls != null && DatabaseChangeEvent.class.isAssignableFrom(cls); cls = cls.getSuperclass())
+        {
+            List<Consumer<DatabaseChangeEvent>> wildcards = this.wildcardListeners.get(cls);
+
+            if (wildcards != null)
+            {
+                count += call(wildcards, event);
+            }
+
+            Map<String, List<Consumer<DatabaseChangeEvent>>> byTable = this.tableListeners.get(cls);
+
+            if (byTable != null && table != null)
+            {
+                List<Consumer<DatabaseChangeEvent>> listeners = byTable.get(table);
+
+                if (listeners != null)
+                {
+                    count += call(listeners, event);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private int call(List<Consumer<DatabaseChangeEvent>> listeners, DatabaseChangeEvent event)
+    {
+        int count = 0;
+
+        for (Consumer<DatabaseChangeEvent> listener : listeners)
+        {
+            if (accept(listener, event))
+            {
+                count ++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Calls the given listener. Exceptions are logged, so that they neither skip the remaining listeners nor fail the
+     * statement that fired the trigger.
+     */
+    private boolean accept(Consumer<DatabaseChangeEvent> listener, DatabaseChangeEvent event)
+    {
+        try
+        {
+            listener.accept(event);
+            return true;
+        }
+        catch (Exception e)
+        {
+            Log.error("Failed to deliver database event", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package bt.db.listener;
+
+import bt.db.constants.SqlType;
+import bt.db.statement.result.SqlResult;
+import bt.log.Log;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes column values of trigger transition rows into a single string inside the trigger and decodes them into typed
+ * rows once the event is dispatched.
+ *
+ * <p>
+ * Derby procedures have fixed parameter lists, so the captured values are concatenated by the trigger itself. Every
+ * column is written as a header 'NAME,TYPE=' followed by one value per captured row, either '-' for null or the length
+ * of the text form of the value, a colon and the text itself. The length prefix makes the format independent from the
+ * content of the values, which derby could not escape since it does not have a replace function.
+ * </p>
+ *
+ * <p>
+ * The encoded payload is limited to 32672 characters. CLOB and BLOB columns can not be captured.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class RowPayload
+{
+    /**
+     * The maximum length of an encoded payload, the maximum size of a derby VARCHAR.
+     */
+    public static final int MAX_LENGTH = 32672;
+
+    private static final String NULL_VALUE = "-";
+
+    /**
+     * Creates the sql expression that encodes the given columns of the given transition rows.
+     *
+     * @param columns The captured columns and their types in the order in which they should be encoded.
+     * @param aliases The aliases of the transition rows whichs values should be encoded, i. e. 'newRow' and 'oldRow'.
+     *
+     * @return The sql expression.
+     */
+    public static String expression(Map<String, SqlType> columns, String... aliases)
+    {
+        List<String> parts = new ArrayList<>();
+
+        for (var column : columns.entrySet())
+        {
+            parts.add("'" + column.getKey().toUpperCase() + "," + column.getValue().name() + "='");
+
+            for (String alias : aliases)
+            {
+                parts.add(encode(alias + "." + column.getKey(),
+                                 column.getValue()));
+            }
+        }
+
+        return String.join(" || ", parts);
+    }
+
+    /**
+     * Calculates the length of the longest payload that the expression of {@link #expression(Map, String...)} can
+     * create for the given columns.
+     *
+     * @param columns The captured columns and their types.
+     * @param sizes   The declared sizes of the captured VARCHAR columns. VARCHAR columns without a size are assumed to
+     *                hold up to {@link #MAX_LENGTH} characters.
+     * @param rows    The number of encoded rows, the number of aliases that are passed to the expression.
+     *
+     * @return The worst case length of the encoded payload.
+     */
+    public static long maxLength(Map<String, SqlType> columns, Map<String, Integer> sizes, int rows)
+    {
+        long length = 0;
+
+        for (var column : columns.entrySet())
+        {
+            int valueLength = maxValueLength(column.getValue(),
+                                             sizes.getOrDefault(column.getKey(), MAX_LENGTH));
+
+            // header, then per row the length prefix, the colon and the value
+            length += column.getKey().length() + column.getValue().name().length() + 2;
+            length += (long)rows * (String.valueOf(valueLength).length() + 1 + valueLength);
+        }
+
+        return length;
+    }
+
+    /**
+     * The maximum length of the text form that {@link #encode(String, SqlType)} creates for a value of the given type.
+     */
+    private static int maxValueLength(SqlType type, int size)
+    {
+        switch (type)
+        {
+            case VARCHAR:
+                return size;
+            case BOOLEAN:
+                return "false".length();
+            case INTEGER:
+                return String.valueOf(Integer.MIN_VALUE).length();
+            case LONG:
+                return String.valueOf(Long.MIN_VALUE).length();
+            case DOUBLE:
+            case FLOAT:
+                // derby casts doubles to CHAR(24)
+                return 24;
+            case DATE:
+                return "yyyy-mm-dd".length();
+            case TIME:
+                return "hh:mm:ss".length();
+            case TIMESTAMP:
+                return "yyyy-mm-dd hh:mm:ss.fffffffff".length();
+            default:
+                throw new IllegalArgumentException("Columns of type " + type + " can not be captured.");
+        }
+    }
+
+    private static String encode(String value, SqlType type)
+    {
+        String text;
+
+        switch (type)
+        {
+            case VARCHAR:
+                text = value;
+                break;
+            case BOOLEAN:
+                // no else branch, so that null stays null
+                text = "CASE WHEN " + value + " THEN 'true' WHEN NOT " + value + " THEN 'false' END";
+                break;
+            case INTEGER:
+            case LONG:
+            case DOUBLE:
+            case FLOAT:
+            case DATE:
+            case TIME:
+            case TIMESTAMP:
+                text = "TRIM(CHAR(" + value + "))";
+                break;
+            default:
+                throw new IllegalArgumentException("Columns of type " + type + " can not be captured: " + value);
+        }
+
+        return "COALESCE(TRIM(CHAR(LENGTH(" + text + "))) || ':' || " + text + ", '" + NULL_VALUE + "')";
+    }
+
+    /**
+     * Decodes the given payload.
+     *
+     * @param payload The payload that was created by the expression of {@link #expression(Map, String...)}.
+     * @param rows    The number of rows that were encoded, the number of aliases that were used to create the
+     *                expression.
+     *
+     * @return The decoded rows in the order of the aliases or null if the payload is null.
+     */
+    public static SqlResult[] parse(String payload, int rows)
+    {
+        if (payload == null)
+        {
+            return null;
+        }
+
+        List<String> names = new ArrayList<>();
+        List<SqlType> types = new ArrayList<>();
+        List<String[]> values = new ArrayList<>();
+        int pos = 0;
+
+        while (pos < payload.length())
+        {
+            int end = payload.indexOf('=', pos);
+            String[] header = payload.substring(pos, end).split(",");
+            names.add(header[0]);
+            types.add(SqlType.valueOf(header[1]));
+            pos = end + 1;
+
+            String[] columnValues = new String[rows];
+
+            for (int i = 0; i < rows; i++)
+            {
+                if (payload.startsWith(NULL_VALUE, pos))
+                {
+                    pos += NULL_VALUE.length();
+                    continue;
+                }
+
+                end = payload.indexOf(':', pos);
+                int length = Integer.parseInt(payload.substring(pos, end));
+                columnValues[i] = payload.substring(end + 1, end + 1 + length);
+                pos = end + 1 + length;
+            }
+
+            values.add(columnValues);
+        }
+
+        SqlResult[] results = new SqlResult[rows];
+
+        for (int i = 0; i < rows; i++)
+        {
+            results[i] = new SqlResult(names);
+
+            for (int j = 0; j < names.size(); j++)
+            {
+                put(results[i],
+                    names.get(j),
+                    types.get(j),
+                    values.get(j)[i]);
+            }
+        }
+
+        return results;
+    }
+
+    private static void put(SqlResult row, String name, SqlType type, String text)
+    {
+        if (text == null)
+        {
+            row.putObject(name, null);
+            return;
+        }
+
+        try
+        {
+            switch (type)
+            {
+                case BOOLEAN:
+                    row.put(name, Boolean.valueOf(text));
+                    break;
+                case INTEGER:
+                    row.put(name, Integer.valueOf(text));
+                    break;
+                case LONG:
+                    row.put(name, Long.valueOf(text));
+                    break;
+                case DOUBLE:
+                case FLOAT:
+                    row.put(name, Double.valueOf(text));
+                    break;
+                case DATE:
+                    row.put(name, Date.valueOf(text));
+                    break;
+                case TIME:
+                    row.put(name, Time.valueOf(text.replace('.', ':')));
+                    break;
+                case TIMESTAMP:
+                    row.put(name, Timestamp.valueOf(text));
+                    break;
+                default:
+                    row.put(name, text);
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            Log.error("Failed to parse captured value of column " + name, e);
+            row.put(name, text);
+        }
+    }
+}
@@ -0,0 +1,838 @@
+package bt.db.listener;
+
+import bt.db.DatabaseAccess;
+import bt.db.EmbeddedDatabase;
+import bt.db.RemoteDatabase;
+import bt.db.cache.CatalogCache.ObjectType;
+import bt.db.cache.ColumnMetadata;
+import bt.db.cache.TableMetadata;
+import bt.db.listener.evnt.DeleteEvent;
+import bt.db.listener.evnt.InsertEvent;
+import bt.db.listener.evnt.UpdateEvent;
+import bt.db.statement.clause.ColumnEntry;
+import bt.db.statement.clause.TriggerCondition;
+import bt.db.statement.result.SqlResult;
+import bt.db.statement.result.SqlResultSet;
+import bt.log.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the default triggers of tables with lazy triggers only while listeners for them are registered.
+ *
+ * <p>
+ * The DDL of such triggers is not executed when the table is created. Instead it is stored in the
+ * {@link DatabaseAccess#OBJECT_DATA_TABLE} under the name of the trigger prefixed with {@link #OBJECT_PREFIX}. The
+ * triggers of an action (insert, update or delete) on a table are created the first time that a listener is registered
+ * for that action and table, or for that action on all tables, and dropped again when the last of these listeners is
+ * unregistered. Whether a trigger is currently provisioned is read from the {@link bt.db.cache.CatalogCache catalog
+ * cache}.
+ * </p>
+ *
+ * <p>
+ * Conditional listeners get dedicated triggers, which are created when the listener is registered and dropped when it
+ * is unregistered. They are independent of the default triggers and only fire for rows that meet the condition of the
+ * listener. The same listener may be registered with multiple conditions, all of its triggers are dropped when it is
+ * unregistered. The drop statements of dedicated triggers are stored in the {@link DatabaseAccess#OBJECT_DATA_TABLE}
+ * under the listener id prefixed with {@link #CONDITIONAL_PREFIX} in the same transaction that creates them, so that
+ * triggers which were left over by a previous run are dropped when the definitions are loaded.
+ * </p>
+ *
+ * <p>
+ * Triggers are created and dropped on a dedicated connection from {@link DatabaseAccess#openConnection()}, so that
+ * registering a listener never commits or rolls back the transaction of the shared connection. Since derby needs an
+ * exclusive lock on the table to change its triggers, this waits for open transactions that changed the table.
+ * </p>
+ *
+ * <p>
+ * Listeners are counted per {@link DatabaseAccess} instance. Lazy triggers should therefore not be used on tables that
+ * are listened to by multiple instances, since one of them would drop the triggers that the others rely on.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class TriggerProvisioner
+{
+    /**
+     * The prefix of the object names under which the trigger definitions are stored.
+     */
+    public static final String OBJECT_PREFIX = "LAZY:";
+
+    /**
+     * The prefix of the object names under which the dedicated triggers of conditional listeners are recorded.
+     */
+    public static final String CONDITIONAL_PREFIX = "COND:";
+
+    private static final String ALL_TABLES = "*";
+
+    /**
+     * The triggers of one action on one table.
+     */
+    private static class Definition
+    {
+        private String table;
+        private String action;
+        private List<String> names = new ArrayList<>();
+        private List<String> ddls = new ArrayList<>();
+    }
+
+    /**
+     * The dedicated triggers of one registration of a conditional listener.
+     */
+    private static class Conditional
+    {
+        private String id;
+        private List<String> names = new ArrayList<>();
+    }
+
+    /**
+     * An action that is executed within the transaction of a dedicated connection.
+     */
+    private interface ConnectionAction
+    {
+        void run(Connection connection) throws SQLException;
+    }
+
+    private DatabaseAccess db;
+
+    /**
+     * The known definitions mapped by upper case action and table. Null if they have not been loaded.
+     */
+    private Map<String, Definition> definitions;
+
+    /**
+     * The number of registered listeners mapped by upper case action and table, or action and {@link #ALL_TABLES}.
+     */
+    private Map<String, Integer> demand;
+
+    /**
+     * The demand keys of each registered listener, mapped by listener type and listener.
+     */
+    private Map<List<Object>, List<String>> demandByListener;
+
+    /**
+     * The registrations of each conditional listener, mapped by listener type and listener.
+     */
+    private Map<List<Object>, List<Conditional>> conditionals;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param db The database whichs triggers should be provisioned.
+     */
+    public TriggerProvisioner(DatabaseAccess db)
+    {
+        this.db = db;
+        this.demand = new HashMap<>();
+        this.demandByListener = new HashMap<>();
+        this.conditionals = new HashMap<>();
+    }
+
+    /**
+     * Stores the definition of the triggers of the given action on the given table. The triggers are created right away
+     * if listeners for them are already registered.
+     *
+     * @param table    The table of the triggers.
+     * @param action   Either 'insert', 'update' or 'delete'.
+     * @param triggers The names of the triggers mapped to their DDL, in the order in which they have to be created.
+     */
+    public synchronized void define(String table, String action, Map<String, String> triggers)
+    {
+        Definition definition = new Definition();
+        definition.table = table.toUpperCase();
+        definition.action = action.toUpperCase();
+        String ddl = "";
+
+        for (var trigger : triggers.entrySet())
+        {
+            definition.names.add(trigger.getKey().toUpperCase());
+            definition.ddls.add(trigger.getValue());
+            ddl += trigger.getValue() + ";" + System.lineSeparator();
+        }
+
+        String objectName = OBJECT_PREFIX + definition.names.get(0);
+        String objectDDL = ddl;
+
+        this.db.insert()
+               .into(DatabaseAccess.OBJECT_DATA_TABLE)
+               .set("instanceID", this.db.getInstanceID())
+               .set("object_name", objectName)
+               .set("object_ddl", objectDDL)
+               .onDuplicateKey((s, e) ->
+                               {
+                                   return this.db.update(DatabaseAccess.OBJECT_DATA_TABLE)
+                                                 .set("instanceID", this.db.getInstanceID())
+                                                 .set("object_ddl", objectDDL)
+                                                 .where("object_name").equal(objectName)
+                                                 .commit()
+                                                 .execute();
+                               })
+               .commit()
+               .execute();
+
+        getDefinitions().put(key(definition.action, definition.table), definition);
+
+        if (isDemanded(definition.action, definition.table))
+        {
+            provision(definition);
+        }
+    }
+
+    /**
+     * Counts the given listener and creates the triggers that it needs if they do not exist yet.
+     *
+     * @param type     The event type that the listener was registered for.
+     * @param listener The listener.
+     * @param tables   The tables that the listener was registered for. Empty for all tables.
+     */
+    public synchronized void acquire(Class<?> type, Object listener, String... tables)
+    {
+        List<String> keys = new ArrayList<>();
+
+        for (String action : actions(type))
+        {
+            if (tables == null || tables.length == 0)
+            {
+                keys.add(key(action, ALL_TABLES));
+            }
+            else
+            {
+                for (String table : tables)
+                {
+                    keys.add(key(action, table.toUpperCase()));
+                }
+            }
+        }
+
+        if (keys.isEmpty())
+        {
+            return;
+        }
+
+        this.demandByListener.computeIfAbsent(List.of(type, listener), k -> new ArrayList<>()).addAll(keys);
+
+        for (String key : keys)
+        {
+            if (this.demand.merge(key, 1, Integer::sum) == 1)
+            {
+                for (Definition definition : getDefinitions(key))
+                {
+                    provision(definition);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops counting the given listener and drops the triggers that are no longer needed by any listener.
+     *
+     * @param type     The event type that the listener was registered for.
+     * @param listener The listener.
+     */
+    public synchronized void release(Class<?> type, Object listener)
+    {
+        List<String> keys = this.demandByListener.remove(List.of(type, listener));
+
+        if (keys == null)
+        {
+            return;
+        }
+
+        for (String key : keys)
+        {
+            if (this.demand.merge(key, -1, Integer::sum) <= 0)
+            {
+                this.demand.remove(key);
+
+                for (Definition definition : getDefinitions(key))
+                {
+                    if (!isDemanded(definition.action, definition.table))
+                    {
+                        deprovision(definition);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the dedicated triggers of a conditional listener.
+     *
+     * <p>
+     * A row trigger is created for each action whichs events the listener accepts. Update triggers only fire if one of
+     * the given columns was updated, all triggers only fire for rows that meet the given condition. The events of these
+     * triggers carry the given listener id.
+     * </p>
+     *
+     * <p>
+     * The triggers are created in one transaction on a dedicated connection, together with the record of their drop
+     * statements. Registering the same listener again adds another set of triggers.
+     * </p>
+     *
+     * @param id        The unique id of the listener.
+     * @param type      The event type that the listener was registered for.
+     * @param listener  The listener.
+     * @param table     The table to listen on.
+     * @param condition The condition that changed rows have to meet. Null to accept all rows.
+     * @param columns   The columns of which at least one has to be updated to fire an update event. Empty to accept
+     *                  updates of all columns.
+     *
+     * @return true if all triggers were created.
+     */
+    public synchronized boolean acquireConditional(String id, Class<?> type, Object listener, String table,
+                                                   TriggerCondition condition, String... columns)
+    {
+        // drops the leftovers of a previous run before new triggers are created
+        getDefinitions();
+
+        TableMetadata meta = this.db.getSchemaCache().getTable(table);
+        ColumnMetadata identity = meta == null ? null : meta.getIdentityColumn();
+
+        if (identity == null)
+        {
+            Log.error("Can't create conditional triggers on table " + table + " without an identity column.");
+            return false;
+        }
+
+        Conditional conditional = new Conditional();
+        conditional.id = id;
+        List<String> ddls = new ArrayList<>();
+        String dropDDL = "";
+
+        for (String action : actions(type))
+        {
+            // listeners of batched events can not receive the row events of dedicated triggers
+            if (!type.isAssignableFrom(eventType(action)))
+            {
+                continue;
+            }
+
+            String name = table + "_t_" + action.toLowerCase() + "_" + id;
+            String alias = action.equals("DELETE") ? "oldRow" : "newRow";
+
+            var trigger = this.db.create()
+                                 .trigger(name)
+                                 .after(action)
+                                 .on(table);
+
+            if (action.equals("UPDATE") && columns != null && columns.length > 0)
+            {
+                trigger.of(columns);
+            }
+
+            if (action.equals("DELETE"))
+            {
+                trigger.oldAs(alias);
+            }
+            else
+            {
+                trigger.newAs(alias);
+            }
+
+            if (condition != null)
+            {
+                trigger.when(condition);
+            }
+
+            if (this.db instanceof EmbeddedDatabase)
+            {
+                trigger.forEachRow()
+                       .call("onConditionalChange")
+                       .with(this.db.getInstanceID(),
+                             action.toLowerCase(),
+                             meta.getName(),
+                             identity.getName(),
+                             new ColumnEntry(alias,
+                                             identity.getName()),
+                             id);
+            }
+            else if (this.db instanceof RemoteDatabase)
+            {
+                trigger.forEachRow()
+                       .execute("INSERT INTO recent_triggers (triggerType, tableName, rowIdFieldName, idRow) values ('"
+                                        + action.toLowerCase() + ":" + id + "', '" + meta.getName() + "', '" + identity.getName() + "', "
+                                        + alias + "." + identity.getName() + ")");
+            }
+
+            conditional.names.add(name.toUpperCase());
+            ddls.add(trigger.toString());
+            dropDDL += "DROP TRIGGER " + name.toUpperCase() + ";" + System.lineSeparator();
+        }
+
+        if (conditional.names.isEmpty())
+        {
+            return false;
+        }
+
+        String objectDDL = dropDDL;
+
+        try
+        {
+            transaction(connection ->
+                        {
+                            executeAll(connection, ddls);
+                            record(connection, CONDITIONAL_PREFIX + id, objectDDL);
+                        });
+        }
+        catch (SQLException e)
+        {
+            this.db.getCatalogCache().invalidate();
+            this.db.dispatchException(e);
+            return false;
+        }
+
+        for (String name : conditional.names)
+        {
+            this.db.getCatalogCache().created(ObjectType.TRIGGER, name);
+        }
+
+        this.db.getSchemaCache().invalidate(table);
+        this.conditionals.computeIfAbsent(List.of(type, listener), k -> new ArrayList<>()).add(conditional);
+        return true;
+    }
+
+    /**
+     * Drops the dedicated triggers of all registrations of the given conditional listener.
+     *
+     * @param type     The event type that the listener was registered for.
+     * @param listener The listener.
+     *
+     * @return The ids of the registrations. Empty if the listener is not a conditional listener.
+     */
+    public synchronized List<String> releaseConditional(Class<?> type, Object listener)
+    {
+        List<Conditional> conditionals = this.conditionals.remove(List.of(type, listener));
+        List<String> ids = new ArrayList<>();
+
+        if (conditionals == null)
+        {
+            return ids;
+        }
+
+        for (Conditional conditional : conditionals)
+        {
+            dropConditional(CONDITIONAL_PREFIX + conditional.id, conditional.names);
+            ids.add(conditional.id);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Drops the given dedicated triggers and deletes their record in one transaction on a dedicated connection.
+     * Triggers that do not exist anymore are skipped.
+     */
+    private void dropConditional(String objectName, List<String> names)
+    {
+        List<String> ddls = new ArrayList<>();
+
+        for (String name : names)
+        {
+            if (this.db.getCatalogCache().exists(ObjectType.TRIGGER, name))
+            {
+                ddls.add("DROP TRIGGER " + name);
+            }
+        }
+
+        try
+        {
+            transaction(connection ->
+                        {
+                            executeAll(connection, ddls);
+                            record(connection, objectName, null);
+                        });
+
+            for (String name : names)
+            {
+                this.db.getCatalogCache().dropped(ObjectType.TRIGGER, name);
+                this.db.getSchemaCache().dropped(ObjectType.TRIGGER, name);
+            }
+        }
+        catch (SQLException e)
+        {
+            this.db.getCatalogCache().invalidate();
+            this.db.dispatchException(e);
+        }
+    }
+
+    /**
+     * Drops the trigger with the given name on a dedicated connection.
+     *
+     * @return true if the trigger was dropped.
+     */
+    private boolean drop(String name)
+    {
+        try
+        {
+            execute(List.of("DROP TRIGGER " + name));
+            this.db.getCatalogCache().dropped(ObjectType.TRIGGER, name);
+            this.db.getSchemaCache().dropped(ObjectType.TRIGGER, name);
+            return true;
+        }
+        catch (SQLException e)
+        {
+            this.db.getCatalogCache().invalidate();
+            this.db.dispatchException(e);
+            return false;
+        }
+    }
+
+    /**
+     * Executes the given statements in one transaction on a dedicated connection.
+     */
+    private void execute(List<String> statements) throws SQLException
+    {
+        transaction(connection -> executeAll(connection, statements));
+    }
+
+    /**
+     * Runs the given action on a dedicated connection, which is committed if the action succeeded and rolled back
+     * otherwise.
+     */
+    private void transaction(ConnectionAction action) throws SQLException
+    {
+        try (Connection connection = this.db.openConnection())
+        {
+            try
+            {
+                action.run(connection);
+                connection.commit();
+            }
+            catch (SQLException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void executeAll(Connection connection, List<String> statements) throws SQLException
+    {
+        try (Statement statement = connection.createStatement())
+        {
+            for (String sql : statements)
+            {
+                Log.debug("Executing: " + sql);
+                statement.executeUpdate(sql);
+            }
+        }
+    }
+
+    /**
+     * Stores the given DDL in the {@link DatabaseAccess#OBJECT_DATA_TABLE} under the given name, or deletes the record
+     * with that name if the DDL is null.
+     */
+    private void record(Connection connection, String objectName, String objectDDL) throws SQLException
+    {
+        if (objectDDL == null)
+        {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + DatabaseAccess.OBJECT_DATA_TABLE
+                                                                                   + " WHERE object_name = ?"))
+            {
+                statement.setString(1, objectName);
+                statement.executeUpdate();
+            }
+        }
+        else
+        {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + DatabaseAccess.OBJECT_DATA_TABLE
+                                                                                   + " (instanceID, object_name, object_ddl) VALUES (?, ?, ?)"))
+            {
+                statement.setString(1, this.db.getInstanceID());
+                statement.setString(2, objectName);
+                statement.setString(3, objectDDL);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Checks whether the triggers of the given action on the given table are currently created.
+     *
+     * @param table  The table.
+     * @param action Either 'insert', 'update' or 'delete'.
+     *
+     * @return true if the table has lazy triggers for the action and they exist, false otherwise.
+     */
+    public synchronized boolean isProvisioned(String table, String action)
+    {
+        Definition definition = getDefinitions().get(key(action.toUpperCase(), table.toUpperCase()));
+        return definition != null && isProvisioned(definition);
+    }
+
+    private boolean isProvisioned(Definition definition)
+    {
+        for (String name : definition.names)
+        {
+            if (!this.db.getCatalogCache().exists(ObjectType.TRIGGER, name))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isDemanded(String action, String table)
+    {
+        return this.demand.containsKey(key(action, table)) || this.demand.containsKey(key(action, ALL_TABLES));
+    }
+
+    /**
+     * Creates the triggers of the given definition. Existing triggers of the definition are dropped first, since derby
+     * fires triggers in the order in which they were created.
+     */
+    private void provision(Definition definition)
+    {
+        if (isProvisioned(definition))
+        {
+            return;
+        }
+
+        deprovision(definition);
+
+        try
+        {
+            execute(definition.ddls);
+
+            for (String name : definition.names)
+            {
+                this.db.getCatalogCache().created(ObjectType.TRIGGER, name);
+            }
+
+            this.db.getSchemaCache().invalidate(definition.table);
+            Log.debug(String.format("Provisioned %s triggers of table %s.", definition.action, definition.table));
+        }
+        catch (SQLException e)
+        {
+            this.db.getCatalogCache().invalidate();
+            this.db.dispatchException(e);
+        }
+    }
+
+    private void deprovision(Definition definition)
+    {
+        boolean dropped = false;
+
+        for (String name : definition.names)
+        {
+            if (this.db.getCatalogCache().exists(ObjectType.TRIGGER, name) && drop(name))
+            {
+                dropped = true;
+            }
+        }
+
+        if (dropped)
+        {
+            Log.debug(String.format("Dropped %s triggers of table %s.", definition.action, definition.table));
+        }
+    }
+
+    /**
+     * Gets the definitions that are affected by the given demand key.
+     */
+    private List<Definition> getDefinitions(String key)
+    {
+        List<Definition> definitions = new ArrayList<>();
+
+        if (key.endsWith("." + ALL_TABLES))
+        {
+            String prefix = key.substring(0, key.length() - ALL_TABLES.length());
+
+            for (var entry : getDefinitions().entrySet())
+            {
+                if (entry.getKey().startsWith(prefix))
+                {
+                    definitions.add(entry.getValue());
+                }
+            }
+        }
+        else if (getDefinitions().containsKey(key))
+        {
+            definitions.add(getDefinitions().get(key));
+        }
+
+        return definitions;
+    }
+
+    /**
+     * Gets the definitions after loading them from the object data table on the first call. Triggers of loaded
+     * definitions that are not needed by any listener, i. e. because they were left over by a previous run, are
+     * dropped.
+     */
+    private Map<String, Definition> getDefinitions()
+    {
+        if (this.definitions != null)
+        {
+            return this.definitions;
+        }
+
+        this.definitions = new HashMap<>();
+
+        SqlResultSet result = this.db.select("object_name", "object_ddl")
+                                     .from(DatabaseAccess.OBJECT_DATA_TABLE)
+                                     .where("object_name")
+                                     .like(OBJECT_PREFIX + "%")
+                                     .onLessThan(1,
+                                                 (i, set) ->
+                                                 {
+                                                     return set;
+                                                 })
+                                     .execute();
+
+        if (result == null)
+        {
+            return this.definitions;
+        }
+
+        for (SqlResult row : result)
+        {
+            Definition definition = parse(row.getString("object_ddl"));
+
+            if (definition != null)
+            {
+                this.definitions.put(key(definition.action, definition.table), definition);
+            }
+        }
+
+        for (Definition definition : this.definitions.values())
+        {
+            if (!isDemanded(definition.action, definition.table))
+            {
+                deprovision(definition);
+            }
+        }
+
+        Log.debug(String.format("Loaded %d lazy trigger definitions.", this.definitions.size()));
+        dropLeftoverConditionals();
+        return this.definitions;
+    }
+
+    /**
+     * Drops the dedicated triggers of conditional listeners that were recorded by a previous run and deletes their
+     * records.
+     */
+    private void dropLeftoverConditionals()
+    {
+        SqlResultSet result = this.db.select("object_name", "object_ddl")
+                                     .from(DatabaseAccess.OBJECT_DATA_TABLE)
+                                     .where("object_name")
+                                     .like(CONDITIONAL_PREFIX + "%")
+                                     .onLessThan(1,
+                                                 (i, set) ->
+                                                 {
+                                                     return set;
+                                                 })
+                                     .execute();
+
+        if (result == null)
+        {
+            return;
+        }
+
+        for (SqlResult row : result)
+        {
+            List<String> names = new ArrayList<>();
+
+            for (String statement : row.getString("object_ddl").split(";" + System.lineSeparator()))
+            {
+                String[] words = statement.trim().split("\\s+");
+
+                if (words.length == 3)
+                {
+                    names.add(words[2].toUpperCase());
+                }
+            }
+
+            dropConditional(row.getString("object_name"), names);
+        }
+
+        if (result.size() > 0)
+        {
+            Log.debug(String.format("Dropped the triggers of %d leftover conditional listeners.", result.size()));
+        }
+    }
+
+    /**
+     * Parses the stored DDL of a definition. The name, action and table of each trigger are read from its
+     * 'CREATE TRIGGER name AFTER action ON table' head.
+     */
+    private static Definition parse(String ddl)
+    {
+        Definition definition = new Definition();
+
+        for (String statement : ddl.split(";" + System.lineSeparator()))
+        {
+            statement = statement.trim();
+
+            if (statement.isEmpty())
+            {
+                continue;
+            }
+
+            String[] words = statement.split("\\s+");
+
+            if (words.length < 7)
+            {
+                return null;
+            }
+
+            definition.names.add(words[2].toUpperCase());
+            definition.action = words[4].toUpperCase();
+            definition.table = words[6].toUpperCase();
+            definition.ddls.add(statement);
+        }
+
+        return definition.names.isEmpty() ? null : definition;
+    }
+
+    /**
+     * Gets the trigger actions whichs events can be received by listeners of the given event type.
+     */
+    private static List<String> actions(Class<?> type)
+    {
+        List<String> actions = new ArrayList<>();
+
+        if (type.isAssignableFrom(InsertEvent.class) || InsertEvent.class.isAssignableFrom(type))
+        {
+            actions.add("INSERT");
+        }
+
+        if (type.isAssignableFrom(UpdateEvent.class) || UpdateEvent.class.isAssignableFrom(type))
+        {
+            actions.add("UPDATE");
+        }
+
+        if (type.isAssignableFrom(DeleteEvent.class) || DeleteEvent.class.isAssignableFrom(type))
+        {
+            actions.add("DELETE");
+        }
+
+        return actions;
+    }
+
+    private static Class<?> eventType(String action)
+    {
+        switch (action)
+        {
+            case "INSERT":
+                return InsertEvent.class;
+            case "UPDATE":
+                return UpdateEvent.class;
+            default:
+                return DeleteEvent.class;
+        }
+    }
+
+    private static String key(String action, String table)
+    {
+        return action + "." + table;
+    }
+}
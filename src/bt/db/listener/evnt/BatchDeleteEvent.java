@@ -0,0 +1,55 @@
+package bt.db.listener.evnt;
+
+import bt.db.DatabaseAccess;
+
+/**
+ * Fired by the {@link DatabaseAccess} implementation once per statement for tables whichs delete trigger was created in
+ * batch mode.
+ * 
+ * <p>
+ * The event carries the identities of all rows that were deleted by the statement. {@link #getID()} returns the identity
+ * of the last of them.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class BatchDeleteEvent extends DeleteEvent
+{
+    /**
+     * The values of the identifying field of all deleted rows.
+     */
+    protected long[] ids;
+
+    /**
+     * Creates a new instance and sets the fields.
+     * 
+     * @param sourceDB
+     *            The {@link DatabaseAccess} instance that fired this event.
+     * @param table
+     *            The name of the table that the event occurred on.
+     * @param idFieldName
+     *            The name of the identifying field which can be used to select the changed rows.
+     * @param ids
+     *            The values of the identifying field of the changed rows.
+     * @param data
+     *            Additional custom data sent by the trigger.
+     */
+    public BatchDeleteEvent(DatabaseAccess sourceDB, String table, String idFieldName, long[] ids, String... data)
+    {
+        super(sourceDB,
+              table,
+              idFieldName,
+              ids.length == 0 ? -1 : ids[ids.length - 1],
+              data);
+        this.ids = ids;
+    }
+
+    /**
+     * @see bt.db.listener.evnt.DatabaseChangeEvent#getIDs()
+     */
+    @Override
+    public long[] getIDs()
+    {
+        return this.ids;
+    }
+}
@@ -1,6 +1,7 @@
 package bt.db.listener.evnt;
 
 import bt.db.DatabaseAccess;
+import bt.db.statement.result.SqlResult;
 
 import java.io.Serializable;
 
@@ -28,15 +29,33 @@ public class DatabaseChangeEvent implements Serializable
     protected long id;
 
     /**
-     * The {@link DatabaseAccess} instance that fired this event.
+     * The {@link DatabaseAccess} instance that fired this event. Not serialized, so events can be sent to remote
+     * clients.
      */
-    protected DatabaseAccess sourceDb;
+    protected transient DatabaseAccess sourceDb;
 
     /**
      * Additional custom data sent by the trigger.
      */
     protected String[] data = new String[] {};
 
+    /**
+     * The id of the conditional listener that this event was fired for. Null if the event is meant for all listeners.
+     */
+    protected String listenerID;
+
+    /**
+     * The captured values of the row after the change. Null if the table does not capture payloads or the row was
+     * deleted.
+     */
+    protected SqlResult newRow;
+
+    /**
+     * The captured values of the row before the change. Null if the table does not capture payloads or the row was
+     * inserted.
+     */
+    protected SqlResult oldRow;
+
     /**
      * Creates a new instance and sets the fields.
      *
@@ -75,6 +94,22 @@ public class DatabaseChangeEvent implements Serializable
         return this.id;
     }
 
+    /**
+     * Returns the values of the identifying field of all rows that were changed by the statement that caused this
+     * event.
+     *
+     * <p>
+     * This contains only the value of {@link #getID()} unless this is a batched event of a table whichs triggers fire
+     * once per statement.
+     * </p>
+     *
+     * @return The id values.
+     */
+    public long[] getIDs()
+    {
+        return new long[] { this.id };
+    }
+
     /**
      * Returns the name of the identifying field which can be used to select the changed row.
      *
@@ -105,6 +140,78 @@ public class DatabaseChangeEvent implements Serializable
         this.sourceDb = sourceDb;
     }
 
+    /**
+     * Returns the id of the conditional listener that this event was fired for.
+     *
+     * <p>
+     * Events of the dedicated triggers of a conditional listener are only delivered to that listener.
+     * </p>
+     *
+     * @return The id or null if the event is meant for all listeners.
+     */
+    public String getListenerID()
+    {
+        return this.listenerID;
+    }
+
+    /**
+     * Sets the id of the conditional listener that this event was fired for.
+     *
+     * @param listenerID
+     */
+    public void setListenerID(String listenerID)
+    {
+        this.listenerID = listenerID;
+    }
+
+    /**
+     * Returns the captured column values of the row after the change.
+     *
+     * <p>
+     * Values are only captured for tables that were created with
+     * {@link bt.db.statement.impl.CreateTableStatement#payload(String...) payload columns}, so that listeners don't
+     * have to select the changed row again.
+     * </p>
+     *
+     * @return The captured values or null if no values were captured or the row was deleted.
+     */
+    public SqlResult getNewRow()
+    {
+        return this.newRow;
+    }
+
+    /**
+     * Returns the captured column values of the row before the change.
+     *
+     * @return The captured values or null if no values were captured or the row was inserted.
+     */
+    public SqlResult getOldRow()
+    {
+        return this.oldRow;
+    }
+
+    /**
+     * Sets the captured column values of the changed row.
+     *
+     * @param newRow The values after the change.
+     * @param oldRow The values before the change.
+     */
+    public void setRows(SqlResult newRow, SqlResult oldRow)
+    {
+        this.newRow = newRow;
+        this.oldRow = oldRow;
+    }
+
+    /**
+     * Indicates whether column values were captured for this event.
+     *
+     * @return true if {@link #getNewRow()} or {@link #getOldRow()} is not null.
+     */
+    public boolean hasPayload()
+    {
+        return this.newRow != null || this.oldRow != null;
+    }
+
     /**
      * Returns the size of the additional data sent with the trigger.
      *
@@ -1,7 +1,7 @@
 package bt.db.listener.impl;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import bt.db.listener.evnt.DatabaseChangeEvent;
 import bt.db.listener.evnt.DeleteEvent;
@@ -13,7 +13,7 @@ import bt.db.listener.evnt.DeleteEvent;
  */
 public class IdentityListener
 {
-    private static Map<String, Long> identities = new HashMap<>();
+    private static Map<String, Long> identities = new ConcurrentHashMap<>();
 
     public static void receive(DatabaseChangeEvent e)
     {
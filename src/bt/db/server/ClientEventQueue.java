@@ -0,0 +1,413 @@
+package bt.db.server;
+
+import bt.db.listener.evnt.DatabaseChangeEvent;
+import bt.log.Log;
+import bt.remote.socket.ServerClient;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded outbound queue of change events for a single client, which is drained by a dedicated sender thread.
+ *
+ * <p>
+ * Trigger listeners only enqueue their events, so a slow or stalled client never blocks the dispatching of events for
+ * other clients or the writer that fired the trigger. The sender sends up to {@code batchSize} events at once as a
+ * {@link List}, or a single event as is, as soon as a full batch is queued or the flush interval has passed. What
+ * happens once the client has fallen behind far enough to fill its queue is defined by the {@link LagPolicy}.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class ClientEventQueue
+{
+    /**
+     * Defines what happens to events of a client that does not keep up with them.
+     *
+     * @author &#8904
+     */
+    public enum LagPolicy
+    {
+        /**
+         * A queued event of the same type, table and id is replaced by the newer one. If there is none and the queue is
+         * full, the oldest event is dropped.
+         */
+        COALESCE,
+
+        /**
+         * The oldest queued event is dropped to make space for the new one.
+         */
+        DROP_OLDEST,
+
+        /**
+         * The client is disconnected once its queue is full.
+         */
+        DISCONNECT
+    }
+
+    private static class Pending
+    {
+        private DatabaseChangeEvent event;
+        private Object key;
+        private long time;
+    }
+
+    private ServerClient client;
+    private int capacity;
+    private int batchSize;
+    private long flushInterval;
+    private LagPolicy policy;
+
+    private ArrayDeque<Pending> queue;
+
+    /**
+     * The queued events mapped by their coalescing key. Only used with the {@link LagPolicy#COALESCE COALESCE} policy.
+     */
+    private Map<Object, Pending> index;
+
+    private ReentrantLock lock;
+    private Condition batchReady;
+    private Thread sender;
+    private volatile boolean running;
+
+    private AtomicLong queued;
+    private AtomicLong sent;
+    private AtomicLong coalesced;
+    private AtomicLong dropped;
+    private AtomicLong failed;
+
+    /**
+     * Creates a new instance and starts its sender thread.
+     *
+     * @param client        The client to send the events to.
+     * @param capacity      The maximum number of queued events.
+     * @param batchSize     The maximum number of events that are sent at once.
+     * @param flushInterval The maximum time in milliseconds that the sender waits for a full batch.
+     * @param policy        Defines what happens once the queue is full.
+     */
+    public ClientEventQueue(ServerClient client, int capacity, int batchSize, long flushInterval, LagPolicy policy)
+    {
+        if (capacity <= 0 || batchSize <= 0 || flushInterval <= 0)
+        {
+            throw new IllegalArgumentException("Capacity, batch size and flush interval must be greater than 0.");
+        }
+
+        this.client = client;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.policy = policy;
+        this.queue = new ArrayDeque<>();
+        this.index = new HashMap<>();
+        this.lock = new ReentrantLock();
+        this.batchReady = this.lock.newCondition();
+        this.queued = new AtomicLong();
+        this.sent = new AtomicLong();
+        this.coalesced = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.failed = new AtomicLong();
+
+        this.running = true;
+        this.sender = new Thread(this::runSender, "DATABASE_CLIENT_SENDER_" + client.getHost() + ":" + client.getPort());
+        this.sender.setDaemon(true);
+        this.sender.start();
+    }
+
+    /**
+     * Queues the given event to be sent to the client. Never blocks.
+     *
+     * @param event The event to send.
+     */
+    public void offer(DatabaseChangeEvent event)
+    {
+        boolean disconnect = false;
+
+        this.lock.lock();
+
+        try
+        {
+            if (!this.running)
+            {
+                return;
+            }
+
+            Object key = null;
+
+            if (this.policy == LagPolicy.COALESCE)
+            {
+                key = event.getIDs().length > 1 ? event : List.of(event.getClass(), String.valueOf(event.getTable()).toUpperCase(), event.getID());
+                Pending pending = this.index.get(key);
+
+                if (pending != null)
+                {
+                    pending.event = event;
+                    this.coalesced.incrementAndGet();
+                    return;
+                }
+            }
+
+            if (this.queue.size() >= this.capacity)
+            {
+                if (this.policy == LagPolicy.DISCONNECT)
+                {
+                    disconnect = true;
+                    this.running = false;
+                    this.dropped.addAndGet(this.queue.size() + 1);
+                    this.queue.clear();
+                    this.index.clear();
+                    this.batchReady.signalAll();
+                    return;
+                }
+
+                Pending oldest = this.queue.poll();
+
+                if (oldest.key != null)
+                {
+                    this.index.remove(oldest.key);
+                }
+
+                this.dropped.incrementAndGet();
+            }
+
+            Pending pending = new Pending();
+            pending.event = event;
+            pending.key = key;
+            pending.time = System.currentTimeMillis();
+
+            this.queue.add(pending);
+            this.queued.incrementAndGet();
+
+            if (key != null)
+            {
+                this.index.put(key, pending);
+            }
+
+            if (this.queue.size() >= this.batchSize)
+            {
+                this.batchReady.signal();
+            }
+        }
+        finally
+        {
+            this.lock.unlock();
+
+            if (disconnect)
+            {
+                disconnect();
+            }
+        }
+    }
+
+    private void disconnect()
+    {
+        Log.error(String.format("Disconnecting client %s:%s, because it fell %d events behind.",
+                                this.client.getHost(),
+                                this.client.getPort(),
+                                this.capacity));
+
+        // not on the dispatching thread, since killing the client unregisters its listeners and may drop triggers
+        Thread thread = new Thread(this.client::kill, "DATABASE_CLIENT_DISCONNECT");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void runSender()
+    {
+        while (true)
+        {
+            List<DatabaseChangeEvent> batch = new ArrayList<>();
+
+            this.lock.lock();
+
+            try
+            {
+                long waitNanos = TimeUnit.MILLISECONDS.toNanos(this.flushInterval);
+
+                while (this.running && this.queue.size() < this.batchSize && waitNanos > 0)
+                {
+                    waitNanos = this.batchReady.awaitNanos(waitNanos);
+                }
+
+                if (!this.running)
+                {
+                    return;
+                }
+
+                while (!this.queue.isEmpty() && batch.size() < this.batchSize)
+                {
+                    Pending pending = this.queue.poll();
+
+                    if (pending.key != null)
+                    {
+                        this.index.remove(pending.key);
+                    }
+
+                    batch.add(pending.event);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            finally
+            {
+                this.lock.unlock();
+            }
+
+            if (!batch.isEmpty())
+            {
+                send(batch);
+            }
+        }
+    }
+
+    private void send(List<DatabaseChangeEvent> batch)
+    {
+        try
+        {
+            if (batch.size() == 1)
+            {
+                this.client.send(batch.get(0));
+            }
+            else
+            {
+                this.client.send(batch);
+            }
+
+            this.sent.addAndGet(batch.size());
+        }
+        catch (IOException e)
+        {
+            this.failed.addAndGet(batch.size());
+            Log.error("Failed to send events", e);
+        }
+    }
+
+    /**
+     * Stops the sender thread and discards all queued events.
+     */
+    public void close()
+    {
+        this.lock.lock();
+
+        try
+        {
+            this.running = false;
+            this.queue.clear();
+            this.index.clear();
+            this.batchReady.signalAll();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of queued events.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth()
+    {
+        this.lock.lock();
+
+        try
+        {
+            return this.queue.size();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the time in milliseconds that the oldest queued event is waiting for.
+     *
+     * @return The lag or 0 if no events are queued.
+     */
+    public long getLag()
+    {
+        this.lock.lock();
+
+        try
+        {
+            Pending oldest = this.queue.peek();
+            return oldest == null ? 0 : System.currentTimeMillis() - oldest.time;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the policy that is applied once the queue is full.
+     *
+     * @return The policy.
+     */
+    public LagPolicy getLagPolicy()
+    {
+        return this.policy;
+    }
+
+    /**
+     * Gets the number of events that were queued.
+     *
+     * @return The count.
+     */
+    public long getQueuedCount()
+    {
+        return this.queued.get();
+    }
+
+    /**
+     * Gets the number of events that were sent to the client.
+     *
+     * @return The count.
+     */
+    public long getSentCount()
+    {
+        return this.sent.get();
+    }
+
+    /**
+     * Gets the number of events that replaced a queued event of the same type, table and id.
+     *
+     * @return The count.
+     */
+    public long getCoalescedCount()
+    {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Gets the number of events that were discarded because the queue was full.
+     *
+     * @return The count.
+     */
+    public long getDroppedCount()
+    {
+        return this.dropped.get();
+    }
+
+    /**
+     * Gets the number of events whichs sending failed.
+     *
+     * @return The count.
+     */
+    public long getFailedCount()
+    {
+        return this.failed.get();
+    }
+}
@@ -3,6 +3,7 @@ package bt.db.server;
 import bt.db.DatabaseAccess;
 import bt.db.exc.SqlClientException;
 import bt.db.listener.evnt.DatabaseChangeEvent;
+import bt.db.server.ClientEventQueue.LagPolicy;
 import bt.remote.socket.ServerClient;
 
 import java.io.IOException;
@@ -14,17 +15,33 @@ public class QueryClient extends ServerClient
 {
     private List<TriggerListener> triggerListeners;
     private DatabaseAccess db;
+    private ClientEventQueue eventQueue;
+    private SessionPool sessionPool;
+    private boolean ownsSessionPool;
+    private QuerySession session;
+    private volatile boolean killed;
 
     public QueryClient(Socket socket, DatabaseAccess db) throws IOException
+    {
+        this(socket, db, new SessionPool(db, 1, 1), 10000, 100, 50, LagPolicy.COALESCE);
+
+        // the pool is private to this client, so it is closed with it
+        this.ownsSessionPool = true;
+    }
+
+    public QueryClient(Socket socket, DatabaseAccess db, SessionPool sessionPool, int queueCapacity, int batchSize, long flushInterval, LagPolicy lagPolicy) throws IOException
     {
         super(socket);
         this.db = db;
         this.triggerListeners = new ArrayList<>();
+        this.sessionPool = sessionPool;
+        this.session = new QuerySession(sessionPool);
+        this.eventQueue = new ClientEventQueue(this, queueCapacity, batchSize, flushInterval, lagPolicy);
     }
 
     public synchronized <T extends DatabaseChangeEvent> void listenToTrigger(Class<T> triggerType, String tableName) throws SqlClientException
     {
-        var listener = new TriggerListener<>(triggerType, tableName, this);
+        var listener = new TriggerListener<>(triggerType, tableName, this, this.eventQueue);
 
         if (!this.triggerListeners.contains(listener))
         {
@@ -45,6 +62,30 @@ public class QueryClient extends ServerClient
             listener.stopListening(this.db);
         }
 
+        this.killed = true;
+        this.eventQueue.close();
+        this.session.close();
+
+        if (this.ownsSessionPool)
+        {
+            this.sessionPool.close();
+        }
+
         super.kill();
     }
+
+    public ClientEventQueue getEventQueue()
+    {
+        return this.eventQueue;
+    }
+
+    public QuerySession getSession()
+    {
+        return this.session;
+    }
+
+    public boolean isKilled()
+    {
+        return this.killed;
+    }
 }
\ No newline at end of file
@@ -4,29 +4,52 @@ import bt.async.Data;
 import bt.console.output.styled.Style;
 import bt.db.DatabaseAccess;
 import bt.db.exc.SqlClientException;
-import bt.db.func.Sql;
 import bt.db.listener.evnt.DatabaseChangeEvent;
 import bt.db.listener.evnt.DeleteEvent;
 import bt.db.listener.evnt.InsertEvent;
 import bt.db.listener.evnt.UpdateEvent;
+import bt.db.server.ClientEventQueue.LagPolicy;
 import bt.db.statement.result.SqlResultSet;
 import bt.log.Log;
 import bt.remote.socket.Server;
 import bt.remote.socket.ServerClient;
+import bt.scheduler.Threads;
+import bt.utils.Null;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.Socket;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author &#8904
  */
 public class QueryServer extends Server
 {
+    private static final String INFO_SQL = "select column_name, data_type as type, comment, primary_key, is_identity, generation, not_null, is_unique, default_value, foreign_keys, checks, created, updated from "
+                                           + DatabaseAccess.COLUMN_DATA
+                                           + " where table_name = ?";
+
     private DatabaseAccess db;
+    private List<QueryClient> clients;
+    private SessionPool sessionPool;
+    private ScheduledFuture sessionReaper;
+    private long sessionIdleTimeout = 600000;
+    private int streamChunkSize = 500;
+    private long streamMaxChunkBytes = 4 * 1024 * 1024;
+    private long streamMaxRows = 1000000;
+    private int eventQueueCapacity = 10000;
+    private int eventBatchSize = 100;
+    private long eventFlushInterval = 50;
+    private LagPolicy lagPolicy = LagPolicy.COALESCE;
 
     /**
      * @param port
@@ -37,13 +60,52 @@ public class QueryServer extends Server
     {
         super(port);
         this.db = db;
+        this.clients = new CopyOnWriteArrayList<>();
+        this.sessionPool = new SessionPool(db, 10);
+        startSessionReaper();
+    }
+
+    private void startSessionReaper()
+    {
+        Null.checkRun(this.sessionReaper, () -> this.sessionReaper.cancel(false));
+
+        long period = Math.max(1000, this.sessionIdleTimeout / 2);
+
+        this.sessionReaper = Threads.get()
+                                    .scheduleAtFixedRateDaemon(
+                                            () ->
+                                            {
+                                                reapIdleSessions();
+                                            },
+                                            period,
+                                            period,
+                                            TimeUnit.MILLISECONDS,
+                                            "DATABASE_SESSION_REAPER");
+    }
+
+    private void reapIdleSessions()
+    {
+        for (QueryClient client : getQueryClients())
+        {
+            if (client.getSession().closeIfIdle(this.sessionIdleTimeout))
+            {
+                Log.debug("Reaped idle session of " + client.getHost() + ":" + client.getPort());
+            }
+        }
     }
 
     @Override
     protected ServerClient createClient(Socket socket) throws IOException
     {
-        QueryClient client = new QueryClient(socket, this.db);
+        QueryClient client = new QueryClient(socket,
+                                             this.db,
+                                             this.sessionPool,
+                                             this.eventQueueCapacity,
+                                             this.eventBatchSize,
+                                             this.eventFlushInterval,
+                                             this.lagPolicy);
         client.setDataProcessor(data -> process(data, client));
+        this.clients.add(client);
 
         Log.debug("New QueryServer connection established to " + client.getHost() + ":" + client.getPort());
 
@@ -58,22 +120,47 @@ public class QueryServer extends Server
 
         if (incoming.get() instanceof String)
         {
-            if (incoming.get().toString().trim().equalsIgnoreCase("commit"))
+            String command = incoming.get().toString().trim();
+
+            if (command.equalsIgnoreCase("commit")
+                || command.equalsIgnoreCase("rollback")
+                || command.toLowerCase().startsWith("rollback to ")
+                || command.toLowerCase().startsWith("savepoint ")
+                || command.toLowerCase().startsWith("release "))
             {
-                this.db.commit();
-                ret = Style.apply("Comitted transaction.", "lime");
+                ret = executeSessionCommand(client.getSession(), command);
             }
-            else if (incoming.get().toString().trim().equalsIgnoreCase("rollback"))
+            else if (command.toLowerCase().startsWith("stream ")
+                     || command.equalsIgnoreCase("next")
+                     || command.equalsIgnoreCase("cancel"))
             {
-                this.db.rollback();
-                ret = Style.apply("Rolled transaction back.", "lime");
+                ret = executeStreamCommand(client.getSession(), command);
             }
-            else if (incoming.get().toString().trim().equalsIgnoreCase("backup"))
+            else if (command.equalsIgnoreCase("backup"))
             {
                 File backup = new File("./backup/" + System.currentTimeMillis());
                 this.db.backup(backup);
                 ret = Style.apply("Created backup under " + backup.getAbsolutePath(), "lime");
             }
+            else if (command.equalsIgnoreCase("clients"))
+            {
+                String clients = "";
+
+                for (QueryClient queryClient : getQueryClients())
+                {
+                    ClientEventQueue queue = queryClient.getEventQueue();
+                    clients += String.format("%s:%s queue depth: %d, lag: %d ms, sent: %d, coalesced: %d, dropped: %d%n",
+                                             queryClient.getHost(),
+                                             queryClient.getPort(),
+                                             queue.getQueueDepth(),
+                                             queue.getLag(),
+                                             queue.getSentCount(),
+                                             queue.getCoalescedCount(),
+                                             queue.getDroppedCount());
+                }
+
+                ret = clients.isEmpty() ? Style.apply("No connected clients.", "lime") : clients;
+            }
             else if (incoming.get().toString().trim().toLowerCase().startsWith("listen"))
             {
                 String[] parts = incoming.get().toString().toLowerCase().split(" ");
@@ -117,7 +204,7 @@ public class QueryServer extends Server
                     }
                 }
             }
-            else if (incoming.get().toString().trim().toLowerCase().startsWith("info"))
+            else if (command.toLowerCase().startsWith("info"))
             {
                 String[] parts = incoming.get().toString().split(" ");
 
@@ -131,22 +218,14 @@ public class QueryServer extends Server
 
                     try
                     {
-                        ret = this.db.select(Sql.column("column_name"),
-                                             Sql.column("data_type").as("type"),
-                                             Sql.column("comment"),
-                                             Sql.column("primary_key"),
-                                             Sql.column("is_identity"),
-                                             Sql.column("generation"),
-                                             Sql.column("not_null"),
-                                             Sql.column("is_unique"),
-                                             Sql.column("default_value"),
-                                             Sql.column("foreign_keys"),
-                                             Sql.column("checks"),
-                                             Sql.column("created"),
-                                             Sql.column("updated"))
-                                     .from(DatabaseAccess.COLUMN_DATA)
-                                     .where("table_name").equal(table.toUpperCase())
-                                     .execute();
+                        ret = client.getSession().run(connection ->
+                            {
+                                try (PreparedStatement st = connection.prepareStatement(INFO_SQL))
+                                {
+                                    st.setString(1, table.toUpperCase());
+                                    return new SqlResultSet(st.executeQuery());
+                                }
+                            });
                     }
                     catch (Exception e)
                     {
@@ -156,40 +235,272 @@ public class QueryServer extends Server
             }
             else if (incoming.get().toString().trim().equalsIgnoreCase("select * from tables"))
             {
-                ret = executeSql("select * from sys.systables");
+                ret = executeSql(client.getSession(), "select * from sys.systables");
             }
             else
             {
-                ret = executeSql(incoming.get().toString());
+                ret = executeSql(client.getSession(), incoming.get().toString());
             }
         }
 
         return ret;
     }
 
-    private Object executeSql(String sql)
+    /**
+     * Gets the clients that are currently connected, i. e. to read the depth and lag of their event queues.
+     *
+     * @return The clients.
+     */
+    public List<QueryClient> getQueryClients()
+    {
+        this.clients.removeIf(QueryClient::isKilled);
+        return List.copyOf(this.clients);
+    }
+
+    /**
+     * Sets the maximum number of change events that are queued per client. Applies to clients that connect afterwards.
+     *
+     * @param eventQueueCapacity
+     */
+    public void setEventQueueCapacity(int eventQueueCapacity)
+    {
+        this.eventQueueCapacity = eventQueueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of change events that are sent to a client at once. Applies to clients that connect
+     * afterwards.
+     *
+     * @param eventBatchSize
+     */
+    public void setEventBatchSize(int eventBatchSize)
+    {
+        this.eventBatchSize = eventBatchSize;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds that change events wait for a full batch before they are sent. Applies to
+     * clients that connect afterwards.
+     *
+     * @param eventFlushInterval
+     */
+    public void setEventFlushInterval(long eventFlushInterval)
+    {
+        this.eventFlushInterval = eventFlushInterval;
+    }
+
+    /**
+     * Sets the policy that is applied to clients whichs event queue is full. Applies to clients that connect afterwards.
+     *
+     * @param lagPolicy
+     */
+    public void setLagPolicy(LagPolicy lagPolicy)
+    {
+        this.lagPolicy = lagPolicy;
+    }
+
+    /**
+     * Sets the time in milliseconds after which the session of an idle client is rolled back and its connection is
+     * returned to the pool.
+     *
+     * @param sessionIdleTimeout
+     */
+    public void setSessionIdleTimeout(long sessionIdleTimeout)
+    {
+        this.sessionIdleTimeout = sessionIdleTimeout;
+        startSessionReaper();
+    }
+
+    /**
+     * Sets the maximum number of connections that the sessions of the clients of this server keep open at the same
+     * time. Requests of further sessions fail until a session is closed. Defaults to 100.
+     *
+     * @param maxSessions
+     */
+    public void setMaxSessions(int maxSessions)
+    {
+        this.sessionPool.setMaxOpen(maxSessions);
+    }
+
+    /**
+     * Sets the maximum number of rows per chunk of a streamed result. Applies to streams that are opened afterwards.
+     *
+     * @param streamChunkSize
+     */
+    public void setStreamChunkSize(int streamChunkSize)
+    {
+        this.streamChunkSize = streamChunkSize;
+    }
+
+    /**
+     * Sets the maximum estimated size in bytes of a chunk of a streamed result. A chunk ends early once its rows reach
+     * this size, so that wide rows do not exhaust the heap of the server. Applies to streams that are opened afterwards.
+     * Plain queries whose results exceed this size fail with an exception that asks the client to stream them instead.
+     *
+     * @param streamMaxChunkBytes
+     */
+    public void setStreamMaxChunkBytes(long streamMaxChunkBytes)
+    {
+        this.streamMaxChunkBytes = streamMaxChunkBytes;
+    }
+
+    /**
+     * Sets the maximum number of rows that are streamed for a single query. Streams that reach it end with
+     * {@link ResultEnd.Reason#ROW_LIMIT ROW_LIMIT}. Applies to streams that are opened afterwards. Plain queries whose
+     * results exceed this number of rows fail with an exception that asks the client to stream them instead.
+     *
+     * @param streamMaxRows
+     */
+    public void setStreamMaxRows(long streamMaxRows)
+    {
+        this.streamMaxRows = streamMaxRows;
+    }
+
+    /**
+     * Gets the pool of the connections that are used by the client sessions.
+     *
+     * @return The pool.
+     */
+    public SessionPool getSessionPool()
+    {
+        return this.sessionPool;
+    }
+
+    /**
+     * Stops the session reaper and closes all pooled connections in addition to stopping the server.
+     *
+     * @see bt.remote.socket.Server#kill()
+     */
+    @Override
+    public void kill()
+    {
+        Null.checkRun(this.sessionReaper, () -> this.sessionReaper.cancel(false));
+        super.kill();
+        this.sessionPool.close();
+    }
+
+    private Object executeSessionCommand(QuerySession session, String command)
     {
         Object ret = null;
+        String lower = command.toLowerCase();
 
-        try (Statement st = this.db.getConnection().createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY))
+        try
+        {
+            if (lower.equals("commit"))
+            {
+                session.commit();
+                ret = Style.apply("Comitted transaction.", "lime");
+            }
+            else if (lower.equals("rollback"))
+            {
+                session.rollback();
+                ret = Style.apply("Rolled transaction back.", "lime");
+            }
+            else if (lower.startsWith("rollback to "))
+            {
+                String name = command.substring("rollback to ".length()).trim();
+                session.rollbackTo(name);
+                ret = Style.apply("Rolled transaction back to savepoint " + name + ".", "lime");
+            }
+            else if (lower.startsWith("savepoint "))
+            {
+                String name = command.substring("savepoint ".length()).trim();
+                session.setSavepoint(name);
+                ret = Style.apply("Set savepoint " + name + ".", "lime");
+            }
+            else if (lower.startsWith("release "))
+            {
+                String name = command.substring("release ".length()).trim();
+                session.releaseSavepoint(name);
+                ret = Style.apply("Released savepoint " + name + ".", "lime");
+            }
+        }
+        catch (SQLException e)
         {
-            boolean hasResultSet = st.execute(sql);
-            int updateCount = st.getUpdateCount();
+            Log.error("Failed to execute session command", e);
+            ret = e;
+        }
+
+        return ret;
+    }
+
+    private Object executeStreamCommand(QuerySession session, String command)
+    {
+        Object ret = null;
 
-            if (hasResultSet)
+        try
+        {
+            if (command.equalsIgnoreCase("next"))
             {
-                ret = new SqlResultSet(st.getResultSet());
+                ret = session.nextChunk();
             }
-            else if (updateCount >= 0)
+            else if (command.equalsIgnoreCase("cancel"))
             {
-                ret = Style.apply("Updated " + updateCount + " rows.", "lime");
+                ret = session.cancelStream();
             }
             else
             {
-                ret = Style.apply("Executed successfully.", "lime");
+                ret = session.openStream(command.substring("stream ".length()).trim(),
+                                         this.streamChunkSize,
+                                         this.streamMaxChunkBytes,
+                                         this.streamMaxRows);
             }
         }
         catch (SQLException e)
+        {
+            Log.error("Failed to execute stream command", e);
+            ret = e;
+        }
+
+        return ret;
+    }
+
+    private Object executeSql(QuerySession session, String sql)
+    {
+        Object ret = null;
+
+        try
+        {
+            ret = session.run(connection ->
+                {
+                    try (Statement st = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+                    {
+                        boolean hasResultSet = st.execute(sql);
+                        int updateCount = st.getUpdateCount();
+
+                        if (hasResultSet)
+                        {
+                            ResultSet set = st.getResultSet();
+                            int maxRows = (int)Math.min(Integer.MAX_VALUE, this.streamMaxRows);
+
+                            // plain queries are bound by the same limits as streams, larger results have to be streamed
+                            SqlResultSet result = new SqlResultSet(new ArrayList<>()).parse(set,
+                                                                                            maxRows,
+                                                                                            this.streamMaxChunkBytes);
+
+                            if (!set.isClosed() && set.next())
+                            {
+                                // never hand out a silently truncated result
+                                return new SQLException(String.format("The result exceeds the limit of %d rows or %d bytes, use 'stream %s' to read it.",
+                                                                      maxRows,
+                                                                      this.streamMaxChunkBytes,
+                                                                      sql));
+                            }
+
+                            return result;
+                        }
+                        else if (updateCount >= 0)
+                        {
+                            return Style.apply("Updated " + updateCount + " rows.", "lime");
+                        }
+                        else
+                        {
+                            return Style.apply("Executed successfully.", "lime");
+                        }
+                    }
+                });
+        }
+        catch (SQLException e)
         {
             Log.error("Failed to execute Sql", e);
             ret = e;
@@ -197,4 +508,4 @@ public class QueryServer extends Server
 
         return ret;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,377 @@
+package bt.db.server;
+
+import bt.log.Log;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The session of a single {@link QueryClient}, which executes its statements on a dedicated connection from a
+ * {@link SessionPool}.
+ *
+ * <p>
+ * Every session has its own transaction, so a commit or rollback of one client does not affect the work of other
+ * clients, and clients execute their statements concurrently. The connection is acquired on first use and returned to
+ * the pool, after rolling back uncommitted work, once the session is closed or
+ * {@link #closeIfIdle(long) reaped} for being idle. A reaped session acquires a new connection when it is used again.
+ * </p>
+ *
+ * <p>
+ * The connection is {@link bt.db.DatabaseAccess#bindConnection(Connection) bound} to the executing thread while an action
+ * runs and transactions are ended through the database, so that the change events of a session are only journaled once
+ * its transaction is committed.
+ * </p>
+ *
+ * <p>
+ * A session holds at most one open {@link ResultStream}. Opening a new one, rolling back or closing the session closes
+ * the current stream.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class QuerySession
+{
+    /**
+     * An action that is executed on the connection of a session.
+     *
+     * @author &#8904
+     */
+    @FunctionalInterface
+    public interface SessionAction<R>
+    {
+        R apply(Connection connection) throws SQLException;
+    }
+
+    private SessionPool pool;
+    private volatile Connection connection;
+    private Map<String, Savepoint> savepoints;
+    private ResultStream stream;
+    private ReentrantLock lock;
+    private volatile long lastUsed;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param pool The pool to acquire the connection from.
+     */
+    public QuerySession(SessionPool pool)
+    {
+        this.pool = pool;
+        this.savepoints = new HashMap<>();
+        this.lock = new ReentrantLock();
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Executes the given action on the connection of this session. Actions of the same session are executed one after
+     * another.
+     *
+     * @param action The action to execute.
+     *
+     * @return The result of the action.
+     *
+     * @throws SQLException If no connection could be acquired or the action failed.
+     */
+    public <R> R run(SessionAction<R> action) throws SQLException
+    {
+        this.lock.lock();
+        this.pool.getDatabase().beginChangeCapture();
+
+        try
+        {
+            if (this.connection == null)
+            {
+                this.connection = this.pool.acquire();
+            }
+
+            this.pool.getDatabase().bindConnection(this.connection);
+            return action.apply(this.connection);
+        }
+        finally
+        {
+            this.pool.getDatabase().unbindConnection();
+            this.pool.getDatabase().endChangeCapture();
+            this.lastUsed = System.currentTimeMillis();
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Commits the transaction of this session.
+     *
+     * @throws SQLException
+     */
+    public void commit() throws SQLException
+    {
+        run(connection ->
+            {
+                this.pool.getDatabase().commitTransaction();
+                this.savepoints.clear();
+                return null;
+            });
+    }
+
+    /**
+     * Rolls the transaction of this session back.
+     *
+     * @throws SQLException
+     */
+    public void rollback() throws SQLException
+    {
+        run(connection ->
+            {
+                closeStream();
+                this.pool.getDatabase().rollbackTransaction();
+                this.savepoints.clear();
+                return null;
+            });
+    }
+
+    /**
+     * Sets a savepoint with the given name in the current transaction of this session. An existing savepoint with the
+     * same name is replaced.
+     *
+     * @param name The name of the savepoint.
+     *
+     * @throws SQLException
+     */
+    public void setSavepoint(String name) throws SQLException
+    {
+        run(connection ->
+            {
+                Savepoint previous = this.savepoints.remove(name);
+
+                if (previous != null)
+                {
+                    connection.releaseSavepoint(previous);
+                }
+
+                this.savepoints.put(name,
+                                    this.pool.getDatabase().createSavepoint(name));
+                return null;
+            });
+    }
+
+    /**
+     * Rolls the current transaction of this session back to the savepoint with the given name.
+     *
+     * @param name The name of the savepoint.
+     *
+     * @throws SQLException If the savepoint does not exist.
+     */
+    public void rollbackTo(String name) throws SQLException
+    {
+        run(connection ->
+            {
+                this.pool.getDatabase().rollbackTransaction(getSavepoint(name));
+                return null;
+            });
+    }
+
+    /**
+     * Releases the savepoint with the given name.
+     *
+     * @param name The name of the savepoint.
+     *
+     * @throws SQLException If the savepoint does not exist.
+     */
+    public void releaseSavepoint(String name) throws SQLException
+    {
+        run(connection ->
+            {
+                connection.releaseSavepoint(getSavepoint(name));
+                this.savepoints.remove(name);
+                return null;
+            });
+    }
+
+    /**
+     * Executes the given query and opens a stream for its result. A stream that is still open is closed.
+     *
+     * @param sql           The query.
+     * @param chunkSize     The maximum number of rows per chunk.
+     * @param maxChunkBytes The maximum estimated size of a chunk in bytes.
+     * @param maxRows       The maximum number of rows that are streamed for the query.
+     *
+     * @return The header of the new stream.
+     *
+     * @throws SQLException If the query could not be executed.
+     */
+    public ResultHeader openStream(String sql, int chunkSize, long maxChunkBytes, long maxRows) throws SQLException
+    {
+        return run(connection ->
+            {
+                closeStream();
+                this.stream = new ResultStream(connection,
+                                               sql,
+                                               chunkSize,
+                                               maxChunkBytes,
+                                               maxRows);
+                return this.stream.getHeader();
+            });
+    }
+
+    /**
+     * Reads the next chunk of the open stream.
+     *
+     * @return The next {@link ResultChunk} or the {@link ResultEnd} of the stream, after which the stream is discarded.
+     *
+     * @throws SQLException If no stream is open or the rows could not be read.
+     */
+    public Object nextChunk() throws SQLException
+    {
+        return run(connection ->
+            {
+                ResultStream current = getStream();
+
+                try
+                {
+                    Object next = current.next();
+
+                    if (next instanceof ResultEnd)
+                    {
+                        this.stream = null;
+                    }
+
+                    return next;
+                }
+                catch (SQLException e)
+                {
+                    this.stream = null;
+                    throw e;
+                }
+            });
+    }
+
+    /**
+     * Cancels the open stream.
+     *
+     * @return The {@link ResultEnd} of the stream.
+     *
+     * @throws SQLException If no stream is open.
+     */
+    public ResultEnd cancelStream() throws SQLException
+    {
+        return run(connection ->
+            {
+                ResultEnd end = getStream().cancel();
+                this.stream = null;
+                return end;
+            });
+    }
+
+    private ResultStream getStream() throws SQLException
+    {
+        if (this.stream == null)
+        {
+            throw new SQLException("There is no open result stream.");
+        }
+
+        return this.stream;
+    }
+
+    private void closeStream()
+    {
+        if (this.stream != null)
+        {
+            this.stream.close();
+            this.stream = null;
+        }
+    }
+
+    private Savepoint getSavepoint(String name) throws SQLException
+    {
+        Savepoint savepoint = this.savepoints.get(name);
+
+        if (savepoint == null)
+        {
+            throw new SQLException("Unknown savepoint " + name + ".");
+        }
+
+        return savepoint;
+    }
+
+    /**
+     * Returns the connection of this session to the pool if the session was not used for the given time. Uncommitted
+     * work is rolled back. Sessions that are currently executing are never reaped.
+     *
+     * @param idleTimeout The time in milliseconds.
+     *
+     * @return true if the connection was returned.
+     */
+    public boolean closeIfIdle(long idleTimeout)
+    {
+        if (this.connection == null || System.currentTimeMillis() - this.lastUsed < idleTimeout || !this.lock.tryLock())
+        {
+            return false;
+        }
+
+        try
+        {
+            if (this.connection == null || System.currentTimeMillis() - this.lastUsed < idleTimeout)
+            {
+                return false;
+            }
+
+            Log.debug("Closing idle query session.");
+            releaseConnection();
+            return true;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Rolls back uncommitted work and returns the connection of this session to the pool.
+     */
+    public void close()
+    {
+        this.lock.lock();
+
+        try
+        {
+            releaseConnection();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    private void releaseConnection()
+    {
+        if (this.connection != null)
+        {
+            closeStream();
+            this.savepoints.clear();
+            this.pool.release(this.connection);
+            this.connection = null;
+        }
+    }
+
+    /**
+     * Indicates whether this session currently holds a connection.
+     *
+     * @return true if a connection is held.
+     */
+    public boolean isActive()
+    {
+        return this.connection != null;
+    }
+
+    /**
+     * Gets the time at which this session was last used.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getLastUsed()
+    {
+        return this.lastUsed;
+    }
+}
@@ -0,0 +1,78 @@
+package bt.db.server;
+
+import bt.db.statement.result.SqlResultSet;
+
+import java.io.Serializable;
+
+/**
+ * A chunk of rows of a streamed query result.
+ *
+ * @author &#8904
+ */
+public class ResultChunk implements Serializable
+{
+    private int index;
+    private long offset;
+    private SqlResultSet rows;
+    private boolean last;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param index  The zero based index of this chunk.
+     * @param offset The number of rows that were streamed before this chunk.
+     * @param rows   The rows of this chunk.
+     * @param last   true if no further chunks follow.
+     */
+    public ResultChunk(int index, long offset, SqlResultSet rows, boolean last)
+    {
+        this.index = index;
+        this.offset = offset;
+        this.rows = rows;
+        this.last = last;
+    }
+
+    /**
+     * @return the index
+     */
+    public int getIndex()
+    {
+        return this.index;
+    }
+
+    /**
+     * @return the offset
+     */
+    public long getOffset()
+    {
+        return this.offset;
+    }
+
+    /**
+     * @return the rows
+     */
+    public SqlResultSet getRows()
+    {
+        return this.rows;
+    }
+
+    /**
+     * Indicates whether this is the last chunk of the result. The stream is already closed on the server once the last
+     * chunk was sent, requesting the next chunk returns the {@link ResultEnd}.
+     *
+     * @return true if no further chunks follow.
+     */
+    public boolean isLast()
+    {
+        return this.last;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return this.rows.toString();
+    }
+}
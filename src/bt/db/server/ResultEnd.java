@@ -0,0 +1,88 @@
+package bt.db.server;
+
+import java.io.Serializable;
+
+/**
+ * The terminating message of a streamed query result.
+ *
+ * @author &#8904
+ */
+public class ResultEnd implements Serializable
+{
+    /**
+     * The reason why a stream ended.
+     *
+     * @author &#8904
+     */
+    public enum Reason
+    {
+        /**
+         * All rows of the result were streamed.
+         */
+        COMPLETE,
+
+        /**
+         * The client cancelled the stream.
+         */
+        CANCELLED,
+
+        /**
+         * The result had more rows than the server allows per query.
+         */
+        ROW_LIMIT
+    }
+
+    private Reason reason;
+    private long rowCount;
+    private int chunkCount;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param reason     The reason why the stream ended.
+     * @param rowCount   The number of streamed rows.
+     * @param chunkCount The number of streamed chunks.
+     */
+    public ResultEnd(Reason reason, long rowCount, int chunkCount)
+    {
+        this.reason = reason;
+        this.rowCount = rowCount;
+        this.chunkCount = chunkCount;
+    }
+
+    /**
+     * @return the reason
+     */
+    public Reason getReason()
+    {
+        return this.reason;
+    }
+
+    /**
+     * @return the rowCount
+     */
+    public long getRowCount()
+    {
+        return this.rowCount;
+    }
+
+    /**
+     * @return the chunkCount
+     */
+    public int getChunkCount()
+    {
+        return this.chunkCount;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("Stream ended (%s) after %d rows in %d chunks.",
+                             this.reason,
+                             this.rowCount,
+                             this.chunkCount);
+    }
+}
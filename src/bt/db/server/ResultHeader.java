@@ -0,0 +1,89 @@
+package bt.db.server;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The first message of a streamed query result, which describes the columns of the {@link ResultChunk}s that follow.
+ *
+ * @author &#8904
+ */
+public class ResultHeader implements Serializable
+{
+    private String sql;
+    private List<String> columns;
+    private Map<String, String> columnTypes;
+    private int chunkSize;
+    private long maxRows;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param sql         The streamed query.
+     * @param columns     The names of the columns in left to right order.
+     * @param columnTypes The sql types of the columns mapped by their names.
+     * @param chunkSize   The maximum number of rows per chunk.
+     * @param maxRows     The maximum number of rows that are streamed for the query.
+     */
+    public ResultHeader(String sql, List<String> columns, Map<String, String> columnTypes, int chunkSize, long maxRows)
+    {
+        this.sql = sql;
+        this.columns = columns;
+        this.columnTypes = columnTypes;
+        this.chunkSize = chunkSize;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * @return the sql
+     */
+    public String getSql()
+    {
+        return this.sql;
+    }
+
+    /**
+     * @return the columns
+     */
+    public List<String> getColumns()
+    {
+        return this.columns;
+    }
+
+    /**
+     * @return the columnTypes
+     */
+    public Map<String, String> getColumnTypes()
+    {
+        return this.columnTypes;
+    }
+
+    /**
+     * @return the chunkSize
+     */
+    public int getChunkSize()
+    {
+        return this.chunkSize;
+    }
+
+    /**
+     * @return the maxRows
+     */
+    public long getMaxRows()
+    {
+        return this.maxRows;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("Streaming %d columns %s in chunks of up to %d rows. Send 'next' for the next chunk or 'cancel' to stop.",
+                             this.columns.size(),
+                             this.columns,
+                             this.chunkSize);
+    }
+}
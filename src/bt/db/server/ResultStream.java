@@ -0,0 +1,248 @@
+package bt.db.server;
+
+import bt.db.constants.SqlType;
+import bt.db.server.ResultEnd.Reason;
+import bt.db.statement.result.SqlResult;
+import bt.db.statement.result.SqlResultSet;
+import bt.log.Log;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An open query whichs rows are read forward only and sent to a client in chunks on request.
+ *
+ * <p>
+ * Only the rows of the current chunk are held in memory. A chunk ends after the configured number of rows or once its
+ * {@link bt.db.statement.result.SqlResult#getEstimatedSize() estimated size} reaches the configured number of bytes,
+ * whichever comes first. The stream ends once all rows were read, the row limit of the query was reached or the client
+ * cancelled it. Its statement is closed as soon as it ended.
+ * </p>
+ *
+ * <p>
+ * One row is read ahead of every chunk, so that the chunk that contains the last row is marked as the last one and a
+ * result that has exactly the maximum number of rows ends as {@link Reason#COMPLETE COMPLETE}.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class ResultStream
+{
+    private String sql;
+    private Statement statement;
+    private ResultSet set;
+    private int chunkSize;
+    private long maxChunkBytes;
+    private long maxRows;
+    private ResultHeader header;
+    private ResultEnd end;
+
+    /**
+     * The row that was read ahead of the previous chunk, null if there is none.
+     */
+    private SqlResult ahead;
+    private long rowCount;
+    private int chunkCount;
+
+    /**
+     * Executes the given query and creates a new instance to stream its result.
+     *
+     * @param connection    The connection to execute the query on.
+     * @param sql           The query.
+     * @param chunkSize     The maximum number of rows per chunk.
+     * @param maxChunkBytes The maximum estimated size of a chunk in bytes.
+     * @param maxRows       The maximum number of rows that are streamed before the stream is ended.
+     *
+     * @throws SQLException If the query could not be executed.
+     */
+    public ResultStream(Connection connection, String sql, int chunkSize, long maxChunkBytes, long maxRows) throws SQLException
+    {
+        if (chunkSize <= 0 || maxChunkBytes <= 0 || maxRows <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size, maximum chunk bytes and maximum rows must be greater than 0.");
+        }
+
+        this.sql = sql;
+        this.chunkSize = chunkSize;
+        this.maxChunkBytes = maxChunkBytes;
+        this.maxRows = maxRows;
+
+        this.statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+        try
+        {
+            this.statement.setFetchSize(chunkSize);
+            this.set = this.statement.executeQuery(sql);
+            this.header = createHeader();
+        }
+        catch (SQLException e)
+        {
+            this.statement.close();
+            throw e;
+        }
+    }
+
+    private ResultHeader createHeader() throws SQLException
+    {
+        ResultSetMetaData meta = this.set.getMetaData();
+        List<String> columns = new ArrayList<>();
+        Map<String, String> columnTypes = new HashMap<>();
+
+        for (int i = 1; i <= meta.getColumnCount(); i++)
+        {
+            String columnName = meta.getColumnName(i).toUpperCase();
+            columns.add(columnName);
+            columnTypes.put(columnName,
+                            SqlType.convert(meta.getColumnType(i)).toString());
+        }
+
+        return new ResultHeader(this.sql,
+                                columns,
+                                columnTypes,
+                                this.chunkSize,
+                                this.maxRows);
+    }
+
+    /**
+     * Gets the header that describes the columns of this stream.
+     *
+     * @return The header.
+     */
+    public ResultHeader getHeader()
+    {
+        return this.header;
+    }
+
+    /**
+     * Reads the next chunk of rows.
+     *
+     * @return The next {@link ResultChunk} or the {@link ResultEnd} if the last chunk was already read.
+     *
+     * @throws SQLException If the rows could not be read. The stream is closed in that case.
+     */
+    public Object next() throws SQLException
+    {
+        if (this.end != null)
+        {
+            return this.end;
+        }
+
+        try
+        {
+            int rows = (int)Math.min(this.chunkSize, this.maxRows - this.rowCount);
+            long bytes = this.maxChunkBytes;
+            List<SqlResult> results = new ArrayList<>();
+
+            if (this.ahead != null)
+            {
+                results.add(this.ahead);
+                rows --;
+                bytes -= this.ahead.getEstimatedSize();
+                this.ahead = null;
+            }
+
+            SqlResultSet chunkRows = new SqlResultSet(new ArrayList<>()).parse(this.set, rows, Math.max(0, bytes));
+            chunkRows.forEach(results::add);
+            chunkRows.setResults(results);
+
+            if (!this.set.isClosed())
+            {
+                // tells whether there are more rows, the read row is sent with the next chunk
+                SqlResultSet next = new SqlResultSet(new ArrayList<>()).parse(this.set, 1, Long.MAX_VALUE);
+                this.ahead = next.size() > 0 ? next.get(0) : null;
+            }
+
+            int index = this.chunkCount;
+            long offset = this.rowCount;
+
+            this.rowCount += chunkRows.size();
+            this.chunkCount ++;
+
+            if (this.ahead == null)
+            {
+                finish(Reason.COMPLETE);
+            }
+            else if (this.rowCount >= this.maxRows)
+            {
+                Log.debug("Ending result stream after reaching the limit of " + this.maxRows + " rows.");
+                finish(Reason.ROW_LIMIT);
+            }
+
+            return new ResultChunk(index,
+                                   offset,
+                                   chunkRows,
+                                   this.end != null);
+        }
+        catch (SQLException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels this stream.
+     *
+     * @return The {@link ResultEnd} of this stream. Its reason is {@link Reason#CANCELLED CANCELLED} unless the stream
+     *         had already ended.
+     */
+    public ResultEnd cancel()
+    {
+        if (this.end == null)
+        {
+            finish(Reason.CANCELLED);
+        }
+
+        return this.end;
+    }
+
+    private void finish(Reason reason)
+    {
+        this.end = new ResultEnd(reason,
+                                 this.rowCount,
+                                 this.chunkCount);
+        close();
+    }
+
+    /**
+     * Closes the statement of this stream.
+     */
+    public void close()
+    {
+        try
+        {
+            this.statement.close();
+        }
+        catch (SQLException e)
+        {
+            Log.error("Failed to close result stream", e);
+        }
+    }
+
+    /**
+     * Indicates whether this stream has ended.
+     *
+     * @return true if no further chunks can be read.
+     */
+    public boolean isEnded()
+    {
+        return this.end != null;
+    }
+
+    /**
+     * Gets the number of rows that were streamed so far.
+     *
+     * @return The count.
+     */
+    public long getRowCount()
+    {
+        return this.rowCount;
+    }
+}
@@ -0,0 +1,242 @@
+package bt.db.server;
+
+import bt.db.DatabaseAccess;
+import bt.log.Log;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A pool of connections for the {@link QuerySession}s of a {@link QueryServer}.
+ *
+ * <p>
+ * Connections are opened via {@link DatabaseAccess#openConnection()}, so every session has its own transaction
+ * besides the shared connection of the database. Released connections are rolled back and kept for reuse up to the
+ * maximum number of idle connections, further ones are closed. Acquiring a connection fails while the maximum number
+ * of open connections is reached.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class SessionPool
+{
+    private DatabaseAccess db;
+    private int maxIdle;
+    private int maxOpen;
+    private Deque<Connection> idle;
+    private int open;
+    private boolean closed;
+
+    /**
+     * Creates a new instance that keeps at most 100 connections open.
+     *
+     * @param db      The database to open connections to.
+     * @param maxIdle The maximum number of idle connections that are kept for reuse.
+     */
+    public SessionPool(DatabaseAccess db, int maxIdle)
+    {
+        this(db,
+             maxIdle,
+             100);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param db      The database to open connections to.
+     * @param maxIdle The maximum number of idle connections that are kept for reuse.
+     * @param maxOpen The maximum number of open connections, including idle ones.
+     */
+    public SessionPool(DatabaseAccess db, int maxIdle, int maxOpen)
+    {
+        if (maxOpen <= 0)
+        {
+            throw new IllegalArgumentException("Maximum open connections must be greater than 0.");
+        }
+
+        this.db = db;
+        this.maxIdle = maxIdle;
+        this.maxOpen = maxOpen;
+        this.idle = new ArrayDeque<>();
+    }
+
+    /**
+     * @return The database that connections of this pool are opened to.
+     */
+    public DatabaseAccess getDatabase()
+    {
+        return this.db;
+    }
+
+    /**
+     * Gets an idle connection or opens a new one.
+     *
+     * @return The connection. Auto commit is turned off.
+     *
+     * @throws SQLException If the pool was closed, the maximum number of open connections is reached or a new connection
+     *                      can not be opened.
+     */
+    public Connection acquire() throws SQLException
+    {
+        synchronized (this)
+        {
+            if (this.closed)
+            {
+                throw new SQLException("The session pool was closed.");
+            }
+
+            while (!this.idle.isEmpty())
+            {
+                Connection connection = this.idle.pop();
+
+                if (!connection.isClosed())
+                {
+                    return connection;
+                }
+
+                this.open --;
+            }
+
+            if (this.open >= this.maxOpen)
+            {
+                throw new SQLException("All " + this.maxOpen + " session connections are in use.");
+            }
+
+            this.open ++;
+        }
+
+        try
+        {
+            return this.db.openConnection();
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            synchronized (this)
+            {
+                this.open --;
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Rolls back the uncommitted work of the given connection and returns it to the pool.
+     *
+     * @param connection The connection that was acquired from this pool.
+     */
+    public void release(Connection connection)
+    {
+        boolean keep;
+
+        this.db.bindConnection(connection);
+
+        try
+        {
+            // through the database, so that the change events that are staged for the journal are discarded
+            this.db.rollbackTransaction();
+            connection.setAutoCommit(false);
+            keep = !connection.isClosed();
+        }
+        catch (SQLException e)
+        {
+            Log.error("Failed to reset session connection", e);
+            keep = false;
+        }
+        finally
+        {
+            this.db.unbindConnection();
+        }
+
+        synchronized (this)
+        {
+            if (keep && !this.closed && this.idle.size() < this.maxIdle)
+            {
+                this.idle.push(connection);
+                return;
+            }
+
+            this.open --;
+        }
+
+        close(connection);
+    }
+
+    /**
+     * Closes all idle connections. Connections that are released afterwards are closed as well.
+     */
+    public void close()
+    {
+        Deque<Connection> connections;
+
+        synchronized (this)
+        {
+            this.closed = true;
+            connections = new ArrayDeque<>(this.idle);
+            this.open -= this.idle.size();
+            this.idle.clear();
+        }
+
+        connections.forEach(this::close);
+    }
+
+    private void close(Connection connection)
+    {
+        try
+        {
+            connection.close();
+        }
+        catch (SQLException e)
+        {
+            Log.error("Failed to close session connection", e);
+        }
+    }
+
+    /**
+     * Gets the number of connections that were opened by this pool and not closed yet, including idle ones.
+     *
+     * @return The count.
+     */
+    public synchronized int getOpenCount()
+    {
+        return this.open;
+    }
+
+    /**
+     * Sets the maximum number of open connections, including idle ones. Connections that are already open are not
+     * closed if there are more.
+     *
+     * @param maxOpen
+     */
+    public synchronized void setMaxOpen(int maxOpen)
+    {
+        if (maxOpen <= 0)
+        {
+            throw new IllegalArgumentException("Maximum open connections must be greater than 0.");
+        }
+
+        this.maxOpen = maxOpen;
+    }
+
+    /**
+     * Gets the maximum number of open connections, including idle ones.
+     *
+     * @return The maximum.
+     */
+    public synchronized int getMaxOpen()
+    {
+        return this.maxOpen;
+    }
+
+    /**
+     * Gets the number of idle connections.
+     *
+     * @return The count.
+     */
+    public synchronized int getIdleCount()
+    {
+        return this.idle.size();
+    }
+}
@@ -15,6 +15,7 @@ public class TriggerListener<T extends DatabaseChangeEvent>
     private Consumer<T> triggerConsumer;
     private Class<T> triggerType;
     private ServerClient client;
+    private ClientEventQueue eventQueue;
 
     public TriggerListener(Class<T> triggerType, String tableName, ServerClient client)
     {
@@ -23,11 +24,22 @@ public class TriggerListener<T extends DatabaseChangeEvent>
         this.client = client;
     }
 
+    public TriggerListener(Class<T> triggerType, String tableName, ServerClient client, ClientEventQueue eventQueue)
+    {
+        this(triggerType, tableName, client);
+        this.eventQueue = eventQueue;
+    }
+
     protected void onReceive(T event)
     {
+        if (this.eventQueue != null)
+        {
+            this.eventQueue.offer(event);
+            return;
+        }
+
         try
         {
-            event.setSourceDatabase(null);
             this.client.send(event);
         }
         catch (IOException e)
@@ -86,6 +98,11 @@ public class TriggerListener<T extends DatabaseChangeEvent>
         this.client = client;
     }
 
+    public ClientEventQueue getEventQueue()
+    {
+        return this.eventQueue;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -0,0 +1,24 @@
+package bt.db.statement;
+
+import java.sql.SQLException;
+
+/**
+ * A resource that a statement needs only while it is executed, i.e. rows in a temporary table that the statement
+ * reads from.
+ *
+ * @author &#8904
+ */
+public interface ExecutionResource
+{
+    /**
+     * Called right before the statement is executed.
+     *
+     * @throws SQLException If the resource could not be set up. The statement is not executed in that case.
+     */
+    void acquire() throws SQLException;
+
+    /**
+     * Called after the statement was executed, whether it succeeded or not.
+     */
+    void release();
+}
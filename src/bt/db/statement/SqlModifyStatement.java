@@ -8,6 +8,7 @@ import bt.log.Log;
 import bt.utils.Null;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -523,12 +524,66 @@ public abstract class SqlModifyStatement<T extends SqlModifyStatement, K extends
      */
     public int execute()
     {
+        if (this.db.recordStatement(this))
+        {
+            return 0;
+        }
+
+        if (isRedundant())
+        {
+            Log.debug("Skipping redundant statement: " + toString());
+            return 0;
+        }
+
         startExecutionTime();
-        int result = executeStatement();
+        int result = executeWithResources();
         endExecutionTime();
+        this.db.onStatementExecuted(result,
+                                    this.shouldCommit,
+                                    this.tables);
         return result;
     }
 
+    /**
+     * Sets up the {@link #getExecutionResources() execution resources}, executes the statement and releases them again.
+     *
+     * @return The return value of {@link #executeStatement()} or the result of the fail handling if the resources could
+     *         not be set up.
+     */
+    protected int executeWithResources()
+    {
+        try
+        {
+            acquireExecutionResources();
+        }
+        catch (SQLException e)
+        {
+            return handleFail(new SqlExecutionException(e.getMessage(), toString(), e));
+        }
+
+        this.db.beginChangeCapture();
+
+        try
+        {
+            return executeStatement();
+        }
+        finally
+        {
+            this.db.endChangeCapture();
+            releaseExecutionResources();
+        }
+    }
+
+    /**
+     * Indicates whether the effect of this statement is already in place, so that its execution can be skipped.
+     *
+     * @return true if {@link #execute()} should return 0 without executing this statement.
+     */
+    protected boolean isRedundant()
+    {
+        return false;
+    }
+
     /**
      * Executes the built statement.
      *
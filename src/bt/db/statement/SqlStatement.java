@@ -3,6 +3,7 @@ package bt.db.statement;
 import bt.db.DatabaseAccess;
 import bt.db.statement.clause.condition.ConditionalClause;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -48,6 +49,11 @@ public class SqlStatement<T extends SqlStatement>
      */
     protected boolean prepared = true;
 
+    /**
+     * Resources that are set up right before and released right after every execution of this statement.
+     */
+    protected List<ExecutionResource> executionResources;
+
     protected long executionTime = -1;
 
     private long startTime;
@@ -62,6 +68,7 @@ public class SqlStatement<T extends SqlStatement>
         this.db = db;
         this.whereClauses = new ArrayList<>();
         this.havingClauses = new ArrayList<>();
+        this.executionResources = new ArrayList<>();
         this.tables = new String[] {};
         this.columns = new String[] {};
     }
@@ -130,6 +137,76 @@ public class SqlStatement<T extends SqlStatement>
         this.db = db;
     }
 
+    /**
+     * Gets the {@link DatabaseAccess} instance which is used to execute this statement.
+     *
+     * @return The database that is used for the statement.
+     */
+    public DatabaseAccess getDatabase()
+    {
+        return this.db;
+    }
+
+    /**
+     * Adds a resource that is set up right before and released right after every execution of this statement.
+     *
+     * <p>
+     * Statements that use this statement as a subselect take over its resources.
+     * </p>
+     *
+     * @param resource The resource.
+     */
+    public void addExecutionResource(ExecutionResource resource)
+    {
+        this.executionResources.add(resource);
+    }
+
+    /**
+     * Gets a list with all added execution resources.
+     *
+     * @return The list of resources.
+     */
+    public List<ExecutionResource> getExecutionResources()
+    {
+        return this.executionResources;
+    }
+
+    /**
+     * Sets up all execution resources. If one of them fails, the ones that were already set up are released again.
+     *
+     * @throws SQLException
+     */
+    protected void acquireExecutionResources() throws SQLException
+    {
+        for (int i = 0; i < this.executionResources.size(); i++)
+        {
+            try
+            {
+                this.executionResources.get(i).acquire();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                for (int j = i - 1; j >= 0; j--)
+                {
+                    this.executionResources.get(j).release();
+                }
+
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Releases all execution resources.
+     */
+    protected void releaseExecutionResources()
+    {
+        for (ExecutionResource resource : this.executionResources)
+        {
+            resource.release();
+        }
+    }
+
     protected void startExecutionTime()
     {
         this.startTime = System.currentTimeMillis();
@@ -46,6 +46,16 @@ public class ChainClause implements Preparable
         this.statement = statement;
     }
 
+    /**
+     * Gets the appended statement.
+     *
+     * @return The statement.
+     */
+    public SelectStatement getStatement()
+    {
+        return this.statement;
+    }
+
     /**
      * Creates a formatted chain clause String. The statement will be set to unprepared and appended as String.
      *
@@ -259,6 +259,16 @@ public class Column
         return this;
     }
 
+    /**
+     * Gets the sizes of this column.
+     *
+     * @return The sizes or an empty array if none were set.
+     */
+    public int[] getSize()
+    {
+        return this.size;
+    }
+
     /**
      * Marks this column as primary key for the table.
      *
@@ -33,6 +33,11 @@ public class FromClause implements Preparable
         this.joins.add(join);
     }
 
+    public Object getTable()
+    {
+        return this.table;
+    }
+
     public String getTableName()
     {
         if (this.table instanceof SelectStatement)
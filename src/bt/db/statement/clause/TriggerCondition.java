@@ -0,0 +1,131 @@
+package bt.db.statement.clause;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bt.db.statement.clause.condition.ConditionalClause;
+
+/**
+ * A row condition that is used in the WHEN clause of a trigger.
+ *
+ * <p>
+ * Columns are qualified with the row alias of the trigger (i. e. 'newRow') when the condition is rendered, unless they
+ * already contain a qualifier like 'oldRow.status'. Values are always inserted as plain text, since triggers can not
+ * use prepared values.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class TriggerCondition extends ConditionalClause<TriggerCondition>
+{
+    private List<TriggerCondition> conditionals;
+    private String rowAlias;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param column
+     *            The name of the column that is used in the condition.
+     */
+    public TriggerCondition(String column)
+    {
+        super(null, column, "");
+        this.caller = this;
+        this.conditionals = new ArrayList<>();
+    }
+
+    private TriggerCondition(TriggerCondition caller, String column, String keyword)
+    {
+        super(caller, column, keyword);
+        this.conditionals = new ArrayList<>();
+    }
+
+    /**
+     * Creates a new conditional clause to chain this condition with via an AND link using the given column.
+     *
+     * @param column
+     *            The column to use in this condition.
+     * @return The created SimpleConditionalClause.
+     */
+    public ConditionalClause<TriggerCondition> and(String column)
+    {
+        TriggerCondition clause = new TriggerCondition(this,
+                                                       column,
+                                                       ConditionalClause.AND);
+
+        this.conditionals.add(clause);
+
+        return clause;
+    }
+
+    /**
+     * Creates a new conditional clause to chain this condition with via an OR link using the given column.
+     *
+     * @param column
+     *            The column to use in this condition.
+     * @return The created SimpleConditionalClause.
+     */
+    public ConditionalClause<TriggerCondition> or(String column)
+    {
+        TriggerCondition clause = new TriggerCondition(this,
+                                                       column,
+                                                       ConditionalClause.OR);
+
+        this.conditionals.add(clause);
+
+        return clause;
+    }
+
+    /**
+     * Sets the alias of the trigger row that unqualified columns of this condition refer to.
+     *
+     * @param rowAlias
+     *            The alias, i. e. 'newRow'.
+     */
+    public void setRowAlias(String rowAlias)
+    {
+        this.rowAlias = rowAlias;
+    }
+
+    /**
+     * Gets the names of all columns used in this condition.
+     *
+     * @return The column names.
+     */
+    public List<String> getColumns()
+    {
+        List<String> columns = new ArrayList<>();
+        columns.add(this.column);
+
+        for (var cond : this.conditionals)
+        {
+            columns.add(cond.column);
+        }
+
+        return columns;
+    }
+
+    /**
+     * Forms the SQL for this condition without the surrounding WHEN keyword.
+     *
+     * @see bt.db.statement.clause.condition.ConditionalClause#toString()
+     */
+    @Override
+    public String toString()
+    {
+        String condition = qualified(this).toString(false).trim();
+
+        for (var cond : this.conditionals)
+        {
+            condition += " " + qualified(cond).toString(false);
+        }
+
+        return condition;
+    }
+
+    private TriggerCondition qualified(TriggerCondition condition)
+    {
+        condition.prefix = this.rowAlias == null || condition.column.contains(".") ? "" : this.rowAlias + ".";
+        return condition;
+    }
+}
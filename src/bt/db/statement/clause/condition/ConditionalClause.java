@@ -4,10 +4,13 @@ import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import bt.db.DatabaseAccess;
 import bt.db.constants.SqlType;
 import bt.db.func.SqlFunction;
+import bt.db.statement.SqlStatement;
 import bt.db.statement.clause.ColumnEntry;
 import bt.db.statement.impl.SelectStatement;
 import bt.db.statement.value.Preparable;
@@ -39,6 +42,16 @@ public class ConditionalClause<T> implements Preparable
     protected static final String NOT = "NOT";
     protected static final String EXISTS = "EXISTS";
 
+    /**
+     * The maximum number of values in a single IN list. Larger arrays are split into multiple lists of this size.
+     */
+    public static final int IN_LIST_CHUNK_SIZE = 128;
+
+    /**
+     * The number of integral values above which an IN condition is evaluated through a session temporary table.
+     */
+    public static final int LOOKUP_TABLE_THRESHOLD = 1024;
+
     protected enum ValueType
     {
         BYTE,
@@ -197,18 +210,7 @@ public class ConditionalClause<T> implements Preparable
 
         if (this.valueType.equals(ValueType.ARRAY))
         {
-            String arrayString = " (";
-            Object[] array = (Object[])this.value;
-
-            for (Object obj : array)
-            {
-                arrayString += "?, ";
-            }
-
-            arrayString = arrayString.substring(0, arrayString.length() - 2);
-            arrayString += ")";
-
-            return this.keyword + (this.negateExpression ? " " + NOT + " " : " ") + this.prefix + this.column + " " + this.operator + arrayString + this.postfix;
+            return this.keyword + (this.negateExpression ? " " + NOT + " " : " ") + this.prefix + getArrayString(true) + this.postfix;
         }
 
         if (this.operator.equals(IS_NOT_NULL) || this.operator.equals(IS_NULL))
@@ -256,7 +258,7 @@ public class ConditionalClause<T> implements Preparable
 
         if (this.valueType.equals(ValueType.ARRAY))
         {
-            return this.keyword + (this.negateExpression ? " " + NOT + " " : " ") + this.prefix + this.column + " " + this.operator + " " + SqlType.arrayToString((Object[])this.value) + this.postfix;
+            return this.keyword + (this.negateExpression ? " " + NOT + " " : " ") + this.prefix + getArrayString(false) + this.postfix;
         }
 
         if (this.operator.equals(IS_NOT_NULL) || this.operator.equals(IS_NULL))
@@ -282,6 +284,16 @@ public class ConditionalClause<T> implements Preparable
         return this.keyword;
     }
 
+    /**
+     * Gets the subselect that is used as value of this condition.
+     *
+     * @return The subselect or null if this condition does not use one.
+     */
+    public SelectStatement getSubSelect()
+    {
+        return this.subSelect;
+    }
+
     public boolean isNegated()
     {
         return this.negateExpression;
@@ -295,6 +307,11 @@ public class ConditionalClause<T> implements Preparable
             this.valueType = ValueType.SUBSELECT;
             this.subSelect = (SelectStatement)value;
             this.values.addAll(((SelectStatement)value).getValues());
+
+            if (this.caller instanceof SqlStatement)
+            {
+                ((SqlStatement)this.caller).getExecutionResources().addAll(this.subSelect.getExecutionResources());
+            }
         }
         else if (type.equals(ValueType.COLUMN))
         {
@@ -1115,22 +1132,18 @@ public class ConditionalClause<T> implements Preparable
      * This conditional will then check whether the left side is contained in the values inside the array.
      * </p>
      *
+     * <p>
+     * Large arrays are split into padded IN lists of a fixed size and arrays of integral numbers above
+     * {@link #LOOKUP_TABLE_THRESHOLD} values are looked up through a session temporary table instead.
+     * </p>
+     *
      * @param array
      *            The array to use.
      * @return The caller that created this conditional.
      */
     public T in(Object... array)
     {
-        this.valueType = ValueType.ARRAY;
-        this.operator = IN;
-        this.value = array;
-
-        for (Object obj : array)
-        {
-            this.values.add(new Value(SqlType.convert(obj.getClass()), obj));
-        }
-
-        return this.caller;
+        return setArrayValues(IN, array);
     }
 
     /**
@@ -1159,22 +1172,18 @@ public class ConditionalClause<T> implements Preparable
      * This conditional will then check whether the left side is NOT contained in the values inside the array.
      * </p>
      *
+     * <p>
+     * Large arrays are split into padded IN lists of a fixed size and arrays of integral numbers above
+     * {@link #LOOKUP_TABLE_THRESHOLD} values are looked up through a session temporary table instead.
+     * </p>
+     *
      * @param array
      *            The array to use.
      * @return The caller that created this conditional.
      */
     public T notIn(Object... array)
     {
-        this.valueType = ValueType.ARRAY;
-        this.operator = NOT_IN;
-        this.value = array;
-
-        for (Object obj : array)
-        {
-            this.values.add(new Value(SqlType.convert(obj.getClass()), obj));
-        }
-
-        return this.caller;
+        return setArrayValues(NOT_IN, array);
     }
 
     /**
@@ -1264,6 +1273,130 @@ public class ConditionalClause<T> implements Preparable
         return notIn(list.toArray(), postfix);
     }
 
+    /**
+     * Sets the given array as the right side of this conditional.
+     *
+     * <p>
+     * Arrays of integral numbers with more than {@link #LOOKUP_TABLE_THRESHOLD} values are inserted into a session
+     * temporary table and checked through a subselect, if the caller of this conditional is a statement. All other
+     * arrays are padded by repeating their last value, so that only a small number of distinct sql strings is
+     * produced for differently sized arrays.
+     * </p>
+     *
+     * @param operator
+     *            Either {@link #IN} or {@link #NOT_IN}.
+     * @param array
+     *            The array to use.
+     * @return The caller that created this conditional.
+     */
+    protected T setArrayValues(String operator, Object[] array)
+    {
+        this.operator = operator;
+
+        if (array.length > LOOKUP_TABLE_THRESHOLD && this.caller instanceof SqlStatement && IdLookupTable.isSupported(array))
+        {
+            DatabaseAccess db = ((SqlStatement)this.caller).getDatabase();
+            IdLookupTable lookup = db == null ? null : IdLookupTable.create(db, array);
+
+            if (lookup != null)
+            {
+                ((SqlStatement)this.caller).addExecutionResource(lookup);
+                setValueVariables(lookup.select());
+                return this.caller;
+            }
+        }
+
+        Object[] padded = array;
+
+        if (array.length > 0)
+        {
+            int size = 1;
+
+            while (size < array.length && size < IN_LIST_CHUNK_SIZE)
+            {
+                size *= 2;
+            }
+
+            if (array.length > IN_LIST_CHUNK_SIZE)
+            {
+                size = ((array.length + IN_LIST_CHUNK_SIZE - 1) / IN_LIST_CHUNK_SIZE) * IN_LIST_CHUNK_SIZE;
+            }
+
+            padded = Arrays.copyOf(array, size);
+            Arrays.fill(padded, array.length, size, array[array.length - 1]);
+        }
+
+        this.valueType = ValueType.ARRAY;
+        this.value = padded;
+
+        for (Object obj : padded)
+        {
+            this.values.add(new Value(SqlType.convert(obj.getClass()), obj));
+        }
+
+        return this.caller;
+    }
+
+    /**
+     * Formats the array value of this conditional.
+     *
+     * <p>
+     * Arrays with more than {@link #IN_LIST_CHUNK_SIZE} values are split into multiple IN lists of that size, which are
+     * combined with OR (respectively AND for NOT IN) and wrapped in parenthesis.
+     * </p>
+     *
+     * @param prepared
+     *            true = use ? placeholders, false = insert the values as plain text.
+     * @return The formatted condition without keyword and prefix.
+     */
+    protected String getArrayString(boolean prepared)
+    {
+        Object[] array = (Object[])this.value;
+
+        if (array.length <= IN_LIST_CHUNK_SIZE)
+        {
+            return this.column + " " + this.operator + " " + getArrayChunkString(array, prepared);
+        }
+
+        String link = this.operator.equals(NOT_IN) ? " " + AND + " " : " " + OR + " ";
+        String sql = "(";
+
+        for (int i = 0; i < array.length; i += IN_LIST_CHUNK_SIZE)
+        {
+            Object[] chunk = Arrays.copyOfRange(array, i, Math.min(i + IN_LIST_CHUNK_SIZE, array.length));
+            sql += this.column + " " + this.operator + " " + getArrayChunkString(chunk, prepared) + link;
+        }
+
+        sql = sql.substring(0, sql.length() - link.length());
+        sql += ")";
+
+        return sql;
+    }
+
+    private String getArrayChunkString(Object[] chunk, boolean prepared)
+    {
+        if (!prepared)
+        {
+            return SqlType.arrayToString(chunk);
+        }
+
+        String arrayString = "(";
+
+        for (Object obj : chunk)
+        {
+            arrayString += "?, ";
+        }
+
+        if (chunk.length > 0)
+        {
+            arrayString = arrayString.substring(0, arrayString.length() - 2);
+        }
+
+        arrayString += ")";
+
+        return arrayString;
+    }
+
     public ConditionalClause<T> not()
     {
         this.negateExpression = true;
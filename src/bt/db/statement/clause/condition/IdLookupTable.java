@@ -0,0 +1,203 @@
+package bt.db.statement.clause.condition;
+
+import bt.db.DatabaseAccess;
+import bt.db.constants.SqlType;
+import bt.db.statement.ExecutionResource;
+import bt.db.statement.clause.Column;
+import bt.db.statement.impl.SelectStatement;
+import bt.log.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A set of identities that is looked up through a session temporary table.
+ *
+ * <p>
+ * Instead of rendering thousands of values into an IN list, the condition selects the values with a single prepared
+ * subselect on the temporary table. The values are inserted under a unique lookup key right before the statement is
+ * executed and deleted right after it, so a statement that is built but never executed leaves no rows behind. The table
+ * preserves its rows on commit, so that a commit of another thread on the shared connection between the insert and the
+ * execution does not empty it.
+ * </p>
+ *
+ * @author &#8904
+ */
+final class IdLookupTable implements ExecutionResource
+{
+    /**
+     * The name of the temporary table.
+     */
+    static final String TABLE_NAME = "BT_ID_LOOKUP";
+
+    /**
+     * Holds all connections that the temporary table was already declared on.
+     */
+    private static final Map<Connection, Boolean> declaredConnections = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final AtomicLong lookupKeys = new AtomicLong();
+
+    private DatabaseAccess db;
+    private Object[] values;
+    private long key;
+
+    private IdLookupTable(DatabaseAccess db, Object[] values)
+    {
+        this.db = db;
+        this.values = values;
+        this.key = lookupKeys.incrementAndGet();
+    }
+
+    /**
+     * Declares the temporary table if needed and creates a new lookup for the given identities.
+     *
+     * @param db     The database whichs connection should be used.
+     * @param values The identities. All values must be integral numbers.
+     *
+     * @return The lookup or null if the temporary table could not be declared.
+     */
+    static IdLookupTable create(DatabaseAccess db, Object[] values)
+    {
+        Connection connection = db.getConnection();
+
+        if (connection == null || !declare(db, connection))
+        {
+            return null;
+        }
+
+        return new IdLookupTable(db, values);
+    }
+
+    /**
+     * Creates a select that returns exactly the identities of this lookup while the statement that uses it is executed.
+     *
+     * @return The select.
+     */
+    SelectStatement select()
+    {
+        return this.db.select("lookup_value")
+                      .from("SESSION." + TABLE_NAME)
+                      .where("lookup_key")
+                      .equal(this.key);
+    }
+
+    /**
+     * Inserts the identities into the temporary table.
+     *
+     * @see bt.db.statement.ExecutionResource#acquire()
+     */
+    @Override
+    public void acquire() throws SQLException
+    {
+        try (PreparedStatement statement = this.db.getConnection().prepareStatement("INSERT INTO SESSION." + TABLE_NAME + " (lookup_key, lookup_value) VALUES (?, ?)"))
+        {
+            for (Object value : this.values)
+            {
+                statement.setLong(1, this.key);
+                statement.setLong(2, ((Number)value).longValue());
+                statement.addBatch();
+            }
+
+            statement.executeBatch();
+            Log.debug(String.format("Inserted %d values into lookup table with key %d.", this.values.length, this.key));
+        }
+    }
+
+    /**
+     * Deletes the identities from the temporary table.
+     *
+     * @see bt.db.statement.ExecutionResource#release()
+     */
+    @Override
+    public void release()
+    {
+        try (PreparedStatement statement = this.db.getConnection().prepareStatement("DELETE FROM SESSION." + TABLE_NAME + " WHERE lookup_key = ?"))
+        {
+            statement.setLong(1, this.key);
+            statement.executeUpdate();
+        }
+        catch (SQLException e)
+        {
+            Log.error("Failed to delete values of lookup key " + this.key, e);
+        }
+    }
+
+    /**
+     * Checks whether all given values can be stored in the lookup table.
+     *
+     * @param values The values to check.
+     *
+     * @return true if all values are integral numbers.
+     */
+    static boolean isSupported(Object[] values)
+    {
+        for (Object value : values)
+        {
+            if (!(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean declare(DatabaseAccess db, Connection connection)
+    {
+        if (declaredConnections.containsKey(connection))
+        {
+            return true;
+        }
+
+        int result = db.create()
+                       .temporaryTable(TABLE_NAME)
+                       .column(new Column("lookup_key", SqlType.LONG))
+                       .column(new Column("lookup_value", SqlType.LONG))
+                       .preserve()
+                       .onAlreadyExists((s, e) ->
+                                        {
+                                            return 0;
+                                        })
+                       .onFail((s, e) ->
+                               {
+                                   Log.error("Failed to declare lookup table", e);
+                                   return -1;
+                               })
+                       .execute();
+
+        if (result < 0)
+        {
+            return false;
+        }
+
+        // every lookup selects by its key
+        result = db.create()
+                   .index("SESSION." + TABLE_NAME + "_KEY_IDX")
+                   .on("SESSION." + TABLE_NAME)
+                   .column("lookup_key").asc()
+                   .saveObjectData(false)
+                   .onAlreadyExists((s, e) ->
+                                    {
+                                        return 0;
+                                    })
+                   .onFail((s, e) ->
+                           {
+                               Log.error("Failed to index lookup table", e);
+                               return -1;
+                           })
+                   .execute();
+
+        if (result < 0)
+        {
+            return false;
+        }
+
+        declaredConnections.put(connection, Boolean.TRUE);
+        return true;
+    }
+}
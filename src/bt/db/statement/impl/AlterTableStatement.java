@@ -1,6 +1,7 @@
 package bt.db.statement.impl;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.CatalogCache.ObjectType;
 import bt.db.constants.SqlType;
 import bt.db.constants.SqlValue;
 import bt.db.exc.SqlExecutionException;
@@ -64,6 +65,26 @@ public class AlterTableStatement extends CreateStatement<AlterTableStatement, Al
         return this;
     }
 
+    /**
+     * Alter statements do not create a new object, so {@link #ifNotExists()} has no effect on them.
+     *
+     * @see bt.db.statement.impl.CreateStatement#getObjectType()
+     */
+    @Override
+    protected ObjectType getObjectType()
+    {
+        return null;
+    }
+
+    /**
+     * @see bt.db.statement.impl.CreateStatement#getAffectedTable()
+     */
+    @Override
+    protected String getAffectedTable()
+    {
+        return this.name;
+    }
+
     /**
      * @see bt.db.statement.SqlModifyStatement#execute()
      */
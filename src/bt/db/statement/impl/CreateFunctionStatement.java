@@ -1,6 +1,7 @@
 package bt.db.statement.impl;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.CatalogCache.ObjectType;
 import bt.db.constants.SqlState;
 import bt.db.constants.SqlType;
 import bt.db.exc.SqlExecutionException;
@@ -104,6 +105,15 @@ public class CreateFunctionStatement extends CreateStatement<CreateFunctionState
         return this;
     }
 
+    /**
+     * @see bt.db.statement.impl.CreateStatement#getObjectType()
+     */
+    @Override
+    protected ObjectType getObjectType()
+    {
+        return ObjectType.FUNCTION;
+    }
+
     /**
      * @see bt.db.statement.SqlModifyStatement#executeStatement()
      */
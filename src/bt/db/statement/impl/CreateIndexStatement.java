@@ -1,6 +1,7 @@
 package bt.db.statement.impl;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.CatalogCache.ObjectType;
 import bt.db.exc.SqlExecutionException;
 import bt.db.func.Sql;
 import bt.db.statement.clause.IndexColumnClause;
@@ -55,6 +56,15 @@ public class CreateIndexStatement extends CreateStatement<CreateIndexStatement,
         return this;
     }
 
+    /**
+     * @see bt.db.statement.impl.CreateStatement#getObjectType()
+     */
+    @Override
+    protected ObjectType getObjectType()
+    {
+        return ObjectType.INDEX;
+    }
+
     /**
      * @see bt.db.statement.SqlModifyStatement#executeStatement()
      */
@@ -3,6 +3,7 @@ package bt.db.statement.impl;
 import java.util.function.BiFunction;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.CatalogCache.ObjectType;
 import bt.db.exc.SqlExecutionException;
 import bt.db.statement.SqlModifyStatement;
 
@@ -21,6 +22,8 @@ public abstract class CreateStatement<T extends CreateStatement, K extends Creat
 
     protected boolean saveObjectData = true;
 
+    protected boolean ifNotExists;
+
     /**
      * Creates a new instance and initializes the fields.
      *
@@ -78,6 +81,72 @@ public abstract class CreateStatement<T extends CreateStatement, K extends Creat
         return (T)this;
     }
 
+    /**
+     * Skips this statement if an object of the same type and name already exists.
+     *
+     * <p>
+     * The existence is checked against the cached {@link bt.db.cache.CatalogCache catalog snapshot} of the database
+     * instead of executing the DDL and catching the resulting exception. If the object exists, {@link #execute()}
+     * returns 0 without calling any of the defined handlers. This has no effect on statements that are marked for
+     * {@link #replace() replacement} or on objects that are not contained in the system catalogs, such as temporary
+     * tables.
+     * </p>
+     *
+     * @return This instance for chaining.
+     */
+    public T ifNotExists()
+    {
+        this.ifNotExists = true;
+        return (T)this;
+    }
+
+    /**
+     * Gets the type of the created object in the catalog snapshot.
+     *
+     * @return The type or null if objects of this kind are not contained in the system catalogs.
+     */
+    protected abstract ObjectType getObjectType();
+
+    /**
+     * Gets the table whichs metadata is changed by this statement.
+     *
+     * <p>
+     * By default this is the first table that this statement is defined on, i. e. the table of a trigger or index.
+     * </p>
+     *
+     * @return The name of the table or null if this statement does not change a table.
+     */
+    protected String getAffectedTable()
+    {
+        return this.tables != null && this.tables.length > 0 ? this.tables[0] : null;
+    }
+
+    /**
+     * @see bt.db.statement.SqlModifyStatement#isRedundant()
+     */
+    @Override
+    protected boolean isRedundant()
+    {
+        return this.ifNotExists && !this.replace && this.db.getCatalogCache().exists(getObjectType(), this.name);
+    }
+
+    /**
+     * @see bt.db.statement.SqlModifyStatement#execute()
+     */
+    @Override
+    public int execute()
+    {
+        int result = super.execute();
+
+        if (result > 0)
+        {
+            this.db.getCatalogCache().created(getObjectType(), this.name);
+            this.db.getSchemaCache().invalidate(getAffectedTable());
+        }
+
+        return result;
+    }
+
     /**
      * Marks this statement for replacement.
      *
@@ -3,12 +3,14 @@ package bt.db.statement.impl;
 import bt.db.DatabaseAccess;
 import bt.db.EmbeddedDatabase;
 import bt.db.RemoteDatabase;
+import bt.db.cache.CatalogCache.ObjectType;
 import bt.db.constants.Generated;
 import bt.db.constants.Index;
 import bt.db.constants.SqlState;
 import bt.db.constants.SqlType;
 import bt.db.exc.SqlExecutionException;
 import bt.db.func.Sql;
+import bt.db.listener.RowPayload;
 import bt.db.statement.clause.Check;
 import bt.db.statement.clause.Column;
 import bt.db.statement.clause.ColumnEntry;
@@ -20,7 +22,10 @@ import bt.utils.StringID;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents an SQL create table statement which can be extended through method chaining.
@@ -49,6 +54,21 @@ public class CreateTableStatement extends CreateStatement<CreateTableStatement,
      */
     private boolean createDefaultUpdateTrigger = true;
 
+    /**
+     * Indicates whether the default triggers should fire one batched event per statement instead of one event per row.
+     */
+    private boolean batchTriggers;
+
+    /**
+     * Indicates whether the default triggers should only be created while listeners are registered for them.
+     */
+    private boolean lazyTriggers;
+
+    /**
+     * The columns whichs values are captured by the default row triggers.
+     */
+    private String[] payloadColumns;
+
     /**
      * The identity field used for the default triggers.
      */
@@ -92,6 +112,7 @@ public class CreateTableStatement extends CreateStatement<CreateTableStatement,
         this.statementKeyword = "CREATE TABLE";
         this.tableColumns = new ArrayList<>();
         this.foreignKeys = new ArrayList<>();
+        this.lazyTriggers = db.isLazyTriggers();
     }
 
     /**
@@ -248,6 +269,155 @@ public class CreateTableStatement extends CreateStatement<CreateTableStatement,
         return this;
     }
 
+    /**
+     * Indicates whether the default triggers should fire one batched event per statement instead of one event per row.
+     *
+     * <p>
+     * A statement that changes multiple rows of a table with batched triggers causes a single
+     * {@link bt.db.listener.evnt.BatchInsertEvent BatchInsertEvent}, {@link bt.db.listener.evnt.BatchUpdateEvent
+     * BatchUpdateEvent} or {@link bt.db.listener.evnt.BatchDeleteEvent BatchDeleteEvent} which carries the identities
+     * of all changed rows. Since these are sub types of the per row events, listeners of the per row events receive them
+     * as well and can access all identities via {@link bt.db.listener.evnt.DatabaseChangeEvent#getIDs() getIDs}.
+     * </p>
+     *
+     * <p>
+     * This setting has no effect if {@link #createDefaultTriggers(boolean)} is set to false.
+     * </p>
+     *
+     * @param batchTriggers
+     *
+     * @return
+     */
+    public CreateTableStatement batchTriggers(boolean batchTriggers)
+    {
+        this.batchTriggers = batchTriggers;
+        return this;
+    }
+
+    /**
+     * Indicates whether the default triggers should only be created while listeners are registered for them.
+     *
+     * <p>
+     * The DDL of lazy triggers is stored in the {@link DatabaseAccess#OBJECT_DATA_TABLE} instead of being executed.
+     * The triggers are created when the first listener for their table and action is registered and dropped when the
+     * last one is unregistered, so writes to tables that nobody listens to do not pay for them. See
+     * {@link bt.db.listener.TriggerProvisioner}. Defaults to {@link DatabaseAccess#isLazyTriggers()}.
+     * </p>
+     *
+     * <p>
+     * This setting has no effect if {@link #createDefaultTriggers(boolean)} is set to false.
+     * </p>
+     *
+     * @param lazyTriggers
+     *
+     * @return
+     */
+    public CreateTableStatement lazyTriggers(boolean lazyTriggers)
+    {
+        this.lazyTriggers = lazyTriggers;
+        return this;
+    }
+
+    /**
+     * Defines the columns whichs values are passed from the default row triggers to the change events.
+     *
+     * <p>
+     * Listeners can read the captured values via {@link bt.db.listener.evnt.DatabaseChangeEvent#getNewRow() getNewRow}
+     * and {@link bt.db.listener.evnt.DatabaseChangeEvent#getOldRow() getOldRow} instead of selecting the changed row
+     * again. Update events carry both the new and the old values. The values are encoded by {@link RowPayload}, so
+     * their combined text form must not exceed {@link RowPayload#MAX_LENGTH} characters and CLOB and BLOB columns are
+     * not supported. The worst case length is calculated from the column types and sizes before the table is created
+     * and the statement is rejected if it is too long.
+     * </p>
+     *
+     * <p>
+     * This setting has no effect on {@link #batchTriggers(boolean) batched triggers} or if
+     * {@link #createDefaultTriggers(boolean)} is set to false.
+     * </p>
+     *
+     * @param columns The names of columns of this table.
+     *
+     * @return
+     */
+    public CreateTableStatement payload(String... columns)
+    {
+        this.payloadColumns = columns;
+        return this;
+    }
+
+    /**
+     * Resolves the types of the {@link #payload(String...) payload columns}.
+     *
+     * @return The payload columns and their types or null if no payload is captured.
+     */
+    private Map<String, SqlType> payloadColumns()
+    {
+        if (this.payloadColumns == null || this.payloadColumns.length == 0)
+        {
+            return null;
+        }
+
+        Map<String, SqlType> columns = new LinkedHashMap<>();
+
+        for (String name : this.payloadColumns)
+        {
+            Column column = this.tableColumns.stream()
+                                             .filter(c -> c.getName().equalsIgnoreCase(name))
+                                             .findAny()
+                                             .orElseThrow(() -> new IllegalArgumentException("Table " + this.name
+                                                     + " has no payload column " + name));
+
+            columns.put(column.getName(),
+                        column.getType());
+        }
+
+        return columns;
+    }
+
+    /**
+     * Checks that the worst case payload of the default row triggers fits into {@link RowPayload#MAX_LENGTH}
+     * characters.
+     *
+     * @throws IllegalArgumentException If the payload columns can exceed the limit.
+     */
+    private void checkPayloadLength()
+    {
+        if (!this.createDefaultTriggers || this.batchTriggers)
+        {
+            return;
+        }
+
+        Map<String, SqlType> columns = payloadColumns();
+
+        if (columns == null)
+        {
+            return;
+        }
+
+        Map<String, Integer> sizes = new HashMap<>();
+
+        for (Column column : this.tableColumns)
+        {
+            if (columns.containsKey(column.getName()) && column.getSize().length > 0)
+            {
+                sizes.put(column.getName(),
+                          column.getSize()[0]);
+            }
+        }
+
+        // update triggers encode the new and the old row
+        int rows = this.createDefaultUpdateTrigger ? 2 : 1;
+        long length = RowPayload.maxLength(columns,
+                                           sizes,
+                                           rows);
+
+        if (length > RowPayload.MAX_LENGTH)
+        {
+            throw new IllegalArgumentException("The payload columns of table " + this.name + " can encode up to "
+                    + length + " characters, the limit is " + RowPayload.MAX_LENGTH + ".");
+        }
+    }
+
     /**
      * Adds a table foreign key.
      *
@@ -281,115 +451,265 @@ public class CreateTableStatement extends CreateStatement<CreateTableStatement,
 
     private void createTriggers()
     {
-        if (this.db instanceof EmbeddedDatabase)
+        if (this.createDefaultDeleteTrigger)
+        {
+            createTriggers("delete");
+        }
+
+        if (this.createDefaultInsertTrigger)
+        {
+            createTriggers("insert");
+        }
+
+        if (this.createDefaultUpdateTrigger)
+        {
+            createTriggers("update");
+        }
+    }
+
+    /**
+     * Creates the default triggers for the given action, or only stores their definition if this table has
+     * {@link #lazyTriggers(boolean) lazy triggers}.
+     *
+     * @param action Either 'insert', 'update' or 'delete'.
+     */
+    private void createTriggers(String action)
+    {
+        Map<String, CreateTriggerStatement> triggers = this.batchTriggers ? batchTriggers(action) : rowTriggers(action);
+
+        if (this.lazyTriggers)
         {
-            if (this.createDefaultDeleteTrigger)
+            Map<String, String> ddls = new LinkedHashMap<>();
+
+            for (var trigger : triggers.entrySet())
             {
-                this.db.create()
-                       .trigger(this.name + "_t_delete")
-                       .after("delete")
-                       .on(this.name)
-                       .oldAs("oldRow")
-                       .forEachRow()
-                       .call("onDelete")
-                       .with(this.db.getInstanceID(),
-                             this.name.toUpperCase(),
-                             this.identity,
-                             new ColumnEntry("oldRow",
-                                             this.identity))
-                       .replace()
-                       .execute();
+                ddls.put(trigger.getKey(),
+                         trigger.getValue().toString());
             }
 
-            if (this.createDefaultInsertTrigger)
+            if (!ddls.isEmpty())
             {
-                this.db.create()
-                       .trigger(this.name + "_t_insert")
-                       .after("insert")
-                       .on(this.name)
-                       .newAs("newRow")
-                       .forEachRow()
-                       .call("onInsert")
+                this.db.getTriggerProvisioner().define(this.name,
+                                                       action,
+                                                       ddls);
+            }
+        }
+        else
+        {
+            for (CreateTriggerStatement trigger : triggers.values())
+            {
+                trigger.execute();
+            }
+        }
+    }
+
+    /**
+     * Prepares the default trigger for the given action which fires one event per changed row.
+     *
+     * @param action Either 'insert', 'update' or 'delete'.
+     *
+     * @return The prepared trigger statement mapped by the name of the trigger.
+     */
+    private Map<String, CreateTriggerStatement> rowTriggers(String action)
+    {
+        Map<String, CreateTriggerStatement> triggers = new LinkedHashMap<>();
+        String triggerName = this.name + "_t_" + action;
+        boolean oldRow = action.equals("delete");
+        String alias = oldRow ? "oldRow" : "newRow";
+        Map<String, SqlType> payloadColumns = payloadColumns();
+        String payload = null;
+
+        var trigger = this.db.create()
+                             .trigger(triggerName)
+                             .after(action)
+                             .on(this.name);
+
+        if (oldRow)
+        {
+            trigger.oldAs(alias);
+        }
+        else
+        {
+            trigger.newAs(alias);
+        }
+
+        if (payloadColumns != null)
+        {
+            if (action.equals("update"))
+            {
+                trigger.oldAs("oldRow");
+                payload = RowPayload.expression(payloadColumns,
+                                                "newRow",
+                                                "oldRow");
+            }
+            else
+            {
+                payload = RowPayload.expression(payloadColumns,
+                                                alias);
+            }
+        }
+
+        if (this.db instanceof EmbeddedDatabase)
+        {
+            if (payload != null)
+            {
+                trigger.forEachRow()
+                       .call("onChange")
                        .with(this.db.getInstanceID(),
+                             action,
                              this.name.toUpperCase(),
                              this.identity,
-                             new ColumnEntry("newRow",
-                                             this.identity))
-                       .replace()
-                       .execute();
+                             new ColumnEntry(alias,
+                                             this.identity),
+                             new ColumnEntry(payload))
+                       .replace();
             }
-
-            if (this.createDefaultUpdateTrigger)
+            else
             {
-                this.db.create()
-                       .trigger(this.name + "_t_update")
-                       .after("update")
-                       .on(this.name)
-                       .newAs("newRow")
-                       .forEachRow()
-                       .call("onUpdate")
+                trigger.forEachRow()
+                       .call("on" + action.substring(0, 1).toUpperCase() + action.substring(1))
                        .with(this.db.getInstanceID(),
                              this.name.toUpperCase(),
                              this.identity,
-                             new ColumnEntry("newRow",
+                             new ColumnEntry(alias,
                                              this.identity))
-                       .replace()
-                       .execute();
+                       .replace();
             }
         }
         else if (this.db instanceof RemoteDatabase)
         {
-            if (this.createDefaultDeleteTrigger)
+            trigger.forEachRow()
+                   .execute(
+                           "INSERT INTO recent_triggers (triggerType, tableName, rowIdFieldName, idRow" + (payload == null ? "" : ", payload")
+                                   + ") values ('" + action + "', '"
+                                   + this.name.toUpperCase() + "', '" + this.identity + "', " + alias + "."
+                                   + this.identity
+                                   + (payload == null ? "" : ", " + payload)
+                                   + ")")
+                   .replace();
+        }
+        else
+        {
+            return triggers;
+        }
+
+        triggers.put(triggerName,
+                     trigger);
+
+        return triggers;
+    }
+
+    /**
+     * Prepares the batched default triggers for the given action.
+     *
+     * <p>
+     * On embedded databases a row trigger buffers the identity of every changed row and a statement trigger, which is
+     * created after it and therefore fires after it, dispatches the buffered identities as one event. On remote
+     * databases a statement trigger copies the identities of all changed rows from its transition table into the
+     * RECENT_TRIGGERS table, marked as a batch so that they are dispatched together.
+     * </p>
+     *
+     * @param action Either 'insert', 'update' or 'delete'.
+     *
+     * @return The prepared trigger statements mapped by the names of the triggers, in the order in which they have to
+     *         be created.
+     */
+    private Map<String, CreateTriggerStatement> batchTriggers(String action)
+    {
+        Map<String, CreateTriggerStatement> triggers = new LinkedHashMap<>();
+        String triggerName = this.name + "_t_" + action;
+        boolean oldRows = action.equals("delete");
+
+        if (this.db instanceof EmbeddedDatabase)
+        {
+            var trigger = this.db.create()
+                                 .trigger(triggerName)
+                                 .after(action)
+                                 .on(this.name);
+
+            if (oldRows)
             {
-                this.db.create()
-                       .trigger(this.name + "_t_delete")
-                       .after("delete")
-                       .on(this.name)
-                       .oldAs("oldRow")
-                       .forEachRow()
-                       .execute(
-                               "INSERT INTO recent_triggers (triggerType, tableName, rowIdFieldName, idRow) values ('delete', '"
-                                       + this.name.toUpperCase() + "', '" + this.identity + "', oldRow."
-                                       + this.identity
-                                       + ")")
-                       .replace()
-                       .execute();
+                trigger.oldAs("oldRow");
             }
-
-            if (this.createDefaultInsertTrigger)
+            else
             {
-                this.db.create()
-                       .trigger(this.name + "_t_insert")
-                       .after("insert")
-                       .on(this.name)
-                       .newAs("newRow")
-                       .forEachRow()
-                       .execute(
-                               "INSERT INTO recent_triggers (triggerType, tableName, rowIdFieldName, idRow) values ('insert', '"
-                                       + this.name.toUpperCase() + "', '" + this.identity + "', newRow."
-                                       + this.identity
-                                       + ")")
-                       .replace()
-                       .execute();
+                trigger.newAs("newRow");
             }
 
-            if (this.createDefaultUpdateTrigger)
+            trigger.forEachRow()
+                   .call("bufferChange")
+                   .with(this.db.getInstanceID(),
+                         action,
+                         this.name.toUpperCase(),
+                         this.identity,
+                         new ColumnEntry(oldRows ? "oldRow" : "newRow",
+                                         this.identity))
+                   .replace();
+
+            triggers.put(triggerName,
+                         trigger);
+
+            triggers.put(triggerName + "_batch",
+                         this.db.create()
+                                .trigger(triggerName + "_batch")
+                                .after(action)
+                                .on(this.name)
+                                .forEachStatement()
+                                .call("flushChanges")
+                                .with(this.db.getInstanceID(),
+                                      action,
+                                      this.name.toUpperCase())
+                                .replace());
+        }
+        else if (this.db instanceof RemoteDatabase)
+        {
+            String alias = oldRows ? "oldRows" : "newRows";
+
+            var trigger = this.db.create()
+                                 .trigger(triggerName)
+                                 .after(action)
+                                 .on(this.name);
+
+            if (oldRows)
             {
-                this.db.create()
-                       .trigger(this.name + "_t_update")
-                       .after("update")
-                       .on(this.name)
-                       .newAs("newRow")
-                       .forEachRow()
-                       .execute(
-                               "INSERT INTO recent_triggers (triggerType, tableName, rowIdFieldName, idRow) values ('update', '"
-                                       + this.name.toUpperCase() + "', '" + this.identity + "', newRow."
-                                       + this.identity
-                                       + ")")
-                       .replace()
-                       .execute();
+                trigger.oldTableAs(alias);
+            }
+            else
+            {
+                trigger.newTableAs(alias);
             }
+
+            trigger.forEachStatement()
+                   .execute(
+                           "INSERT INTO recent_triggers (triggerType, tableName, rowIdFieldName, idRow) SELECT 'batch_" + action + "', '"
+                                   + this.name.toUpperCase() + "', '" + this.identity + "', " + alias + "."
+                                   + this.identity
+                                   + " FROM " + alias)
+                   .replace();
+
+            triggers.put(triggerName,
+                         trigger);
         }
+
+        return triggers;
+    }
+
+    /**
+     * @see bt.db.statement.impl.CreateStatement#getObjectType()
+     */
+    @Override
+    protected ObjectType getObjectType()
+    {
+        return ObjectType.TABLE;
+    }
+
+    /**
+     * @see bt.db.statement.impl.CreateStatement#getAffectedTable()
+     */
+    @Override
+    protected String getAffectedTable()
+    {
+        return this.name;
     }
 
     /**
@@ -398,6 +718,8 @@ public class CreateTableStatement extends CreateStatement<CreateTableStatement,
     @Override
     protected int executeStatement()
     {
+        checkPayloadLength();
+
         String sql = toString();
 
         int result = Integer.MIN_VALUE;
@@ -1,6 +1,7 @@
 package bt.db.statement.impl;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.CatalogCache.ObjectType;
 import bt.db.constants.SqlType;
 import bt.db.exc.SqlExecutionException;
 import bt.db.statement.clause.Column;
@@ -153,6 +154,17 @@ public class CreateTemporaryTableStatement extends CreateStatement<CreateTempora
         return this;
     }
 
+    /**
+     * Temporary tables are not contained in the system catalogs.
+     *
+     * @see bt.db.statement.impl.CreateStatement#getObjectType()
+     */
+    @Override
+    protected ObjectType getObjectType()
+    {
+        return null;
+    }
+
     /**
      * @see bt.db.statement.SqlModifyStatement#execute()
      */
@@ -1,15 +1,19 @@
 package bt.db.statement.impl;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.CatalogCache.ObjectType;
 import bt.db.constants.SqlState;
 import bt.db.exc.SqlExecutionException;
 import bt.db.func.Sql;
 import bt.db.statement.clause.TriggerAction;
+import bt.db.statement.clause.TriggerCondition;
 import bt.log.Log;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
+import java.util.Arrays;
+import java.util.stream.Collectors;
 
 /**
  * Represents an SQL CREATE TRIGGER statement which can be extended through method chaining.
@@ -18,9 +22,11 @@ import java.sql.SQLSyntaxErrorException;
  */
 public class CreateTriggerStatement extends CreateStatement<CreateTriggerStatement, CreateTriggerStatement>
 {
-    private String when;
+    private String timing;
+    private TriggerCondition condition;
     private String triggerKeyword;
     private String oldAlias, newAlias;
+    private String oldTableAlias, newTableAlias;
     private boolean forEachRow = true;
     private TriggerAction triggerAction;
 
@@ -56,7 +62,7 @@ public class CreateTriggerStatement extends CreateStatement<CreateTriggerStateme
     public CreateTriggerStatement after(String action)
     {
         this.triggerKeyword = action.toUpperCase();
-        this.when = "AFTER";
+        this.timing = "AFTER";
         return this;
     }
 
@@ -79,7 +85,7 @@ public class CreateTriggerStatement extends CreateStatement<CreateTriggerStateme
     public CreateTriggerStatement before(String action)
     {
         this.triggerKeyword = action.toUpperCase();
-        this.when = "NO CASCADE BEFORE";
+        this.timing = "NO CASCADE BEFORE";
         return this;
     }
 
@@ -117,6 +123,25 @@ public class CreateTriggerStatement extends CreateStatement<CreateTriggerStateme
         return this;
     }
 
+    /**
+     * Only usable for triggers that are executed {@link #forEachRow() for each row}.
+     *
+     * <p>
+     * Defines a condition that a changed row has to meet for the trigger action to be executed. Unqualified columns of
+     * the condition refer to the {@link #newAs(String) new row} if an alias was set for it and to the
+     * {@link #oldAs(String) old row} otherwise.
+     * </p>
+     *
+     * @param condition The condition.
+     *
+     * @return This instance for chaining.
+     */
+    public CreateTriggerStatement when(TriggerCondition condition)
+    {
+        this.condition = condition;
+        return this;
+    }
+
     /**
      * Sets the table that this trigger should listen on.
      *
@@ -168,6 +193,40 @@ public class CreateTriggerStatement extends CreateStatement<CreateTriggerStateme
         return this;
     }
 
+    /**
+     * Only usable for INSERT and UPDATE triggers that are executed {@link #forEachStatement() for each statement}.
+     *
+     * <p>
+     * Sets an alias for the table of all newly inserted/updated rows.
+     * </p>
+     *
+     * @param alias The alias of the table.
+     *
+     * @return This instance for chaining.
+     */
+    public CreateTriggerStatement newTableAs(String alias)
+    {
+        this.newTableAlias = alias;
+        return this;
+    }
+
+    /**
+     * Only usable for DELETE and UPDATE triggers that are executed {@link #forEachStatement() for each statement}.
+     *
+     * <p>
+     * Sets an alias for the table of all old deleted/updated rows.
+     * </p>
+     *
+     * @param alias The alias of the table.
+     *
+     * @return This instance for chaining.
+     */
+    public CreateTriggerStatement oldTableAs(String alias)
+    {
+        this.oldTableAlias = alias;
+        return this;
+    }
+
     /**
      * Indicates that this trigger should be executed on each affected row.
      *
@@ -201,6 +260,15 @@ public class CreateTriggerStatement extends CreateStatement<CreateTriggerStateme
         return this.triggerAction;
     }
 
+    /**
+     * @see bt.db.statement.impl.CreateStatement#getObjectType()
+     */
+    @Override
+    protected ObjectType getObjectType()
+    {
+        return ObjectType.TRIGGER;
+    }
+
     /**
      * @see bt.db.statement.SqlModifyStatement#execute()
      */
@@ -323,10 +391,16 @@ public class CreateTriggerStatement extends CreateStatement<CreateTriggerStateme
     @Override
     public String toString()
     {
-        String sql = this.statementKeyword + " " + this.name + " " + System.lineSeparator() + this.when + " " + this.triggerKeyword + " ON "
-                + this.tables[0];
+        String sql = this.statementKeyword + " " + this.name + " " + System.lineSeparator() + this.timing + " " + this.triggerKeyword;
 
-        if (this.newAlias != null || this.oldAlias != null)
+        if (this.columns != null && this.columns.length > 0)
+        {
+            sql += " OF " + Arrays.stream(this.columns).map(Object::toString).collect(Collectors.joining(", "));
+        }
+
+        sql += " ON " + this.tables[0];
+
+        if (this.newAlias != null || this.oldAlias != null || this.newTableAlias != null || this.oldTableAlias != null)
         {
             sql += " REFERENCING";
 
@@ -340,11 +414,27 @@ public class CreateTriggerStatement extends CreateStatement<CreateTriggerStateme
                 sql += " OLD AS " + this.oldAlias;
             }
 
+            if (this.newTableAlias != null)
+            {
+                sql += " NEW TABLE AS " + this.newTableAlias;
+            }
+
+            if (this.oldTableAlias != null)
+            {
+                sql += " OLD TABLE AS " + this.oldTableAlias;
+            }
+
             sql += System.lineSeparator();
         }
 
         sql += " FOR EACH " + (this.forEachRow ? "ROW " : "STATEMENT ") + System.lineSeparator();
 
+        if (this.condition != null)
+        {
+            this.condition.setRowAlias(this.newAlias != null ? this.newAlias : this.oldAlias);
+            sql += "WHEN (" + this.condition.toString() + ") " + System.lineSeparator();
+        }
+
         if (this.triggerAction != null)
         {
             sql += this.triggerAction.toString();
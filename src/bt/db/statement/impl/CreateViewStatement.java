@@ -1,6 +1,7 @@
 package bt.db.statement.impl;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.CatalogCache.ObjectType;
 import bt.db.constants.SqlState;
 import bt.db.exc.SqlExecutionException;
 import bt.db.func.Sql;
@@ -34,6 +35,24 @@ public class CreateViewStatement extends CreateStatement<CreateViewStatement, Cr
         return this;
     }
 
+    /**
+     * @see bt.db.statement.impl.CreateStatement#getObjectType()
+     */
+    @Override
+    protected ObjectType getObjectType()
+    {
+        return ObjectType.TABLE;
+    }
+
+    /**
+     * @see bt.db.statement.impl.CreateStatement#getAffectedTable()
+     */
+    @Override
+    protected String getAffectedTable()
+    {
+        return this.name;
+    }
+
     @Override
     protected int executeStatement()
     {
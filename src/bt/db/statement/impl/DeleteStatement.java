@@ -146,7 +146,7 @@ public class DeleteStatement extends SqlModifyStatement<DeleteStatement, DeleteS
 
             if (this.shouldCommit)
             {
-                this.db.commit();
+                this.db.requestCommit();
             }
 
             handleSuccess(result);
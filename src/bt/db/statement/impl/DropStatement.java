@@ -1,6 +1,7 @@
 package bt.db.statement.impl;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.CatalogCache.ObjectType;
 import bt.db.exc.SqlExecutionException;
 import bt.db.statement.SqlModifyStatement;
 import bt.log.Log;
@@ -196,6 +197,23 @@ public class DropStatement extends SqlModifyStatement<DropStatement, DropStateme
         return this;
     }
 
+    /**
+     * @see bt.db.statement.SqlModifyStatement#execute()
+     */
+    @Override
+    public int execute()
+    {
+        int result = super.execute();
+
+        if (result > 0)
+        {
+            this.db.getCatalogCache().dropped(ObjectType.forKeyword(this.keyword), this.name);
+            this.db.getSchemaCache().dropped(ObjectType.forKeyword(this.keyword), this.name);
+        }
+
+        return result;
+    }
+
     /**
      * @see bt.db.statement.SqlModifyStatement#execute(boolean)
      */
@@ -80,6 +80,7 @@ public class InsertStatement extends SqlModifyStatement<InsertStatement, InsertS
     public InsertStatement from(SelectStatement select)
     {
         this.dataSelect = select.unprepared();
+        this.executionResources.addAll(select.getExecutionResources());
         return this;
     }
 
@@ -368,17 +369,25 @@ public class InsertStatement extends SqlModifyStatement<InsertStatement, InsertS
     @Override
     public int execute()
     {
+        if (this.db.recordStatement(this))
+        {
+            return 0;
+        }
+
         startExecutionTime();
         int result = 0;
 
         for (int i = 0; i < this.repeats; i++)
         {
-            result += executeStatement();
+            result += executeWithResources();
         }
 
         result = handleThreshholds(result);
 
         endExecutionTime();
+        this.db.onStatementExecuted(result,
+                                    this.shouldCommit,
+                                    this.tables);
 
         return result;
     }
@@ -422,7 +431,7 @@ public class InsertStatement extends SqlModifyStatement<InsertStatement, InsertS
 
             if (this.shouldCommit)
             {
-                this.db.commit();
+                this.db.requestCommit();
             }
 
             if (this.identityReceiver != null)
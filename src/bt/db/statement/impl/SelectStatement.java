@@ -1,6 +1,8 @@
 package bt.db.statement.impl;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.QueryCoalescer;
+import bt.db.cache.QueryResultCache;
 import bt.db.exc.SqlExecutionException;
 import bt.db.statement.SqlModifyStatement;
 import bt.db.statement.SqlStatement;
@@ -21,7 +23,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
@@ -112,6 +116,11 @@ public class SelectStatement extends SqlStatement<SelectStatement> implements Pr
      */
     private Object intoObject;
 
+    /**
+     * Indicates whether the result of this select may be taken from and stored in the query cache of the database.
+     */
+    private boolean cached;
+
     /**
      * Creates a new instance which selects all columns (*) and will log an error message if no rows are returned.
      *
@@ -841,6 +850,75 @@ public class SelectStatement extends SqlStatement<SelectStatement> implements Pr
         return this;
     }
 
+    /**
+     * Allows the result of this select to be served from the query cache of the database.
+     *
+     * <p>
+     * This has no effect unless the cache was enabled via {@link DatabaseAccess#enableQueryCache(int, long)}. The
+     * cached result is removed as soon as one of the tables that this select reads from changes. Since the returned
+     * result set may be shared with other callers, it must not be modified.
+     * </p>
+     *
+     * @return This instance for chaining.
+     */
+    public SelectStatement cached()
+    {
+        this.cached = true;
+        return this;
+    }
+
+    /**
+     * Gets the names of all tables that this select reads from, including joined tables and the tables of subselects and
+     * chained selects.
+     *
+     * @return The table names.
+     */
+    public Set<String> getReferencedTables()
+    {
+        Set<String> tables = new LinkedHashSet<>();
+        addReferencedTables(tables);
+        return tables;
+    }
+
+    private void addReferencedTables(Set<String> tables)
+    {
+        for (FromClause from : this.fromClauses)
+        {
+            if (from.getTable() instanceof SelectStatement)
+            {
+                ((SelectStatement)from.getTable()).addReferencedTables(tables);
+            }
+            else
+            {
+                tables.add(from.getTable().toString());
+            }
+        }
+
+        for (JoinClause join : this.joins)
+        {
+            tables.add(join.getTable());
+        }
+
+        List<ConditionalClause<SelectStatement>> conditions = new ArrayList<>(this.whereClauses);
+        conditions.addAll(this.havingClauses);
+
+        for (ConditionalClause<SelectStatement> condition : conditions)
+        {
+            if (condition.getSubSelect() != null)
+            {
+                condition.getSubSelect().addReferencedTables(tables);
+            }
+        }
+
+        if (this.chains != null)
+        {
+            for (ChainClause chain : this.chains)
+            {
+                chain.getStatement().addReferencedTables(tables);
+            }
+        }
+    }
+
     /**
      * Combines this select with the given one.
      *
@@ -1003,39 +1081,20 @@ public class SelectStatement extends SqlStatement<SelectStatement> implements Pr
         String sql = toString();
         SqlResultSet result = null;
 
-        try (PreparedStatement statement = this.db.getConnection()
-                                                  .prepareStatement(sql,
-                                                                    ResultSet.TYPE_SCROLL_INSENSITIVE,
-                                                                    ResultSet.CONCUR_READ_ONLY))
+        try
         {
-            Log.debug("Executing: " + sql);
-
-            List<String> valueList = new ArrayList<>();
+            acquireExecutionResources();
 
-            if (this.prepared)
+            try
             {
-                List<Value> values = getValues();
-
-                Preparable.prepareStatement(statement, values);
-
-                if (!values.isEmpty())
-                {
-                    Log.debug("With values:");
-                }
-
-                Value val = null;
-
-                for (int j = 0; j < values.size(); j++)
-                {
-                    val = values.get(j);
-                    Log.debug("p" + (j + 1) + " [" + val.getType().toString() + "] = " + val.getValue());
-                }
+                result = executeQuery(sql);
+            }
+            finally
+            {
+                releaseExecutionResources();
             }
 
-            result = new SqlResultSet(statement.executeQuery());
             endExecutionTime();
-            result.setSql(sql);
-            result.setValues(valueList);
 
             if (this.intoObject != null && result.size() > 1)
             {
@@ -1104,6 +1163,97 @@ public class SelectStatement extends SqlStatement<SelectStatement> implements Pr
         return result;
     }
 
+    /**
+     * Executes the rendered sql or takes the result from the query cache if this select is {@link #cached()}.
+     *
+     * <p>
+     * If query coalescing is enabled, concurrent executions of an identical select share a single execution.
+     * </p>
+     */
+    private SqlResultSet executeQuery(String sql) throws SQLException
+    {
+        QueryResultCache cache = this.cached ? this.db.getQueryCache() : null;
+        QueryCoalescer coalescer = this.db.getQueryCoalescer();
+
+        if (cache == null && coalescer == null)
+        {
+            return query(sql);
+        }
+
+        List<Object> key = QueryResultCache.createKey(sql,
+                                                      this.prepared ? getValues() : List.of());
+        long version = 0;
+
+        if (cache != null)
+        {
+            SqlResultSet cachedResult = cache.get(key);
+
+            if (cachedResult != null)
+            {
+                Log.debug("Using cached result for: " + sql);
+                return cachedResult;
+            }
+
+            version = cache.getVersion();
+        }
+
+        SqlResultSet result = coalescer != null ? coalescer.execute(key, () -> query(sql)) : query(sql);
+
+        if (cache != null)
+        {
+            cache.put(key,
+                      result,
+                      getReferencedTables(),
+                      version);
+        }
+
+        return result;
+    }
+
+    /**
+     * Executes the rendered sql against the database.
+     */
+    private SqlResultSet query(String sql) throws SQLException
+    {
+        SqlResultSet result;
+
+        try (PreparedStatement statement = this.db.getConnection()
+                                                  .prepareStatement(sql,
+                                                                    ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                                                    ResultSet.CONCUR_READ_ONLY))
+        {
+            Log.debug("Executing: " + sql);
+
+            List<String> valueList = new ArrayList<>();
+
+            if (this.prepared)
+            {
+                List<Value> values = getValues();
+
+                Preparable.prepareStatement(statement, values);
+
+                if (!values.isEmpty())
+                {
+                    Log.debug("With values:");
+                }
+
+                Value val = null;
+
+                for (int j = 0; j < values.size(); j++)
+                {
+                    val = values.get(j);
+                    Log.debug("p" + (j + 1) + " [" + val.getType().toString() + "] = " + val.getValue());
+                }
+            }
+
+            result = new SqlResultSet(statement.executeQuery());
+            result.setSql(sql);
+            result.setValues(valueList);
+        }
+
+        return result;
+    }
+
     public StreamableResultSet executeAsStream()
     {
         startExecutionTime();
@@ -1140,7 +1290,21 @@ public class SelectStatement extends SqlStatement<SelectStatement> implements Pr
                 }
             }
 
-            result = new StreamableResultSet(statement.executeQuery(), statement);
+            acquireExecutionResources();
+            ResultSet set = null;
+
+            try
+            {
+                set = statement.executeQuery();
+            }
+            catch (SQLException e)
+            {
+                releaseExecutionResources();
+                throw e;
+            }
+
+            // the resources are needed until the stream is closed
+            result = new StreamableResultSet(set, statement, this::releaseExecutionResources);
             endExecutionTime();
 
             Null.checkRun(this.onSuccess, () -> this.onSuccess.accept(this, null));
@@ -374,7 +374,7 @@ public class UpdateStatement extends SqlModifyStatement<UpdateStatement, UpdateS
 
             if (this.shouldCommit)
             {
-                this.db.commit();
+                this.db.requestCommit();
             }
 
             handleSuccess(result);
@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * Represents a single result (row) of data.
@@ -720,6 +721,102 @@ public class SqlResult implements Iterable<Object>, Serializable
         return statement.toString();
     }
 
+    /**
+     * Creates a copy of this row that can be modified without affecting this instance.
+     *
+     * <p>
+     * Dates, times, timestamps and byte arrays are copied as well. Large objects are shared, since they are only
+     * locators of their content.
+     * </p>
+     *
+     * @return The copy.
+     */
+    public SqlResult copy()
+    {
+        SqlResult copy = new SqlResult(this.columnOrder);
+        copy.stringResults.putAll(this.stringResults);
+        copy.intResults.putAll(this.intResults);
+        copy.shortResults.putAll(this.shortResults);
+        copy.byteResults.putAll(this.byteResults);
+        copy.longResults.putAll(this.longResults);
+        copy.doubleResults.putAll(this.doubleResults);
+        copy.floatResults.putAll(this.floatResults);
+        copy.booleanResults.putAll(this.booleanResults);
+        copy.clobResults.putAll(this.clobResults);
+        copy.blobResults.putAll(this.blobResults);
+        copy.columnTypes = this.columnTypes;
+
+        for (Entry<String, Object> entry : this.objectResults.entrySet())
+        {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+
+            if (value instanceof Timestamp)
+            {
+                Timestamp timestamp = (Timestamp)((Timestamp)value).clone();
+                copy.timestampResults.put(name, timestamp);
+                value = timestamp;
+            }
+            else if (value instanceof Time)
+            {
+                Time time = (Time)((Time)value).clone();
+                copy.timeResults.put(name, time);
+                value = time;
+            }
+            else if (value instanceof Date)
+            {
+                Date date = (Date)((Date)value).clone();
+                copy.dateResults.put(name, date);
+                value = date;
+            }
+            else if (value instanceof byte[])
+            {
+                value = ((byte[])value).clone();
+            }
+
+            copy.objectResults.put(name, value);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Gets a rough estimate of the heap memory that the values of this row occupy. Used to bound the size of result
+     * chunks.
+     *
+     * <p>
+     * Strings count with two bytes per character, large objects only with the size of their locator, since their
+     * content is not read into memory.
+     * </p>
+     *
+     * @return The estimated size in bytes.
+     */
+    public long getEstimatedSize()
+    {
+        long size = 0;
+
+        for (Object value : this.objectResults.values())
+        {
+            // map entries of the typed and the object map
+            size += 64;
+
+            if (value instanceof String)
+            {
+                size += 40 + 2 * ((String)value).length();
+            }
+            else if (value instanceof byte[])
+            {
+                size += 16 + ((byte[])value).length;
+            }
+            else if (value != null)
+            {
+                size += 24;
+            }
+        }
+
+        return size;
+    }
+
     /**
      * @see java.lang.Iterable#iterator()
      */
@@ -183,6 +183,52 @@ public class SqlResultSet implements Iterable<SqlResult>, Serializable
         return this.results.get(index);
     }
 
+    /**
+     * Creates a copy of this set whose results can be modified without affecting this instance.
+     *
+     * @return The copy.
+     *
+     * @see SqlResult#copy()
+     */
+    public SqlResultSet copy()
+    {
+        SqlResultSet copy = new SqlResultSet(new ArrayList<>(this.colOrder));
+        copy.sql = this.sql;
+        copy.values = this.values != null ? new ArrayList<>(this.values) : null;
+        copy.valueTypes = new HashMap<>(this.valueTypes);
+
+        for (SqlResult result : this.results)
+        {
+            copy.results.add(result.copy());
+        }
+
+        return copy;
+    }
+
+    /**
+     * Indicates whether this set contains a CLOB or BLOB column.
+     *
+     * <p>
+     * The values of such columns are locators that are only valid while the transaction that selected them is open.
+     * </p>
+     *
+     * @return true if at least one column is a large object.
+     */
+    public boolean hasLargeObjects()
+    {
+        for (String type : this.valueTypes.values())
+        {
+            SqlType sqlType = SqlType.convert(type);
+
+            if (sqlType == SqlType.CLOB || sqlType == SqlType.BLOB)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Gets a list of Strings representing the name of the columns in left to right order.
      *
@@ -203,6 +249,29 @@ public class SqlResultSet implements Iterable<SqlResult>, Serializable
      * @throws SQLException
      */
     public SqlResultSet parse(ResultSet set) throws SQLException
+    {
+        return parse(set, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Parses the next rows of the given ResultSet until either limit is reached.
+     *
+     * <p>
+     * The ResultSet is only closed once all of its rows were read, so that it can be parsed in chunks by passing it to
+     * the parse method of a new instance for every chunk. Whether all rows were read can be checked via
+     * {@link ResultSet#isClosed()}.
+     * </p>
+     *
+     * @param set      The ResultSet whichs values should be parsed.
+     * @param maxRows  The maximum number of rows to read.
+     * @param maxBytes The maximum {@link SqlResult#getEstimatedSize() estimated size} of the read rows in bytes. The
+     *                 row that exceeds this limit is still included.
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public SqlResultSet parse(ResultSet set, int maxRows, long maxBytes) throws SQLException
     {
         List<SqlResult> results = new ArrayList<>();
 
@@ -290,8 +359,17 @@ public class SqlResultSet implements Iterable<SqlResult>, Serializable
             }
         }
 
-        while (set.next())
+        boolean exhausted = false;
+        long bytes = 0;
+
+        while (results.size() < maxRows && bytes < maxBytes)
         {
+            if (!set.next())
+            {
+                exhausted = true;
+                break;
+            }
+
             SqlResult result = new SqlResult(this.colOrder);
 
             for (String name : stringResults)
@@ -417,10 +495,19 @@ public class SqlResultSet implements Iterable<SqlResult>, Serializable
             result.setColumnTypes(this.valueTypes);
 
             results.add(result);
+
+            if (maxBytes != Long.MAX_VALUE)
+            {
+                bytes += result.getEstimatedSize();
+            }
         }
 
         this.results = results;
-        set.close();
+
+        if (exhausted)
+        {
+            set.close();
+        }
 
         return this;
     }
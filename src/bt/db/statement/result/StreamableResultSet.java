@@ -2,6 +2,7 @@ package bt.db.statement.result;
 
 import bt.log.Log;
 import bt.types.UncheckedCloseable;
+import bt.utils.Null;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -20,12 +21,26 @@ public class StreamableResultSet extends AbstractSpliterator<ResultSet> implemen
     private ResultSet results;
     private Statement statement;
     private SqlResultSet printableResultSet;
+    private Runnable onClose;
 
     public StreamableResultSet(ResultSet results, Statement statement)
+    {
+        this(results, statement, null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param results   The results to stream.
+     * @param statement The statement that produced the results. It is closed together with this instance.
+     * @param onClose   Called after the statement was closed. Can be null.
+     */
+    public StreamableResultSet(ResultSet results, Statement statement, Runnable onClose)
     {
         super(Long.MAX_VALUE, Spliterator.ORDERED);
         this.results = results;
         this.statement = statement;
+        this.onClose = onClose;
     }
 
     public Stream<ResultSet> stream()
@@ -67,7 +82,14 @@ public class StreamableResultSet extends AbstractSpliterator<ResultSet> implemen
     @Override
     public void close() throws Exception
     {
-        this.statement.close();
+        try
+        {
+            this.statement.close();
+        }
+        finally
+        {
+            Null.checkRun(this.onClose, this.onClose);
+        }
     }
 
     private SqlResultSet getPrintableResultSet()
@@ -1,8 +1,10 @@
 package bt.db.store;
 
 import bt.db.DatabaseAccess;
+import bt.db.cache.EntityCache;
 import bt.db.constants.SqlType;
 import bt.db.exc.SqlEntryException;
+import bt.db.exc.SqlExecutionException;
 import bt.db.statement.impl.InsertStatement;
 import bt.db.statement.impl.UpdateStatement;
 import bt.db.statement.result.SqlResult;
@@ -20,6 +22,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 /**
  * Offers an interface and static methods to persist and initialize objects who make use of the {@link Column},
@@ -58,6 +62,11 @@ public interface SqlEntry
      * </ul>
      * </p>
      *
+     * <p>
+     * If the entity cache of the database is enabled for the given class, a cached instance is returned without
+     * accessing the database.
+     * </p>
+     *
      * @param db  The database to use to retrieve the column values.
      * @param cls The class to create an instance of.
      * @param id  The id to look for in the database.
@@ -66,6 +75,23 @@ public interface SqlEntry
      */
     public static <T> T init(DatabaseAccess db, Class<T> cls, long id)
     {
+        EntityCache cache = db.getEntityCache();
+        long version = 0;
+
+        if (cache != null && cache.isEnabled(cls))
+        {
+            T cached = cache.get(cls,
+                                 id);
+
+            if (cached != null)
+            {
+                return cached;
+            }
+
+            // obtained before the row is read, so that a concurrent update can't be overwritten by the stale row
+            version = cache.getVersion();
+        }
+
         // attempting to create a new instance of the given class by calling the empty constructor
         T entry = null;
         try
@@ -122,6 +148,12 @@ public interface SqlEntry
                                   entry);
         }
 
+        if (entry != null && cache != null)
+        {
+            cache.put(entry,
+                      version);
+        }
+
         return entry;
     }
 
@@ -153,6 +185,58 @@ public interface SqlEntry
                              null);
     }
 
+    /**
+     * Lazily initializes instances of the given class by paging through the table defined by the classes {@link Table}
+     * annotation in ascending identity order.
+     *
+     * <p>
+     * Instances are initialized in chunks of a default size once the returned stream requests them, so only a single
+     * chunk is held in memory at a time. Use this instead of {@link #init(DatabaseAccess, Class)} to process tables
+     * that are too large to be loaded as a whole.
+     * </p>
+     *
+     * <p>
+     * The class has to meet the same requirements as for {@link #init(DatabaseAccess, Class)}.
+     * </p>
+     *
+     * @param db  The database to use to retrieve the column values.
+     * @param cls The class to create instances of.
+     *
+     * @return A lazily evaluated stream of one instance for each row contained in the defined table.
+     */
+    public static <T> Stream<T> stream(DatabaseAccess db, Class<T> cls)
+    {
+        return SqlEntry.stream(db,
+                               cls,
+                               SqlEntrySpliterator.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Lazily initializes instances of the given class by paging through the table defined by the classes {@link Table}
+     * annotation in ascending identity order.
+     *
+     * <p>
+     * Instances are initialized in chunks of the given size once the returned stream requests them, so only a single
+     * chunk is held in memory at a time.
+     * </p>
+     *
+     * <p>
+     * The class has to meet the same requirements as for {@link #init(DatabaseAccess, Class)}.
+     * </p>
+     *
+     * @param db        The database to use to retrieve the column values.
+     * @param cls       The class to create instances of.
+     * @param chunkSize The number of instances that are initialized per database round trip.
+     *
+     * @return A lazily evaluated stream of one instance for each row contained in the defined table.
+     */
+    public static <T> Stream<T> stream(DatabaseAccess db, Class<T> cls, int chunkSize)
+    {
+        return new SqlEntrySpliterator<>(db,
+                                         cls,
+                                         chunkSize).stream();
+    }
+
     /**
      * Initializes instances of the given class by using matching database identities with the given IDs.
      *
@@ -176,6 +260,42 @@ public interface SqlEntry
      */
     public static <T> List<T> init(DatabaseAccess db, Class<T> cls, List<Long> ids)
     {
+        List<T> instances = new ArrayList<>();
+        EntityCache cache = db.getEntityCache();
+
+        if (cache != null && !cache.isEnabled(cls))
+        {
+            cache = null;
+        }
+
+        if (cache != null && ids != null)
+        {
+            // only select the instances that are not cached yet
+            List<Long> missingIds = new ArrayList<>();
+
+            for (Long id : ids)
+            {
+                T cached = cache.get(cls,
+                                     id);
+
+                if (cached != null)
+                {
+                    instances.add(cached);
+                }
+                else
+                {
+                    missingIds.add(id);
+                }
+            }
+
+            if (missingIds.isEmpty())
+            {
+                return instances;
+            }
+
+            ids = missingIds;
+        }
+
         // just used to either get all entries or the ones with an id in the given list
         long checkValue = ids == null ? Long.MIN_VALUE : Long.MAX_VALUE;
 
@@ -184,8 +304,6 @@ public interface SqlEntry
             ids = List.of(Long.MIN_VALUE);
         }
 
-        List<T> instances = new ArrayList<>();
-
         Table globalTable = cls.getAnnotation(Table.class);
         Table mainTable = null;
         List<String> tables = new ArrayList<>();
@@ -378,6 +496,11 @@ public interface SqlEntry
             }
         }
 
+        if (cache != null)
+        {
+            entries.values().forEach(cache::put);
+        }
+
         instances.addAll(entries.values());
 
         return instances;
@@ -612,6 +735,39 @@ public interface SqlEntry
      */
     public static <T> void persist(DatabaseAccess db, T entry)
     {
+        SqlEntry.persist(db,
+                         entry,
+                         true);
+    }
+
+    /**
+     * Persists the given instance to the database by using the {@link Table} and {@link Column} annotation of the
+     * class.
+     *
+     * <p>
+     * If commit is false the written rows are neither committed nor rolled back by this method. Failures are passed to
+     * {@link DatabaseAccess#dispatchException(java.sql.SQLException) dispatchException} instead, which allows the caller
+     * to persist multiple instances in a single transaction.
+     * </p>
+     *
+     * <p>
+     * The class has to meet the same requirements as for {@link #persist(DatabaseAccess, Object)}.
+     * </p>
+     *
+     * <p>
+     * If commit is false, nested {@link SqlEntryField}s are persisted via this method as well, even if they implement
+     * {@link SqlEntry}, so that their rows stay in the same transaction.
+     * </p>
+     *
+     * @param db     The database to use for persisting.
+     * @param entry  The instance to persist.
+     * @param commit true if every written row should be committed immediately.
+     *
+     * @return true if all rows were written, false if a statement failed.
+     */
+    public static <T> boolean persist(DatabaseAccess db, T entry, boolean commit)
+    {
+        AtomicBoolean failed = new AtomicBoolean();
         Map<String, List<SimpleTripple<String, SqlType, Object>>> tableValues = new HashMap<>();
         List<Object> sqlEntryFields = new ArrayList<>();
 
@@ -778,19 +934,23 @@ public interface SqlEntry
                            SqlType.LONG);
             }
 
-            insert.commit();
+            if (commit)
+            {
+                insert.commit();
+                update.commit();
+            }
+
             insert.onFail((select, e) ->
                           {
                               Log.error("Failed to persist entry", e);
-                              db.rollback();
-                              return -1;
+                              failed.set(true);
+                              return failPersist(db, e, commit);
                           });
 
-            update.commit();
             update.onFail((select, e) ->
                           {
-                              db.rollback();
-                              return -1;
+                              failed.set(true);
+                              return failPersist(db, e, commit);
                           });
 
             update.where(id.getKey()).equal(id.getValue().longValue());
@@ -805,23 +965,64 @@ public interface SqlEntry
                           update)
               .onFail((select, e) ->
                       {
-                          db.rollback();
+                          failed.set(true);
+                          failPersist(db, e, commit);
                           return null;
                       })
               .execute();
         }
 
+        EntityCache cache = db.getEntityCache();
+
+        if (cache != null && !failed.get() && commit)
+        {
+            // the triggers of the written rows removed the old instance, so the persisted state is cached instead
+            cache.put(entry);
+        }
+        else if (cache != null)
+        {
+            // the rows are not committed yet and might still be rolled back
+            cache.remove(entry);
+        }
+
+        boolean persisted = !failed.get();
+
         for (Object obj : sqlEntryFields)
         {
-            if (obj instanceof SqlEntry)
+            if (obj instanceof SqlEntry && commit)
             {
                 ((SqlEntry)obj).persist(db);
             }
             else
             {
-                SqlEntry.persist(db,
-                                 obj);
+                persisted &= SqlEntry.persist(db,
+                                              obj,
+                                              commit);
             }
         }
+
+        return persisted;
+    }
+
+    /**
+     * Handles a failed statement during {@link #persist(DatabaseAccess, Object, boolean)}.
+     *
+     * <p>
+     * Rolls the transaction back if the statements commit themselves, otherwise the transaction is left to the caller
+     * and the exception is dispatched.
+     * </p>
+     */
+    private static int failPersist(DatabaseAccess db, SqlExecutionException e, boolean commit)
+    {
+        if (commit)
+        {
+            db.rollback();
+        }
+        else
+        {
+            db.dispatchException(e);
+        }
+
+        return -1;
     }
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+package bt.db.store;
+
+import bt.db.DatabaseAccess;
+import bt.db.exc.SqlEntryException;
+import bt.db.statement.impl.SelectStatement;
+import bt.db.statement.result.SqlResult;
+import bt.db.statement.result.SqlResultSet;
+import bt.db.store.anot.Column;
+import bt.db.store.anot.Identity;
+import bt.db.store.anot.Table;
+import bt.log.Log;
+import bt.reflect.field.Fields;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily initializes instances of a {@link SqlEntry} class in chunks.
+ *
+ * <p>
+ * The main table of the class is paged through in ascending identity order by remembering the last returned identity
+ * (keyset paging) instead of using offsets. Only one chunk of instances is held in memory at any time, which keeps
+ * memory usage bounded regardless of the size of the table.
+ * </p>
+ *
+ * @author &#8904
+ */
+class SqlEntrySpliterator<T> extends AbstractSpliterator<T>
+{
+    /**
+     * The number of instances that are initialized per chunk if no other size is specified.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private DatabaseAccess db;
+    private Class<T> cls;
+    private int chunkSize;
+
+    /**
+     * The name of the identity column.
+     */
+    private String idColumn;
+
+    /**
+     * The name of the table that contains the identity column.
+     */
+    private String mainTable;
+
+    /**
+     * The identity field of the class, used to keep each chunk in identity order.
+     */
+    private Field idField;
+
+    /**
+     * The highest identity that was read so far or null if no chunk has been read yet.
+     */
+    private Long lastId;
+
+    private Iterator<T> currentChunk = Collections.emptyIterator();
+
+    private boolean exhausted;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param db        The database to use to retrieve the column values.
+     * @param cls       The class to create instances of.
+     * @param chunkSize The number of instances to initialize per database round trip.
+     */
+    SqlEntrySpliterator(DatabaseAccess db, Class<T> cls, int chunkSize)
+    {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+
+        if (chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size must be greater than 0.");
+        }
+
+        this.db = db;
+        this.cls = cls;
+        this.chunkSize = chunkSize;
+
+        Table globalTable = cls.getAnnotation(Table.class);
+
+        for (Field field : Fields.getAllFields(cls))
+        {
+            Identity ident = field.getAnnotation(Identity.class);
+            Column col = field.getAnnotation(Column.class);
+
+            if (ident != null && col != null)
+            {
+                if (field.getType() != Long.TYPE)
+                {
+                    throw new SqlEntryException("Identity field must of type long.");
+                }
+
+                Table table = field.getAnnotation(Table.class);
+
+                if (table != null)
+                {
+                    this.mainTable = table.value();
+                }
+                else if (globalTable != null)
+                {
+                    this.mainTable = globalTable.value();
+                }
+                else
+                {
+                    throw new SqlEntryException(
+                            "Class needs either a global table annotation or a table annotation on every persistance field.");
+                }
+
+                this.idColumn = col.name();
+                this.idField = field;
+                this.idField.setAccessible(true);
+                break;
+            }
+        }
+
+        if (this.idField == null)
+        {
+            throw new SqlEntryException("Class requires a valid identity field of type long.");
+        }
+    }
+
+    /**
+     * Creates a sequential stream over this spliterator.
+     *
+     * @return The stream.
+     */
+    Stream<T> stream()
+    {
+        return StreamSupport.stream(this, false);
+    }
+
+    /**
+     * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action)
+    {
+        while (!this.currentChunk.hasNext())
+        {
+            if (this.exhausted)
+            {
+                return false;
+            }
+
+            loadChunk();
+        }
+
+        action.accept(this.currentChunk.next());
+        return true;
+    }
+
+    /**
+     * Selects the next chunk of identities from the main table and initializes the matching instances.
+     */
+    private void loadChunk()
+    {
+        SelectStatement select = this.db.select(this.idColumn)
+                                        .from(this.mainTable);
+
+        if (this.lastId != null)
+        {
+            select.where(this.idColumn).greaterThan(this.lastId);
+        }
+
+        SqlResultSet set = select.orderBy(this.idColumn)
+                                 .asc()
+                                 .first(this.chunkSize)
+                                 .onLessThan(1,
+                                             (i, sqlSet) ->
+                                             {
+                                                 return sqlSet;
+                                             })
+                                 .execute();
+
+        if (set == null || set.size() == 0)
+        {
+            this.exhausted = true;
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(set.size());
+
+        for (SqlResult result : set)
+        {
+            ids.add(result.getLong(this.idColumn));
+        }
+
+        this.lastId = ids.get(ids.size() - 1);
+        this.exhausted = ids.size() < this.chunkSize;
+
+        List<T> entries = SqlEntry.init(this.db,
+                                        this.cls,
+                                        ids);
+        entries.sort(Comparator.comparingLong(this::getIdentity));
+        this.currentChunk = entries.iterator();
+
+        Log.debug(String.format("Initialized chunk of %d %s instances up to identity %d.",
+                                entries.size(),
+                                this.cls.getSimpleName(),
+                                this.lastId));
+    }
+
+    private long getIdentity(T entry)
+    {
+        try
+        {
+            return this.idField.getLong(entry);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new SqlEntryException("Failed to get field value", e);
+        }
+    }
+}
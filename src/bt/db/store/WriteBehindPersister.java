@@ -0,0 +1,631 @@
+package bt.db.store;
+
+import bt.db.DatabaseAccess;
+import bt.db.store.anot.Identity;
+import bt.log.Log;
+import bt.reflect.field.Fields;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persists objects asynchronously on a background thread.
+ *
+ * <p>
+ * Objects passed to {@link #persist(Object)} are put into a bounded queue. Repeated writes of an object with the same
+ * class and {@link Identity} value that are still queued are coalesced, so only the latest state is written. A
+ * background writer persists the queued objects in batches of up to {@link #getBatchSize() batchSize} objects and
+ * commits once per batch. A batch is written as soon as enough objects are queued or after the flush interval passed.
+ * </p>
+ *
+ * <p>
+ * If the queue is full, {@link #persist(Object)} blocks until the writer made room. Failures are passed to the
+ * registered exception handlers of the database via {@link DatabaseAccess#dispatchException(SQLException)}.
+ * </p>
+ *
+ * <p>
+ * Objects are always written via {@link SqlEntry#persist(DatabaseAccess, Object, boolean)}, so a custom
+ * {@link SqlEntry#persist(DatabaseAccess)} implementation is not called. The rows of an object that fails partway are
+ * rolled back to a savepoint and are not part of the batch commit.
+ * </p>
+ *
+ * <p>
+ * The writer uses its own connection from {@link DatabaseAccess#openConnection()}, which is
+ * {@link DatabaseAccess#bindConnection(Connection) bound} to the writing thread while a batch is written, so a batch
+ * commit never commits uncommitted changes of the shared connection. Objects that are persisted synchronously after
+ * {@link #close()} use the shared connection.
+ * </p>
+ *
+ * @author &#8904
+ */
+public class WriteBehindPersister
+{
+    /**
+     * Caches the identity field of every persisted class. Classes without identity are mapped to themselves.
+     */
+    private static final Map<Class<?>, Object> identityFields = new ConcurrentHashMap<>();
+
+    private DatabaseAccess db;
+    private int capacity;
+    private int batchSize;
+    private long flushInterval;
+
+    /**
+     * The queued objects mapped by their class and identity.
+     */
+    private LinkedHashMap<Object, Object> pending;
+
+    private ReentrantLock queueLock;
+    private Condition notFull;
+    private Condition batchReady;
+
+    /**
+     * Held while a batch is written, so that {@link #flush()} and the background writer do not interleave.
+     */
+    private ReentrantLock writeLock;
+
+    /**
+     * The connection that batches are written on. Opened with the first batch and only used while the write lock is
+     * held.
+     */
+    private Connection connection;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    private AtomicLong queued;
+    private AtomicLong coalesced;
+    private AtomicLong written;
+    private AtomicLong failed;
+    private AtomicLong batches;
+
+    /**
+     * Creates a new instance and starts the background writer.
+     *
+     * @param db            The database to persist the objects to.
+     * @param capacity      The maximum number of queued objects.
+     * @param batchSize     The maximum number of objects that are written in a single transaction.
+     * @param flushInterval The maximum time in milliseconds that an object stays queued.
+     */
+    public WriteBehindPersister(DatabaseAccess db, int capacity, int batchSize, long flushInterval)
+    {
+        if (capacity <= 0 || batchSize <= 0 || flushInterval <= 0)
+        {
+            throw new IllegalArgumentException("Capacity, batch size and flush interval must be greater than 0.");
+        }
+
+        this.db = db;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.pending = new LinkedHashMap<>();
+        this.queueLock = new ReentrantLock();
+        this.notFull = this.queueLock.newCondition();
+        this.batchReady = this.queueLock.newCondition();
+        this.writeLock = new ReentrantLock();
+        this.queued = new AtomicLong();
+        this.coalesced = new AtomicLong();
+        this.written = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.batches = new AtomicLong();
+
+        this.running = true;
+        this.writer = new Thread(this::runWriter, "DATABASE_WRITE_BEHIND");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the given object to be persisted by the background writer.
+     *
+     * <p>
+     * If an object of the same class with the same identity is still queued, it is replaced by the given one. This
+     * method blocks while the queue is full. If this persister was already closed, the object is persisted
+     * synchronously instead.
+     * </p>
+     *
+     * @param entry The object to persist.
+     */
+    public void persist(Object entry)
+    {
+        Objects.requireNonNull(entry);
+
+        if (!this.running)
+        {
+            persistEntry(entry, true);
+            return;
+        }
+
+        Object key = createKey(entry);
+        boolean enqueued = false;
+
+        this.queueLock.lock();
+
+        try
+        {
+            // running is checked again under the lock, since close() drains the queue under the same lock
+            if (this.running && this.pending.containsKey(key))
+            {
+                this.pending.put(key, entry);
+                this.coalesced.incrementAndGet();
+                return;
+            }
+
+            while (this.pending.size() >= this.capacity && this.running)
+            {
+                this.notFull.await();
+            }
+
+            if (this.running)
+            {
+                this.pending.put(key, entry);
+                this.queued.incrementAndGet();
+                enqueued = true;
+
+                if (this.pending.size() >= this.batchSize)
+                {
+                    this.batchReady.signal();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for space in the write behind queue.", e);
+        }
+        finally
+        {
+            this.queueLock.unlock();
+        }
+
+        if (!enqueued)
+        {
+            // closed while waiting, the final flush might already be done
+            persistEntry(entry, true);
+        }
+    }
+
+    /**
+     * Writes all currently queued objects on the calling thread and commits them.
+     */
+    public void flush()
+    {
+        this.writeLock.lock();
+
+        try
+        {
+            List<Object> batch;
+
+            while (!(batch = drain(Integer.MAX_VALUE)).isEmpty())
+            {
+                writeBatch(batch);
+            }
+        }
+        finally
+        {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background writer and writes all remaining queued objects.
+     *
+     * <p>
+     * Objects that are passed to {@link #persist(Object)} after this call are persisted synchronously.
+     * </p>
+     */
+    public void close()
+    {
+        this.queueLock.lock();
+
+        try
+        {
+            // set under the lock, so that no object is queued after the final flush
+            this.running = false;
+            this.batchReady.signalAll();
+            this.notFull.signalAll();
+        }
+        finally
+        {
+            this.queueLock.unlock();
+        }
+
+        try
+        {
+            this.writer.join(this.flushInterval * 10);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        this.writeLock.lock();
+
+        try
+        {
+            flush();
+            closeConnection();
+        }
+        finally
+        {
+            this.writeLock.unlock();
+        }
+
+        Log.debug(String.format("Closed write behind persister after writing %d entries in %d batches (%d coalesced, %d failed).",
+                                getWrittenCount(),
+                                getBatchCount(),
+                                getCoalescedCount(),
+                                getFailedCount()));
+    }
+
+    private void runWriter()
+    {
+        while (this.running)
+        {
+            List<Object> batch;
+
+            this.queueLock.lock();
+
+            try
+            {
+                long waitNanos = TimeUnit.MILLISECONDS.toNanos(this.flushInterval);
+
+                while (this.running && this.pending.size() < this.batchSize && waitNanos > 0)
+                {
+                    waitNanos = this.batchReady.awaitNanos(waitNanos);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            finally
+            {
+                this.queueLock.unlock();
+            }
+
+            this.writeLock.lock();
+
+            try
+            {
+                while (!(batch = drain(this.batchSize)).isEmpty())
+                {
+                    writeBatch(batch);
+
+                    if (batch.size() < this.batchSize)
+                    {
+                        break;
+                    }
+                }
+            }
+            finally
+            {
+                this.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes up to the given number of objects from the queue.
+     */
+    private List<Object> drain(int max)
+    {
+        List<Object> batch = new ArrayList<>();
+
+        this.queueLock.lock();
+
+        try
+        {
+            Iterator<Object> iterator = this.pending.values().iterator();
+
+            while (iterator.hasNext() && batch.size() < max)
+            {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+
+            if (!batch.isEmpty())
+            {
+                this.notFull.signalAll();
+            }
+        }
+        finally
+        {
+            this.queueLock.unlock();
+        }
+
+        return batch;
+    }
+
+    private void writeBatch(List<Object> batch)
+    {
+        try
+        {
+            if (this.connection == null || this.connection.isClosed())
+            {
+                this.connection = this.db.openConnection();
+            }
+        }
+        catch (SQLException e)
+        {
+            this.failed.addAndGet(batch.size());
+            Log.error("Failed to open write behind connection", e);
+            return;
+        }
+
+        this.db.bindConnection(this.connection);
+
+        try
+        {
+            for (Object entry : batch)
+            {
+                persistEntry(entry, false);
+            }
+
+            this.db.commit();
+            this.batches.incrementAndGet();
+            Log.debug(String.format("Wrote batch of %d entries.", batch.size()));
+        }
+        catch (RuntimeException e)
+        {
+            this.failed.addAndGet(batch.size());
+            Log.error("Failed to commit write behind batch", e);
+
+            try
+            {
+                this.db.rollback();
+            }
+            catch (RuntimeException unhandled)
+            {
+                Log.error("Failed to roll back write behind batch", unhandled);
+            }
+        }
+        finally
+        {
+            this.db.unbindConnection();
+        }
+    }
+
+    private void closeConnection()
+    {
+        if (this.connection == null)
+        {
+            return;
+        }
+
+        try
+        {
+            this.connection.close();
+        }
+        catch (SQLException e)
+        {
+            Log.error("Failed to close write behind connection", e);
+        }
+
+        this.connection = null;
+    }
+
+    /**
+     * Persists the given object through {@link SqlEntry#persist(DatabaseAccess, Object, boolean)}, also if it implements
+     * {@link SqlEntry}, since its own persist method would commit every object on its own.
+     *
+     * <p>
+     * If the rows are not committed immediately, they are written after a savepoint, so that the rows of an object that
+     * fails partway are rolled back instead of being committed with the rest of the batch.
+     * </p>
+     */
+    private void persistEntry(Object entry, boolean commit)
+    {
+        Savepoint savepoint = null;
+
+        try
+        {
+            if (!commit)
+            {
+                // set through the database, so that the journal events of a failed object are rolled back as well
+                savepoint = this.db.createSavepoint("WRITE_BEHIND_ENTRY");
+            }
+
+            boolean persisted = SqlEntry.persist(this.db,
+                                                 entry,
+                                                 commit);
+
+            if (persisted)
+            {
+                this.written.incrementAndGet();
+
+                if (savepoint != null)
+                {
+                    this.db.getConnection().releaseSavepoint(savepoint);
+                }
+            }
+            else
+            {
+                // the failure was already dispatched by the failing statement
+                this.failed.incrementAndGet();
+                rollbackTo(savepoint);
+            }
+        }
+        catch (SQLException e)
+        {
+            this.failed.incrementAndGet();
+            rollbackTo(savepoint);
+
+            try
+            {
+                this.db.dispatchException(e);
+            }
+            catch (RuntimeException unhandled)
+            {
+                Log.error("Failed to persist entry", e);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            this.failed.incrementAndGet();
+            rollbackTo(savepoint);
+
+            try
+            {
+                if (e.getCause() instanceof SQLException)
+                {
+                    this.db.dispatchException((SQLException)e.getCause());
+                }
+                else
+                {
+                    this.db.dispatchException(new SQLException("Failed to persist " + entry.getClass().getName() + " asynchronously.", e));
+                }
+            }
+            catch (RuntimeException unhandled)
+            {
+                Log.error("Failed to persist entry", e);
+            }
+        }
+    }
+
+    private void rollbackTo(Savepoint savepoint)
+    {
+        if (savepoint == null)
+        {
+            return;
+        }
+
+        try
+        {
+            this.db.rollbackTransaction(savepoint);
+            this.db.getConnection().releaseSavepoint(savepoint);
+        }
+        catch (SQLException e)
+        {
+            Log.error("Failed to roll back to savepoint", e);
+        }
+    }
+
+    /**
+     * Creates the key that is used to coalesce writes of the same object.
+     */
+    private Object createKey(Object entry)
+    {
+        Object field = WriteBehindPersister.identityFields.computeIfAbsent(entry.getClass(), cls ->
+        {
+            for (Field f : Fields.getAllFields(cls))
+            {
+                if (f.getAnnotation(Identity.class) != null && f.getType() == Long.TYPE)
+                {
+                    f.setAccessible(true);
+                    return f;
+                }
+            }
+
+            return cls;
+        });
+
+        if (field instanceof Field)
+        {
+            try
+            {
+                return List.of(entry.getClass(), ((Field)field).getLong(entry));
+            }
+            catch (IllegalAccessException e)
+            {
+                Log.error("Failed to get identity value", e);
+            }
+        }
+
+        // no identity, writes of this object can't be coalesced
+        return new Object();
+    }
+
+    /**
+     * Gets the number of currently queued objects.
+     *
+     * @return The queue size.
+     */
+    public int getQueueSize()
+    {
+        this.queueLock.lock();
+
+        try
+        {
+            return this.pending.size();
+        }
+        finally
+        {
+            this.queueLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the maximum number of objects that are written in a single transaction.
+     *
+     * @return The batch size.
+     */
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    /**
+     * Gets the number of objects that were queued without replacing an already queued object.
+     *
+     * @return The count.
+     */
+    public long getQueuedCount()
+    {
+        return this.queued.get();
+    }
+
+    /**
+     * Gets the number of writes that were coalesced with an already queued write of the same object.
+     *
+     * @return The count.
+     */
+    public long getCoalescedCount()
+    {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Gets the number of objects that were persisted.
+     *
+     * @return The count.
+     */
+    public long getWrittenCount()
+    {
+        return this.written.get();
+    }
+
+    /**
+     * Gets the number of objects that failed to persist.
+     *
+     * @return The count.
+     */
+    public long getFailedCount()
+    {
+        return this.failed.get();
+    }
+
+    /**
+     * Gets the number of committed batches.
+     *
+     * @return The count.
+     */
+    public long getBatchCount()
+    {
+        return this.batches.get();
+    }
+}